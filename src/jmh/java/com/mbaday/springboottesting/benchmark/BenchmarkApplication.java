@@ -0,0 +1,36 @@
+package com.mbaday.springboottesting.benchmark;
+
+import com.mbaday.springboottesting.SpringbootTestingApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// boots the real application (services, repositories, caches) against an in-memory H2 database with no web
+// server and no SQL logging, so the benchmarks measure the code paths and not the console
+final class BenchmarkApplication {
+
+    private BenchmarkApplication() {
+    }
+
+    static ConfigurableApplicationContext start(String... extraProperties) {
+        // passed as command line arguments so they take precedence over application.properties
+        List<String> arguments = new ArrayList<>(List.of(
+                "--spring.datasource.url=jdbc:h2:mem:bench;DB_CLOSE_DELAY=-1",
+                "--spring.datasource.username=sa",
+                "--spring.datasource.password=",
+                "--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+                "--spring.jpa.hibernate.ddl-auto=create-drop",
+                "--spring.jpa.show-sql=false",
+                "--spring.main.banner-mode=off",
+                "--logging.level.root=WARN"));
+        Arrays.stream(extraProperties).map(property -> "--" + property).forEach(arguments::add);
+
+        return new SpringApplicationBuilder(SpringbootTestingApplication.class)
+                .web(WebApplicationType.NONE)
+                .run(arguments.toArray(new String[0]));
+    }
+}
@@ -0,0 +1,84 @@
+package com.mbaday.springboottesting.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mbaday.springboottesting.dto.EmployeeView;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+// cost of turning the List<EmployeeView> returned by EmployeeController.getAllEmployees into the response body,
+// using an ObjectMapper configured the way Spring MVC configures its message converters: JSON against the
+// Smile and CBOR formats (WireFormatConfig), each plain and gzip compressed like server.compression does.
+// the score is µs/op, the body size of every combination (bytes/op) is printed at the end of its trial
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EmployeeJsonSerializationBenchmark {
+
+    @Param({"10", "1000", "10000"})
+    private int size;
+
+    @Param({"json", "smile", "cbor"})
+    private String format;
+
+    @Param({"none", "gzip"})
+    private String compression;
+
+    private ObjectMapper objectMapper;
+
+    private List<EmployeeView> employees;
+
+    private int bytes;
+
+    @Setup
+    public void setUp() {
+        objectMapper = switch (format) {
+            case "smile" -> Jackson2ObjectMapperBuilder.smile().build();
+            case "cbor" -> Jackson2ObjectMapperBuilder.cbor().build();
+            default -> Jackson2ObjectMapperBuilder.json().build();
+        };
+        employees = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            employees.add(new EmployeeView(i + 1L, "Somtochukwu" + i, "Mbah" + i,
+                    "victorsomtochukwu" + i + "@gmail.com", 0L));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void printBodySize() {
+        System.out.printf("%n%s/%s, %d employees: %d bytes/op%n", format, compression, size, bytes);
+    }
+
+    @Benchmark
+    public byte[] serializeEmployeeList() throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        try (OutputStream out = compression.equals("gzip") ? new GZIPOutputStream(body) : body) {
+            objectMapper.writeValue(out, employees);
+        }
+        byte[] result = body.toByteArray();
+        bytes = result.length;
+        return result;
+    }
+}
@@ -0,0 +1,135 @@
+package com.mbaday.springboottesting.benchmark;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+// closed-loop HTTP load against a running instance: every client sends GET /api/employees/{id} back to back for
+// the given duration. used to compare the default platform thread pool with employees.virtual-threads.enabled=true
+//
+//   ./mvnw -Pjmh -DskipTests test-compile exec:java -Dexec.classpathScope=test \
+//       -Dexec.mainClass=com.mbaday.springboottesting.benchmark.EmployeeLoadTest \
+//       -Dexec.args="http://localhost:8080 2000 30 1000"
+//
+// arguments: base url, concurrent clients, duration in seconds, highest employee id to request
+public class EmployeeLoadTest {
+
+    public static void main(String[] args) throws Exception {
+        String baseUrl = args.length > 0 ? args[0] : "http://localhost:8080";
+        int clients = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 30;
+        int maxId = args.length > 3 ? Integer.parseInt(args[3]) : 1000;
+
+        HttpClient httpClient = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10)).build();
+        long deadline = System.nanoTime() + Duration.ofSeconds(seconds).toNanos();
+        LongAdder ok = new LongAdder();
+        LongAdder failed = new LongAdder();
+        LatencyHistogram latencies = new LatencyHistogram();
+        CountDownLatch done = new CountDownLatch(clients);
+
+        for (int c = 0; c < clients; c++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    while (System.nanoTime() < deadline) {
+                        long id = 1 + ThreadLocalRandom.current().nextInt(maxId);
+                        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/api/employees/" + id))
+                                .timeout(Duration.ofSeconds(30)).GET().build();
+                        long start = System.nanoTime();
+                        try {
+                            HttpResponse<Void> response = httpClient.send(request,
+                                    HttpResponse.BodyHandlers.discarding());
+                            if (response.statusCode() < 500) {
+                                ok.increment();
+                            } else {
+                                failed.increment();
+                            }
+                        } catch (Exception e) {
+                            failed.increment();
+                        }
+                        latencies.record(System.nanoTime() - start);
+                    }
+                } finally {
+                    done.countDown();
+                }
+            });
+            thread.setDaemon(true);
+            thread.start();
+        }
+        done.await();
+
+        System.out.printf("clients=%d duration=%ds ok=%d failed=%d throughput=%.1f req/s p50=%.1fms p99=%.1fms%n",
+                clients, seconds, ok.sum(), failed.sum(), ok.sum() / (double) seconds,
+                latencies.percentile(0.50) / 1_000_000.0, latencies.percentile(0.99) / 1_000_000.0);
+    }
+
+    // every latency of every client in one histogram of fixed size, a few thousand clients writing their own
+    // arrays of samples would measure the load generator's heap as much as the server. a bucket is 1/32 of a
+    // power of two wide, so a percentile is off by at most about 3%
+    static final class LatencyHistogram {
+
+        private static final int SUB_BUCKET_BITS = 5;
+
+        private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+        private final LongAdder[] counts = new LongAdder[(64 - SUB_BUCKET_BITS) * SUB_BUCKETS];
+
+        LatencyHistogram() {
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = new LongAdder();
+            }
+        }
+
+        void record(long nanos) {
+            counts[index(Math.max(0, nanos))].increment();
+        }
+
+        // the middle of the bucket holding the sample at that rank, in nanoseconds
+        double percentile(double percentile) {
+            long[] snapshot = new long[counts.length];
+            long total = 0;
+            for (int i = 0; i < counts.length; i++) {
+                snapshot[i] = counts[i].sum();
+                total += snapshot[i];
+            }
+            if (total == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(total * percentile));
+            long seen = 0;
+            for (int i = 0; i < snapshot.length; i++) {
+                seen += snapshot[i];
+                if (seen >= rank) {
+                    return lowest(i) + width(i) / 2.0;
+                }
+            }
+            return lowest(snapshot.length - 1);
+        }
+
+        // below SUB_BUCKETS one bucket per value, above the highest bits of the value pick the bucket
+        private static int index(long value) {
+            if (value < SUB_BUCKETS) {
+                return (int) value;
+            }
+            int exponent = 63 - Long.numberOfLeadingZeros(value);
+            int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+            return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+        }
+
+        private static long lowest(int index) {
+            if (index < SUB_BUCKETS) {
+                return index;
+            }
+            int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+            return (long) (SUB_BUCKETS + index % SUB_BUCKETS) << (exponent - SUB_BUCKET_BITS);
+        }
+
+        private static long width(int index) {
+            return index < SUB_BUCKETS ? 1 : 1L << (index / SUB_BUCKETS - 1);
+        }
+    }
+}
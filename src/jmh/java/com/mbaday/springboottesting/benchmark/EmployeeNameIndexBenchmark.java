@@ -0,0 +1,74 @@
+package com.mbaday.springboottesting.benchmark;
+
+import com.mbaday.springboottesting.dto.EmployeeView;
+import com.mbaday.springboottesting.model.Employee;
+import com.mbaday.springboottesting.repository.EmployeeJdbcRepository;
+import com.mbaday.springboottesting.service.EmployeeService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// name search with and without the (last_name, first_name, id) index. the "scan" variant drops the index after
+// seeding, which is what every name query cost before the index was declared on the entity
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EmployeeNameIndexBenchmark {
+
+    @Param({"1000000"})
+    private int rows;
+
+    @Param({"index", "scan"})
+    private String access;
+
+    private ConfigurableApplicationContext context;
+
+    private EmployeeService employeeService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start();
+        employeeService = context.getBean(EmployeeService.class);
+        EmployeeRepositoryQueryBenchmark.seed(context.getBean(EmployeeJdbcRepository.class), rows);
+        if (access.equals("scan")) {
+            context.getBean(JdbcTemplate.class).execute("drop index " + Employee.NAME_INDEX);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<EmployeeView> lastAndFirstName() {
+        int i = ThreadLocalRandom.current().nextInt(rows);
+        return employeeService.findEmployeesByName(EmployeeRepositoryQueryBenchmark.lastName(i),
+                EmployeeRepositoryQueryBenchmark.firstName(i), 0L, 100);
+    }
+
+    @Benchmark
+    public List<EmployeeView> lastNameOnly() {
+        int i = ThreadLocalRandom.current().nextInt(rows);
+        return employeeService.findEmployeesByName(EmployeeRepositoryQueryBenchmark.lastName(i), null, 0L, 100);
+    }
+}
@@ -0,0 +1,82 @@
+package com.mbaday.springboottesting.benchmark;
+
+import com.mbaday.springboottesting.repository.EmployeeJdbcRepository;
+import com.mbaday.springboottesting.repository.EmployeeRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// loading a page of rows as managed entities (persistence context, dirty-checking snapshots) versus reading the
+// same columns as a scalar projection or as EmployeeView objects. run with -prof gc to compare allocation per
+// operation
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EmployeeProjectionBenchmark {
+
+    @Param({"100", "1000"})
+    private int pageSize;
+
+    private ConfigurableApplicationContext context;
+
+    private EntityManagerFactory entityManagerFactory;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start();
+        entityManagerFactory = context.getBean(EntityManagerFactory.class);
+        EmployeeRepositoryQueryBenchmark.seed(context.getBean(EmployeeJdbcRepository.class), 10_000);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<?> entities() {
+        return query("select e from Employee e order by e.id");
+    }
+
+    @Benchmark
+    public List<?> projection() {
+        return query("select e.id, e.firstName, e.lastName, e.email from Employee e order by e.id");
+    }
+
+    // the EmployeeView constructor expression used by the service reads
+    @Benchmark
+    public List<?> view() {
+        return query(EmployeeRepository.EMPLOYEE_VIEW_SELECT + " order by e.id");
+    }
+
+    private List<?> query(String jpql) {
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        try {
+            entityManager.getTransaction().begin();
+            List<?> result = entityManager.createQuery(jpql).setMaxResults(pageSize).getResultList();
+            entityManager.getTransaction().commit();
+            return result;
+        } finally {
+            entityManager.close();
+        }
+    }
+}
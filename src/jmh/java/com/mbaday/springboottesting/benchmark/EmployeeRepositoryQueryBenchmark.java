@@ -0,0 +1,105 @@
+package com.mbaday.springboottesting.benchmark;
+
+import com.mbaday.springboottesting.model.Employee;
+import com.mbaday.springboottesting.repository.EmployeeJdbcRepository;
+import com.mbaday.springboottesting.repository.EmployeeRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// the four first/last name query styles declared on EmployeeRepository, side by side on the same data
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EmployeeRepositoryQueryBenchmark {
+
+    @Param({"10000"})
+    private int rows;
+
+    private ConfigurableApplicationContext context;
+
+    private EmployeeRepository employeeRepository;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start();
+        employeeRepository = context.getBean(EmployeeRepository.class);
+        seed(context.getBean(EmployeeJdbcRepository.class), rows);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Employee jpqlIndexParams() {
+        int i = randomRow();
+        return employeeRepository.findByJPQL(firstName(i), lastName(i));
+    }
+
+    @Benchmark
+    public Employee jpqlNamedParams() {
+        int i = randomRow();
+        return employeeRepository.findByJPQLNamedParam(firstName(i), lastName(i));
+    }
+
+    @Benchmark
+    public Employee nativeIndexParams() {
+        int i = randomRow();
+        return employeeRepository.findByNativeSQL(firstName(i), lastName(i));
+    }
+
+    @Benchmark
+    public Employee nativeNamedParams() {
+        int i = randomRow();
+        return employeeRepository.findByNativeSQLNamedParam(firstName(i), lastName(i));
+    }
+
+    private int randomRow() {
+        return ThreadLocalRandom.current().nextInt(rows);
+    }
+
+    static void seed(EmployeeJdbcRepository employeeJdbcRepository, int rows) {
+        List<Employee> batch = new ArrayList<>();
+        for (int i = 0; i < rows; i++) {
+            batch.add(Employee.builder()
+                    .firstName(firstName(i))
+                    .lastName(lastName(i))
+                    .email("employee" + i + "@gmail.com")
+                    .build());
+            if (batch.size() == 1000) {
+                employeeJdbcRepository.batchInsert(batch);
+                batch = new ArrayList<>();
+            }
+        }
+        employeeJdbcRepository.batchInsert(batch);
+    }
+
+    static String firstName(int i) {
+        return "First" + i;
+    }
+
+    static String lastName(int i) {
+        return "Last" + i;
+    }
+}
@@ -0,0 +1,101 @@
+package com.mbaday.springboottesting.benchmark;
+
+import com.mbaday.springboottesting.dto.EmployeeSearchHit;
+import com.mbaday.springboottesting.model.Employee;
+import com.mbaday.springboottesting.search.EmployeeSearchIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// type-ahead queries against the in-memory index, no Spring context. names are drawn from small pools so that
+// postings are long and prefixes are shared, as with real names; every email is unique
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class EmployeeSearchIndexBenchmark {
+
+    private static final String[] FIRST_NAMES = {"Somtochukwu", "Emeka", "Chioma", "Ngozi", "Adaeze", "Victor",
+            "Sophia", "Ifeanyi", "Obinna", "Kelechi", "Amara", "Chinedu", "Uchenna", "Nnamdi", "Ebuka", "Tobenna"};
+
+    private static final String[] LAST_NAMES = {"Mbah", "Azubuine", "Nnadi", "Okafor", "Eze", "Okeke", "Obi",
+            "Nwosu", "Onyeka", "Chukwu", "Ibe", "Agu", "Ezeh", "Anyanwu", "Okonkwo", "Udeh"};
+
+    @Param({"1000000"})
+    private int employees;
+
+    private EmployeeSearchIndex searchIndex;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        searchIndex = new EmployeeSearchIndex();
+        Random random = new Random(42);
+        searchIndex.rebuild(consumer -> {
+            for (int i = 1; i <= employees; i++) {
+                // a numeric suffix on part of the names keeps the term dictionary large
+                String firstName = FIRST_NAMES[random.nextInt(FIRST_NAMES.length)] + (i % 3 == 0 ? "" : i % 5000);
+                String lastName = LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+                consumer.accept(Employee.builder()
+                        .id(i)
+                        .firstName(firstName)
+                        .lastName(lastName)
+                        .email(firstName.toLowerCase() + "." + lastName.toLowerCase() + i + "@gmail.com")
+                        .build());
+            }
+        });
+    }
+
+    @Benchmark
+    public List<EmployeeSearchHit> shortPrefix() {
+        return searchIndex.search("s", 10);
+    }
+
+    // a one letter prefix whose employees all fail the second word, the scan stops at MAX_SCANNED postings
+    @Benchmark
+    public List<EmployeeSearchHit> shortPrefixNoMatch() {
+        return searchIndex.search("s x", 10);
+    }
+
+    @Benchmark
+    public List<EmployeeSearchHit> namePrefix() {
+        return searchIndex.search("somtochukwu12", 10);
+    }
+
+    @Benchmark
+    public List<EmployeeSearchHit> firstAndLastName() {
+        return searchIndex.search("chioma okonk", 10);
+    }
+
+    @Benchmark
+    public List<EmployeeSearchHit> emailPrefix() {
+        int i = ThreadLocalRandom.current().nextInt(1, employees);
+        return searchIndex.search("sophia.mbah" + i, 10);
+    }
+
+    @Benchmark
+    public List<EmployeeSearchHit> misspeltName() {
+        return searchIndex.search("azubiune", 10);
+    }
+
+    // a word that matches no prefix and only few trigrams, the worst case for the fuzzy fallback
+    @Benchmark
+    public List<EmployeeSearchHit> noMatch() {
+        return searchIndex.search("xqzvbw", 10);
+    }
+}
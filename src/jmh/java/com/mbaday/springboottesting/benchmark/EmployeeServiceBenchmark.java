@@ -0,0 +1,99 @@
+package com.mbaday.springboottesting.benchmark;
+
+import com.mbaday.springboottesting.dto.EmployeeView;
+import com.mbaday.springboottesting.model.Employee;
+import com.mbaday.springboottesting.service.EmployeeService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// EmployeeServiceImpl CRUD through the Spring proxies against H2. the cache parameter switches the read-through
+// cache off ("none") to measure the database path, or leaves the default caffeine cache in place
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EmployeeServiceBenchmark {
+
+    private static final int SEEDED_EMPLOYEES = 10_000;
+
+    @Param({"none", "caffeine"})
+    private String cache;
+
+    private ConfigurableApplicationContext context;
+
+    private EmployeeService employeeService;
+
+    private final AtomicLong emailSequence = new AtomicLong();
+
+    private long firstId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start("spring.cache.type=" + cache);
+        employeeService = context.getBean(EmployeeService.class);
+        firstId = newEmployee().getId();
+        for (int i = 1; i < SEEDED_EMPLOYEES; i++) {
+            newEmployee();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public EmployeeView saveEmployee() {
+        return newEmployee();
+    }
+
+    @Benchmark
+    public Optional<EmployeeView> getEmployeeById() {
+        return employeeService.getEmployeeById(randomSeededId());
+    }
+
+    @Benchmark
+    public EmployeeView updateEmployee() {
+        EmployeeView employee = employeeService.getEmployeeById(randomSeededId()).orElseThrow();
+        return employeeService.updateEmployee(employee.toEmployee().toBuilder()
+                .firstName("Emeka" + ThreadLocalRandom.current().nextInt())
+                .build());
+    }
+
+    @Benchmark
+    public void saveAndDeleteEmployee() {
+        employeeService.deleteEmployee(newEmployee().getId());
+    }
+
+    private EmployeeView newEmployee() {
+        long sequence = emailSequence.incrementAndGet();
+        return employeeService.saveEmployee(Employee.builder()
+                .firstName("Somtochukwu")
+                .lastName("Mbah")
+                .email("employee" + sequence + "@gmail.com")
+                .build());
+    }
+
+    private long randomSeededId() {
+        return firstId + ThreadLocalRandom.current().nextInt(SEEDED_EMPLOYEES);
+    }
+}
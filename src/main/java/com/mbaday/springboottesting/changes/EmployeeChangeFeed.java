@@ -0,0 +1,238 @@
+package com.mbaday.springboottesting.changes;
+
+import com.mbaday.springboottesting.dto.EmployeeChangeEvent;
+import com.mbaday.springboottesting.dto.EmployeeChangePage;
+import com.mbaday.springboottesting.model.EmployeeChange;
+import com.mbaday.springboottesting.repository.EmployeeChangeRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// ordered change feed of the employees table. the services record every create, update and delete in the
+// transaction of the change, consumers read the changes after the last seq they have applied, waiting for the
+// next ones when they are up to date.
+// seqs are handed out at insert but become visible at commit, so a lower seq may still show up after a higher one
+// has been read. a read stops in front of a gap in the seqs until the change after it is gap-timeout old; by then
+// the missing seq is either committed or gone for good (rolled back, compacted)
+@Slf4j
+@Component
+public class EmployeeChangeFeed {
+
+    // superseded changes deleted per statement by the compaction
+    static final int COMPACTION_BATCH_SIZE = 10_000;
+
+    private EmployeeChangeRepository changeRepository;
+
+    private Duration pollInterval;
+
+    private Duration gapTimeout;
+
+    private Duration compactAfter;
+
+    private Duration compactionInterval;
+
+    private final Queue<Waiter> waiters = new ConcurrentLinkedQueue<>();
+
+    private final AtomicBoolean wakeUpPending = new AtomicBoolean();
+
+    private volatile boolean stopped;
+
+    private ScheduledExecutorService scheduler;
+
+    private record Waiter(long since, int limit, CompletableFuture<EmployeeChangePage> result) {
+    }
+
+    @Autowired
+    public EmployeeChangeFeed(EmployeeChangeRepository changeRepository,
+                              @Value("${employees.changes.poll-interval:500ms}") Duration pollInterval,
+                              @Value("${employees.changes.gap-timeout:5s}") Duration gapTimeout,
+                              @Value("${employees.changes.compact-after:7d}") Duration compactAfter,
+                              @Value("${employees.changes.compaction-interval:1h}") Duration compactionInterval) {
+        this.changeRepository = changeRepository;
+        this.pollInterval = pollInterval;
+        this.gapTimeout = gapTimeout;
+        this.compactAfter = compactAfter;
+        this.compactionInterval = compactionInterval;
+    }
+
+    @PostConstruct
+    public void start() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "employee-change-feed");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // the poll picks up the commits of the other instances, the own ones wake the waiters right away
+        scheduler.scheduleWithFixedDelay(this::pollQuietly, pollInterval.toMillis(), pollInterval.toMillis(),
+                TimeUnit.MILLISECONDS);
+        scheduler.scheduleWithFixedDelay(this::compactQuietly, compactionInterval.toMillis(),
+                compactionInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    // waiting consumers get an empty page and come back to another instance
+    @PreDestroy
+    public void stop() {
+        stopped = true;
+        scheduler.shutdownNow();
+        for (Waiter waiter = waiters.poll(); waiter != null; waiter = waiters.poll()) {
+            waiter.result().complete(new EmployeeChangePage(List.of(), waiter.since()));
+        }
+    }
+
+    // joins the current transaction: rolled back together with the change, waiters are woken once it committed
+    public void record(EmployeeChange.Type type, Collection<Long> employeeIds) {
+        if (employeeIds.isEmpty()) {
+            return;
+        }
+        changeRepository.append(type, employeeIds);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    wakeUpWaiters();
+                }
+            });
+        } else {
+            wakeUpWaiters();
+        }
+    }
+
+    public void record(EmployeeChange.Type type, long employeeId) {
+        record(type, List.of(employeeId));
+    }
+
+    // for writes that append their changes in a transaction of their own (R2DBC), once it committed
+    public void committed() {
+        wakeUpWaiters();
+    }
+
+    // up to limit changes after since, without the ones behind a gap that may still be filled
+    public EmployeeChangePage read(long since, int limit) {
+        List<EmployeeChangeEvent> changes = changeRepository.findAfter(since, limit);
+        Instant settledBefore = Instant.now().minus(gapTimeout);
+        List<EmployeeChangeEvent> settled = new ArrayList<>(changes.size());
+        long expected = since + 1;
+        for (EmployeeChangeEvent change : changes) {
+            if (change.getSeq() != expected && change.getChangedAt().isAfter(settledBefore)) {
+                break;
+            }
+            settled.add(change);
+            expected = change.getSeq() + 1;
+        }
+        return new EmployeeChangePage(settled, settled.isEmpty() ? since : settled.get(settled.size() - 1).getSeq());
+    }
+
+    // the changes after since as soon as there are any, an empty page once wait has passed without one.
+    // cancelling the future (the consumer went away) drops the waiter
+    public CompletableFuture<EmployeeChangePage> await(long since, int limit, Duration wait) {
+        if (stopped) {
+            throw new IllegalStateException("The employee change feed has been stopped");
+        }
+        EmployeeChangePage page = read(since, limit);
+        if (!page.getChanges().isEmpty() || wait.isZero()) {
+            return CompletableFuture.completedFuture(page);
+        }
+        Waiter waiter = new Waiter(since, limit, new CompletableFuture<>());
+        waiters.add(waiter);
+        waiter.result().whenComplete((result, failure) -> waiters.remove(waiter));
+        try {
+            scheduler.schedule(() -> waiter.result().complete(page), wait.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            waiter.result().complete(page);
+        }
+        return waiter.result();
+    }
+
+    // a seq that no change still in flight can come in below: the snapshot taken after reading it contains
+    // every change up to it, its consumer continues the feed from there
+    public long settledSeq() {
+        return changeRepository.findLastSeqBefore(Instant.now().minus(gapTimeout));
+    }
+
+    // the employees deleted after since and no later than until, the tombstones of the delta sync
+    public List<Long> findDeletedBetween(Instant since, Instant until) {
+        return changeRepository.findDeletedBetween(since, until);
+    }
+
+    // deletes the changes older than compact-after that a later change of the same employee supersedes. the last
+    // change of every employee stays, deletes included, so a consumer any distance behind still ends up with the
+    // current table. returns the number of changes deleted
+    public int compact() {
+        Instant before = Instant.now().minus(compactAfter);
+        int compacted = 0;
+        int deleted;
+        do {
+            deleted = changeRepository.deleteSuperseded(before, COMPACTION_BATCH_SIZE);
+            compacted += deleted;
+        } while (deleted == COMPACTION_BATCH_SIZE);
+        return compacted;
+    }
+
+    void poll() {
+        if (waiters.isEmpty()) {
+            return;
+        }
+        long lastSeq = changeRepository.findLastSeq();
+        for (Waiter waiter : waiters) {
+            if (waiter.since() < lastSeq && !waiter.result().isDone()) {
+                EmployeeChangePage page = read(waiter.since(), waiter.limit());
+                if (!page.getChanges().isEmpty()) {
+                    waiter.result().complete(page);
+                }
+            }
+        }
+    }
+
+    // one poll for any number of commits in a row
+    private void wakeUpWaiters() {
+        if (waiters.isEmpty() || !wakeUpPending.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            scheduler.execute(() -> {
+                wakeUpPending.set(false);
+                pollQuietly();
+            });
+        } catch (RejectedExecutionException e) {
+            // shutting down, the waiters have been answered already
+        }
+    }
+
+    private void pollQuietly() {
+        try {
+            poll();
+        } catch (RuntimeException e) {
+            log.warn("Employee change feed poll failed", e);
+        }
+    }
+
+    private void compactQuietly() {
+        try {
+            int compacted = compact();
+            if (compacted > 0) {
+                log.info("Compacted {} superseded employee change(s)", compacted);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Employee change feed compaction failed", e);
+        }
+    }
+}
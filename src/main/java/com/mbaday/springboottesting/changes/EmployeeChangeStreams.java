@@ -0,0 +1,153 @@
+package com.mbaday.springboottesting.changes;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mbaday.springboottesting.dto.EmployeeChangeEvent;
+import com.mbaday.springboottesting.dto.EmployeeChangePage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// the server-sent event streams of the change feed. a stream holds no thread while it waits: it is a chain of
+// feed.await() futures, each page is written by one of a few sender threads, which then asks for the next one.
+// at most max-streams are open at once, beyond that open() refuses
+@Slf4j
+@Component
+@Profile("!reactive")
+public class EmployeeChangeStreams {
+
+    public static final int MAX_CHANGES = 1000;
+
+    private EmployeeChangeFeed changeFeed;
+
+    private ObjectMapper objectMapper;
+
+    private Duration heartbeatInterval;
+
+    private Semaphore streams;
+
+    private ExecutorService senders;
+
+    @Autowired
+    public EmployeeChangeStreams(EmployeeChangeFeed changeFeed, ObjectMapper objectMapper,
+                                 @Value("${employees.changes.heartbeat-interval:15s}") Duration heartbeatInterval,
+                                 @Value("${employees.changes.max-streams:200}") int maxStreams,
+                                 @Value("${employees.changes.stream-senders:4}") int senders) {
+        this.changeFeed = changeFeed;
+        this.objectMapper = objectMapper;
+        this.heartbeatInterval = heartbeatInterval;
+        this.streams = new Semaphore(maxStreams);
+        AtomicInteger threads = new AtomicInteger();
+        this.senders = Executors.newFixedThreadPool(senders, runnable -> {
+            Thread thread = new Thread(runnable, "employee-change-stream-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void stop() {
+        senders.shutdownNow();
+    }
+
+    // the changes after since, until the async request timeout (spring.mvc.async.request-timeout) ends the stream
+    // and the client reconnects. empty when max-streams are open
+    public Optional<SseEmitter> open(long since) {
+        if (!streams.tryAcquire()) {
+            return Optional.empty();
+        }
+        SseEmitter emitter = new SseEmitter();
+        Stream stream = new Stream(emitter, since);
+        emitter.onCompletion(stream::close);
+        emitter.onTimeout(emitter::complete);
+        emitter.onError(failure -> stream.close());
+        try {
+            senders.execute(stream::awaitNext);
+        } catch (RejectedExecutionException e) {
+            stream.close();
+            return Optional.empty();
+        }
+        return Optional.of(emitter);
+    }
+
+    private final class Stream {
+
+        private final SseEmitter emitter;
+
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        private long next;
+
+        private volatile CompletableFuture<EmployeeChangePage> pending;
+
+        private Stream(SseEmitter emitter, long since) {
+            this.emitter = emitter;
+            this.next = since;
+        }
+
+        private void awaitNext() {
+            if (closed.get()) {
+                return;
+            }
+            try {
+                pending = changeFeed.await(next, MAX_CHANGES, heartbeatInterval);
+                pending.whenCompleteAsync(this::send, senders);
+            } catch (RuntimeException e) {
+                // the feed has stopped (shutting down) or the executor with it
+                emitter.complete();
+            }
+        }
+
+        // a heartbeat comment when nothing changed. a client that went away fails the send
+        private void send(EmployeeChangePage page, Throwable failure) {
+            if (closed.get()) {
+                return;
+            }
+            if (failure != null) {
+                emitter.completeWithError(failure);
+                return;
+            }
+            try {
+                if (page.getChanges().isEmpty()) {
+                    emitter.send(SseEmitter.event().comment("heartbeat"));
+                }
+                for (EmployeeChangeEvent change : page.getChanges()) {
+                    emitter.send(SseEmitter.event()
+                            .id(String.valueOf(change.getSeq()))
+                            .name(change.getType().name())
+                            .data(objectMapper.writeValueAsString(change)));
+                }
+            } catch (IOException | IllegalStateException e) {
+                log.debug("Employee change stream closed: {}", e.getMessage());
+                close();
+                return;
+            }
+            next = page.getNextSince();
+            awaitNext();
+        }
+
+        private void close() {
+            if (closed.compareAndSet(false, true)) {
+                streams.release();
+                CompletableFuture<EmployeeChangePage> waiting = pending;
+                if (waiting != null) {
+                    waiting.cancel(false);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.mbaday.springboottesting.config;
+
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.core.Ordered;
+import org.springframework.context.annotation.Configuration;
+
+// the cache provider, size and TTL come from spring.cache.* in application.properties (caffeine by default),
+// so the implementation can be swapped without touching the service. the cache advice runs outside the
+// transaction advice, a cache hit returns before a transaction (and a connection) is started
+@Configuration
+@EnableCaching(order = Ordered.HIGHEST_PRECEDENCE)
+public class CacheConfig {
+
+    public static final String EMPLOYEES_CACHE = "employees";
+}
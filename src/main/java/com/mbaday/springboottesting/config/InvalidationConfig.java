@@ -0,0 +1,43 @@
+package com.mbaday.springboottesting.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mbaday.springboottesting.invalidation.EmployeeInvalidationTransport;
+import com.mbaday.springboottesting.invalidation.HttpInvalidationTransport;
+import com.mbaday.springboottesting.invalidation.LoopbackInvalidationTransport;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.List;
+
+// the transport the invalidation outbox relays over (employees.invalidation.transport). loopback keeps everything
+// inside this JVM, http posts to the instances listed in employees.invalidation.peers and does not start without
+// the shared employees.invalidation.token
+@Configuration
+public class InvalidationConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "employees.invalidation.transport", havingValue = "loopback", matchIfMissing = true)
+    public EmployeeInvalidationTransport loopbackInvalidationTransport() {
+        return new LoopbackInvalidationTransport();
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "employees.invalidation.transport", havingValue = "http")
+    public HttpInvalidationTransport httpInvalidationTransport(
+            @Value("${employees.invalidation.peers:}") List<String> peers,
+            @Value("${employees.invalidation.token:}") String token,
+            @Value("${employees.invalidation.max-ids:1000}") int maxEmployeeIds,
+            @Value("${employees.invalidation.batch-size:500}") int batchSize,
+            @Value("${employees.invalidation.timeout:2s}") Duration timeout,
+            ObjectMapper objectMapper) {
+        // a message holds up to batch-size ids, the peers (configured alike) would refuse every larger one
+        if (batchSize > maxEmployeeIds) {
+            throw new IllegalStateException("employees.invalidation.batch-size (" + batchSize
+                    + ") is above employees.invalidation.max-ids (" + maxEmployeeIds + ")");
+        }
+        return new HttpInvalidationTransport(peers, token, maxEmployeeIds, timeout, objectMapper);
+    }
+}
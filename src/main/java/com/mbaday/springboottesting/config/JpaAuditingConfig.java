@@ -0,0 +1,11 @@
+package com.mbaday.springboottesting.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.jpa.repository.config.EnableJpaAuditing;
+
+// fills Employee.createdAt and updatedAt on every write through JPA. kept off the application class so the web
+// slice tests, which start without JPA, do not need it
+@Configuration
+@EnableJpaAuditing
+public class JpaAuditingConfig {
+}
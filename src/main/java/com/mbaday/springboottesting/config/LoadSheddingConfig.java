@@ -0,0 +1,49 @@
+package com.mbaday.springboottesting.config;
+
+import com.mbaday.springboottesting.throttle.AdaptiveConcurrencyLimit;
+import com.mbaday.springboottesting.throttle.LoadSheddingFilter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.env.Environment;
+
+import java.util.List;
+
+// rate limits and load shedding for /api/employees (see LoadSheddingFilter). a client that keeps reloading the
+// full list runs out of tokens for that endpoint only, and when the database slows down the requests beyond the
+// adaptive limit are turned away before they wait for a connection
+@Configuration
+@Profile("!reactive")
+@ConditionalOnProperty(name = "employees.load-shedding.enabled", havingValue = "true")
+public class LoadSheddingConfig {
+
+    @Bean
+    public FilterRegistrationBean<LoadSheddingFilter> loadSheddingFilter(
+            Environment environment, MeterRegistry meterRegistry,
+            @Value("${employees.load-shedding.client-header:}") String clientHeader,
+            @Value("${employees.load-shedding.rate-limit.per-second:50}") double perSecond,
+            @Value("${employees.load-shedding.rate-limit.burst:100}") int burst,
+            @Value("${employees.load-shedding.concurrency.initial-limit:20}") int initialLimit,
+            @Value("${employees.load-shedding.concurrency.min-limit:5}") int minLimit,
+            @Value("${employees.load-shedding.concurrency.max-limit:200}") int maxLimit,
+            @Value("${employees.load-shedding.concurrency.latency-tolerance:2.0}") double latencyTolerance,
+            @Value("${employees.load-shedding.concurrency.exempt-paths:}") List<String> exemptPaths) {
+        List<LoadSheddingFilter.EndpointRateLimit> endpointLimits = Binder.get(environment)
+                .bind("employees.load-shedding.endpoints", Bindable.listOf(LoadSheddingFilter.EndpointRateLimit.class))
+                .orElse(List.of());
+        LoadSheddingFilter filter = new LoadSheddingFilter(endpointLimits,
+                new LoadSheddingFilter.EndpointRateLimit(null, null, perSecond, burst), clientHeader,
+                new AdaptiveConcurrencyLimit(initialLimit, minLimit, maxLimit, latencyTolerance), exemptPaths,
+                meterRegistry);
+
+        FilterRegistrationBean<LoadSheddingFilter> registration = new FilterRegistrationBean<>(filter);
+        registration.addUrlPatterns("/api/employees", "/api/employees/*");
+        return registration;
+    }
+}
@@ -0,0 +1,35 @@
+package com.mbaday.springboottesting.config;
+
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+// timers on the hot paths, scraped from /actuator/prometheus. next to Boot's own meters (http.server.requests per
+// endpoint, spring.data.repository.invocations per EmployeeRepository query, hikaricp.*, hibernate.*) the
+// @Timed classes report one timer per method. percentiles and histograms are switched on per meter name with
+// management.metrics.distribution.* in application.properties
+@Configuration
+public class MetricsConfig {
+
+    public static final String SERVICE_TIMER = "employees.service";
+
+    public static final String JDBC_TIMER = "employees.jdbc";
+
+    // the aspect behind @Timed. it runs inside the cache advice: a cache hit is not timed, it is counted by cache.gets
+    @Bean
+    public TimedAspect timedAspect(MeterRegistry meterRegistry) {
+        return new TimedAspect(meterRegistry);
+    }
+
+    // Hibernate's statistics feed the hibernate.* meters (queries, entity loads, second-level cache per region)
+    // and the /actuator/l2cache endpoint
+    @Bean
+    public HibernatePropertiesCustomizer hibernateStatisticsCustomizer(
+            @Value("${employees.hibernate.statistics:true}") boolean statistics) {
+        return properties -> properties.put(AvailableSettings.GENERATE_STATISTICS, statistics);
+    }
+}
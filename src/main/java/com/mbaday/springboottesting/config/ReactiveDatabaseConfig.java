@@ -0,0 +1,56 @@
+package com.mbaday.springboottesting.config;
+
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.connection.R2dbcTransactionManager;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.transaction.reactive.TransactionalOperator;
+
+import jakarta.annotation.PreDestroy;
+
+// R2DBC access for the reactive profile. the pool is deliberately not exposed as a ConnectionFactory bean:
+// Boot's DataSourceAutoConfiguration backs off when one exists, and the JPA side (schema, blocking services)
+// has to keep its JDBC DataSource
+@Configuration
+@Profile("reactive")
+public class ReactiveDatabaseConfig {
+
+    private ConnectionPool connectionPool;
+
+    @Bean
+    public DatabaseClient databaseClient(@Value("${spring.r2dbc.url}") String url,
+                                         @Value("${spring.r2dbc.username:}") String username,
+                                         @Value("${spring.r2dbc.password:}") String password,
+                                         @Value("${employees.r2dbc.pool.max-size:10}") int maxPoolSize) {
+        ConnectionFactoryOptions options = ConnectionFactoryOptions.parse(url).mutate()
+                .option(ConnectionFactoryOptions.USER, username)
+                .option(ConnectionFactoryOptions.PASSWORD, password)
+                .build();
+
+        connectionPool = new ConnectionPool(ConnectionPoolConfiguration
+                .builder(ConnectionFactories.get(options))
+                .maxSize(maxPoolSize)
+                .build());
+        return DatabaseClient.create(connectionPool);
+    }
+
+    // for the writes, which record their outbox and change feed rows in the same transaction. only the operator
+    // is a bean: a ReactiveTransactionManager bean would turn Boot's JPA transaction manager off
+    @Bean
+    public TransactionalOperator transactionalOperator(DatabaseClient databaseClient) {
+        return TransactionalOperator.create(new R2dbcTransactionManager(databaseClient.getConnectionFactory()));
+    }
+
+    @PreDestroy
+    public void closePool() {
+        if (connectionPool != null) {
+            connectionPool.dispose();
+        }
+    }
+}
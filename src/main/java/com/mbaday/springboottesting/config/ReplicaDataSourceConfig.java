@@ -0,0 +1,125 @@
+package com.mbaday.springboottesting.config;
+
+import com.mbaday.springboottesting.datasource.ReplicaReadJpaDialect;
+import com.mbaday.springboottesting.datasource.ReplicaRoutingDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.orm.jpa.AbstractEntityManagerFactoryBean;
+import org.springframework.util.StringUtils;
+
+import jakarta.annotation.PreDestroy;
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// opt-in (employees.datasource.replica-urls): read-only transactions (the @Transactional(readOnly = true) service
+// reads) go to read replicas, everything else to the primary configured by spring.datasource.*. reads that fill a
+// cache (getEmployeeById, the second-level cache) come from the primary, a replica may still have an evicted row.
+// the routing data source is the only DataSource bean, so Boot's own pool backs off and JPA, JdbcTemplate and the
+// database permits all see the same, routed data source. the lazy proxy in front of it delays fetching the
+// connection until the first statement, when the read-only flag of the transaction is known
+@Configuration
+@ConditionalOnExpression("'${employees.datasource.replica-urls:}' != ''")
+public class ReplicaDataSourceConfig {
+
+    private ReplicaRoutingDataSource routingDataSource;
+
+    @Bean
+    public DataSource dataSource(DataSourceProperties properties, Environment environment,
+                                 ObjectProvider<MeterRegistry> meterRegistry,
+                                 @Value("${employees.datasource.replica-urls}") String[] replicaUrls,
+                                 @Value("${employees.datasource.replica-username:${spring.datasource.username:}}") String username,
+                                 @Value("${employees.datasource.replica-password:${spring.datasource.password:}}") String password,
+                                 @Value("${employees.datasource.replica-pool-size:10}") int poolSize,
+                                 @Value("${employees.datasource.replica-connection-timeout:1s}") Duration connectionTimeout,
+                                 @Value("${employees.datasource.replica-lag-query:}") String lagQuery,
+                                 @Value("${employees.datasource.replica-max-lag:5s}") Duration maxLag,
+                                 @Value("${employees.datasource.replica-check-interval:5s}") Duration checkInterval) {
+        HikariDataSource primary = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(primary));
+        if (primary.getPoolName() == null) {
+            primary.setPoolName("primary");
+        }
+        // Boot only publishes hikaricp.* for pools it can unwrap from the DataSource bean, these sit behind the
+        // routing data source
+        meterRegistry.ifAvailable(registry ->
+                primary.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry)));
+
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        for (int i = 0; i < replicaUrls.length; i++) {
+            String url = replicaUrls[i].trim();
+            if (!StringUtils.hasText(url)) {
+                continue;
+            }
+            HikariDataSource replica = new HikariDataSource();
+            replica.setPoolName("replica-" + i);
+            replica.setJdbcUrl(url);
+            replica.setUsername(username);
+            replica.setPassword(password);
+            replica.setMaximumPoolSize(poolSize);
+            replica.setReadOnly(true);
+            // an unreachable replica is given up on quickly, the read then goes to the primary instead. being
+            // down at startup does not keep the application from starting either
+            replica.setConnectionTimeout(connectionTimeout.toMillis());
+            replica.setInitializationFailTimeout(-1);
+            meterRegistry.ifAvailable(registry ->
+                    replica.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry)));
+            replicas.put(replica.getPoolName(), replica);
+        }
+
+        routingDataSource = new ReplicaRoutingDataSource(primary, replicas, lagQuery, maxLag);
+        // replicas take reads once the first (background) check passed
+        routingDataSource.startHealthChecks(checkInterval);
+        return new LazyConnectionDataSourceProxy(routingDataSource);
+    }
+
+    // read-only transactions no longer fill the second-level cache, see ReplicaReadJpaDialect. set before the
+    // factory bean is initialised, it only falls back to the dialect of the vendor adapter when none is set
+    @Bean
+    public static BeanPostProcessor replicaReadJpaDialect() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof AbstractEntityManagerFactoryBean entityManagerFactory) {
+                    entityManagerFactory.setJpaDialect(new ReplicaReadJpaDialect());
+                }
+                return bean;
+            }
+        };
+    }
+
+    // reported under /actuator/health as "replicas". a replica out of use does not take the application down,
+    // reads then fall back to the primary
+    @Bean
+    public HealthIndicator replicasHealthIndicator() {
+        return () -> {
+            Health.Builder health = Health.up();
+            if (routingDataSource != null) {
+                routingDataSource.replicaStatus().forEach(status -> health.withDetail(status.name(), status));
+            }
+            return health.build();
+        };
+    }
+
+    @PreDestroy
+    public void closeDataSources() {
+        if (routingDataSource != null) {
+            routingDataSource.close();
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.mbaday.springboottesting.config;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import com.mbaday.springboottesting.model.Employee;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import jakarta.persistence.EntityManagerFactory;
+import javax.cache.CacheManager;
+import java.time.Duration;
+import java.util.OptionalLong;
+
+// Hibernate second-level cache: Employee entities (looked up by id) and the results of the cacheable
+// EmployeeRepository queries, kept in Caffeine through JCache. the regions are created here rather than left to
+// Hibernate's defaults, which would be unbounded, so their size and expiry come from employees.l2-cache.*.
+// hit ratios per region are published under /actuator/l2cache
+@Configuration
+@ConditionalOnProperty(name = "employees.l2-cache.enabled", havingValue = "true", matchIfMissing = true)
+public class SecondLevelCacheConfig {
+
+    // Hibernate's own regions: every cacheable query without a region, and the last write time per table that
+    // decides whether a cached query result is still valid. the timestamps must not expire before the results
+    static final String DEFAULT_QUERY_RESULTS_REGION = "default-query-results-region";
+
+    static final String UPDATE_TIMESTAMPS_REGION = "default-update-timestamps-region";
+
+    // a provider of our own rather than the JVM wide Caching registry, every application context gets its own
+    // cache manager. closed by Hibernate together with the EntityManagerFactory
+    @Bean
+    public CacheManager secondLevelCacheManager(
+            @Value("${employees.l2-cache.entity.max-size:100000}") long entityMaxSize,
+            @Value("${employees.l2-cache.entity.expire-after-write:10m}") Duration entityExpiry,
+            @Value("${employees.l2-cache.query.max-size:10000}") long queryMaxSize,
+            @Value("${employees.l2-cache.query.expire-after-write:5m}") Duration queryExpiry) {
+        CaffeineCachingProvider provider = new CaffeineCachingProvider();
+        CacheManager cacheManager = provider.getCacheManager(provider.getDefaultURI(), getClass().getClassLoader());
+        cacheManager.createCache(Employee.CACHE_REGION, region(OptionalLong.of(entityMaxSize), entityExpiry));
+        cacheManager.createCache(Employee.QUERY_CACHE_REGION, region(OptionalLong.of(queryMaxSize), queryExpiry));
+        cacheManager.createCache(DEFAULT_QUERY_RESULTS_REGION, region(OptionalLong.of(queryMaxSize), queryExpiry));
+        cacheManager.createCache(UPDATE_TIMESTAMPS_REGION, region(OptionalLong.empty(), null));
+        return cacheManager;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer secondLevelCacheCustomizer(CacheManager secondLevelCacheManager) {
+        return properties -> {
+            properties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, true);
+            properties.put(AvailableSettings.USE_QUERY_CACHE, true);
+            properties.put(AvailableSettings.CACHE_REGION_FACTORY, ConfigSettings.SIMPLE_FACTORY_NAME);
+            properties.put(ConfigSettings.CACHE_MANAGER, secondLevelCacheManager);
+            // every region is created above, a missing one is a mistake rather than something to paper over
+            properties.put(ConfigSettings.MISSING_CACHE_STRATEGY, "fail");
+        };
+    }
+
+    @Bean
+    public SecondLevelCacheEndpoint secondLevelCacheEndpoint(EntityManagerFactory entityManagerFactory) {
+        return new SecondLevelCacheEndpoint(entityManagerFactory);
+    }
+
+    private static CaffeineConfiguration<Object, Object> region(OptionalLong maxSize, Duration expireAfterWrite) {
+        CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+        configuration.setMaximumSize(maxSize);
+        if (expireAfterWrite != null) {
+            configuration.setExpireAfterWrite(OptionalLong.of(expireAfterWrite.toNanos()));
+        }
+        configuration.setStatisticsEnabled(true);
+        return configuration;
+    }
+}
@@ -0,0 +1,73 @@
+package com.mbaday.springboottesting.config;
+
+import com.mbaday.springboottesting.model.Employee;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+
+import jakarta.persistence.EntityManagerFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// GET /actuator/l2cache reports hits, misses and puts of every second-level cache region and of the query cache,
+// DELETE resets the counters to start a new measuring window. the counters need employees.hibernate.statistics
+@Endpoint(id = "l2cache")
+public class SecondLevelCacheEndpoint {
+
+    private EntityManagerFactory entityManagerFactory;
+
+    public SecondLevelCacheEndpoint(EntityManagerFactory entityManagerFactory) {
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    @ReadOperation
+    public Map<String, Object> statistics() {
+        Statistics statistics = hibernateStatistics();
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("statisticsEnabled", statistics.isStatisticsEnabled());
+        if (!statistics.isStatisticsEnabled()) {
+            return report;
+        }
+        report.put("secondLevelCache", new RegionReport(statistics.getSecondLevelCacheHitCount(),
+                statistics.getSecondLevelCacheMissCount(), statistics.getSecondLevelCachePutCount(), null));
+        report.put("queryCache", new RegionReport(statistics.getQueryCacheHitCount(),
+                statistics.getQueryCacheMissCount(), statistics.getQueryCachePutCount(), null));
+        report.put("updateTimestamps", new RegionReport(statistics.getUpdateTimestampsCacheHitCount(),
+                statistics.getUpdateTimestampsCacheMissCount(), statistics.getUpdateTimestampsCachePutCount(), null));
+
+        Map<String, RegionReport> regions = new LinkedHashMap<>();
+        regions.put(Employee.CACHE_REGION, RegionReport.of(statistics.getDomainDataRegionStatistics(Employee.CACHE_REGION)));
+        regions.put(Employee.QUERY_CACHE_REGION, RegionReport.of(statistics.getQueryRegionStatistics(Employee.QUERY_CACHE_REGION)));
+        report.put("regions", regions);
+        return report;
+    }
+
+    @DeleteOperation
+    public void reset() {
+        hibernateStatistics().clear();
+    }
+
+    private Statistics hibernateStatistics() {
+        return entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    // hitRatio is null until the region has been asked at least once
+    public record RegionReport(long hits, long misses, long puts, Long elementsInMemory, Double hitRatio) {
+
+        RegionReport(long hits, long misses, long puts, Long elementsInMemory) {
+            this(hits, misses, puts, elementsInMemory, hits + misses == 0 ? null : (double) hits / (hits + misses));
+        }
+
+        static RegionReport of(CacheRegionStatistics region) {
+            if (region == null) {
+                return new RegionReport(0, 0, 0, null);
+            }
+            long elements = region.getElementCountInMemory();
+            return new RegionReport(region.getHitCount(), region.getMissCount(), region.getPutCount(),
+                    elements == CacheRegionStatistics.NO_EXTENDED_STAT_SUPPORT_RETURN ? null : elements);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.mbaday.springboottesting.config;
+
+import com.mbaday.springboottesting.snapshot.SnapshotBackedCache;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.actuate.metrics.cache.CacheMeterBinderProvider;
+import org.springframework.boot.actuate.metrics.cache.CaffeineCacheMeterBinderProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+import java.util.Collection;
+
+// puts the employee snapshot (see EmployeeSnapshot) behind the employees cache, whatever cache manager
+// spring.cache.* configures. the cache metrics keep reporting the caffeine cache underneath
+@Configuration
+@Profile("!reactive")
+@ConditionalOnProperty(name = "employees.snapshot.enabled", havingValue = "true")
+public class SnapshotCacheConfig {
+
+    // static so the post processor is registered before the cache manager is created
+    @Bean
+    public static BeanPostProcessor employeeSnapshotCachePostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!(bean instanceof CacheManager cacheManager)) {
+                    return bean;
+                }
+                Cache employees = cacheManager.getCache(CacheConfig.EMPLOYEES_CACHE);
+                if (employees == null || employees instanceof SnapshotBackedCache) {
+                    return bean;
+                }
+                return withSnapshot(cacheManager, new SnapshotBackedCache(employees));
+            }
+        };
+    }
+
+    @Bean
+    public CacheMeterBinderProvider<SnapshotBackedCache> snapshotBackedCacheMeterBinderProvider() {
+        CaffeineCacheMeterBinderProvider caffeine = new CaffeineCacheMeterBinderProvider();
+        return (cache, tags) -> cache.getDelegate() instanceof CaffeineCache delegate
+                ? caffeine.getMeterBinder(delegate, tags)
+                : null;
+    }
+
+    private static CacheManager withSnapshot(CacheManager cacheManager, SnapshotBackedCache employees) {
+        return new CacheManager() {
+            @Override
+            public Cache getCache(String name) {
+                return CacheConfig.EMPLOYEES_CACHE.equals(name) ? employees : cacheManager.getCache(name);
+            }
+
+            @Override
+            public Collection<String> getCacheNames() {
+                return cacheManager.getCacheNames();
+            }
+        };
+    }
+}
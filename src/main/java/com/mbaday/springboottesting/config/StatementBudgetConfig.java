@@ -0,0 +1,56 @@
+package com.mbaday.springboottesting.config;
+
+import com.mbaday.springboottesting.datasource.StatementCountingDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.sql.DataSource;
+
+// SQL statements per request, against the budget of each endpoint (@StatementBudget on the controller methods,
+// employees.statement-budget.default otherwise). keeps refactorings that quietly add queries to a request
+// (an extra lookup, an N+1 over a list) from going unnoticed. tests assert exact counts with
+// StatementCountExtension
+@Configuration
+public class StatementBudgetConfig implements WebMvcConfigurer {
+
+    private StatementBudgetInterceptor.Mode mode;
+
+    private int defaultBudget;
+
+    private ObjectProvider<MeterRegistry> meterRegistry;
+
+    @Autowired
+    public StatementBudgetConfig(@Value("${employees.statement-budget.mode:log}") StatementBudgetInterceptor.Mode mode,
+                                 @Value("${employees.statement-budget.default:10}") int defaultBudget,
+                                 ObjectProvider<MeterRegistry> meterRegistry) {
+        this.mode = mode;
+        this.defaultBudget = defaultBudget;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new StatementBudgetInterceptor(mode, defaultBudget, meterRegistry.getIfAvailable()));
+    }
+
+    // static so the post processor is registered before the DataSource bean is created
+    @Bean
+    public static BeanPostProcessor statementCountingBeanPostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource && !(bean instanceof StatementCountingDataSource)) {
+                    return new StatementCountingDataSource(dataSource);
+                }
+                return bean;
+            }
+        };
+    }
+}
@@ -0,0 +1,95 @@
+package com.mbaday.springboottesting.config;
+
+import com.mbaday.springboottesting.controller.StatementBudget;
+import com.mbaday.springboottesting.datasource.StatementCounter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.util.Map;
+
+// counts the statements of every request and compares them with the endpoint's @StatementBudget. in log mode
+// an exceeded budget is logged after the request, together with the statement repeated most often; in fail
+// mode the statement over the budget is refused and the request fails. the counts are published as
+// employees.request.statements per endpoint
+@Slf4j
+public class StatementBudgetInterceptor implements AsyncHandlerInterceptor {
+
+    public static final String STATEMENTS_SUMMARY = "employees.request.statements";
+
+    private static final String SCOPE_ATTRIBUTE = StatementBudgetInterceptor.class.getName() + ".scope";
+
+    public enum Mode { OFF, LOG, FAIL }
+
+    private final Mode mode;
+
+    private final int defaultBudget;
+
+    private final MeterRegistry meterRegistry;
+
+    public StatementBudgetInterceptor(Mode mode, int defaultBudget, MeterRegistry meterRegistry) {
+        this.mode = mode;
+        this.defaultBudget = defaultBudget;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        // the dispatch that completes an async response runs no statements of its own
+        if (mode == Mode.OFF || request.getDispatcherType() == DispatcherType.ASYNC
+                || !(handler instanceof HandlerMethod handlerMethod)) {
+            return true;
+        }
+        request.setAttribute(SCOPE_ATTRIBUTE, StatementCounter.open(budget(handlerMethod), mode == Mode.FAIL));
+        return true;
+    }
+
+    // the request thread is handed back before the async part runs, the scope must not stay behind on it
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response,
+                                               Object handler) {
+        closeScope(request);
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        StatementCounter.Scope scope = closeScope(request);
+        if (scope == null) {
+            return;
+        }
+        String uri = String.valueOf(request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE));
+        if (meterRegistry != null) {
+            DistributionSummary.builder(STATEMENTS_SUMMARY)
+                    .tag("method", request.getMethod())
+                    .tag("uri", uri)
+                    .register(meterRegistry)
+                    .record(scope.getCount());
+        }
+        if (mode == Mode.LOG && scope.isOverBudget()) {
+            Map.Entry<String, Integer> mostRepeated = scope.getMostRepeated();
+            log.warn("{} {} ran {} statements, budget {}. most repeated ({}x): {}", request.getMethod(), uri,
+                    scope.getCount(), scope.getBudget(), mostRepeated.getValue(), mostRepeated.getKey());
+        }
+    }
+
+    private int budget(HandlerMethod handlerMethod) {
+        StatementBudget budget = handlerMethod.getMethodAnnotation(StatementBudget.class);
+        return budget != null ? budget.value() : defaultBudget;
+    }
+
+    private static StatementCounter.Scope closeScope(HttpServletRequest request) {
+        StatementCounter.Scope scope = (StatementCounter.Scope) request.getAttribute(SCOPE_ATTRIBUTE);
+        if (scope != null) {
+            request.removeAttribute(SCOPE_ATTRIBUTE);
+            scope.close();
+        }
+        return scope;
+    }
+}
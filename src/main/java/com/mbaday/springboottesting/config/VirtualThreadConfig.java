@@ -0,0 +1,72 @@
+package com.mbaday.springboottesting.config;
+
+import com.mbaday.springboottesting.datasource.PermitLimitedDataSource;
+import org.apache.coyote.ProtocolHandler;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// opt-in (employees.virtual-threads.enabled=true): Tomcat requests, and with them every service and repository
+// call, run on virtual threads, as do async MVC responses such as the streamed employee list. blocking JDBC then
+// parks a cheap virtual thread instead of holding one of Tomcat's 200 platform threads, and the database permit
+// semaphore keeps the extra concurrency from overrunning the connection pool.
+// the project still compiles for Java 17, so the executor is looked up reflectively and startup fails when
+// the mode is enabled on a runtime older than Java 21
+@Configuration
+@ConditionalOnProperty(name = "employees.virtual-threads.enabled", havingValue = "true")
+public class VirtualThreadConfig implements WebMvcConfigurer {
+
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService virtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("employees.virtual-threads.enabled requires Java 21 or newer, running on "
+                    + System.getProperty("java.version"), e);
+        }
+    }
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<ProtocolHandler> virtualThreadProtocolHandlerCustomizer(
+            ExecutorService virtualThreadExecutor) {
+        return protocolHandler -> protocolHandler.setExecutor(virtualThreadExecutor);
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(asyncTaskExecutor());
+    }
+
+    @Bean
+    public AsyncTaskExecutor asyncTaskExecutor() {
+        return new TaskExecutorAdapter(virtualThreadExecutor());
+    }
+
+    // static so the post processor is registered before the DataSource bean is created
+    @Bean
+    public static BeanPostProcessor databasePermitBeanPostProcessor(
+            @Value("${employees.database-permits.max:${spring.datasource.hikari.maximum-pool-size:10}}") int maxPermits,
+            @Value("${employees.database-permits.acquire-timeout:30s}") Duration acquireTimeout) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource && !(bean instanceof PermitLimitedDataSource)) {
+                    return new PermitLimitedDataSource(dataSource, maxPermits, acquireTimeout);
+                }
+                return bean;
+            }
+        };
+    }
+}
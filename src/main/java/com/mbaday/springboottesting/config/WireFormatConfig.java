@@ -0,0 +1,52 @@
+package com.mbaday.springboottesting.config;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+// compact alternatives to JSON, picked by the Accept header: Smile (application/x-jackson-smile) and CBOR
+// (application/cbor) are binary encodings of the Jackson data model, no field name repeated per element (Smile)
+// and no number printed as text, so every endpoint that returns JSON returns them as well. JSON stays first in
+// the converter list and remains what a client gets for */*.
+// Spring MVC adds both converters once the dataformats are on the classpath, but with a plain ObjectMapper; they
+// are replaced by ones built like the JSON mapper (spring.jackson.*, ISO dates) so all formats carry the same data
+@Configuration
+public class WireFormatConfig implements WebMvcConfigurer {
+
+    public static final String SMILE_VALUE = "application/x-jackson-smile";
+
+    public static final MediaType SMILE = MediaType.parseMediaType(SMILE_VALUE);
+
+    // prototype bean, every mapper starts from a fresh builder
+    private ObjectProvider<Jackson2ObjectMapperBuilder> objectMapperBuilders;
+
+    @Autowired
+    public WireFormatConfig(ObjectProvider<Jackson2ObjectMapperBuilder> objectMapperBuilders) {
+        this.objectMapperBuilders = objectMapperBuilders;
+    }
+
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.replaceAll(converter -> {
+            if (converter instanceof MappingJackson2SmileHttpMessageConverter) {
+                return new MappingJackson2SmileHttpMessageConverter(
+                        objectMapperBuilders.getObject().factory(new SmileFactory()).build());
+            }
+            if (converter instanceof MappingJackson2CborHttpMessageConverter) {
+                return new MappingJackson2CborHttpMessageConverter(
+                        objectMapperBuilders.getObject().factory(new CBORFactory()).build());
+            }
+            return converter;
+        });
+    }
+}
@@ -0,0 +1,130 @@
+package com.mbaday.springboottesting.controller;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mbaday.springboottesting.changes.EmployeeChangeFeed;
+import com.mbaday.springboottesting.changes.EmployeeChangeStreams;
+import com.mbaday.springboottesting.dto.EmployeeChangePage;
+import com.mbaday.springboottesting.service.EmployeeService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+// the employee change feed (see EmployeeChangeFeed). a consumer starts from the snapshot, which names the seq
+// it was taken at, and follows the changes after that seq: by long-polling, passing nextSince of every page as
+// the next since, or as one server-sent event stream (the event id is the seq, a reconnect with Last-Event-ID
+// continues after it)
+@RestController
+@Profile("!reactive")
+@RequestMapping("/api/employees/changes")
+public class EmployeeChangeController {
+
+    static final int MAX_CHANGES = EmployeeChangeStreams.MAX_CHANGES;
+
+    private EmployeeChangeFeed changeFeed;
+
+    private EmployeeChangeStreams changeStreams;
+
+    private EmployeeService employeeService;
+
+    private ObjectMapper objectMapper;
+
+    private Duration maxWait;
+
+    @Autowired
+    public EmployeeChangeController(EmployeeChangeFeed changeFeed, EmployeeChangeStreams changeStreams,
+                                    EmployeeService employeeService, ObjectMapper objectMapper,
+                                    @Value("${employees.changes.max-wait:30s}") Duration maxWait) {
+        this.changeFeed = changeFeed;
+        this.changeStreams = changeStreams;
+        this.employeeService = employeeService;
+        this.objectMapper = objectMapper;
+        this.maxWait = maxWait;
+    }
+
+    // answered right away when there are changes after since, otherwise held for up to wait seconds (capped at
+    // employees.changes.max-wait) until the next one commits. an empty page means nothing changed in the meantime
+    @StatementBudget(1)
+    @GetMapping
+    public DeferredResult<EmployeeChangePage> getChanges(@RequestParam(defaultValue = "0") long since,
+                                                         @RequestParam(defaultValue = "100") int limit,
+                                                         @RequestParam(defaultValue = "0") long wait) {
+        Duration timeout = Duration.ofSeconds(Math.max(0, wait));
+        if (timeout.compareTo(maxWait) > 0) {
+            timeout = maxWait;
+        }
+        // the feed answers an idle wait itself, the extra second only guards against a lost completion
+        DeferredResult<EmployeeChangePage> result = new DeferredResult<>(timeout.plusSeconds(1).toMillis(),
+                () -> new EmployeeChangePage(List.of(), since));
+        CompletableFuture<EmployeeChangePage> changes =
+                changeFeed.await(since, Math.max(1, Math.min(limit, MAX_CHANGES)), timeout);
+        changes.whenComplete((page, failure) -> {
+            if (failure != null) {
+                result.setErrorResult(failure);
+            } else {
+                result.setResult(page);
+            }
+        });
+        result.onCompletion(() -> changes.cancel(false));
+        return result;
+    }
+
+    // the same changes as one text/event-stream, with a comment line as heartbeat while nothing changes. the
+    // stream ends with the async request timeout (spring.mvc.async.request-timeout), the client reconnects. no
+    // request thread waits for the changes, see EmployeeChangeStreams; 503 while employees.changes.max-streams are open
+    @StatementBudget(0)
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamChanges(
+            @RequestParam(defaultValue = "0") long since,
+            @RequestHeader(name = "Last-Event-ID", required = false) Long lastEventId) {
+        return changeStreams.open(lastEventId != null ? lastEventId : since)
+                .map(emitter -> ResponseEntity.ok().contentType(MediaType.TEXT_EVENT_STREAM).body(emitter))
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                        .header(HttpHeaders.RETRY_AFTER, "5")
+                        .build());
+    }
+
+    // every employee, with the seq to continue the feed from: {"seq": ..., "employees": [...]}. the seq is read
+    // first, so the table is at least as new as the seq says; the changes replayed twice are harmless
+    @StatementBudget(1)
+    @GetMapping(value = "snapshot", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> getSnapshot() {
+        long seq = changeFeed.settledSeq();
+        StreamingResponseBody body = outputStream -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)
+                    .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)) {
+                generator.writeStartObject();
+                generator.writeNumberField("seq", seq);
+                generator.writeArrayFieldStart("employees");
+                employeeService.streamAllEmployees(employee -> {
+                    try {
+                        generator.writeObject(employee);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                generator.writeEndArray();
+                generator.writeEndObject();
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+}
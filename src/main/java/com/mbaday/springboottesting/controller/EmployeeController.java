@@ -1,60 +1,274 @@
 package com.mbaday.springboottesting.controller;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.mbaday.springboottesting.config.WireFormatConfig;
+import com.mbaday.springboottesting.dto.BulkDeleteResult;
+import com.mbaday.springboottesting.dto.EmployeeDelta;
+import com.mbaday.springboottesting.dto.EmployeePage;
+import com.mbaday.springboottesting.dto.EmployeePatch;
+import com.mbaday.springboottesting.dto.EmployeeView;
+import com.mbaday.springboottesting.exception.ResourceNotFoundException;
 import com.mbaday.springboottesting.model.Employee;
 import com.mbaday.springboottesting.service.EmployeeService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 @RestController
+@Profile("!reactive")
 @RequestMapping("/api/employees")
 public class EmployeeController {
 
+    static final int MAX_PAGE_SIZE = 1000;
+
     private EmployeeService employeeService;
 
+    private ObjectMapper objectMapper;
+
+    // generators for the streamed export, all writing through the JSON mapper's serializers
+    private Map<MediaType, JsonFactory> exportFactories;
+
     @Autowired
-    public EmployeeController(EmployeeService employeeService) {
+    public EmployeeController(EmployeeService employeeService, ObjectMapper objectMapper) {
         this.employeeService = employeeService;
+        this.objectMapper = objectMapper;
+        this.exportFactories = Map.of(
+                MediaType.APPLICATION_JSON, objectMapper.getFactory(),
+                WireFormatConfig.SMILE, new SmileFactory(objectMapper),
+                MediaType.APPLICATION_CBOR, new CBORFactory(objectMapper));
     }
 
+    @StatementBudget(3)
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
-    public Employee createEmployee(@RequestBody Employee employee){
+    public EmployeeView createEmployee(@RequestBody Employee employee){
         return employeeService.saveEmployee(employee);
     }
 
+    @StatementBudget(1)
     @GetMapping
-    public List<Employee> getAllEmployees(){
+    public List<EmployeeView> getAllEmployees(){
         return employeeService.getAllEmployees();
     }
 
+    // delta sync: the employees created or updated after modifiedSince (an ISO-8601 instant, the epoch for the
+    // first sync) and the ids of those deleted since, a page at a time. the next request passes nextModifiedSince
+    // and nextAfterId of the response (as afterId), straight away until complete, then on the next sync
+    @StatementBudget(2)
+    @GetMapping(params = "modifiedSince")
+    public EmployeeDelta getEmployeesModifiedSince(@RequestParam Instant modifiedSince,
+                                                   @RequestParam(defaultValue = "0") long afterId,
+                                                   @RequestParam(defaultValue = "1000") int size){
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        return employeeService.getEmployeesModifiedSince(modifiedSince, afterId, pageSize);
+    }
+
+    // keyset pagination over the id column. pass the returned nextCursor as "after" to fetch the following page
+    @StatementBudget(1)
+    @GetMapping("page")
+    public EmployeePage getEmployeePage(@RequestParam(defaultValue = "0") long after,
+                                        @RequestParam(defaultValue = "100") int size){
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        List<EmployeeView> employees = employeeService.getEmployeesAfter(after, pageSize);
+
+        return toPage(employees, pageSize);
+    }
+
+    // every employee with the given last name (and first name, when present), paged like /page
+    @StatementBudget(1)
+    @GetMapping("by-name")
+    public EmployeePage getEmployeesByName(@RequestParam String lastName,
+                                           @RequestParam(required = false) String firstName,
+                                           @RequestParam(defaultValue = "0") long after,
+                                           @RequestParam(defaultValue = "100") int size){
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        return toPage(employeeService.findEmployeesByName(lastName, firstName, after, pageSize), pageSize);
+    }
+
+    // writes the whole table as one array, row by row, while it is being read from the database cursor. JSON, or
+    // Smile / CBOR when the Accept header names one of them (see WireFormatConfig)
+    @GetMapping(value = "stream",
+            produces = {MediaType.APPLICATION_JSON_VALUE, WireFormatConfig.SMILE_VALUE, MediaType.APPLICATION_CBOR_VALUE})
+    public ResponseEntity<StreamingResponseBody> streamAllEmployees(
+            @RequestHeader(value = HttpHeaders.ACCEPT, defaultValue = MediaType.APPLICATION_JSON_VALUE) String accept){
+        MediaType format = exportFormat(accept);
+        JsonFactory factory = exportFactories.get(format);
+        StreamingResponseBody body = outputStream -> {
+            try (JsonGenerator generator = factory.createGenerator(outputStream)
+                    .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)) {
+                generator.writeStartArray();
+                employeeService.streamAllEmployees(employee -> {
+                    try {
+                        generator.writeObject(employee);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                generator.writeEndArray();
+            }
+        };
+        return ResponseEntity.ok().contentType(format).body(body);
+    }
+
+    // the version is the ETag. a GET with a matching If-None-Match is answered with 304 and no body by Spring's
+    // conditional request support, so polling clients skip both the payload and its serialization
+    @StatementBudget(1)
     @GetMapping("{id}")
-    public ResponseEntity<Employee> getEmployeeById(@PathVariable long id){
+    public ResponseEntity<EmployeeView> getEmployeeById(@PathVariable long id){
         return employeeService.getEmployeeById(id)
-                .map(ResponseEntity::ok)
+                .map(employee -> ResponseEntity.ok().eTag(eTag(employee.getVersion())).body(employee))
                 .orElseGet(()->ResponseEntity.notFound().build());
     }
 
+    // the read for the If-Match check, the read of the merge, the UPDATE, the outbox row and the change row
+    @StatementBudget(5)
     @PutMapping("{id}")
-    public ResponseEntity<Employee> updateEmployee(@PathVariable long id, @RequestBody Employee employee){
+    public ResponseEntity<EmployeeView> updateEmployee(@PathVariable long id, @RequestBody Employee employee,
+                                                       @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch){
         return employeeService.getEmployeeById(id)
                 .map(savedEmployee->{
-                    savedEmployee.setEmail(employee.getEmail());
-                    savedEmployee.setFirstName(employee.getFirstName());
-                    savedEmployee.setLastName(employee.getLastName());
+                    if (!matchesIfMatch(ifMatch, savedEmployee.getVersion())) {
+                        return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).<EmployeeView>build();
+                    }
+                    // carries the version that was read, so the UPDATE fails if someone changed the row in between
+                    Employee changedEmployee = savedEmployee.toEmployee().toBuilder()
+                            .email(employee.getEmail())
+                            .firstName(employee.getFirstName())
+                            .lastName(employee.getLastName())
+                            .build();
 
-                    Employee updatedEmployee = employeeService.updateEmployee(savedEmployee);
+                    EmployeeView updatedEmployee = employeeService.updateEmployee(changedEmployee);
 
-                    return new ResponseEntity<>(updatedEmployee, HttpStatus.OK);
+                    return ResponseEntity.ok().eTag(eTag(updatedEmployee.getVersion())).body(updatedEmployee);
                 }).orElseGet(()->ResponseEntity.notFound().build());
     }
 
+    // only the fields present in the body are written, in a single UPDATE without reading the employee first
+    @StatementBudget(3)
+    @PatchMapping("{id}")
+    public ResponseEntity<Void> patchEmployee(@PathVariable long id, @RequestBody EmployeePatch patch){
+        if (patch.isEmpty()) {
+            return ResponseEntity.badRequest().build();
+        }
+        return employeeService.patchEmployee(id, patch)
+                ? ResponseEntity.noContent().build()
+                : ResponseEntity.notFound().build();
+    }
+
+    // a single DELETE, the affected row count decides between 204 and 404. with If-Match the version is part
+    // of the WHERE clause and a miss is a failed precondition (RFC 9110 treats a missing resource the same way)
+    @StatementBudget(3)
     @DeleteMapping("{id}")
-    public ResponseEntity<String> deleteEmployeeById(@PathVariable long id){
-        employeeService.deleteById(id);
-        return new ResponseEntity<>("Employee deleted successfully", HttpStatus.OK);
+    public ResponseEntity<Void> deleteEmployeeById(@PathVariable long id,
+                                                   @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch){
+        if (ifMatch == null) {
+            return employeeService.deleteEmployee(id)
+                    ? ResponseEntity.noContent().build()
+                    : ResponseEntity.notFound().build();
+        }
+        List<Long> versions = ifMatchVersions(ifMatch);
+        boolean deleted = versions == null
+                ? employeeService.deleteEmployee(id)
+                : versions.stream().anyMatch(version -> employeeService.deleteEmployee(id, version));
+        return deleted
+                ? ResponseEntity.noContent().build()
+                : ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
+    }
+
+    // DELETE with a body is not reliably supported by clients and proxies, hence a POST.
+    // one DELETE per chunk of ids, no fixed budget
+    @StatementBudget(StatementBudget.UNLIMITED)
+    @PostMapping("bulk-delete")
+    public BulkDeleteResult deleteEmployees(@RequestBody List<Long> ids){
+        return new BulkDeleteResult(ids.size(), employeeService.deleteEmployees(ids));
+    }
+
+    // the version check in the UPDATE itself failed, someone else changed the employee after it was read
+    @ExceptionHandler(ObjectOptimisticLockingFailureException.class)
+    public ResponseEntity<String> handleConcurrentModification(ObjectOptimisticLockingFailureException exception){
+        return new ResponseEntity<>("Employee was modified concurrently", HttpStatus.PRECONDITION_FAILED);
+    }
+
+    // the service reports an email that another employee already has (create, update or patch) this way
+    @ExceptionHandler(ResourceNotFoundException.class)
+    public ResponseEntity<String> handleDuplicateEmail(ResourceNotFoundException exception){
+        return new ResponseEntity<>(exception.getMessage(), HttpStatus.CONFLICT);
+    }
+
+    private static EmployeePage toPage(List<EmployeeView> employees, int pageSize){
+        Long nextCursor = employees.size() == pageSize ? employees.get(employees.size() - 1).getId() : null;
+        return new EmployeePage(employees, nextCursor);
+    }
+
+    static String eTag(long version){
+        return "\"" + version + "\"";
+    }
+
+    // strong comparison as required for If-Match: weak validators never match, "*" matches any existing employee
+    static boolean matchesIfMatch(String ifMatch, long version){
+        if (ifMatch == null) {
+            return true;
+        }
+        String current = eTag(version);
+        for (String candidate : ifMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*") || tag.equals(current)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // the versions an If-Match header names, for a version check in the statement itself. null when any version
+    // will do (no header, or "*"), weak and foreign tags name none
+    static List<Long> ifMatchVersions(String ifMatch){
+        if (ifMatch == null) {
+            return null;
+        }
+        List<Long> versions = new ArrayList<>();
+        for (String candidate : ifMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*")) {
+                return null;
+            }
+            if (tag.length() > 2 && tag.startsWith("\"") && tag.endsWith("\"")) {
+                try {
+                    versions.add(Long.parseLong(tag.substring(1, tag.length() - 1)));
+                } catch (NumberFormatException e) {
+                    // not one of our tags, it cannot match
+                }
+            }
+        }
+        return versions;
+    }
+
+    // the first binary format named in the Accept header, JSON otherwise (also for */*)
+    private static MediaType exportFormat(String accept){
+        for (MediaType mediaType : MediaType.parseMediaTypes(accept)) {
+            if (mediaType.equalsTypeAndSubtype(WireFormatConfig.SMILE)) {
+                return WireFormatConfig.SMILE;
+            }
+            if (mediaType.equalsTypeAndSubtype(MediaType.APPLICATION_CBOR)) {
+                return MediaType.APPLICATION_CBOR;
+            }
+        }
+        return MediaType.APPLICATION_JSON;
     }
 }
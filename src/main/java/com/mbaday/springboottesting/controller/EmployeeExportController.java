@@ -0,0 +1,126 @@
+package com.mbaday.springboottesting.controller;
+
+import com.mbaday.springboottesting.dto.EmployeeExportJob;
+import com.mbaday.springboottesting.export.EmployeeExportJobs;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.net.URI;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+
+// full exports of the employees table (see EmployeeExportJobs). POST starts one and is answered with 202 and the
+// URL of its status; once that says COMPLETED the file is downloaded from .../file. a FAILED export is continued
+// after its last checkpoint with POST .../resume. DELETE removes a finished export with its file before
+// employees.export.retention does
+@RestController
+@Profile("!reactive")
+@RequestMapping("/api/employees/exports")
+public class EmployeeExportController {
+
+    private EmployeeExportJobs exportJobs;
+
+    @Autowired
+    public EmployeeExportController(EmployeeExportJobs exportJobs) {
+        this.exportJobs = exportJobs;
+    }
+
+    // the export runs in the background, the request itself runs no statement
+    @StatementBudget(0)
+    @PostMapping
+    public ResponseEntity<EmployeeExportJob> startExport(@RequestParam(defaultValue = "ndjson") String format) {
+        return accepted(exportJobs.start(format(format)));
+    }
+
+    @StatementBudget(0)
+    @GetMapping
+    public List<EmployeeExportJob> getExports() {
+        return exportJobs.list();
+    }
+
+    @StatementBudget(0)
+    @GetMapping("{id}")
+    public ResponseEntity<EmployeeExportJob> getExport(@PathVariable String id) {
+        return exportJobs.status(id)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    @StatementBudget(0)
+    @PostMapping("{id}/resume")
+    public ResponseEntity<EmployeeExportJob> resumeExport(@PathVariable String id) {
+        return exportJobs.resume(id)
+                .map(EmployeeExportController::accepted)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    // 409 while the export is queued or running
+    @StatementBudget(0)
+    @DeleteMapping("{id}")
+    public ResponseEntity<Void> deleteExport(@PathVariable String id) {
+        return exportJobs.delete(id)
+                ? ResponseEntity.noContent().build()
+                : ResponseEntity.notFound().build();
+    }
+
+    // 409 until the export has completed, Range requests are served by the resource support
+    @StatementBudget(0)
+    @GetMapping("{id}/file")
+    public ResponseEntity<Resource> downloadExport(@PathVariable String id) {
+        return exportJobs.status(id)
+                .map(job -> {
+                    if (job.getStatus() != EmployeeExportJob.Status.COMPLETED) {
+                        return ResponseEntity.status(HttpStatus.CONFLICT).<Resource>build();
+                    }
+                    Path file = exportJobs.file(job);
+                    return ResponseEntity.ok()
+                            .contentType(job.getFormat() == EmployeeExportJob.Format.CSV
+                                    ? MediaType.parseMediaType(EmployeeImportController.TEXT_CSV_VALUE)
+                                    : MediaType.parseMediaType(EmployeeImportController.APPLICATION_NDJSON_VALUE))
+                            .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                                    .filename(file.getFileName().toString()).build().toString())
+                            .<Resource>body(new FileSystemResource(file));
+                })
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<String> handleUnknownFormat(IllegalArgumentException exception) {
+        return new ResponseEntity<>(exception.getMessage(), HttpStatus.BAD_REQUEST);
+    }
+
+    @ExceptionHandler(IllegalStateException.class)
+    public ResponseEntity<String> handleJobState(IllegalStateException exception) {
+        return new ResponseEntity<>(exception.getMessage(), HttpStatus.CONFLICT);
+    }
+
+    private static ResponseEntity<EmployeeExportJob> accepted(EmployeeExportJob job) {
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/employees/exports/" + job.getId()))
+                .body(job);
+    }
+
+    private static EmployeeExportJob.Format format(String format) {
+        try {
+            return EmployeeExportJob.Format.valueOf(format.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown export format " + format + ", expected ndjson or csv");
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.mbaday.springboottesting.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mbaday.springboottesting.dto.BulkImportResult;
+import com.mbaday.springboottesting.format.EmployeeRecordReaders;
+import com.mbaday.springboottesting.service.EmployeeImportService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+// bulk onboarding. the body is read as a stream, so the size of an import is bounded by the per-row report only
+@RestController
+@Profile("!reactive")
+@RequestMapping("/api/employees/bulk")
+public class EmployeeImportController {
+
+    public static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+
+    public static final String TEXT_CSV_VALUE = "text/csv";
+
+    private EmployeeImportService employeeImportService;
+
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    public EmployeeImportController(EmployeeImportService employeeImportService, ObjectMapper objectMapper) {
+        this.employeeImportService = employeeImportService;
+        this.objectMapper = objectMapper;
+    }
+
+    // a few statements per employees.import.batch-size rows, no fixed budget
+    @StatementBudget(StatementBudget.UNLIMITED)
+    @PostMapping(consumes = MediaType.APPLICATION_JSON_VALUE)
+    public BulkImportResult importJson(InputStream body) throws IOException {
+        return employeeImportService.importEmployees(EmployeeRecordReaders.jsonArray(body, objectMapper));
+    }
+
+    @StatementBudget(StatementBudget.UNLIMITED)
+    @PostMapping(consumes = APPLICATION_NDJSON_VALUE)
+    public BulkImportResult importNdjson(InputStream body) {
+        return employeeImportService.importEmployees(EmployeeRecordReaders.ndjson(body, objectMapper));
+    }
+
+    @StatementBudget(StatementBudget.UNLIMITED)
+    @PostMapping(consumes = TEXT_CSV_VALUE)
+    public BulkImportResult importCsv(InputStream body) throws IOException {
+        return employeeImportService.importEmployees(EmployeeRecordReaders.csv(body));
+    }
+
+    // rows read before a malformed JSON array or CSV header are already committed by then
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<String> handleMalformedBody(IllegalArgumentException exception) {
+        return new ResponseEntity<>(exception.getMessage(), HttpStatus.BAD_REQUEST);
+    }
+}
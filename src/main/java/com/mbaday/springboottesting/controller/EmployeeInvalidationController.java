@@ -0,0 +1,45 @@
+package com.mbaday.springboottesting.controller;
+
+import com.mbaday.springboottesting.dto.EmployeeInvalidation;
+import com.mbaday.springboottesting.invalidation.HttpInvalidationTransport;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RestController;
+
+// receiving end of the http invalidation transport, called by the other instances of the service
+@RestController
+@Profile("!reactive")
+@ConditionalOnProperty(name = "employees.invalidation.transport", havingValue = "http")
+public class EmployeeInvalidationController {
+
+    private HttpInvalidationTransport transport;
+
+    @Autowired
+    public EmployeeInvalidationController(HttpInvalidationTransport transport) {
+        this.transport = transport;
+    }
+
+    // re-reads the invalidated employees into the search index, in chunks. the senders never put more ids into a
+    // message than their employees.invalidation.batch-size
+    @StatementBudget(StatementBudget.UNLIMITED)
+    @PostMapping(HttpInvalidationTransport.PATH)
+    public ResponseEntity<Void> receiveInvalidation(
+            @RequestBody EmployeeInvalidation invalidation,
+            @RequestHeader(name = HttpInvalidationTransport.TOKEN_HEADER, required = false) String token) {
+        if (!transport.isAuthorized(token)) {
+            return new ResponseEntity<>(HttpStatus.FORBIDDEN);
+        }
+        if (invalidation.getEmployeeIds() == null
+                || invalidation.getEmployeeIds().size() > transport.getMaxEmployeeIds()) {
+            return new ResponseEntity<>(HttpStatus.PAYLOAD_TOO_LARGE);
+        }
+        transport.receive(invalidation);
+        return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+    }
+}
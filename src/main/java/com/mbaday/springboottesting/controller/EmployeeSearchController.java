@@ -0,0 +1,34 @@
+package com.mbaday.springboottesting.controller;
+
+import com.mbaday.springboottesting.dto.EmployeeSearchHit;
+import com.mbaday.springboottesting.search.EmployeeSearchIndex;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+// type-ahead search on name and email, answered from the in-memory index
+@RestController
+@Profile("!reactive")
+@RequestMapping("/api/employees/search")
+public class EmployeeSearchController {
+
+    private EmployeeSearchIndex searchIndex;
+
+    @Autowired
+    public EmployeeSearchController(EmployeeSearchIndex searchIndex) {
+        this.searchIndex = searchIndex;
+    }
+
+    // never touches the database
+    @StatementBudget(0)
+    @GetMapping
+    public List<EmployeeSearchHit> searchEmployees(@RequestParam String q,
+                                                   @RequestParam(defaultValue = "10") int limit) {
+        return searchIndex.search(q, limit);
+    }
+}
@@ -0,0 +1,89 @@
+package com.mbaday.springboottesting.controller;
+
+import com.mbaday.springboottesting.dto.EmployeeCreateStatus;
+import com.mbaday.springboottesting.model.Employee;
+import com.mbaday.springboottesting.service.EmployeeService;
+import com.mbaday.springboottesting.writebehind.EmployeeWriteBehindQueue;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.StringUtils;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.net.URI;
+
+// write-behind creates: a POST /api/employees with "Prefer: respond-async" (RFC 7240) is answered with 202 and
+// the URL of its status as soon as it is in the write-behind queue, or with 429 when the queue is full.
+// without that preference the create stays synchronous
+@RestController
+@Profile("!reactive")
+@ConditionalOnProperty(name = "employees.write-behind.enabled", havingValue = "true")
+@RequestMapping("/api/employees")
+public class EmployeeWriteBehindController {
+
+    static final String RESPOND_ASYNC = "respond-async";
+
+    private EmployeeWriteBehindQueue writeBehindQueue;
+
+    private EmployeeService employeeService;
+
+    @Autowired
+    public EmployeeWriteBehindController(EmployeeWriteBehindQueue writeBehindQueue, EmployeeService employeeService) {
+        this.writeBehindQueue = writeBehindQueue;
+        this.employeeService = employeeService;
+    }
+
+    // the more specific mapping wins over EmployeeController's POST whenever a Prefer header is sent
+    @StatementBudget(3)
+    @PostMapping(headers = "Prefer")
+    public ResponseEntity<?> createEmployee(@RequestBody Employee employee,
+                                            @RequestHeader("Prefer") String prefer) {
+        if (!prefersAsync(prefer)) {
+            return ResponseEntity.status(HttpStatus.CREATED).body(employeeService.saveEmployee(employee));
+        }
+        // checked here rather than by the writer: the client has already been told the create was accepted
+        if (!isValid(employee.getFirstName()) || !isValid(employee.getLastName()) || !isValid(employee.getEmail())) {
+            return ResponseEntity.badRequest().body("firstName, lastName and email are required, at most "
+                    + Employee.MAX_LENGTH + " characters each");
+        }
+        return writeBehindQueue.accept(employee)
+                .<ResponseEntity<?>>map(ticket -> ResponseEntity.accepted()
+                        .location(URI.create("/api/employees/pending/" + ticket))
+                        .header("Preference-Applied", RESPOND_ASYNC)
+                        .body(new EmployeeCreateStatus(ticket, EmployeeCreateStatus.Status.PENDING, null, null)))
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                        .header(HttpHeaders.RETRY_AFTER, "1")
+                        .build());
+    }
+
+    // PENDING until the batch with the create has committed, then the outcome (with the new id when CREATED)
+    @StatementBudget(0)
+    @GetMapping("pending/{ticket}")
+    public ResponseEntity<EmployeeCreateStatus> getCreateStatus(@PathVariable String ticket) {
+        return writeBehindQueue.status(ticket)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    private static boolean isValid(String value) {
+        return StringUtils.hasText(value) && value.length() <= Employee.MAX_LENGTH;
+    }
+
+    private static boolean prefersAsync(String prefer) {
+        for (String preference : prefer.split(",")) {
+            if (preference.split(";")[0].trim().equalsIgnoreCase(RESPOND_ASYNC)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,84 @@
+package com.mbaday.springboottesting.controller;
+
+import com.mbaday.springboottesting.model.Employee;
+import com.mbaday.springboottesting.service.ReactiveEmployeeService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+// WebFlux version of EmployeeController with the same /api/employees contract, active with the reactive profile
+@RestController
+@RequestMapping("/api/employees")
+@Profile("reactive")
+public class ReactiveEmployeeController {
+
+    private ReactiveEmployeeService reactiveEmployeeService;
+
+    @Autowired
+    public ReactiveEmployeeController(ReactiveEmployeeService reactiveEmployeeService) {
+        this.reactiveEmployeeService = reactiveEmployeeService;
+    }
+
+    @PostMapping
+    @ResponseStatus(HttpStatus.CREATED)
+    public Mono<Employee> createEmployee(@RequestBody Employee employee){
+        return reactiveEmployeeService.saveEmployee(employee);
+    }
+
+    // a JSON array by default. with Accept: application/x-ndjson each employee is written as soon as it is read,
+    // and the database is only asked for more rows as fast as the client consumes them
+    @GetMapping(produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public Flux<Employee> getAllEmployees(){
+        return reactiveEmployeeService.getAllEmployees();
+    }
+
+    @GetMapping("{id}")
+    public Mono<ResponseEntity<Employee>> getEmployeeById(@PathVariable long id){
+        return reactiveEmployeeService.getEmployeeById(id)
+                .map(employee -> ResponseEntity.ok().eTag(EmployeeController.eTag(employee.getVersion())).body(employee))
+                .defaultIfEmpty(ResponseEntity.notFound().build());
+    }
+
+    // with If-Match the version is part of the UPDATE, no match is a failed precondition (as in EmployeeController)
+    @PutMapping("{id}")
+    public Mono<ResponseEntity<Employee>> updateEmployee(@PathVariable long id, @RequestBody Employee employee,
+                                                         @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch){
+        Employee changedEmployee = employee.toBuilder().id(id).build();
+        List<Long> versions = EmployeeController.ifMatchVersions(ifMatch);
+        Mono<Employee> updated = versions == null
+                ? reactiveEmployeeService.updateEmployee(changedEmployee)
+                : Flux.fromIterable(versions)
+                        .concatMap(version -> reactiveEmployeeService.updateEmployee(changedEmployee, version))
+                        .next();
+        return updated
+                .map(updatedEmployee -> ResponseEntity.ok().eTag(EmployeeController.eTag(updatedEmployee.getVersion())).body(updatedEmployee))
+                .defaultIfEmpty(ifMatch == null
+                        ? ResponseEntity.notFound().build()
+                        : ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build());
+    }
+
+    @DeleteMapping("{id}")
+    public Mono<ResponseEntity<Void>> deleteEmployeeById(@PathVariable long id,
+                                                         @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch){
+        List<Long> versions = EmployeeController.ifMatchVersions(ifMatch);
+        Mono<Boolean> deleted = versions == null
+                ? reactiveEmployeeService.deleteById(id)
+                : Flux.fromIterable(versions)
+                        .concatMap(version -> reactiveEmployeeService.deleteById(id, version))
+                        .any(Boolean::booleanValue);
+        return deleted
+                .map(rowDeleted -> rowDeleted
+                        ? ResponseEntity.noContent().<Void>build()
+                        : ifMatch == null
+                                ? ResponseEntity.notFound().<Void>build()
+                                : ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).<Void>build());
+    }
+}
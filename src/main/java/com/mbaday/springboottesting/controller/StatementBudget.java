@@ -0,0 +1,21 @@
+package com.mbaday.springboottesting.controller;
+
+import com.mbaday.springboottesting.datasource.StatementCounter;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// the most SQL statements one request to the endpoint may run (cache misses included). checked by
+// StatementBudgetInterceptor, endpoints without it get employees.statement-budget.default
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface StatementBudget {
+
+    int UNLIMITED = StatementCounter.UNLIMITED;
+
+    int value();
+}
@@ -0,0 +1,47 @@
+package com.mbaday.springboottesting.datasource;
+
+import jakarta.persistence.CacheStoreMode;
+import jakarta.persistence.EntityManager;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.orm.jpa.vendor.HibernateJpaDialect;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionException;
+
+import java.sql.SQLException;
+
+// read-only transactions may be served by a replica that lags behind the primary. what they load is still taken
+// from the second-level cache, but never put into it (entities and cached query results): a row read from a
+// replica right after a write evicted it would otherwise be cached, and served, until it expires
+public class ReplicaReadJpaDialect extends HibernateJpaDialect {
+
+    @Override
+    public Object beginTransaction(EntityManager entityManager, TransactionDefinition definition)
+            throws SQLException, TransactionException {
+        Object transactionData = super.beginTransaction(entityManager, definition);
+        if (!definition.isReadOnly()) {
+            return transactionData;
+        }
+        // the JPA property rather than the cache mode of the session, find() derives its cache mode from it
+        Object previousStoreMode = entityManager.getProperties().get(AvailableSettings.JAKARTA_SHARED_CACHE_STORE_MODE);
+        entityManager.setProperty(AvailableSettings.JAKARTA_SHARED_CACHE_STORE_MODE, CacheStoreMode.BYPASS);
+        return new ReplicaReadTransactionData(transactionData, entityManager,
+                previousStoreMode != null ? previousStoreMode : CacheStoreMode.USE);
+    }
+
+    @Override
+    public void cleanupTransaction(Object transactionData) {
+        if (transactionData instanceof ReplicaReadTransactionData replicaRead) {
+            if (replicaRead.entityManager().isOpen()) {
+                replicaRead.entityManager()
+                        .setProperty(AvailableSettings.JAKARTA_SHARED_CACHE_STORE_MODE, replicaRead.previousStoreMode());
+            }
+            super.cleanupTransaction(replicaRead.transactionData());
+        } else {
+            super.cleanupTransaction(transactionData);
+        }
+    }
+
+    private record ReplicaReadTransactionData(Object transactionData, EntityManager entityManager,
+                                              Object previousStoreMode) {
+    }
+}
@@ -0,0 +1,233 @@
+package com.mbaday.springboottesting.datasource;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.StringUtils;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// sends the connections of read-only transactions to a healthy read replica (round robin) and everything else to
+// the primary. has to sit behind a LazyConnectionDataSourceProxy: the read-only flag of a transaction is only
+// known once the transaction has started, after the transaction manager asked for its connection.
+//
+// replicas are checked in the background. a replica that cannot be reached, whose lag query fails or reports
+// more than maxLag (or no lag at all, replication stopped) takes no reads until a later check passes; with no
+// usable replica the reads go to the primary. a replica that fails to hand out a connection is skipped at once
+@Slf4j
+public class ReplicaRoutingDataSource extends AbstractDataSource implements Closeable {
+
+    // MySQL's SHOW REPLICA STATUS (and the older SHOW SLAVE STATUS) report the lag in one of these columns
+    private static final List<String> LAG_COLUMNS = List.of("Seconds_Behind_Source", "Seconds_Behind_Master");
+
+    private final DataSource primary;
+
+    private final Map<String, Replica> replicas = new LinkedHashMap<>();
+
+    private final String lagQuery;
+
+    private final Duration maxLag;
+
+    private final AtomicInteger nextReplica = new AtomicInteger();
+
+    private volatile List<Replica> usableReplicas = List.of();
+
+    private ScheduledExecutorService healthChecks;
+
+    public ReplicaRoutingDataSource(DataSource primary, Map<String, DataSource> replicas, String lagQuery,
+                                    Duration maxLag) {
+        this.primary = primary;
+        replicas.forEach((name, dataSource) -> this.replicas.put(name, new Replica(name, dataSource)));
+        this.lagQuery = lagQuery;
+        this.maxLag = maxLag;
+    }
+
+    public synchronized void startHealthChecks(Duration interval) {
+        if (healthChecks == null) {
+            healthChecks = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "replica-health-check");
+                thread.setDaemon(true);
+                return thread;
+            });
+            healthChecks.scheduleWithFixedDelay(this::checkReplicas, 0, interval.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return getConnection(DataSource::getConnection);
+    }
+
+    // routed the same way, the credentials are passed on to the replica or the primary (a pool may not support them)
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return getConnection(dataSource -> dataSource.getConnection(username, password));
+    }
+
+    // checks every replica once. the usable list is replaced in one go, readers never see it half updated
+    public void checkReplicas() {
+        List<Replica> usable = new ArrayList<>();
+        for (Replica replica : replicas.values()) {
+            check(replica);
+            if (replica.healthy) {
+                usable.add(replica);
+            }
+        }
+        synchronized (this) {
+            usableReplicas = Collections.unmodifiableList(usable);
+        }
+    }
+
+    public List<ReplicaStatus> replicaStatus() {
+        List<ReplicaStatus> status = new ArrayList<>();
+        for (Replica replica : replicas.values()) {
+            status.add(new ReplicaStatus(replica.name, replica.healthy, replica.lagSeconds, replica.problem));
+        }
+        return status;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (healthChecks != null) {
+            healthChecks.shutdownNow();
+        }
+        for (Replica replica : replicas.values()) {
+            closeQuietly(replica.dataSource);
+        }
+        closeQuietly(primary);
+    }
+
+    private Connection getConnection(ConnectionSource connectionSource) throws SQLException {
+        if (TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            Connection replicaConnection = replicaConnection(connectionSource);
+            if (replicaConnection != null) {
+                return replicaConnection;
+            }
+        }
+        return connectionSource.getConnection(primary);
+    }
+
+    private Connection replicaConnection(ConnectionSource connectionSource) {
+        List<Replica> candidates = usableReplicas;
+        for (int attempt = 0; attempt < candidates.size(); attempt++) {
+            Replica replica = candidates.get(Math.floorMod(nextReplica.getAndIncrement(), candidates.size()));
+            try {
+                return connectionSource.getConnection(replica.dataSource);
+            } catch (SQLException e) {
+                markUnusable(replica, "Connection failed: " + e.getMessage());
+            }
+        }
+        return null;
+    }
+
+    private void check(Replica replica) {
+        try (Connection connection = replica.dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            if (!StringUtils.hasText(lagQuery)) {
+                statement.execute("select 1");
+                replica.update(true, null, null);
+                return;
+            }
+            Long lagSeconds = null;
+            try (ResultSet resultSet = statement.executeQuery(lagQuery)) {
+                if (resultSet.next()) {
+                    long lag = resultSet.getLong(lagColumn(resultSet.getMetaData()));
+                    lagSeconds = resultSet.wasNull() ? null : lag;
+                }
+            }
+            if (lagSeconds == null) {
+                replica.update(false, null, "Replication is not running");
+            } else if (lagSeconds > maxLag.toSeconds()) {
+                replica.update(false, lagSeconds, "Lag of " + lagSeconds + "s is above " + maxLag.toSeconds() + "s");
+            } else {
+                replica.update(true, lagSeconds, null);
+            }
+        } catch (SQLException | RuntimeException e) {
+            replica.update(false, null, "Check failed: " + e.getMessage());
+        }
+    }
+
+    private static int lagColumn(ResultSetMetaData metaData) throws SQLException {
+        for (int column = 1; column <= metaData.getColumnCount(); column++) {
+            for (String lagColumn : LAG_COLUMNS) {
+                if (lagColumn.equalsIgnoreCase(metaData.getColumnLabel(column))) {
+                    return column;
+                }
+            }
+        }
+        return 1;
+    }
+
+    private synchronized void markUnusable(Replica replica, String problem) {
+        replica.update(false, null, problem);
+        List<Replica> usable = new ArrayList<>(usableReplicas);
+        usable.remove(replica);
+        usableReplicas = Collections.unmodifiableList(usable);
+    }
+
+    private static void closeQuietly(DataSource dataSource) {
+        if (dataSource instanceof AutoCloseable closeable) {
+            try {
+                closeable.close();
+            } catch (Exception e) {
+                log.warn("Could not close data source", e);
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface ConnectionSource {
+
+        Connection getConnection(DataSource dataSource) throws SQLException;
+    }
+
+    public record ReplicaStatus(String name, boolean healthy, Long lagSeconds, String problem) {
+    }
+
+    private static final class Replica {
+
+        private final String name;
+
+        private final DataSource dataSource;
+
+        private volatile boolean healthy;
+
+        private volatile Long lagSeconds;
+
+        private volatile String problem = "Not checked yet";
+
+        private Replica(String name, DataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+
+        private void update(boolean healthy, Long lagSeconds, String problem) {
+            if (this.healthy != healthy) {
+                if (healthy) {
+                    log.info("Read replica {} is in use", name);
+                } else {
+                    log.warn("Read replica {} taken out of use: {}", name, problem);
+                }
+            }
+            this.healthy = healthy;
+            this.lagSeconds = lagSeconds;
+            this.problem = problem;
+        }
+    }
+}
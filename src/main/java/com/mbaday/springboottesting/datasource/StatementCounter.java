@@ -0,0 +1,120 @@
+package com.mbaday.springboottesting.datasource;
+
+import com.mbaday.springboottesting.exception.StatementBudgetExceededException;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// statements prepared on the current thread, counted by StatementCountingDataSource, and the time spent in the
+// database for them (waiting for a connection, executing statements). a scope counts from open() to close();
+// scopes nest (a test around a request, the request itself) and every open scope sees the statement. work handed
+// to another thread (async responses, the invalidation relay) is not counted
+public final class StatementCounter {
+
+    public static final int UNLIMITED = Integer.MAX_VALUE;
+
+    private static final ThreadLocal<Scope> CURRENT = new ThreadLocal<>();
+
+    private StatementCounter() {
+    }
+
+    // counts without a budget
+    public static Scope open() {
+        return open(UNLIMITED, false);
+    }
+
+    // failOnExceeded: the statement over the budget is not run, StatementBudgetExceededException is thrown instead
+    public static Scope open(int budget, boolean failOnExceeded) {
+        Scope scope = new Scope(CURRENT.get(), budget, failOnExceeded);
+        CURRENT.set(scope);
+        return scope;
+    }
+
+    static void statementPrepared(String sql) {
+        for (Scope scope = CURRENT.get(); scope != null; scope = scope.parent) {
+            scope.count(sql);
+        }
+    }
+
+    static void databaseTime(long nanos) {
+        for (Scope scope = CURRENT.get(); scope != null; scope = scope.parent) {
+            scope.databaseNanos += nanos;
+        }
+    }
+
+    public static final class Scope implements AutoCloseable {
+
+        private final Scope parent;
+
+        private final int budget;
+
+        private final boolean failOnExceeded;
+
+        // executions per statement text, in the order they were first seen
+        private final Map<String, Integer> statements = new LinkedHashMap<>();
+
+        private int count;
+
+        private long databaseNanos;
+
+        private Scope(Scope parent, int budget, boolean failOnExceeded) {
+            this.parent = parent;
+            this.budget = budget;
+            this.failOnExceeded = failOnExceeded;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        // connection acquisition plus statement execution, reading the rows of a result set is not included
+        public long getDatabaseNanos() {
+            return databaseNanos;
+        }
+
+        public int getBudget() {
+            return budget;
+        }
+
+        public boolean isOverBudget() {
+            return count > budget;
+        }
+
+        public Map<String, Integer> getStatements() {
+            return Collections.unmodifiableMap(statements);
+        }
+
+        // the statement run most often, the usual suspect when a budget is exceeded (N+1 selects)
+        public Map.Entry<String, Integer> getMostRepeated() {
+            return statements.entrySet().stream().max(Map.Entry.comparingByValue()).orElse(null);
+        }
+
+        public void reset() {
+            count = 0;
+            databaseNanos = 0;
+            statements.clear();
+        }
+
+        // scopes are closed in the reverse order they were opened
+        @Override
+        public void close() {
+            if (CURRENT.get() != this) {
+                throw new IllegalStateException("Statement count scope closed out of order");
+            }
+            if (parent == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(parent);
+            }
+        }
+
+        private void count(String sql) {
+            if (failOnExceeded && count >= budget) {
+                throw new StatementBudgetExceededException(budget, sql);
+            }
+            count++;
+            statements.merge(sql, 1, Integer::sum);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.mbaday.springboottesting.datasource;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+// reports every statement sent through its connections to StatementCounter: Hibernate's as well as the
+// JdbcTemplate ones (JDBC repository, outbox). a prepared statement counts once, however many batched rows or
+// executions it carries; a plain Statement counts each execute call. the time taken to get a connection (the wait
+// for the pool included) and by each execute call is reported as database time
+public class StatementCountingDataSource extends DelegatingDataSource {
+
+    public StatementCountingDataSource(DataSource targetDataSource) {
+        super(targetDataSource);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        long start = System.nanoTime();
+        try {
+            return counting(super.getConnection());
+        } finally {
+            StatementCounter.databaseTime(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            return counting(super.getConnection(username, password));
+        } finally {
+            StatementCounter.databaseTime(System.nanoTime() - start);
+        }
+    }
+
+    private static Connection counting(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    String name = method.getName();
+                    if (name.equals("prepareStatement")) {
+                        StatementCounter.statementPrepared((String) args[0]);
+                        return timing((Statement) invoke(connection, method, args), PreparedStatement.class, false);
+                    } else if (name.equals("prepareCall")) {
+                        StatementCounter.statementPrepared((String) args[0]);
+                        return timing((Statement) invoke(connection, method, args), CallableStatement.class, false);
+                    } else if (name.equals("createStatement")) {
+                        return timing((Statement) invoke(connection, method, args), Statement.class, true);
+                    }
+                    return invoke(connection, method, args);
+                });
+    }
+
+    // countExecutions: a plain Statement, whose statements are only known when they are executed
+    private static Statement timing(Statement statement, Class<? extends Statement> type, boolean countExecutions) {
+        return (Statement) Proxy.newProxyInstance(Statement.class.getClassLoader(), new Class<?>[]{type},
+                (proxy, method, args) -> {
+                    String name = method.getName();
+                    if (!name.startsWith("execute")) {
+                        return invoke(statement, method, args);
+                    }
+                    if (countExecutions) {
+                        boolean batch = name.equals("executeBatch") || name.equals("executeLargeBatch");
+                        StatementCounter.statementPrepared(batch ? "<batch>" : (String) args[0]);
+                    }
+                    long start = System.nanoTime();
+                    try {
+                        return invoke(statement, method, args);
+                    } finally {
+                        StatementCounter.databaseTime(System.nanoTime() - start);
+                    }
+                });
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.mbaday.springboottesting.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+// outcome of a bulk delete. ids that did not exist are counted in requested but not in deleted
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+public class BulkDeleteResult {
+
+    private int requested;
+
+    private int deleted;
+}
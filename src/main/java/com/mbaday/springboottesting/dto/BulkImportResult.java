@@ -0,0 +1,21 @@
+package com.mbaday.springboottesting.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+public class BulkImportResult {
+
+    private long received;
+
+    private long created;
+
+    private long rejected;
+
+    private List<BulkImportRowResult> rows;
+}
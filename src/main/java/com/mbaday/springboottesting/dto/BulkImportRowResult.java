@@ -0,0 +1,28 @@
+package com.mbaday.springboottesting.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+// outcome of a single row of a bulk import. index is the 0-based position of the row in the request body
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BulkImportRowResult {
+
+    public enum Status {
+        CREATED, DUPLICATE, INVALID
+    }
+
+    private long index;
+
+    private String email;
+
+    private Status status;
+
+    private Long id;
+
+    private String message;
+}
@@ -0,0 +1,27 @@
+package com.mbaday.springboottesting.dto;
+
+import com.mbaday.springboottesting.model.EmployeeChange;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+// one change of the feed with the employee as it is now, null once it has been deleted (also for a CREATED or
+// UPDATED change of an employee deleted since). applying the events in seq order, each replacing or removing the
+// employee, ends with the current table, however often an event is applied
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+public class EmployeeChangeEvent {
+
+    private long seq;
+
+    private EmployeeChange.Type type;
+
+    private long employeeId;
+
+    private Instant changedAt;
+
+    private EmployeeView employee;
+}
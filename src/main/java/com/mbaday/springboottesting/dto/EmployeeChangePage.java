@@ -0,0 +1,19 @@
+package com.mbaday.springboottesting.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// the changes after a seq. nextSince is the value to pass as "since" for the following request, the seq of the
+// last change or the since of this request when there was none
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+public class EmployeeChangePage {
+
+    private List<EmployeeChangeEvent> changes;
+
+    private long nextSince;
+}
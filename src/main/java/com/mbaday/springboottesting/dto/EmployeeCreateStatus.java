@@ -0,0 +1,26 @@
+package com.mbaday.springboottesting.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+// state of a create accepted in write-behind mode, served under /api/employees/pending/{ticket}
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class EmployeeCreateStatus {
+
+    public enum Status {
+        PENDING, CREATED, DUPLICATE, INVALID
+    }
+
+    private String ticket;
+
+    private Status status;
+
+    private Long id;
+
+    private String message;
+}
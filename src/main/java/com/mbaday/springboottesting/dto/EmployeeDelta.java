@@ -0,0 +1,29 @@
+package com.mbaday.springboottesting.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.List;
+
+// one page of what changed after modifiedSince: the employees created or updated since, and the ids of the ones
+// deleted. the next request passes nextModifiedSince and nextAfterId, the keyset position in (updated_at, id) order
+// where this page ended. once complete, nextModifiedSince lies a little in the past, so a row written by a
+// transaction that committed late is sent again rather than missed; applying a row twice is harmless
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+public class EmployeeDelta {
+
+    private List<EmployeeView> changed;
+
+    private List<Long> deleted;
+
+    private Instant nextModifiedSince;
+
+    private long nextAfterId;
+
+    // false while there are more pages to fetch right away
+    private boolean complete;
+}
@@ -0,0 +1,46 @@
+package com.mbaday.springboottesting.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+// state of an export of the employees table, served under /api/employees/exports/{id} and kept next to the file
+// as its checkpoint. rows, lastId and bytes are those of the last checkpoint: the first bytes of the file hold
+// exactly the rows up to lastId, a resumed export cuts the file there and continues with the ids above it
+@Getter
+@Builder(toBuilder = true)
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class EmployeeExportJob {
+
+    public enum Format {
+        NDJSON, CSV
+    }
+
+    public enum Status {
+        QUEUED, RUNNING, COMPLETED, FAILED
+    }
+
+    private String id;
+
+    private Format format;
+
+    private Status status;
+
+    private long rows;
+
+    private long lastId;
+
+    private long bytes;
+
+    private Instant createdAt;
+
+    private Instant finishedAt;
+
+    private String message;
+}
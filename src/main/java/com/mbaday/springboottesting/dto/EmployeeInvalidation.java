@@ -0,0 +1,19 @@
+package com.mbaday.springboottesting.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// tells the other instances that these employees changed, so whatever they hold in memory for them is stale.
+// carries ids only, a receiver that needs the new state reads it from the database
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+public class EmployeeInvalidation {
+
+    private String origin;
+
+    private List<Long> employeeIds;
+}
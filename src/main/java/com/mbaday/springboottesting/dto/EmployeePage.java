@@ -0,0 +1,19 @@
+package com.mbaday.springboottesting.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// one page of a keyset (id cursor) scan. nextCursor is the value to pass as "after" for the next page
+// and is null once the last page has been reached
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+public class EmployeePage {
+
+    private List<EmployeeView> content;
+
+    private Long nextCursor;
+}
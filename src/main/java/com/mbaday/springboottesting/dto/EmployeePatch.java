@@ -0,0 +1,26 @@
+package com.mbaday.springboottesting.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+// partial update of an employee. fields left null are not touched
+@Setter
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class EmployeePatch {
+
+    private String firstName;
+
+    private String lastName;
+
+    private String email;
+
+    public boolean isEmpty() {
+        return firstName == null && lastName == null && email == null;
+    }
+}
@@ -0,0 +1,20 @@
+package com.mbaday.springboottesting.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+// one type-ahead result, served from the in-memory search index without touching the database
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+public class EmployeeSearchHit {
+
+    private long id;
+
+    private String firstName;
+
+    private String lastName;
+
+    private String email;
+}
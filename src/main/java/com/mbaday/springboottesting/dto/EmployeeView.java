@@ -0,0 +1,40 @@
+package com.mbaday.springboottesting.dto;
+
+import com.mbaday.springboottesting.model.Employee;
+import lombok.AllArgsConstructor;
+import lombok.Value;
+
+// read model of an employee, returned by every read of the API and held in the employees cache. the repository
+// fills it straight from the select list with a JPQL constructor expression, so a read never hydrates a managed
+// entity (no persistence context entry, no dirty-checking snapshot). immutable, so a cached instance can be shared
+@Value
+@AllArgsConstructor
+public class EmployeeView {
+
+    long id;
+
+    String firstName;
+
+    String lastName;
+
+    String email;
+
+    long version;
+
+    public static EmployeeView from(Employee employee) {
+        return new EmployeeView(employee.getId(), employee.getFirstName(), employee.getLastName(),
+                employee.getEmail(), employee.getVersion());
+    }
+
+    // detached entity with the id and version that were read, for EmployeeService.updateEmployee. without the audit
+    // columns, it is not to be merged as it is
+    public Employee toEmployee() {
+        return Employee.builder()
+                .id(id)
+                .firstName(firstName)
+                .lastName(lastName)
+                .email(email)
+                .version(version)
+                .build();
+    }
+}
@@ -0,0 +1,20 @@
+package com.mbaday.springboottesting.dto;
+
+import lombok.Value;
+
+import java.time.Instant;
+
+// an employee of the delta sync with the time it was last written: (updatedAt, id) is its position in the sync
+@Value
+public class ModifiedEmployeeView {
+
+    EmployeeView employee;
+
+    Instant updatedAt;
+
+    public ModifiedEmployeeView(long id, String firstName, String lastName, String email, long version,
+                                Instant updatedAt) {
+        this.employee = new EmployeeView(id, firstName, lastName, email, version);
+        this.updatedAt = updatedAt;
+    }
+}
@@ -0,0 +1,8 @@
+package com.mbaday.springboottesting.exception;
+
+public class StatementBudgetExceededException extends RuntimeException{
+
+    public StatementBudgetExceededException(int budget, String sql) {
+        super("Statement budget of " + budget + " exceeded by: " + sql);
+    }
+}
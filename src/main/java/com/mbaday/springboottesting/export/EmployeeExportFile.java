@@ -0,0 +1,154 @@
+package com.mbaday.springboottesting.export;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mbaday.springboottesting.dto.EmployeeExportJob;
+import com.mbaday.springboottesting.model.Employee;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// the file of an export, written row by row through one fixed direct buffer into a FileChannel. NDJSON (one
+// employee object per line) or CSV with a header row the bulk import reads back. nothing reaches the disk for
+// certain before checkpoint(), which returns the length of the file up to the last row written
+public class EmployeeExportFile implements Closeable {
+
+    static final String CSV_HEADER = "id,first_name,last_name,email,version,created_at,updated_at\n";
+
+    private final FileChannel channel;
+
+    private final ByteBuffer buffer;
+
+    private final OutputStream output = new BufferOutputStream();
+
+    private final JsonGenerator json;
+
+    private final Writer csv;
+
+    // opens the file for writing after its first resumeAt bytes, whatever follows them (the rows written after the
+    // last checkpoint of an interrupted export) is cut off
+    public EmployeeExportFile(Path path, EmployeeExportJob.Format format, ObjectMapper objectMapper, long resumeAt,
+                              int bufferSize) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        try {
+            if (channel.size() < resumeAt) {
+                throw new IOException(path + " is shorter than its checkpoint (" + resumeAt + " bytes)");
+            }
+            channel.truncate(resumeAt);
+            channel.position(resumeAt);
+            this.buffer = ByteBuffer.allocateDirect(bufferSize);
+            if (format == EmployeeExportJob.Format.NDJSON) {
+                this.json = objectMapper.getFactory().createGenerator(output)
+                        .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                // lines are ended by write(), not separated by the generator
+                this.json.setRootValueSeparator(null);
+                this.csv = null;
+            } else {
+                this.json = null;
+                this.csv = new OutputStreamWriter(output, StandardCharsets.UTF_8);
+                if (resumeAt == 0) {
+                    csv.write(CSV_HEADER);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public void write(Employee employee) throws IOException {
+        if (json != null) {
+            json.writeObject(employee);
+            json.writeRaw('\n');
+            return;
+        }
+        csv.write(Long.toString(employee.getId()));
+        csv.write(',');
+        writeCsvField(employee.getFirstName());
+        csv.write(',');
+        writeCsvField(employee.getLastName());
+        csv.write(',');
+        writeCsvField(employee.getEmail());
+        csv.write(',');
+        csv.write(Long.toString(employee.getVersion()));
+        csv.write(',');
+        writeCsvField(employee.getCreatedAt() == null ? null : employee.getCreatedAt().toString());
+        csv.write(',');
+        writeCsvField(employee.getUpdatedAt() == null ? null : employee.getUpdatedAt().toString());
+        csv.write('\n');
+    }
+
+    // everything written so far is on disk once this returns
+    public long checkpoint() throws IOException {
+        if (json != null) {
+            json.flush();
+        } else {
+            csv.flush();
+        }
+        drain();
+        channel.force(false);
+        return channel.position();
+    }
+
+    // rows written after the last checkpoint are dropped, the next run writes them again
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    // RFC 4180: quoted when it holds a separator, a quote or a line break, quotes doubled
+    private void writeCsvField(String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            csv.write(value);
+            return;
+        }
+        csv.write('"');
+        csv.write(value.replace("\"", "\"\""));
+        csv.write('"');
+    }
+
+    private void drain() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    // what the JSON generator and the CSV writer write to: the direct buffer, handed to the channel whenever
+    // it is full. flushing the generator or the writer fills the buffer, it does not write to the file
+    private class BufferOutputStream extends OutputStream {
+
+        @Override
+        public void write(int b) throws IOException {
+            if (!buffer.hasRemaining()) {
+                drain();
+            }
+            buffer.put((byte) b);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            while (length > 0) {
+                if (!buffer.hasRemaining()) {
+                    drain();
+                }
+                int chunk = Math.min(length, buffer.remaining());
+                buffer.put(bytes, offset, chunk);
+                offset += chunk;
+                length -= chunk;
+            }
+        }
+    }
+}
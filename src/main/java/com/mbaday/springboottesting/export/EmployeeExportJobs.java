@@ -0,0 +1,309 @@
+package com.mbaday.springboottesting.export;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mbaday.springboottesting.dto.EmployeeExportJob;
+import com.mbaday.springboottesting.repository.EmployeeJdbcRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// full exports of the employees table to files under employees.export.directory, run in the background by up to
+// max-concurrent threads. a job reads the table in id order through the forward-only cursor of EmployeeJdbcRepository
+// (in a read-only transaction, so on a replica when there is one) and writes each row to its file as it comes off
+// the cursor, memory stays the same whatever the size of the table. every checkpoint-rows rows the file is forced
+// to disk and the job's state, with the id of the last row in the file, is saved next to it: an export that failed
+// or was cut short by a shutdown is resumed from there instead of starting over. rows written after the export has
+// passed their id are in the next export only. completed and failed exports, files and state, are deleted
+// retention after they finished (checked at startup and whenever an export starts), or earlier with delete
+@Slf4j
+@Component
+@Profile("!reactive")
+public class EmployeeExportJobs {
+
+    private static final String JOB_SUFFIX = ".job.json";
+
+    private EmployeeJdbcRepository employeeJdbcRepository;
+
+    private ObjectMapper objectMapper;
+
+    private TransactionTemplate readOnlyTransaction;
+
+    private Path directory;
+
+    private int bufferSize;
+
+    private int checkpointRows;
+
+    private int maxConcurrent;
+
+    private Duration shutdownTimeout;
+
+    private Duration retention;
+
+    private final Map<String, EmployeeExportJob> jobs = new ConcurrentHashMap<>();
+
+    private ExecutorService executor;
+
+    private volatile boolean stopping;
+
+    // thrown out of the cursor to end a running export at shutdown
+    private static class ExportStoppedException extends RuntimeException {
+        ExportStoppedException() {
+            super("Interrupted by a shutdown", null, false, false);
+        }
+    }
+
+    @Autowired
+    public EmployeeExportJobs(EmployeeJdbcRepository employeeJdbcRepository, ObjectMapper objectMapper,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${employees.export.directory:data/exports}") Path directory,
+                              @Value("${employees.export.buffer-size:64KB}") DataSize bufferSize,
+                              @Value("${employees.export.checkpoint-rows:10000}") int checkpointRows,
+                              @Value("${employees.export.max-concurrent:1}") int maxConcurrent,
+                              @Value("${employees.export.shutdown-timeout:10s}") Duration shutdownTimeout,
+                              @Value("${employees.export.retention:7d}") Duration retention) {
+        this.employeeJdbcRepository = employeeJdbcRepository;
+        this.objectMapper = objectMapper;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.directory = directory;
+        this.bufferSize = (int) bufferSize.toBytes();
+        this.checkpointRows = checkpointRows;
+        this.maxConcurrent = maxConcurrent;
+        this.shutdownTimeout = shutdownTimeout;
+        this.retention = retention;
+    }
+
+    // picks up the jobs of earlier runs. one that was queued or running when the process died is failed, its
+    // checkpoint is where a resume continues. the directory is created with the first export
+    @PostConstruct
+    public void start() throws IOException {
+        if (Files.isDirectory(directory)) {
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + JOB_SUFFIX)) {
+                for (Path file : files) {
+                    EmployeeExportJob job = objectMapper.readValue(file.toFile(), EmployeeExportJob.class);
+                    if (isActive(job)) {
+                        job = job.toBuilder().status(EmployeeExportJob.Status.FAILED)
+                                .message("Interrupted by a restart").build();
+                        save(job);
+                    }
+                    jobs.put(job.getId(), job);
+                }
+            }
+            prune();
+        }
+
+        AtomicInteger threads = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(maxConcurrent, runnable -> {
+            Thread thread = new Thread(runnable, "employee-export-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // running exports stop at their next row and keep their last checkpoint, queued ones are failed
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        stopping = true;
+        executor.shutdown();
+        executor.awaitTermination(shutdownTimeout.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    public EmployeeExportJob start(EmployeeExportJob.Format format) {
+        prune();
+        EmployeeExportJob job = EmployeeExportJob.builder()
+                .id(UUID.randomUUID().toString())
+                .format(format)
+                .status(EmployeeExportJob.Status.QUEUED)
+                .createdAt(Instant.now())
+                .build();
+        save(job);
+        jobs.put(job.getId(), job);
+        executor.execute(() -> run(job.getId()));
+        return job;
+    }
+
+    // continues a failed export after its last checkpoint. empty for an unknown id, IllegalStateException when the
+    // export is queued, running or completed
+    public Optional<EmployeeExportJob> resume(String id) {
+        EmployeeExportJob resumed = jobs.computeIfPresent(id, (key, job) -> {
+            if (job.getStatus() != EmployeeExportJob.Status.FAILED) {
+                throw new IllegalStateException("Export " + id + " is " + job.getStatus());
+            }
+            return job.toBuilder().status(EmployeeExportJob.Status.QUEUED).finishedAt(null).message(null).build();
+        });
+        if (resumed == null) {
+            return Optional.empty();
+        }
+        save(resumed);
+        executor.execute(() -> run(id));
+        return Optional.of(resumed);
+    }
+
+    // the export with its file. false for an unknown id, IllegalStateException while it is queued or running
+    public boolean delete(String id) {
+        EmployeeExportJob[] deleted = {null};
+        jobs.computeIfPresent(id, (key, job) -> {
+            if (isActive(job)) {
+                throw new IllegalStateException("Export " + id + " is " + job.getStatus());
+            }
+            deleted[0] = job;
+            return null;
+        });
+        if (deleted[0] == null) {
+            return false;
+        }
+        try {
+            Files.deleteIfExists(file(deleted[0]));
+            Files.deleteIfExists(jobFile(id));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return true;
+    }
+
+    // the exports that finished more than retention ago. one that failed in a restart has no finish time, its
+    // start counts
+    void prune() {
+        Instant cutoff = Instant.now().minus(retention);
+        for (EmployeeExportJob job : jobs.values()) {
+            Instant finishedAt = job.getFinishedAt() != null ? job.getFinishedAt() : job.getCreatedAt();
+            if (isActive(job) || !finishedAt.isBefore(cutoff)) {
+                continue;
+            }
+            try {
+                delete(job.getId());
+                log.info("Deleted export {}, finished at {}", job.getId(), finishedAt);
+            } catch (IllegalStateException e) {
+                // resumed in the meantime
+            } catch (UncheckedIOException e) {
+                log.warn("Could not delete export {}: {}", job.getId(), e.getMessage());
+            }
+        }
+    }
+
+    public Optional<EmployeeExportJob> status(String id) {
+        return Optional.ofNullable(jobs.get(id));
+    }
+
+    // newest first
+    public List<EmployeeExportJob> list() {
+        return jobs.values().stream()
+                .sorted(Comparator.comparing(EmployeeExportJob::getCreatedAt).reversed())
+                .toList();
+    }
+
+    public Path file(EmployeeExportJob job) {
+        return directory.resolve("employees-" + job.getId() + "." + job.getFormat().name().toLowerCase(Locale.ROOT));
+    }
+
+    private void run(String id) {
+        EmployeeExportJob queued = jobs.get(id);
+        if (stopping) {
+            update(queued.toBuilder().status(EmployeeExportJob.Status.FAILED).message("Interrupted by a shutdown")
+                    .build());
+            return;
+        }
+        EmployeeExportJob[] last = {update(queued.toBuilder().status(EmployeeExportJob.Status.RUNNING).build())};
+        long start = System.nanoTime();
+        try (EmployeeExportFile file = new EmployeeExportFile(file(queued), queued.getFormat(), objectMapper,
+                queued.getBytes(), bufferSize)) {
+            long[] rows = {queued.getRows()};
+            long[] lastId = {queued.getLastId()};
+            readOnlyTransaction.executeWithoutResult(status ->
+                    employeeJdbcRepository.streamAfter(queued.getLastId(), employee -> {
+                        if (stopping) {
+                            throw new ExportStoppedException();
+                        }
+                        try {
+                            file.write(employee);
+                            lastId[0] = employee.getId();
+                            if (++rows[0] - last[0].getRows() >= checkpointRows) {
+                                last[0] = update(checkpoint(last[0], file, rows[0], lastId[0]));
+                            }
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    }));
+            EmployeeExportJob completed = update(checkpoint(last[0], file, rows[0], lastId[0]).toBuilder()
+                    .status(EmployeeExportJob.Status.COMPLETED)
+                    .finishedAt(Instant.now())
+                    .build());
+            log.info("Exported {} employees to {} in {} ms", completed.getRows(), file(completed),
+                    (System.nanoTime() - start) / 1_000_000);
+        } catch (IOException | RuntimeException e) {
+            String message = e instanceof ExportStoppedException ? e.getMessage() : "Export failed: " + e.getMessage();
+            log.warn("Export {} stopped after {} rows: {}", id, last[0].getRows(), message);
+            update(last[0].toBuilder()
+                    .status(EmployeeExportJob.Status.FAILED)
+                    .finishedAt(Instant.now())
+                    .message(message)
+                    .build());
+        }
+    }
+
+    private static boolean isActive(EmployeeExportJob job) {
+        return job.getStatus() == EmployeeExportJob.Status.QUEUED
+                || job.getStatus() == EmployeeExportJob.Status.RUNNING;
+    }
+
+    // the rows written since the last checkpoint are on disk, the job now points behind them
+    private static EmployeeExportJob checkpoint(EmployeeExportJob last, EmployeeExportFile file, long rows,
+                                                long lastId) throws IOException {
+        return last.toBuilder()
+                .rows(rows)
+                .lastId(lastId)
+                .bytes(file.checkpoint())
+                .build();
+    }
+
+    private EmployeeExportJob update(EmployeeExportJob job) {
+        save(job);
+        jobs.put(job.getId(), job);
+        return job;
+    }
+
+    // written next to the export and moved over the previous state in one step, a crash leaves one or the other
+    private void save(EmployeeExportJob job) {
+        Path target = jobFile(job.getId());
+        Path temporary = target.resolveSibling(target.getFileName() + ".tmp");
+        try {
+            Files.createDirectories(directory);
+            objectMapper.writeValue(temporary.toFile(), job);
+            Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Path jobFile(String id) {
+        return directory.resolve("employees-" + id + JOB_SUFFIX);
+    }
+}
@@ -0,0 +1,221 @@
+package com.mbaday.springboottesting.format;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mbaday.springboottesting.model.Employee;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+
+// pull-based readers that turn a request body into employees one record at a time, so a large upload is never
+// materialised as a whole. malformed NDJSON lines, array elements that are not objects or have fields of the wrong
+// type and short CSV rows come out as an empty employee, which the import then reports as an invalid row instead of
+// failing the whole request. only a JSON array that is not well-formed JSON fails the request
+public final class EmployeeRecordReaders {
+
+    private EmployeeRecordReaders() {
+    }
+
+    // a single JSON array of employee objects
+    public static Iterator<Employee> jsonArray(InputStream inputStream, ObjectMapper objectMapper) throws IOException {
+        JsonParser parser = objectMapper.getFactory().createParser(inputStream);
+        if (parser.nextToken() != JsonToken.START_ARRAY) {
+            throw new IllegalArgumentException("Expected a JSON array of employees");
+        }
+        return new Iterator<>() {
+
+            private JsonToken next = advance();
+
+            @Override
+            public boolean hasNext() {
+                return next != JsonToken.END_ARRAY;
+            }
+
+            @Override
+            public Employee next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                try {
+                    Employee employee;
+                    if (next == JsonToken.START_OBJECT) {
+                        // read as a tree first, so a field of the wrong type only costs this row and the parser
+                        // is already past the object
+                        JsonNode node = objectMapper.readTree(parser);
+                        employee = toEmployee(node);
+                    } else {
+                        // a number, string, null or nested array takes up one row, the same as a bad NDJSON line
+                        parser.skipChildren();
+                        employee = new Employee();
+                    }
+                    next = advance();
+                    return employee;
+                } catch (IOException e) {
+                    throw new IllegalArgumentException("Malformed JSON array", e);
+                }
+            }
+
+            private Employee toEmployee(JsonNode node) {
+                try {
+                    return objectMapper.treeToValue(node, Employee.class);
+                } catch (JsonProcessingException e) {
+                    return new Employee();
+                }
+            }
+
+            private JsonToken advance() {
+                try {
+                    JsonToken token = parser.nextToken();
+                    if (token == null) {
+                        throw new IllegalArgumentException("JSON array of employees is not closed");
+                    }
+                    return token;
+                } catch (IOException e) {
+                    throw new IllegalArgumentException("Malformed JSON array", e);
+                }
+            }
+        };
+    }
+
+    // newline delimited JSON, one employee object per line
+    public static Iterator<Employee> ndjson(InputStream inputStream, ObjectMapper objectMapper) {
+        return new LineIterator(reader(inputStream)) {
+            @Override
+            Employee parse(String line) {
+                try {
+                    return objectMapper.readValue(line, Employee.class);
+                } catch (IOException e) {
+                    return new Employee();
+                }
+            }
+        };
+    }
+
+    // CSV with a header row naming the columns, first_name/firstName, last_name/lastName and email
+    public static Iterator<Employee> csv(InputStream inputStream) throws IOException {
+        BufferedReader reader = reader(inputStream);
+        String header = reader.readLine();
+        if (header == null) {
+            return new ArrayList<Employee>().iterator();
+        }
+        List<String> columns = parseCsvLine(header);
+        int firstName = columnIndex(columns, "first_name", "firstname");
+        int lastName = columnIndex(columns, "last_name", "lastname");
+        int email = columnIndex(columns, "email");
+
+        return new LineIterator(reader) {
+            @Override
+            Employee parse(String line) {
+                List<String> values = parseCsvLine(line);
+                return Employee.builder()
+                        .firstName(valueAt(values, firstName))
+                        .lastName(valueAt(values, lastName))
+                        .email(valueAt(values, email))
+                        .build();
+            }
+        };
+    }
+
+    private static BufferedReader reader(InputStream inputStream) {
+        return new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+    }
+
+    private static int columnIndex(List<String> columns, String... names) {
+        for (int i = 0; i < columns.size(); i++) {
+            String column = columns.get(i).trim().toLowerCase(Locale.ROOT);
+            for (String name : names) {
+                if (column.equals(name)) {
+                    return i;
+                }
+            }
+        }
+        throw new IllegalArgumentException("CSV header is missing column " + names[0]);
+    }
+
+    private static String valueAt(List<String> values, int index) {
+        return index < values.size() ? values.get(index).trim() : null;
+    }
+
+    // RFC 4180 style: fields may be quoted, quotes inside quoted fields are doubled
+    static List<String> parseCsvLine(String line) {
+        List<String> values = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    current.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        values.add(current.toString());
+        return values;
+    }
+
+    // iterates over the non-blank lines of a reader, parsing each one lazily
+    private abstract static class LineIterator implements Iterator<Employee> {
+
+        private final BufferedReader reader;
+
+        private String nextLine;
+
+        LineIterator(BufferedReader reader) {
+            this.reader = reader;
+            this.nextLine = readNonBlankLine();
+        }
+
+        abstract Employee parse(String line);
+
+        @Override
+        public boolean hasNext() {
+            return nextLine != null;
+        }
+
+        @Override
+        public Employee next() {
+            if (nextLine == null) {
+                throw new NoSuchElementException();
+            }
+            Employee employee = parse(nextLine);
+            nextLine = readNonBlankLine();
+            return employee;
+        }
+
+        private String readNonBlankLine() {
+            try {
+                String line;
+                do {
+                    line = reader.readLine();
+                } while (line != null && line.isBlank());
+                return line;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
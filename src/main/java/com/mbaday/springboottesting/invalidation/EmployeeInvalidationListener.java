@@ -0,0 +1,91 @@
+package com.mbaday.springboottesting.invalidation;
+
+import com.mbaday.springboottesting.config.CacheConfig;
+import com.mbaday.springboottesting.dto.EmployeeInvalidation;
+import com.mbaday.springboottesting.model.Employee;
+import com.mbaday.springboottesting.repository.EmployeeRepository;
+import com.mbaday.springboottesting.search.EmployeeSearchIndex;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.persistence.EntityManagerFactory;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+// applies the invalidations of the other instances to what this one holds in memory: the employee cache, the
+// Hibernate second-level cache and the search index. the changes of this instance were applied when it made them,
+// its own messages are skipped
+@Component
+public class EmployeeInvalidationListener {
+
+    // ids per query when the search index re-reads the changed employees
+    static final int REFRESH_CHUNK_SIZE = 1000;
+
+    private EmployeeInvalidationOutbox outbox;
+
+    private CacheManager cacheManager;
+
+    private EntityManagerFactory entityManagerFactory;
+
+    private EmployeeRepository employeeRepository;
+
+    private ObjectProvider<EmployeeSearchIndex> searchIndex;
+
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    public EmployeeInvalidationListener(EmployeeInvalidationOutbox outbox,
+                                        EmployeeInvalidationTransport transport,
+                                        CacheManager cacheManager,
+                                        EntityManagerFactory entityManagerFactory,
+                                        EmployeeRepository employeeRepository,
+                                        ObjectProvider<EmployeeSearchIndex> searchIndex,
+                                        PlatformTransactionManager transactionManager) {
+        this.outbox = outbox;
+        this.cacheManager = cacheManager;
+        this.entityManagerFactory = entityManagerFactory;
+        this.employeeRepository = employeeRepository;
+        this.searchIndex = searchIndex;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        transport.subscribe(this::invalidate);
+    }
+
+    public void invalidate(EmployeeInvalidation invalidation) {
+        if (outbox.getNodeId().equals(invalidation.getOrigin()) || invalidation.getEmployeeIds().isEmpty()) {
+            return;
+        }
+        List<Long> employeeIds = invalidation.getEmployeeIds();
+
+        Cache employees = cacheManager.getCache(CacheConfig.EMPLOYEES_CACHE);
+        if (employees != null) {
+            employeeIds.forEach(employees::evict);
+        }
+
+        org.hibernate.Cache secondLevelCache = entityManagerFactory.getCache().unwrap(org.hibernate.Cache.class);
+        employeeIds.forEach(id -> secondLevelCache.evictEntityData(Employee.class, id));
+        secondLevelCache.evictQueryRegion(Employee.QUERY_CACHE_REGION);
+
+        searchIndex.ifAvailable(index -> refresh(index, employeeIds));
+    }
+
+    // the message only says which employees changed, the current rows come from the database. read in a
+    // read-write transaction so they come from the primary, a lagging read replica may not have the change yet
+    private void refresh(EmployeeSearchIndex index, List<Long> employeeIds) {
+        for (int from = 0; from < employeeIds.size(); from += REFRESH_CHUNK_SIZE) {
+            List<Long> chunk = employeeIds.subList(from, Math.min(from + REFRESH_CHUNK_SIZE, employeeIds.size()));
+            List<Employee> found = transactionTemplate.execute(status -> employeeRepository.findAllById(chunk));
+            Set<Long> missing = new HashSet<>(chunk);
+            for (Employee employee : found) {
+                index.index(employee);
+                missing.remove(employee.getId());
+            }
+            index.removeAll(missing);
+        }
+    }
+}
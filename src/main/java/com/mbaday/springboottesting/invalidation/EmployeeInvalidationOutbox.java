@@ -0,0 +1,208 @@
+package com.mbaday.springboottesting.invalidation;
+
+import com.mbaday.springboottesting.dto.EmployeeInvalidation;
+import com.mbaday.springboottesting.model.EmployeeOutboxEvent;
+import com.mbaday.springboottesting.repository.EmployeeOutboxRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+// transactional outbox for cross-instance invalidation. the services record the changed employees in the
+// transaction of the change, so an invalidation is announced exactly when the change committed. the relay sends
+// the recorded ids over the transport right after the commit, and polls for anything left over (failed sends,
+// events of an instance that stopped before relaying them)
+@Slf4j
+@Component
+public class EmployeeInvalidationOutbox {
+
+    private EmployeeOutboxRepository outboxRepository;
+
+    private EmployeeInvalidationTransport transport;
+
+    private String nodeId;
+
+    private Duration pollInterval;
+
+    private Duration orphanAfter;
+
+    private int batchSize;
+
+    private int maxAttempts;
+
+    private ScheduledExecutorService relay;
+
+    @Autowired
+    public EmployeeInvalidationOutbox(EmployeeOutboxRepository outboxRepository,
+                                      EmployeeInvalidationTransport transport,
+                                      @Value("${employees.invalidation.node-id:}") String nodeId,
+                                      @Value("${employees.invalidation.poll-interval:1s}") Duration pollInterval,
+                                      @Value("${employees.invalidation.orphan-after:1m}") Duration orphanAfter,
+                                      @Value("${employees.invalidation.batch-size:500}") int batchSize,
+                                      @Value("${employees.invalidation.max-attempts:10}") int maxAttempts) {
+        this.outboxRepository = outboxRepository;
+        this.transport = transport;
+        this.nodeId = nodeId.isBlank() ? UUID.randomUUID().toString() : nodeId;
+        this.pollInterval = pollInterval;
+        this.orphanAfter = orphanAfter;
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+    }
+
+    @PostConstruct
+    public void startRelay() {
+        relay = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "invalidation-relay");
+            thread.setDaemon(true);
+            return thread;
+        });
+        relay.scheduleWithFixedDelay(this::relayQuietly, pollInterval.toMillis(), pollInterval.toMillis(),
+                TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stopRelay() {
+        relay.shutdownNow();
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    // joins the current transaction: rolled back together with the change, relayed once it committed
+    public void record(Collection<Long> employeeIds) {
+        if (employeeIds.isEmpty()) {
+            return;
+        }
+        outboxRepository.append(nodeId, employeeIds);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    wakeUpRelay();
+                }
+            });
+        } else {
+            wakeUpRelay();
+        }
+    }
+
+    public void record(long employeeId) {
+        record(List.of(employeeId));
+    }
+
+    // for writes that append their events in a transaction of their own (R2DBC), once it committed
+    public void committed() {
+        wakeUpRelay();
+    }
+
+    // sends everything pending, batchSize events per query, one message per origin and per set of peers the events
+    // still have to reach. the events another instance left behind go out under its id, so this instance (which
+    // skips its own messages) applies them as well. a peer that is down only holds back the events for itself.
+    // returns the number of events relayed to every peer
+    public synchronized int relayPending() {
+        int relayed = 0;
+        long afterId = 0;
+        while (true) {
+            List<EmployeeOutboxEvent> events =
+                    outboxRepository.findPending(nodeId, Instant.now().minus(orphanAfter), afterId, batchSize);
+            if (events.isEmpty()) {
+                return relayed;
+            }
+            afterId = events.get(events.size() - 1).getId();
+            Map<List<String>, List<EmployeeOutboxEvent>> messages = events.stream()
+                    .collect(Collectors.groupingBy(event -> Arrays.asList(event.getOrigin(), event.getPendingPeers()),
+                            LinkedHashMap::new, Collectors.toList()));
+            for (List<EmployeeOutboxEvent> message : messages.values()) {
+                relayed += relay(message);
+            }
+            if (events.size() < batchSize) {
+                return relayed;
+            }
+        }
+    }
+
+    // events of one origin with the same pending peers. returns the number of events that reached all of them
+    private int relay(List<EmployeeOutboxEvent> events) {
+        String origin = events.get(0).getOrigin();
+        String pendingPeers = events.get(0).getPendingPeers();
+        List<Long> eventIds = new ArrayList<>(events.size());
+        LinkedHashSet<Long> employeeIds = new LinkedHashSet<>();
+        for (EmployeeOutboxEvent event : events) {
+            eventIds.add(event.getId());
+            employeeIds.add(event.getEmployeeId());
+        }
+
+        Map<String, String> failures;
+        try {
+            failures = transport.publish(new EmployeeInvalidation(origin, List.copyOf(employeeIds)),
+                    pendingPeers == null ? null : Set.of(pendingPeers.split(",")));
+        } catch (RuntimeException e) {
+            giveUpOrRetry(events, pendingPeers, e.getMessage());
+            return 0;
+        }
+        if (!failures.isEmpty()) {
+            giveUpOrRetry(events, String.join(",", new TreeSet<>(failures.keySet())), failures.toString());
+            return 0;
+        }
+        outboxRepository.delete(eventIds);
+        return eventIds.size();
+    }
+
+    // a peer that is gone for good must not keep the outbox growing. the caches on the instances that missed the
+    // message still expire on their own (spring.cache.caffeine.spec, employees.l2-cache.*)
+    private void giveUpOrRetry(List<EmployeeOutboxEvent> events, String pendingPeers, String failure) {
+        List<Long> retry = new ArrayList<>();
+        List<Long> giveUp = new ArrayList<>();
+        for (EmployeeOutboxEvent event : events) {
+            (event.getAttempts() + 1 >= maxAttempts ? giveUp : retry).add(event.getId());
+        }
+        outboxRepository.recordFailedAttempt(retry, pendingPeers);
+        outboxRepository.delete(giveUp);
+        String peers = pendingPeers == null ? "every peer" : pendingPeers;
+        if (giveUp.isEmpty()) {
+            log.warn("Could not relay {} invalidation(s) to {}, retrying: {}", events.size(), peers, failure);
+        } else {
+            log.error("Dropped {} invalidation(s) for {} after {} attempts: {}", giveUp.size(), peers, maxAttempts,
+                    failure);
+        }
+    }
+
+    private void wakeUpRelay() {
+        try {
+            relay.execute(this::relayQuietly);
+        } catch (RejectedExecutionException e) {
+            // shutting down, whatever is left is relayed by the next instance that polls
+        }
+    }
+
+    private void relayQuietly() {
+        try {
+            relayPending();
+        } catch (RuntimeException e) {
+            log.warn("Invalidation relay failed", e);
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.mbaday.springboottesting.invalidation;
+
+import com.mbaday.springboottesting.dto.EmployeeInvalidation;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+// carries invalidations between the instances of the service. publish reports the peers that may not have received
+// a message, the outbox keeps the events for those peers only and sends them again. receivers must cope with
+// duplicates
+public interface EmployeeInvalidationTransport {
+
+    // sends to the given peers (every peer when null) and returns the peers that did not accept the message, with
+    // the reason. throws when the message could not be sent at all
+    Map<String, String> publish(EmployeeInvalidation invalidation, Set<String> peers);
+
+    void subscribe(Consumer<EmployeeInvalidation> subscriber);
+}
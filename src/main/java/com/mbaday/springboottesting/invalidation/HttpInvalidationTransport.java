@@ -0,0 +1,122 @@
+package com.mbaday.springboottesting.invalidation;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mbaday.springboottesting.dto.EmployeeInvalidation;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+// posts every message to the peers at once (POST {peer}/internal/employee-invalidations, see
+// EmployeeInvalidationController) and reports the ones that did not accept it. peers are named by their base url as
+// configured. the peer list may include this instance itself, it ignores its own messages. every message carries the
+// shared token, a message without it or with more than maxEmployeeIds ids is refused before anything is read
+public class HttpInvalidationTransport implements EmployeeInvalidationTransport {
+
+    public static final String PATH = "/internal/employee-invalidations";
+
+    public static final String TOKEN_HEADER = "X-Invalidation-Token";
+
+    private final List<Consumer<EmployeeInvalidation>> subscribers = new CopyOnWriteArrayList<>();
+
+    private final Map<String, URI> peers = new LinkedHashMap<>();
+
+    private final String token;
+
+    private final int maxEmployeeIds;
+
+    private final Duration timeout;
+
+    private final ObjectMapper objectMapper;
+
+    private final HttpClient httpClient;
+
+    public HttpInvalidationTransport(List<String> peers, String token, int maxEmployeeIds, Duration timeout,
+                                     ObjectMapper objectMapper) {
+        // the endpoint evicts caches and reads from the primary, it is not left open to anyone who can reach it
+        if (token == null || token.isBlank()) {
+            throw new IllegalArgumentException("employees.invalidation.token is required with the http transport");
+        }
+        for (String peer : peers) {
+            if (!peer.isBlank()) {
+                String base = peer.trim().replaceAll("/+$", "");
+                this.peers.put(base, URI.create(base + PATH));
+            }
+        }
+        this.token = token;
+        this.maxEmployeeIds = maxEmployeeIds;
+        this.timeout = timeout;
+        this.objectMapper = objectMapper;
+        this.httpClient = HttpClient.newBuilder().connectTimeout(timeout).build();
+    }
+
+    @Override
+    public Map<String, String> publish(EmployeeInvalidation invalidation, Set<String> recipients) {
+        String body;
+        try {
+            body = objectMapper.writeValueAsString(invalidation);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize invalidation", e);
+        }
+
+        Map<String, CompletableFuture<String>> deliveries = new LinkedHashMap<>();
+        peers.forEach((peer, uri) -> {
+            if (recipients != null && !recipients.contains(peer)) {
+                return;
+            }
+            HttpRequest request = HttpRequest.newBuilder(uri)
+                    .timeout(timeout)
+                    .header("Content-Type", "application/json")
+                    .header(TOKEN_HEADER, token)
+                    .POST(HttpRequest.BodyPublishers.ofString(body))
+                    .build();
+            deliveries.put(peer, httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                    .handle((response, failure) -> {
+                        if (failure != null) {
+                            return failure.toString();
+                        }
+                        return response.statusCode() / 100 == 2 ? null : "HTTP " + response.statusCode();
+                    }));
+        });
+
+        Map<String, String> failures = new LinkedHashMap<>();
+        deliveries.forEach((peer, delivery) -> {
+            String failure = delivery.join();
+            if (failure != null) {
+                failures.put(peer, failure);
+            }
+        });
+        return failures;
+    }
+
+    @Override
+    public void subscribe(Consumer<EmployeeInvalidation> subscriber) {
+        subscribers.add(subscriber);
+    }
+
+    public boolean isAuthorized(String receivedToken) {
+        return receivedToken != null && MessageDigest.isEqual(
+                token.getBytes(StandardCharsets.UTF_8), receivedToken.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public int getMaxEmployeeIds() {
+        return maxEmployeeIds;
+    }
+
+    // called by the controller for the messages from the peers, once it checked the token and the size
+    public void receive(EmployeeInvalidation invalidation) {
+        subscribers.forEach(subscriber -> subscriber.accept(invalidation));
+    }
+}
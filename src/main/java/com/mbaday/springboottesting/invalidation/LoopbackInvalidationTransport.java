@@ -0,0 +1,27 @@
+package com.mbaday.springboottesting.invalidation;
+
+import com.mbaday.springboottesting.dto.EmployeeInvalidation;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+// in-JVM transport: hands every message straight to the subscribers of this instance. enough for a single
+// instance (its own messages are ignored by the listener) and for tests that play several instances in one JVM
+public class LoopbackInvalidationTransport implements EmployeeInvalidationTransport {
+
+    private final List<Consumer<EmployeeInvalidation>> subscribers = new CopyOnWriteArrayList<>();
+
+    @Override
+    public Map<String, String> publish(EmployeeInvalidation invalidation, Set<String> peers) {
+        subscribers.forEach(subscriber -> subscriber.accept(invalidation));
+        return Map.of();
+    }
+
+    @Override
+    public void subscribe(Consumer<EmployeeInvalidation> subscriber) {
+        subscribers.add(subscriber);
+    }
+}
@@ -0,0 +1,24 @@
+package com.mbaday.springboottesting.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+// a random id the database gets the first time it is asked for one, so that files written against it (the employee
+// snapshot) are not used with another database, or with this one after it was re-created. a single row. mapped so
+// the schema (ddl-auto) creates the table, read and written with plain JDBC by DatabaseIdentityRepository
+@Setter
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+
+@Entity
+@Table(name = "database_identity")
+public class DatabaseIdentity {
+
+    @Id
+    private int id;
+
+    @Column(name = "database_id", nullable = false, length = 36)
+    private String databaseId;
+}
@@ -1,29 +1,86 @@
 package com.mbaday.springboottesting.model;
 
 
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.mbaday.springboottesting.search.EmployeeSearchListener;
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.DynamicUpdate;
+import org.springframework.data.annotation.CreatedDate;
+import org.springframework.data.annotation.LastModifiedDate;
+import org.springframework.data.jpa.domain.support.AuditingEntityListener;
+
+import java.time.Instant;
 
 @Setter
 @Getter
 @AllArgsConstructor
 @NoArgsConstructor
-@Builder
+@Builder(toBuilder = true)
 
 @Entity
-@Table(name = "employees")
+@DynamicUpdate
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = Employee.CACHE_REGION)
+@EntityListeners({EmployeeSearchListener.class, AuditingEntityListener.class})
+@Table(name = "employees",
+        uniqueConstraints = @UniqueConstraint(name = Employee.EMAIL_UNIQUE_CONSTRAINT, columnNames = "email"),
+        indexes = {
+                @Index(name = Employee.NAME_INDEX, columnList = "last_name, first_name, id"),
+                @Index(name = Employee.UPDATED_AT_INDEX, columnList = "updated_at, id")})
 public class Employee {
 
+    public static final String EMAIL_UNIQUE_CONSTRAINT = "uk_employees_email";
+
+    // serves the first/last name lookups. last name first so a last-name-only search can use it as well, id last
+    // so the keyset ordering of a name search is read from the index without a sort
+    public static final String NAME_INDEX = "idx_employees_last_first";
+
+    // serves the delta sync, which reads the rows changed after a point in time
+    public static final String UPDATED_AT_INDEX = "idx_employees_updated_at";
+
+    // second-level cache regions, sized and expired in SecondLevelCacheConfig. the query region holds the
+    // results of the cacheable EmployeeRepository queries
+    public static final String CACHE_REGION = "employee";
+
+    public static final String QUERY_CACHE_REGION = "employee-queries";
+
+    // length of the name and email columns. checked before a write that does not go through JPA validation: a
+    // longer value fails the INSERT, and with it the whole batch it is part of
+    public static final int MAX_LENGTH = 255;
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private long id;
 
-    @Column(name = "first_name", nullable = false)
+    @Column(name = "first_name", nullable = false, length = MAX_LENGTH)
     private String firstName;
 
-    @Column(name = "last_name", nullable = false)
+    @Column(name = "last_name", nullable = false, length = MAX_LENGTH)
     private String lastName;
 
-    @Column(nullable = false)
+    @Column(nullable = false, length = MAX_LENGTH)
     private String email;
+
+    // optimistic locking, also exposed as the ETag of the employee resource. the column default keeps rows
+    // written by plain SQL (bulk import, older rows) valid
+    @Version
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private long version;
+
+    // audit columns, set by JPA auditing (JpaAuditingConfig) and by the SQL write paths themselves. null for rows
+    // written before they existed. never taken from a request body
+    @CreatedDate
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    @Column(name = "created_at", updatable = false)
+    private Instant createdAt;
+
+    @LastModifiedDate
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    @Column(name = "updated_at")
+    private Instant updatedAt;
 }
@@ -0,0 +1,41 @@
+package com.mbaday.springboottesting.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+// one entry of the employee change feed, written in the transaction of the change. seq orders the feed, a
+// consumer remembers the last seq it has applied and asks for what came after it. mapped so the schema
+// (ddl-auto) creates the table, read and written with plain JDBC by EmployeeChangeRepository
+@Setter
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+
+@Entity
+@Table(name = "employee_changes",
+        indexes = {
+                @Index(name = "idx_employee_changes_employee", columnList = "employee_id, seq"),
+                @Index(name = "idx_employee_changes_type_time", columnList = "change_type, changed_at")})
+public class EmployeeChange {
+
+    public enum Type {
+        CREATED, UPDATED, DELETED
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private long seq;
+
+    @Column(name = "employee_id", nullable = false)
+    private long employeeId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "change_type", nullable = false, length = 16)
+    private Type type;
+
+    @Column(name = "changed_at", nullable = false)
+    private Instant changedAt;
+}
@@ -0,0 +1,41 @@
+package com.mbaday.springboottesting.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+// one changed employee waiting to be announced to the other instances, written in the transaction of the change
+// itself and deleted once relayed. mapped so the schema (ddl-auto) creates the table, read and written with plain
+// JDBC by EmployeeOutboxRepository
+@Setter
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+
+@Entity
+@Table(name = "employee_outbox")
+public class EmployeeOutboxEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private long id;
+
+    @Column(name = "employee_id", nullable = false)
+    private long employeeId;
+
+    // the instance that made the change. it relays its own events, the others only pick up what it left behind
+    @Column(nullable = false, length = 64)
+    private String origin;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+
+    @Column(nullable = false)
+    private int attempts;
+
+    // the peers that did not accept it yet, comma separated. null until a send failed: every peer
+    @Column(name = "pending_peers", length = 2048)
+    private String pendingPeers;
+}
@@ -0,0 +1,40 @@
+package com.mbaday.springboottesting.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.UUID;
+
+// the identity of the database (see DatabaseIdentity)
+@Repository
+public class DatabaseIdentityRepository {
+
+    private static final int ROW_ID = 1;
+
+    private static final String SELECT_DATABASE_ID = "select d.database_id from database_identity d where d.id = ?";
+
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public DatabaseIdentityRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // created by the first instance that asks, the others read the one it inserted
+    public UUID getDatabaseId() {
+        List<String> found = jdbcTemplate.queryForList(SELECT_DATABASE_ID, String.class, ROW_ID);
+        if (!found.isEmpty()) {
+            return UUID.fromString(found.get(0));
+        }
+        try {
+            jdbcTemplate.update("insert into database_identity (id, database_id) values (?, ?)", ROW_ID,
+                    UUID.randomUUID().toString());
+        } catch (DuplicateKeyException e) {
+            // another instance was first
+        }
+        return UUID.fromString(jdbcTemplate.queryForObject(SELECT_DATABASE_ID, String.class, ROW_ID));
+    }
+}
@@ -0,0 +1,93 @@
+package com.mbaday.springboottesting.repository;
+
+import com.mbaday.springboottesting.dto.EmployeeChangeEvent;
+import com.mbaday.springboottesting.dto.EmployeeView;
+import com.mbaday.springboottesting.model.EmployeeChange;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+// the employee change feed (see EmployeeChange). changes are read together with the current row of the employee,
+// one left join instead of a lookup per change
+@Repository
+public class EmployeeChangeRepository {
+
+    private static final String INSERT_CHANGE =
+            "insert into employee_changes (employee_id, change_type, changed_at) values (?, ?, ?)";
+
+    private static final String SELECT_AFTER =
+            "select c.seq, c.employee_id, c.change_type, c.changed_at, "
+                    + "e.id, e.first_name, e.last_name, e.email, e.version from employee_changes c "
+                    + "left join employees e on e.id = c.employee_id where c.seq > ? order by c.seq";
+
+    // the changes of an employee that a later change of the same employee supersedes. the extra derived table
+    // lets MySQL delete from the table it selects from (and take a LIMIT in the subquery)
+    private static final String DELETE_SUPERSEDED =
+            "delete from employee_changes where seq in (select seq from (select c.seq from employee_changes c "
+                    + "where c.changed_at < ? and exists (select 1 from employee_changes n "
+                    + "where n.employee_id = c.employee_id and n.seq > c.seq) order by c.seq limit ?) superseded)";
+
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public EmployeeChangeRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public void append(EmployeeChange.Type type, Collection<Long> employeeIds) {
+        if (employeeIds.isEmpty()) {
+            return;
+        }
+        Timestamp now = Timestamp.from(Instant.now());
+        jdbcTemplate.batchUpdate(INSERT_CHANGE, employeeIds, employeeIds.size(), (statement, employeeId) -> {
+            statement.setLong(1, employeeId);
+            statement.setString(2, type.name());
+            statement.setTimestamp(3, now);
+        });
+    }
+
+    public List<EmployeeChangeEvent> findAfter(long since, int limit) {
+        return jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(SELECT_AFTER);
+            statement.setLong(1, since);
+            statement.setMaxRows(limit);
+            return statement;
+        }, (rs, rowNum) -> {
+            long employeeId = rs.getLong("employee_id");
+            rs.getLong("id");
+            EmployeeView employee = rs.wasNull() ? null : new EmployeeView(employeeId, rs.getString("first_name"),
+                    rs.getString("last_name"), rs.getString("email"), rs.getLong("version"));
+            return new EmployeeChangeEvent(rs.getLong("seq"), EmployeeChange.Type.valueOf(rs.getString("change_type")),
+                    employeeId, rs.getTimestamp("changed_at").toInstant(), employee);
+        });
+    }
+
+    // the employees deleted after a point in time. compaction keeps the delete of every employee, it is the last
+    // change it gets
+    public List<Long> findDeletedBetween(Instant since, Instant until) {
+        return jdbcTemplate.queryForList("select distinct employee_id from employee_changes "
+                + "where change_type = ? and changed_at > ? and changed_at <= ?", Long.class,
+                EmployeeChange.Type.DELETED.name(), Timestamp.from(since), Timestamp.from(until));
+    }
+
+    public long findLastSeq() {
+        return jdbcTemplate.queryForObject("select coalesce(max(seq), 0) from employee_changes", Long.class);
+    }
+
+    // the last seq of the changes written before the given time
+    public long findLastSeqBefore(Instant before) {
+        return jdbcTemplate.queryForObject("select coalesce(max(seq), 0) from employee_changes where changed_at < ?",
+                Long.class, Timestamp.from(before));
+    }
+
+    // deletes up to limit superseded changes written before the given time, returns how many were deleted
+    public int deleteSuperseded(Instant before, int limit) {
+        return jdbcTemplate.update(DELETE_SUPERSEDED, Timestamp.from(before), limit);
+    }
+}
@@ -0,0 +1,171 @@
+package com.mbaday.springboottesting.repository;
+
+import com.mbaday.springboottesting.config.MetricsConfig;
+import com.mbaday.springboottesting.dto.EmployeePatch;
+import com.mbaday.springboottesting.model.Employee;
+import io.micrometer.core.annotation.Timed;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Cache;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+// plain JDBC access for the paths where loading managed entities through JPA costs too much memory.
+// Hibernate does not see these writes, so they evict what its second-level cache holds for the rows themselves
+@Repository
+@Timed(MetricsConfig.JDBC_TIMER)
+public class EmployeeJdbcRepository {
+
+    static final RowMapper<Employee> EMPLOYEE_ROW_MAPPER = (rs, rowNum) -> Employee.builder()
+            .id(rs.getLong("id"))
+            .firstName(rs.getString("first_name"))
+            .lastName(rs.getString("last_name"))
+            .email(rs.getString("email"))
+            .version(rs.getLong("version"))
+            .createdAt(toInstant(rs.getTimestamp("created_at")))
+            .updatedAt(toInstant(rs.getTimestamp("updated_at")))
+            .build();
+
+    private static final String SELECT_AFTER_ORDERED_BY_ID =
+            "select e.id, e.first_name, e.last_name, e.email, e.version, e.created_at, e.updated_at "
+                    + "from employees e where e.id > ? order by e.id";
+
+    private static final String INSERT_EMPLOYEE =
+            "insert into employees (first_name, last_name, email, created_at, updated_at) values (?, ?, ?, ?, ?)";
+
+    private JdbcTemplate jdbcTemplate;
+
+    private int fetchSize;
+
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    public EmployeeJdbcRepository(JdbcTemplate jdbcTemplate,
+                                  @Value("${employees.stream.fetch-size:500}") int fetchSize,
+                                  EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.fetchSize = fetchSize;
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    // reads every row through a forward-only, read-only cursor and hands each one to the consumer as soon as
+    // it comes off the result set, so nothing but the current row (and the driver's fetch buffer) is held in memory
+    public void streamAll(Consumer<Employee> consumer) {
+        streamAfter(0, consumer);
+    }
+
+    // the same cursor over the rows with an id above afterId, the watermark a resumed export continues from
+    public void streamAfter(long afterId, Consumer<Employee> consumer) {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(SELECT_AFTER_ORDERED_BY_ID,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(fetchSize);
+            statement.setLong(1, afterId);
+            return statement;
+        }, (RowCallbackHandler) rs -> consumer.accept(EMPLOYEE_ROW_MAPPER.mapRow(rs, rs.getRow())));
+    }
+
+    // inserts all rows as a single JDBC batch (rewritten into multi-row inserts on MySQL with
+    // rewriteBatchedStatements=true) and copies the generated keys back onto the employees
+    public void batchInsert(List<Employee> employees) {
+        if (employees.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(INSERT_EMPLOYEE,
+                    Statement.RETURN_GENERATED_KEYS)) {
+                // JPA auditing does not see these inserts
+                Instant now = Instant.now();
+                Timestamp timestamp = Timestamp.from(now);
+                for (Employee employee : employees) {
+                    statement.setString(1, employee.getFirstName());
+                    statement.setString(2, employee.getLastName());
+                    statement.setString(3, employee.getEmail());
+                    statement.setTimestamp(4, timestamp);
+                    statement.setTimestamp(5, timestamp);
+                    statement.addBatch();
+                    employee.setCreatedAt(now);
+                    employee.setUpdatedAt(now);
+                }
+                statement.executeBatch();
+
+                try (ResultSet keys = statement.getGeneratedKeys()) {
+                    for (int i = 0; i < employees.size() && keys.next(); i++) {
+                        employees.get(i).setId(keys.getLong(1));
+                    }
+                }
+            }
+            return null;
+        });
+        // a cached "no employee with this email / name" result would hide the new rows
+        afterCommit(cache -> cache.evictQueryRegion(Employee.QUERY_CACHE_REGION));
+    }
+
+    // one UPDATE that only sets the columns present in the patch, without reading the row first.
+    // returns the number of rows changed, 0 when there is no employee with that id
+    public int patch(long id, EmployeePatch patch) {
+        StringBuilder sql = new StringBuilder("update employees set ");
+        List<Object> args = new ArrayList<>();
+        if (patch.getFirstName() != null) {
+            sql.append("first_name = ?, ");
+            args.add(patch.getFirstName());
+        }
+        if (patch.getLastName() != null) {
+            sql.append("last_name = ?, ");
+            args.add(patch.getLastName());
+        }
+        if (patch.getEmail() != null) {
+            sql.append("email = ?, ");
+            args.add(patch.getEmail());
+        }
+        if (args.isEmpty()) {
+            throw new IllegalArgumentException("Patch does not change any column");
+        }
+        sql.append("version = version + 1, updated_at = ? where id = ?");
+        args.add(Timestamp.from(Instant.now()));
+        args.add(id);
+
+        int updated = jdbcTemplate.update(sql.toString(), args.toArray());
+        if (updated > 0) {
+            afterCommit(cache -> {
+                cache.evictEntityData(Employee.class, id);
+                cache.evictQueryRegion(Employee.QUERY_CACHE_REGION);
+            });
+        }
+        return updated;
+    }
+
+    private static Instant toInstant(Timestamp timestamp) {
+        return timestamp == null ? null : timestamp.toInstant();
+    }
+
+    // evicting before the commit would let a concurrent read put the old row straight back into the cache
+    private void afterCommit(Consumer<Cache> eviction) {
+        Cache cache = entityManagerFactory.getCache().unwrap(Cache.class);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    eviction.accept(cache);
+                }
+            });
+        } else {
+            eviction.accept(cache);
+        }
+    }
+}
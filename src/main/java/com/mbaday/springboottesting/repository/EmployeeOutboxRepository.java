@@ -0,0 +1,77 @@
+package com.mbaday.springboottesting.repository;
+
+import com.mbaday.springboottesting.model.EmployeeOutboxEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+// the invalidation outbox (see EmployeeOutboxEvent). rows are appended in one JDBC batch, also for bulk writes
+@Repository
+public class EmployeeOutboxRepository {
+
+    private static final String INSERT_EVENT =
+            "insert into employee_outbox (employee_id, origin, created_at, attempts) values (?, ?, ?, 0)";
+
+    // the own rows plus rows another instance wrote but has not relayed for a while (stopped or crashed), after the
+    // given id so that one pass of the relay goes past rows it could not send
+    private static final String SELECT_PENDING =
+            "select o.id, o.employee_id, o.origin, o.created_at, o.attempts, o.pending_peers from employee_outbox o "
+                    + "where o.id > ? and (o.origin = ? or o.created_at < ?) order by o.id";
+
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public EmployeeOutboxRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public void append(String origin, Collection<Long> employeeIds) {
+        if (employeeIds.isEmpty()) {
+            return;
+        }
+        Timestamp now = Timestamp.from(Instant.now());
+        jdbcTemplate.batchUpdate(INSERT_EVENT, employeeIds, employeeIds.size(), (statement, employeeId) -> {
+            statement.setLong(1, employeeId);
+            statement.setString(2, origin);
+            statement.setTimestamp(3, now);
+        });
+    }
+
+    public List<EmployeeOutboxEvent> findPending(String origin, Instant orphanedBefore, long afterId, int limit) {
+        return jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(SELECT_PENDING);
+            statement.setLong(1, afterId);
+            statement.setString(2, origin);
+            statement.setTimestamp(3, Timestamp.from(orphanedBefore));
+            statement.setMaxRows(limit);
+            return statement;
+        }, (rs, rowNum) -> EmployeeOutboxEvent.builder()
+                .id(rs.getLong("id"))
+                .employeeId(rs.getLong("employee_id"))
+                .origin(rs.getString("origin"))
+                .createdAt(rs.getTimestamp("created_at").toInstant())
+                .attempts(rs.getInt("attempts"))
+                .pendingPeers(rs.getString("pending_peers"))
+                .build());
+    }
+
+    public void delete(Collection<Long> ids) {
+        jdbcTemplate.batchUpdate("delete from employee_outbox where id = ?", ids, ids.size(),
+                (statement, id) -> statement.setLong(1, id));
+    }
+
+    // pendingPeers: the peers the events still have to reach, null for every peer
+    public void recordFailedAttempt(Collection<Long> ids, String pendingPeers) {
+        jdbcTemplate.batchUpdate("update employee_outbox set attempts = attempts + 1, pending_peers = ? where id = ?",
+                ids, ids.size(), (statement, id) -> {
+                    statement.setString(1, pendingPeers);
+                    statement.setLong(2, id);
+                });
+    }
+}
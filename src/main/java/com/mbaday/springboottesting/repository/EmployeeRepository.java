@@ -1,29 +1,116 @@
 package com.mbaday.springboottesting.repository;
 
+import com.mbaday.springboottesting.dto.EmployeeView;
+import com.mbaday.springboottesting.dto.ModifiedEmployeeView;
 import com.mbaday.springboottesting.model.Employee;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 public interface EmployeeRepository extends JpaRepository<Employee, Long> {
 
+    // read-only projection used by the read paths of the service, see EmployeeView
+    String EMPLOYEE_VIEW_SELECT = "select new com.mbaday.springboottesting.dto.EmployeeView("
+            + "e.id, e.firstName, e.lastName, e.email, e.version) from Employee e";
+
+    @Query(EMPLOYEE_VIEW_SELECT + " where e.id = :id")
+    Optional<EmployeeView> findViewById(@Param("id") long id);
+
+    @Query(EMPLOYEE_VIEW_SELECT)
+    List<EmployeeView> findAllViews();
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = Employee.QUERY_CACHE_REGION)})
     Optional<Employee> findByEmail(String email);
 
+    // set-based duplicate check used by the bulk import, one round-trip per batch of emails
+    @Query("select e.email from Employee e where e.email in :emails")
+    Set<String> findExistingEmails(@Param("emails") Collection<String> emails);
+
+    // keyset pagination: seeks straight to the cursor on the primary key instead of skipping OFFSET rows
+    @Query(EMPLOYEE_VIEW_SELECT + " where e.id > :id order by e.id")
+    List<EmployeeView> findViewsAfter(@Param("id") long id, Pageable pageable);
+
+    // name search, keyset paged on id. both are served by the (last_name, first_name, id) index
+    @Query(EMPLOYEE_VIEW_SELECT + " where e.lastName = :lastName and e.firstName = :firstName and e.id > :id order by e.id")
+    List<EmployeeView> findViewsByName(@Param("lastName") String lastName, @Param("firstName") String firstName,
+                                       @Param("id") long id, Pageable pageable);
+
+    @Query(EMPLOYEE_VIEW_SELECT + " where e.lastName = :lastName and e.id > :id order by e.id")
+    List<EmployeeView> findViewsByLastName(@Param("lastName") String lastName, @Param("id") long id, Pageable pageable);
+
+    // the rows written after the keyset position (since, id), in (updated_at, id) order, for the delta sync.
+    // a range on the leading column, so it is served by the (updated_at, id) index
+    @Query("select new com.mbaday.springboottesting.dto.ModifiedEmployeeView("
+            + "e.id, e.firstName, e.lastName, e.email, e.version, e.updatedAt) from Employee e "
+            + "where e.updatedAt >= :since and (e.updatedAt > :since or e.id > :id) order by e.updatedAt, e.id")
+    List<ModifiedEmployeeView> findViewsModifiedSince(@Param("since") Instant since, @Param("id") long id,
+                                                      Pageable pageable);
+
+    // the rows written before the audit columns existed, in id order, for the first (full) delta sync
+    @Query(EMPLOYEE_VIEW_SELECT + " where e.updatedAt is null and e.id > :id order by e.id")
+    List<EmployeeView> findViewsNeverModified(@Param("id") long id, Pageable pageable);
+
+    // single DELETE statements that report the affected rows. the derived deleteById loads the entity first
+    @Modifying
+    @Transactional
+    @Query("delete from Employee e where e.id = :id")
+    int deleteEmployeeById(@Param("id") long id);
+
+    @Modifying
+    @Transactional
+    @Query("delete from Employee e where e.id = :id and e.version = :version")
+    int deleteEmployeeByIdAndVersion(@Param("id") long id, @Param("version") long version);
+
+    @Modifying
+    @Transactional
+    @Query("delete from Employee e where e.id in :ids")
+    int deleteEmployeesByIds(@Param("ids") Collection<Long> ids);
+
+    // the name lookups below are cached in the query region as well. Hibernate drops the cached results once the
+    // employees table is written through it, the native queries declare that table as their query space so
+    // they are invalidated too. writes made with plain JDBC evict the region themselves, see EmployeeJdbcRepository
+
     // define custom query using JPQL with index params
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = Employee.QUERY_CACHE_REGION)})
     @Query("select e from Employee e where e.firstName = ?1 and e.lastName = ?2")
     Employee findByJPQL(String firstName, String lastName);
 
     //    define custom query using JPQL with named params
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = Employee.QUERY_CACHE_REGION)})
     @Query("select e from Employee e where e.firstName = :firstName and e.lastName = :lastName")
     Employee findByJPQLNamedParam(@Param("firstName") String firstName, @Param("lastName") String lastName);
 
     // define custom query using native SQL with index params
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = Employee.QUERY_CACHE_REGION),
+            @QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "employees")})
     @Query(value = "select * from employees e where e.first_name = ?1 and e.last_name = ?2", nativeQuery = true)
     Employee findByNativeSQL(String firstName, String lastName);
 
     // define custom query using native SQL with named params
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = Employee.QUERY_CACHE_REGION),
+            @QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "employees")})
     @Query(value = "select * from employees e where e.first_name = :firstName and e.last_name = :lastName",
             nativeQuery = true)
     Employee findByNativeSQLNamedParam(String firstName, String lastName);
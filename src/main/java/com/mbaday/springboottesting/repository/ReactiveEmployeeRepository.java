@@ -0,0 +1,142 @@
+package com.mbaday.springboottesting.repository;
+
+import com.mbaday.springboottesting.model.Employee;
+import com.mbaday.springboottesting.model.EmployeeChange;
+import io.r2dbc.spi.Readable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+// non-blocking counterpart of EmployeeRepository for the reactive profile. it talks to the same employees table
+// through R2DBC; the schema itself is still owned by the JPA entity
+@Repository
+@Profile("reactive")
+public class ReactiveEmployeeRepository {
+
+    private static final String COLUMNS =
+            "e.id, e.first_name, e.last_name, e.email, e.version, e.created_at, e.updated_at";
+
+    private DatabaseClient databaseClient;
+
+    private int fetchSize;
+
+    @Autowired
+    public ReactiveEmployeeRepository(DatabaseClient databaseClient,
+                                      @Value("${employees.stream.fetch-size:500}") int fetchSize) {
+        this.databaseClient = databaseClient;
+        this.fetchSize = fetchSize;
+    }
+
+    // rows are emitted as the subscriber requests them, the driver fetches fetchSize rows per round-trip
+    public Flux<Employee> findAll() {
+        return databaseClient.sql("select " + COLUMNS + " from employees e order by e.id")
+                .filter(statement -> statement.fetchSize(fetchSize))
+                .map(ReactiveEmployeeRepository::toEmployee)
+                .all();
+    }
+
+    public Mono<Employee> findById(long id) {
+        return databaseClient.sql("select " + COLUMNS + " from employees e where e.id = :id")
+                .bind("id", id)
+                .map(ReactiveEmployeeRepository::toEmployee)
+                .one();
+    }
+
+    public Mono<Employee> insert(Employee employee) {
+        LocalDateTime now = LocalDateTime.now();
+        return databaseClient.sql("insert into employees (first_name, last_name, email, created_at, updated_at) values (:firstName, :lastName, :email, :now, :now)")
+                .bind("firstName", employee.getFirstName())
+                .bind("lastName", employee.getLastName())
+                .bind("email", employee.getEmail())
+                .bind("now", now)
+                .filter(statement -> statement.returnGeneratedValues("id"))
+                .map(row -> row.get("id", Long.class))
+                .one()
+                .map(id -> employee.toBuilder().id(id).version(0L).createdAt(toInstant(now)).updatedAt(toInstant(now)).build());
+    }
+
+    // the invalidation outbox event and the change feed entry of a write, in its transaction (see
+    // EmployeeOutboxRepository and EmployeeChangeRepository for the JDBC side)
+    public Mono<Void> recordChange(EmployeeChange.Type type, long employeeId, String origin) {
+        LocalDateTime now = LocalDateTime.now();
+        return databaseClient.sql("insert into employee_outbox (employee_id, origin, created_at, attempts) values (:employeeId, :origin, :now, 0)")
+                .bind("employeeId", employeeId)
+                .bind("origin", origin)
+                .bind("now", now)
+                .fetch()
+                .rowsUpdated()
+                .then(databaseClient.sql("insert into employee_changes (employee_id, change_type, changed_at) values (:employeeId, :type, :now)")
+                        .bind("employeeId", employeeId)
+                        .bind("type", type.name())
+                        .bind("now", now)
+                        .fetch()
+                        .rowsUpdated())
+                .then();
+    }
+
+    private static final String UPDATE = "update employees set first_name = :firstName, last_name = :lastName, email = :email, version = version + 1, updated_at = :now where id = :id";
+
+    // returns the number of rows changed
+    public Mono<Long> update(Employee employee) {
+        return bindUpdate(UPDATE, employee)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    // only while the row still has the given version, 0 rows changed otherwise
+    public Mono<Long> update(Employee employee, long version) {
+        return bindUpdate(UPDATE + " and version = :version", employee)
+                .bind("version", version)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    public Mono<Long> deleteById(long id) {
+        return databaseClient.sql("delete from employees where id = :id")
+                .bind("id", id)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    public Mono<Long> deleteById(long id, long version) {
+        return databaseClient.sql("delete from employees where id = :id and version = :version")
+                .bind("id", id)
+                .bind("version", version)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    private DatabaseClient.GenericExecuteSpec bindUpdate(String sql, Employee employee) {
+        return databaseClient.sql(sql)
+                .bind("firstName", employee.getFirstName())
+                .bind("lastName", employee.getLastName())
+                .bind("email", employee.getEmail())
+                .bind("now", LocalDateTime.now())
+                .bind("id", employee.getId());
+    }
+
+    private static Employee toEmployee(Readable row) {
+        return Employee.builder()
+                .id(row.get("id", Long.class))
+                .firstName(row.get("first_name", String.class))
+                .lastName(row.get("last_name", String.class))
+                .email(row.get("email", String.class))
+                .version(row.get("version", Long.class))
+                .createdAt(toInstant(row.get("created_at", LocalDateTime.class)))
+                .updatedAt(toInstant(row.get("updated_at", LocalDateTime.class)))
+                .build();
+    }
+
+    // the audit columns hold the local time of the JVM, like everything written through JDBC
+    private static Instant toInstant(LocalDateTime dateTime) {
+        return dateTime == null ? null : dateTime.atZone(ZoneId.systemDefault()).toInstant();
+    }
+}
@@ -0,0 +1,516 @@
+package com.mbaday.springboottesting.search;
+
+import com.mbaday.springboottesting.dto.EmployeePatch;
+import com.mbaday.springboottesting.dto.EmployeeSearchHit;
+import com.mbaday.springboottesting.model.Employee;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+// type-ahead search over first name, last name and email, held in memory.
+//
+// every token of the three fields is a term in a sorted map that points at the ascending ids of the employees
+// containing it, so a prefix query is a range scan of that map. name tokens are also indexed by their trigrams,
+// which is how a misspelt word finds terms within a small edit distance. reads never lock. writes are serialised
+// and change the maps of the segment in place, one entry at a time; posting arrays are replaced instead of
+// changed, so a reader always sees a consistent array. a search checks every employee it finds against the query,
+// so in the middle of a write it returns the old or the new version of an employee, each only for its own terms
+@Component
+public class EmployeeSearchIndex {
+
+    public static final int MAX_LIMIT = 50;
+
+    // postings looked at by one query at most, keeps a one letter prefix from walking the whole index
+    static final int MAX_SCANNED = 5_000;
+
+    static final int MIN_FUZZY_LENGTH = 3;
+
+    private static final Pattern NAME_SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private static final Pattern EMAIL_LOCAL_SEPARATORS = Pattern.compile("[._+\\-]+");
+
+    // only plain words are matched fuzzily, only name terms are indexed by trigram
+    private static final Pattern FUZZY_WORD = Pattern.compile("\\p{L}+");
+
+    private static final Pattern QUERY_SEPARATORS = Pattern.compile("[\\s,;]+");
+
+    private static final long[] NO_IDS = new long[0];
+
+    private final Object writeLock = new Object();
+
+    private volatile Segment segment = new Segment();
+
+    // writes made while rebuild() reads the table, replayed on the new segment before it replaces the old one
+    private List<Consumer<Segment>> writesDuringRebuild;
+
+    public void index(Employee employee) {
+        EmployeeSearchHit hit = toHit(employee);
+        afterCommit(() -> write(current -> current.put(hit)));
+    }
+
+    public void remove(long id) {
+        afterCommit(() -> write(current -> current.remove(id)));
+    }
+
+    public void removeAll(Collection<Long> ids) {
+        List<Long> removedIds = List.copyOf(ids);
+        afterCommit(() -> write(current -> removedIds.forEach(current::remove)));
+    }
+
+    // applies the fields present in the patch to the indexed copy, a patch alone does not describe the whole row
+    public void patch(long id, EmployeePatch patch) {
+        afterCommit(() -> write(current -> {
+            Document document = current.documents.get(id);
+            if (document != null) {
+                EmployeeSearchHit indexed = document.hit();
+                current.put(new EmployeeSearchHit(id,
+                        patch.getFirstName() != null ? patch.getFirstName() : indexed.getFirstName(),
+                        patch.getLastName() != null ? patch.getLastName() : indexed.getLastName(),
+                        patch.getEmail() != null ? patch.getEmail() : indexed.getEmail()));
+            }
+        }));
+    }
+
+    // replaces the whole index with the employees handed to the consumer by source. the new index is built off to
+    // the side, searches keep using the old one until it is complete
+    public void rebuild(Consumer<Consumer<Employee>> source) {
+        synchronized (writeLock) {
+            writesDuringRebuild = new ArrayList<>();
+        }
+        try {
+            SegmentBuilder builder = new SegmentBuilder();
+            source.accept(employee -> builder.add(toHit(employee)));
+            Segment rebuilt = builder.build();
+            synchronized (writeLock) {
+                writesDuringRebuild.forEach(change -> change.accept(rebuilt));
+                segment = rebuilt;
+            }
+        } finally {
+            synchronized (writeLock) {
+                writesDuringRebuild = null;
+            }
+        }
+    }
+
+    public int size() {
+        return segment.documents.size();
+    }
+
+    // every word of the query has to be the prefix of a token of the employee. the longest word drives the scan,
+    // it is usually the most selective one. results come in term order, so an exact match of that word ranks first;
+    // when the prefixes find fewer than limit employees, names within a small edit distance of a plain word
+    // fill up the rest
+    public List<EmployeeSearchHit> search(String query, int limit) {
+        List<String> words = queryWords(query);
+        if (words.isEmpty()) {
+            return List.of();
+        }
+        Segment current = segment;
+        String driver = words.stream().max(Comparator.comparingInt(String::length)).get();
+        List<String> otherWords = new ArrayList<>(words);
+        otherWords.remove(driver);
+
+        Collector collector = new Collector(current, otherWords, Math.max(1, Math.min(limit, MAX_LIMIT)));
+        collector.collect(current.terms.subMap(driver, true, driver + Character.MAX_VALUE, false).values(),
+                tokens -> tokens.stream().anyMatch(token -> token.startsWith(driver)));
+        if (!collector.isDone() && driver.length() >= MIN_FUZZY_LENGTH && FUZZY_WORD.matcher(driver).matches()) {
+            for (String term : current.fuzzyTerms(driver)) {
+                collector.collect(List.of(current.terms.getOrDefault(term, NO_IDS)), tokens -> tokens.contains(term));
+            }
+        }
+        return new ArrayList<>(collector.hits.values());
+    }
+
+    private void write(Consumer<Segment> change) {
+        synchronized (writeLock) {
+            change.accept(segment);
+            if (writesDuringRebuild != null) {
+                writesDuringRebuild.add(change);
+            }
+        }
+    }
+
+    // inside a transaction the index changes once it has committed, a rolled back write never shows up in searches
+    private static void afterCommit(Runnable change) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    change.run();
+                }
+            });
+        } else {
+            change.run();
+        }
+    }
+
+    private static EmployeeSearchHit toHit(Employee employee) {
+        return new EmployeeSearchHit(employee.getId(), employee.getFirstName(), employee.getLastName(),
+                employee.getEmail());
+    }
+
+    static List<String> queryWords(String query) {
+        if (query == null) {
+            return List.of();
+        }
+        List<String> words = new ArrayList<>();
+        for (String word : QUERY_SEPARATORS.split(query.trim().toLowerCase(Locale.ROOT))) {
+            if (!word.isEmpty()) {
+                words.add(word);
+            }
+        }
+        return words;
+    }
+
+    static Set<String> nameTokens(EmployeeSearchHit hit) {
+        Set<String> tokens = new LinkedHashSet<>();
+        addTokens(tokens, hit.getFirstName(), NAME_SEPARATORS);
+        addTokens(tokens, hit.getLastName(), NAME_SEPARATORS);
+        return tokens;
+    }
+
+    // the whole address, the domain and the parts of the local part after the first one. the first part needs no
+    // term of its own, every prefix of it is already a prefix of the whole address
+    static Set<String> emailTokens(EmployeeSearchHit hit) {
+        Set<String> tokens = new LinkedHashSet<>();
+        if (hit.getEmail() == null || hit.getEmail().isBlank()) {
+            return tokens;
+        }
+        String email = hit.getEmail().trim().toLowerCase(Locale.ROOT);
+        tokens.add(email);
+        int at = email.lastIndexOf('@');
+        String localPart = at < 0 ? email : email.substring(0, at);
+        String[] localTokens = EMAIL_LOCAL_SEPARATORS.split(localPart);
+        for (int i = 1; i < localTokens.length; i++) {
+            if (!localTokens[i].isEmpty()) {
+                tokens.add(localTokens[i]);
+            }
+        }
+        if (at >= 0 && at < email.length() - 1) {
+            tokens.add(email.substring(at + 1));
+        }
+        return tokens;
+    }
+
+    private static void addTokens(Set<String> tokens, String value, Pattern separators) {
+        if (value == null) {
+            return;
+        }
+        for (String token : separators.split(value.toLowerCase(Locale.ROOT))) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+    }
+
+    private static Set<String> allTokens(EmployeeSearchHit hit) {
+        Set<String> tokens = nameTokens(hit);
+        tokens.addAll(emailTokens(hit));
+        return tokens;
+    }
+
+    // an indexed employee with its tokens, split once when it is indexed. a search checks every posting it scans
+    // against them, splitting the fields again for each would cost a regex run per field and posting
+    private record Document(EmployeeSearchHit hit, List<String> tokens) {
+
+        private Document(EmployeeSearchHit hit) {
+            this(hit, List.copyOf(allTokens(hit)));
+        }
+    }
+
+    // trigrams of the term with a leading boundary marker only, the query word is a prefix of the term it looks for
+    static List<String> trigrams(String term) {
+        String padded = "$" + term;
+        List<String> trigrams = new ArrayList<>(Math.max(1, padded.length() - 2));
+        if (padded.length() < 3) {
+            trigrams.add(padded);
+            return trigrams;
+        }
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            trigrams.add(padded.substring(i, i + 3));
+        }
+        return trigrams;
+    }
+
+    // smallest edit distance between the word and any prefix of the term
+    static int prefixDistance(String word, String term) {
+        int[] previous = new int[term.length() + 1];
+        int[] next = new int[term.length() + 1];
+        for (int j = 0; j <= term.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= word.length(); i++) {
+            next[0] = i;
+            for (int j = 1; j <= term.length(); j++) {
+                int substitution = previous[j - 1] + (word.charAt(i - 1) == term.charAt(j - 1) ? 0 : 1);
+                next[j] = Math.min(substitution, Math.min(previous[j] + 1, next[j - 1] + 1));
+            }
+            int[] swap = previous;
+            previous = next;
+            next = swap;
+        }
+        int distance = Integer.MAX_VALUE;
+        for (int value : previous) {
+            distance = Math.min(distance, value);
+        }
+        return distance;
+    }
+
+    private static long[] withId(long[] ids, long id) {
+        if (ids == null) {
+            return new long[]{id};
+        }
+        int position = Arrays.binarySearch(ids, id);
+        if (position >= 0) {
+            return ids;
+        }
+        int insertAt = -position - 1;
+        long[] copy = new long[ids.length + 1];
+        System.arraycopy(ids, 0, copy, 0, insertAt);
+        copy[insertAt] = id;
+        System.arraycopy(ids, insertAt, copy, insertAt + 1, ids.length - insertAt);
+        return copy;
+    }
+
+    private static long[] withoutId(long[] ids, long id) {
+        int position = Arrays.binarySearch(ids, id);
+        if (position < 0) {
+            return ids;
+        }
+        long[] copy = new long[ids.length - 1];
+        System.arraycopy(ids, 0, copy, 0, position);
+        System.arraycopy(ids, position + 1, copy, position, ids.length - position - 1);
+        return copy;
+    }
+
+    private static final class Segment {
+
+        private final ConcurrentSkipListMap<String, long[]> terms;
+
+        private final ConcurrentHashMap<String, Set<String>> nameTermsByTrigram;
+
+        private final ConcurrentHashMap<Long, Document> documents;
+
+        private Segment() {
+            this(new ConcurrentSkipListMap<>(), new ConcurrentHashMap<>(), new ConcurrentHashMap<>());
+        }
+
+        private Segment(ConcurrentSkipListMap<String, long[]> terms,
+                        ConcurrentHashMap<String, Set<String>> nameTermsByTrigram,
+                        ConcurrentHashMap<Long, Document> documents) {
+            this.terms = terms;
+            this.nameTermsByTrigram = nameTermsByTrigram;
+            this.documents = documents;
+        }
+
+        // only the terms that differ between the old and the new version of the employee are touched. the new terms
+        // go in before the document is replaced, the old ones out after it
+        private void put(EmployeeSearchHit hit) {
+            Document previous = documents.get(hit.getId());
+            Set<String> oldTokens = previous == null ? Set.of() : new HashSet<>(previous.tokens());
+            Set<String> newNameTokens = nameTokens(hit);
+            Document document = new Document(hit);
+            List<String> newTokens = document.tokens();
+            for (String token : newTokens) {
+                if (!oldTokens.contains(token)) {
+                    terms.put(token, withId(terms.get(token), hit.getId()));
+                }
+                if (newNameTokens.contains(token)) {
+                    for (String trigram : trigrams(token)) {
+                        nameTermsByTrigram.computeIfAbsent(trigram, key -> ConcurrentHashMap.newKeySet()).add(token);
+                    }
+                }
+            }
+            documents.put(hit.getId(), document);
+            for (String token : oldTokens) {
+                if (!newTokens.contains(token)) {
+                    removeId(token, hit.getId());
+                }
+            }
+        }
+
+        private void remove(long id) {
+            Document previous = documents.remove(id);
+            if (previous != null) {
+                previous.tokens().forEach(token -> removeId(token, id));
+            }
+        }
+
+        private void removeId(String token, long id) {
+            long[] ids = terms.get(token);
+            if (ids == null) {
+                return;
+            }
+            long[] remaining = withoutId(ids, id);
+            if (remaining.length > 0) {
+                terms.put(token, remaining);
+                return;
+            }
+            terms.remove(token);
+            for (String trigram : trigrams(token)) {
+                Set<String> trigramTerms = nameTermsByTrigram.get(trigram);
+                if (trigramTerms != null) {
+                    trigramTerms.remove(token);
+                    if (trigramTerms.isEmpty()) {
+                        nameTermsByTrigram.remove(trigram);
+                    }
+                }
+            }
+        }
+
+        // name terms that start with the word give or take one edit (two for words longer than five letters).
+        // the trigram counts narrow the candidates down before the edit distance is computed
+        private List<String> fuzzyTerms(String word) {
+            int maxEdits = word.length() <= 5 ? 1 : 2;
+            List<String> wordTrigrams = trigrams(word);
+            Map<String, Integer> sharedTrigrams = new HashMap<>();
+            for (String trigram : wordTrigrams) {
+                for (String term : nameTermsByTrigram.getOrDefault(trigram, Set.of())) {
+                    sharedTrigrams.merge(term, 1, Integer::sum);
+                }
+            }
+            int requiredTrigrams = Math.max(1, wordTrigrams.size() - 3 * maxEdits);
+
+            Map<String, Integer> distances = new HashMap<>();
+            sharedTrigrams.forEach((term, shared) -> {
+                if (shared >= requiredTrigrams && !term.startsWith(word)) {
+                    int distance = prefixDistance(word, term);
+                    if (distance <= maxEdits) {
+                        distances.put(term, distance);
+                    }
+                }
+            });
+            List<String> fuzzyTerms = new ArrayList<>(distances.keySet());
+            fuzzyTerms.sort(Comparator.comparing((String term) -> distances.get(term)).thenComparing(term -> term));
+            return fuzzyTerms;
+        }
+    }
+
+    // collects the initial index contents in plain collections, the concurrent structures are created once at the end
+    private static final class SegmentBuilder {
+
+        private final Map<String, LongList> postings = new HashMap<>();
+
+        private final Set<String> nameTerms = new LinkedHashSet<>();
+
+        private final ConcurrentHashMap<Long, Document> documents = new ConcurrentHashMap<>();
+
+        private void add(EmployeeSearchHit hit) {
+            Document document = new Document(hit);
+            if (documents.putIfAbsent(hit.getId(), document) != null) {
+                return;
+            }
+            nameTerms.addAll(nameTokens(hit));
+            for (String token : document.tokens()) {
+                postings.computeIfAbsent(token, key -> new LongList()).add(hit.getId());
+            }
+        }
+
+        private Segment build() {
+            TreeMap<String, long[]> sortedTerms = new TreeMap<>();
+            postings.forEach((term, ids) -> sortedTerms.put(term, ids.toSortedArray()));
+
+            ConcurrentHashMap<String, Set<String>> nameTermsByTrigram = new ConcurrentHashMap<>();
+            for (String term : nameTerms) {
+                for (String trigram : trigrams(term)) {
+                    nameTermsByTrigram.computeIfAbsent(trigram, key -> ConcurrentHashMap.newKeySet()).add(term);
+                }
+            }
+            return new Segment(new ConcurrentSkipListMap<>(sortedTerms), nameTermsByTrigram, documents);
+        }
+    }
+
+    private static final class LongList {
+
+        private long[] values = new long[1];
+
+        private int size;
+
+        private void add(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        private long[] toSortedArray() {
+            long[] sorted = Arrays.copyOf(values, size);
+            Arrays.sort(sorted);
+            return sorted;
+        }
+    }
+
+    // walks posting arrays in order, keeping the employees that (still) have the term of the posting and match the
+    // remaining words, until the limit is reached or MAX_SCANNED postings have been looked at
+    private static final class Collector {
+
+        private final Segment segment;
+
+        private final List<String> otherWords;
+
+        private final int limit;
+
+        private final Map<Long, EmployeeSearchHit> hits = new LinkedHashMap<>();
+
+        private int scanned;
+
+        private Collector(Segment segment, List<String> otherWords, int limit) {
+            this.segment = segment;
+            this.otherWords = otherWords;
+            this.limit = limit;
+        }
+
+        private boolean isDone() {
+            return hits.size() >= limit || scanned >= MAX_SCANNED;
+        }
+
+        private void collect(Collection<long[]> postings, Predicate<List<String>> hasTerm) {
+            for (long[] ids : postings) {
+                for (long id : ids) {
+                    if (isDone()) {
+                        return;
+                    }
+                    scanned++;
+                    if (hits.containsKey(id)) {
+                        continue;
+                    }
+                    Document document = segment.documents.get(id);
+                    if (document != null && matches(document.tokens(), hasTerm)) {
+                        hits.put(id, document.hit());
+                    }
+                }
+            }
+        }
+
+        private boolean matches(List<String> tokens, Predicate<List<String>> hasTerm) {
+            if (!hasTerm.test(tokens)) {
+                return false;
+            }
+            for (String word : otherWords) {
+                if (tokens.stream().noneMatch(token -> token.startsWith(word))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.mbaday.springboottesting.search;
+
+import com.mbaday.springboottesting.repository.EmployeeJdbcRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+// fills the search index once at startup. the rows are read through the forward-only cursor of the streaming
+// export, so the table is never held in memory as entities
+@Slf4j
+@Component
+@Profile("!reactive")
+public class EmployeeSearchIndexLoader implements ApplicationRunner {
+
+    private EmployeeSearchIndex searchIndex;
+
+    private EmployeeJdbcRepository employeeJdbcRepository;
+
+    @Autowired
+    public EmployeeSearchIndexLoader(EmployeeSearchIndex searchIndex, EmployeeJdbcRepository employeeJdbcRepository) {
+        this.searchIndex = searchIndex;
+        this.employeeJdbcRepository = employeeJdbcRepository;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        long start = System.nanoTime();
+        searchIndex.rebuild(employeeJdbcRepository::streamAll);
+        log.info("Indexed {} employees for search in {} ms", searchIndex.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+}
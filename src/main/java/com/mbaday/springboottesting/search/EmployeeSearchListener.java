@@ -0,0 +1,31 @@
+package com.mbaday.springboottesting.search;
+
+import com.mbaday.springboottesting.model.Employee;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+
+// keeps the search index in step with the writes that go through JPA. Hibernate creates it through Spring's bean
+// container; the index is looked up lazily because JPA test slices have no search index bean
+public class EmployeeSearchListener {
+
+    private ObjectProvider<EmployeeSearchIndex> searchIndex;
+
+    @Autowired
+    public EmployeeSearchListener(ObjectProvider<EmployeeSearchIndex> searchIndex) {
+        this.searchIndex = searchIndex;
+    }
+
+    @PostPersist
+    @PostUpdate
+    public void employeeSaved(Employee employee) {
+        searchIndex.ifAvailable(index -> index.index(employee));
+    }
+
+    @PostRemove
+    public void employeeRemoved(Employee employee) {
+        searchIndex.ifAvailable(index -> index.remove(employee.getId()));
+    }
+}
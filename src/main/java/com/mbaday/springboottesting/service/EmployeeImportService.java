@@ -0,0 +1,13 @@
+package com.mbaday.springboottesting.service;
+
+import com.mbaday.springboottesting.dto.BulkImportResult;
+import com.mbaday.springboottesting.model.Employee;
+
+import java.util.Iterator;
+import java.util.List;
+
+public interface EmployeeImportService {
+    BulkImportResult importEmployees(Iterator<Employee> employees);
+
+    BulkImportResult importBatch(List<Employee> employees);
+}
@@ -1,18 +1,38 @@
 package com.mbaday.springboottesting.service;
 
+import com.mbaday.springboottesting.dto.EmployeeDelta;
+import com.mbaday.springboottesting.dto.EmployeePatch;
+import com.mbaday.springboottesting.dto.EmployeeView;
 import com.mbaday.springboottesting.model.Employee;
 
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 public interface EmployeeService {
-    Employee saveEmployee(Employee employee);
+    EmployeeView saveEmployee(Employee employee);
 
-    List<Employee> getAllEmployees();
+    List<EmployeeView> getAllEmployees();
 
-    Optional<Employee> getEmployeeById(Long id);
+    List<EmployeeView> getEmployeesAfter(long afterId, int size);
 
-    Employee updateEmployee(Employee updatedEmployee);
+    List<EmployeeView> findEmployeesByName(String lastName, String firstName, long afterId, int size);
 
-    void deleteById(Long id);
+    EmployeeDelta getEmployeesModifiedSince(Instant modifiedSince, long afterId, int limit);
+
+    void streamAllEmployees(Consumer<Employee> consumer);
+
+    Optional<EmployeeView> getEmployeeById(Long id);
+
+    EmployeeView updateEmployee(Employee updatedEmployee);
+
+    boolean patchEmployee(long id, EmployeePatch patch);
+
+    boolean deleteEmployee(long id);
+
+    boolean deleteEmployee(long id, long version);
+
+    int deleteEmployees(Collection<Long> ids);
 }
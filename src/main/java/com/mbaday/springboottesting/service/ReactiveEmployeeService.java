@@ -0,0 +1,21 @@
+package com.mbaday.springboottesting.service;
+
+import com.mbaday.springboottesting.model.Employee;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+public interface ReactiveEmployeeService {
+    Mono<Employee> saveEmployee(Employee employee);
+
+    Flux<Employee> getAllEmployees();
+
+    Mono<Employee> getEmployeeById(long id);
+
+    Mono<Employee> updateEmployee(Employee updatedEmployee);
+
+    Mono<Employee> updateEmployee(Employee updatedEmployee, long expectedVersion);
+
+    Mono<Boolean> deleteById(long id);
+
+    Mono<Boolean> deleteById(long id, long expectedVersion);
+}
@@ -0,0 +1,203 @@
+package com.mbaday.springboottesting.service.serviceImpl;
+
+import com.mbaday.springboottesting.changes.EmployeeChangeFeed;
+import com.mbaday.springboottesting.dto.BulkImportResult;
+import com.mbaday.springboottesting.dto.BulkImportRowResult;
+import com.mbaday.springboottesting.invalidation.EmployeeInvalidationOutbox;
+import com.mbaday.springboottesting.model.Employee;
+import com.mbaday.springboottesting.model.EmployeeChange;
+import com.mbaday.springboottesting.repository.EmployeeJdbcRepository;
+import com.mbaday.springboottesting.repository.EmployeeRepository;
+import com.mbaday.springboottesting.search.EmployeeSearchIndex;
+import com.mbaday.springboottesting.service.EmployeeImportService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+@Service
+public class EmployeeImportServiceImpl implements EmployeeImportService {
+
+    private static final String INVALID_MESSAGE = "firstName, lastName and email are required, at most "
+            + Employee.MAX_LENGTH + " characters each";
+
+    private EmployeeRepository employeeRepository;
+
+    private EmployeeJdbcRepository employeeJdbcRepository;
+
+    private EmployeeSearchIndex searchIndex;
+
+    private EmployeeInvalidationOutbox invalidationOutbox;
+
+    private EmployeeChangeFeed changeFeed;
+
+    private TransactionTemplate transactionTemplate;
+
+    private int batchSize;
+
+    @Autowired
+    public EmployeeImportServiceImpl(EmployeeRepository employeeRepository,
+                                     EmployeeJdbcRepository employeeJdbcRepository,
+                                     EmployeeSearchIndex searchIndex,
+                                     EmployeeInvalidationOutbox invalidationOutbox,
+                                     EmployeeChangeFeed changeFeed,
+                                     PlatformTransactionManager transactionManager,
+                                     @Value("${employees.import.batch-size:1000}") int batchSize) {
+        this.employeeRepository = employeeRepository;
+        this.employeeJdbcRepository = employeeJdbcRepository;
+        this.searchIndex = searchIndex;
+        this.invalidationOutbox = invalidationOutbox;
+        this.changeFeed = changeFeed;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+    }
+
+    // reads the rows in chunks of batchSize. every chunk costs one IN query for the duplicate check and one JDBC
+    // batch for the inserts, and is committed on its own so a large import never holds one huge transaction
+    @Override
+    public BulkImportResult importEmployees(Iterator<Employee> employees) {
+        return importEmployees(employees, batchSize);
+    }
+
+    // all rows in one chunk, committed together or not at all (unless a concurrent create of one of the emails
+    // makes it fall back to row by row). for a caller that retries a batch that failed: rows committed by an earlier
+    // attempt would come back as duplicates of themselves
+    @Override
+    public BulkImportResult importBatch(List<Employee> employees) {
+        return importEmployees(employees.iterator(), Math.max(employees.size(), 1));
+    }
+
+    private BulkImportResult importEmployees(Iterator<Employee> employees, int chunkSize) {
+        List<BulkImportRowResult> rows = new ArrayList<>();
+        Set<String> seenEmails = new HashSet<>();
+        long index = 0;
+        long created = 0;
+
+        List<Employee> chunk = new ArrayList<>(Math.min(chunkSize, batchSize));
+        List<Long> chunkIndexes = new ArrayList<>(Math.min(chunkSize, batchSize));
+        while (employees.hasNext()) {
+            Employee employee = trimEmail(employees.next());
+            long rowIndex = index++;
+
+            if (!isValid(employee)) {
+                rows.add(new BulkImportRowResult(rowIndex, employee.getEmail(), BulkImportRowResult.Status.INVALID,
+                        null, INVALID_MESSAGE));
+                continue;
+            }
+            if (!seenEmails.add(normalize(employee.getEmail()))) {
+                rows.add(new BulkImportRowResult(rowIndex, employee.getEmail(), BulkImportRowResult.Status.DUPLICATE,
+                        null, "Email appears more than once in the import"));
+                continue;
+            }
+
+            chunk.add(employee);
+            chunkIndexes.add(rowIndex);
+            if (chunk.size() == chunkSize) {
+                created += importChunk(chunk, chunkIndexes, rows);
+                chunk.clear();
+                chunkIndexes.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            created += importChunk(chunk, chunkIndexes, rows);
+        }
+
+        rows.sort((left, right) -> Long.compare(left.getIndex(), right.getIndex()));
+        return new BulkImportResult(index, created, index - created, rows);
+    }
+
+    // a create committed by someone else between the duplicate check and the insert makes the batch fail on the
+    // unique index and rolls the chunk back. the chunk is then written again row by row, a row that still collides
+    // is reported as a duplicate
+    private long importChunk(List<Employee> chunk, List<Long> chunkIndexes, List<BulkImportRowResult> rows) {
+        List<BulkImportRowResult> chunkRows;
+        try {
+            chunkRows = transactionTemplate.execute(status -> insertChunk(chunk, chunkIndexes));
+        } catch (DuplicateKeyException e) {
+            chunkRows = new ArrayList<>(chunk.size());
+            for (int i = 0; i < chunk.size(); i++) {
+                Employee employee = chunk.get(i);
+                List<Long> rowIndex = List.of(chunkIndexes.get(i));
+                try {
+                    chunkRows.addAll(transactionTemplate.execute(status -> insertChunk(List.of(employee), rowIndex)));
+                } catch (DuplicateKeyException duplicate) {
+                    chunkRows.add(duplicate(rowIndex.get(0), employee));
+                }
+            }
+        }
+        rows.addAll(chunkRows);
+        return chunkRows.stream().filter(row -> row.getStatus() == BulkImportRowResult.Status.CREATED).count();
+    }
+
+    private List<BulkImportRowResult> insertChunk(List<Employee> chunk, List<Long> chunkIndexes) {
+        Set<String> existingEmails = employeeRepository.findExistingEmails(
+                        chunk.stream().map(Employee::getEmail).collect(Collectors.toList()))
+                .stream()
+                .map(EmployeeImportServiceImpl::normalize)
+                .collect(Collectors.toSet());
+
+        List<BulkImportRowResult> chunkRows = new ArrayList<>(chunk.size());
+        List<Employee> toInsert = new ArrayList<>(chunk.size());
+        List<Long> insertIndexes = new ArrayList<>(chunk.size());
+        for (int i = 0; i < chunk.size(); i++) {
+            Employee employee = chunk.get(i);
+            if (existingEmails.contains(normalize(employee.getEmail()))) {
+                chunkRows.add(duplicate(chunkIndexes.get(i), employee));
+            } else {
+                toInsert.add(employee);
+                insertIndexes.add(chunkIndexes.get(i));
+            }
+        }
+
+        employeeJdbcRepository.batchInsert(toInsert);
+        // new rows are announced as well, another instance may have cached "no such employee" for them
+        List<Long> insertedIds = toInsert.stream().map(Employee::getId).collect(Collectors.toList());
+        invalidationOutbox.record(insertedIds);
+        changeFeed.record(EmployeeChange.Type.CREATED, insertedIds);
+        for (int i = 0; i < toInsert.size(); i++) {
+            Employee employee = toInsert.get(i);
+            // batch inserts bypass the entity listener. indexed once this chunk has committed
+            searchIndex.index(employee);
+            chunkRows.add(new BulkImportRowResult(insertIndexes.get(i), employee.getEmail(),
+                    BulkImportRowResult.Status.CREATED, employee.getId(), null));
+        }
+        return chunkRows;
+    }
+
+    private static BulkImportRowResult duplicate(long rowIndex, Employee employee) {
+        return new BulkImportRowResult(rowIndex, employee.getEmail(), BulkImportRowResult.Status.DUPLICATE, null,
+                "Employee with email " + employee.getEmail() + " already exists");
+    }
+
+    private static boolean isValid(Employee employee) {
+        return isValid(employee.getFirstName()) && isValid(employee.getLastName()) && isValid(employee.getEmail());
+    }
+
+    private static boolean isValid(String value) {
+        return StringUtils.hasText(value) && value.length() <= Employee.MAX_LENGTH;
+    }
+
+    // the email is stored trimmed, the checks for duplicates compare it the same way
+    private static Employee trimEmail(Employee employee) {
+        if (employee.getEmail() == null || employee.getEmail().equals(employee.getEmail().trim())) {
+            return employee;
+        }
+        return employee.toBuilder().email(employee.getEmail().trim()).build();
+    }
+
+    // MySQL's default collation compares emails case-insensitively, so the in-memory checks do the same
+    private static String normalize(String email) {
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
+}
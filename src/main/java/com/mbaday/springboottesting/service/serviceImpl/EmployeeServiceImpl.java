@@ -1,63 +1,284 @@
 package com.mbaday.springboottesting.service.serviceImpl;
 
+import com.mbaday.springboottesting.changes.EmployeeChangeFeed;
+import com.mbaday.springboottesting.config.CacheConfig;
+import com.mbaday.springboottesting.config.MetricsConfig;
+import com.mbaday.springboottesting.dto.EmployeeDelta;
+import com.mbaday.springboottesting.dto.EmployeePatch;
+import com.mbaday.springboottesting.dto.EmployeeView;
+import com.mbaday.springboottesting.dto.ModifiedEmployeeView;
 import com.mbaday.springboottesting.exception.ResourceNotFoundException;
+import com.mbaday.springboottesting.invalidation.EmployeeInvalidationOutbox;
 import com.mbaday.springboottesting.model.Employee;
+import com.mbaday.springboottesting.model.EmployeeChange;
+import com.mbaday.springboottesting.repository.EmployeeJdbcRepository;
 import com.mbaday.springboottesting.repository.EmployeeRepository;
+import com.mbaday.springboottesting.search.EmployeeSearchIndex;
 import com.mbaday.springboottesting.service.EmployeeService;
+import io.micrometer.core.annotation.Timed;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.CachePut;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 @Service
+@Timed(MetricsConfig.SERVICE_TIMER)
 public class EmployeeServiceImpl implements EmployeeService {
 
+    static final int DELETE_CHUNK_SIZE = 1000;
 
 
     private EmployeeRepository employeeRepository;
 
+    private EmployeeJdbcRepository employeeJdbcRepository;
+
+    // JPA writes reach the search index through its entity listener, the SQL paths below update it themselves
+    private EmployeeSearchIndex searchIndex;
+
+    // every write records the changed employees in the same transaction, the other instances drop what they
+    // hold in memory for them once it committed
+    private EmployeeInvalidationOutbox invalidationOutbox;
+
+    // and appends them to the change feed, also in the same transaction
+    private EmployeeChangeFeed changeFeed;
+
+    // how far nextModifiedSince of a delta lags behind its read: longer than a write takes from setting updated_at
+    // to its commit, plus the replication lag of a replica the read may be served from
+    private Duration deltaOverlap;
+
     @Autowired
-    public EmployeeServiceImpl(EmployeeRepository employeeRepository) {
+    public EmployeeServiceImpl(EmployeeRepository employeeRepository, EmployeeJdbcRepository employeeJdbcRepository,
+                               EmployeeSearchIndex searchIndex, EmployeeInvalidationOutbox invalidationOutbox,
+                               EmployeeChangeFeed changeFeed,
+                               @Value("${employees.delta.overlap:15s}") Duration deltaOverlap) {
         this.employeeRepository = employeeRepository;
+        this.employeeJdbcRepository = employeeJdbcRepository;
+        this.searchIndex = searchIndex;
+        this.invalidationOutbox = invalidationOutbox;
+        this.changeFeed = changeFeed;
+        this.deltaOverlap = deltaOverlap;
+    }
+
+    @Override
+    @Transactional
+    @CachePut(cacheNames = CacheConfig.EMPLOYEES_CACHE, key = "#result.id")
+    public EmployeeView saveEmployee(Employee employee) {
+
+        // a single INSERT, the unique index on email rejects duplicates (also between concurrent creates).
+        // the id is cleared so a client supplied id can never turn the create into a merge of an existing row
+        Employee newEmployee = employee.toBuilder().id(0L).build();
+        try {
+            Employee saved = employeeRepository.saveAndFlush(newEmployee);
+            invalidationOutbox.record(saved.getId());
+            changeFeed.record(EmployeeChange.Type.CREATED, saved.getId());
+            return EmployeeView.from(saved);
+        } catch (DataIntegrityViolationException e) {
+            if (isDuplicateEmail(e)) {
+                throw new ResourceNotFoundException("Employee with email "+ employee.getEmail() + " already exists", e);
+            }
+            throw e;
+        }
     }
 
+    // reads return EmployeeView projections inside read-only transactions: nothing is put into the persistence
+    // context and Hibernate runs them with flushing switched off
+
     @Override
-    public Employee saveEmployee(Employee employee) {
+    @Transactional(readOnly = true)
+    public List<EmployeeView> getAllEmployees() {
+        return employeeRepository.findAllViews();
+    }
 
-        Optional<Employee> savedEmployee = employeeRepository.findByEmail(employee.getEmail());
+    @Override
+    @Transactional(readOnly = true)
+    public List<EmployeeView> getEmployeesAfter(long afterId, int size) {
+        return employeeRepository.findViewsAfter(afterId, PageRequest.of(0, size));
+    }
 
-        if(savedEmployee.isPresent()){
-            throw new ResourceNotFoundException("Employee with email "+ employee.getEmail() + " already exists");
+    // firstName is optional, a last name alone still uses the leading column of the name index
+    @Override
+    @Transactional(readOnly = true)
+    public List<EmployeeView> findEmployeesByName(String lastName, String firstName, long afterId, int size) {
+        PageRequest page = PageRequest.of(0, size);
+        if (firstName == null || firstName.isBlank()) {
+            return employeeRepository.findViewsByLastName(lastName, afterId, page);
         }
-        return employeeRepository.save(employee);
+        return employeeRepository.findViewsByName(lastName, firstName, afterId, page);
     }
 
+    // rows written after (modifiedSince, afterId) plus the deletes recorded by the change feed in the same window,
+    // so a client that keeps its copy in sync transfers the churn instead of the whole table, at most limit rows at
+    // a time. the epoch (or earlier) asks for a first, full sync, which starts with the rows written before the
+    // audit columns existed (in id order, the watermark stays at the epoch until they are all sent)
     @Override
-    public List<Employee> getAllEmployees() {
-        return employeeRepository.findAll();
+    @Transactional(readOnly = true)
+    public EmployeeDelta getEmployeesModifiedSince(Instant modifiedSince, long afterId, int limit) {
+        Instant now = Instant.now();
+        List<EmployeeView> changed = new ArrayList<>();
+        Instant since = modifiedSince;
+        long after = afterId;
+        boolean fullSync = !modifiedSince.isAfter(Instant.EPOCH);
+        if (fullSync) {
+            changed.addAll(employeeRepository.findViewsNeverModified(afterId, PageRequest.of(0, limit)));
+            if (changed.size() == limit) {
+                return new EmployeeDelta(changed, List.of(), Instant.EPOCH, changed.get(limit - 1).getId(), false);
+            }
+            since = Instant.EPOCH;
+            after = 0;
+        }
+        int remaining = limit - changed.size();
+        List<ModifiedEmployeeView> modified =
+                employeeRepository.findViewsModifiedSince(since, after, PageRequest.of(0, remaining));
+        modified.forEach(employee -> changed.add(employee.getEmployee()));
+        if (modified.size() == remaining) {
+            // a full page ends at its last row, the deletes up to that row go with it and the later ones with the next
+            ModifiedEmployeeView last = modified.get(remaining - 1);
+            List<Long> deleted = fullSync ? List.of() : changeFeed.findDeletedBetween(since, last.getUpdatedAt());
+            return new EmployeeDelta(changed, deleted, last.getUpdatedAt(), last.getEmployee().getId(), false);
+        }
+        List<Long> deleted = fullSync ? List.of() : changeFeed.findDeletedBetween(since, now);
+        Instant nextModifiedSince = now.minus(deltaOverlap);
+        return nextModifiedSince.isAfter(since)
+                ? new EmployeeDelta(changed, deleted, nextModifiedSince, 0, true)
+                : new EmployeeDelta(changed, deleted, since, after, true);
     }
 
     @Override
-    public Optional<Employee> getEmployeeById(Long id) {
+    public void streamAllEmployees(Consumer<Employee> consumer) {
+        employeeJdbcRepository.streamAll(consumer);
+    }
+
+    // a read-write transaction, so it reads from the primary: the employee is cached until it expires, and right
+    // after a write evicted it a lagging read replica may still return the old row (or one already deleted)
+    @Override
+    @Transactional
+    @Cacheable(cacheNames = CacheConfig.EMPLOYEES_CACHE, key = "#id")
+    public Optional<EmployeeView> getEmployeeById(Long id) {
 
 //        Optional<Employee> employee = employeeRepository.findById(id);
 //
 //        if(employee.isEmpty()){
 //            throw new ResourceNotFoundException("Employee does not exist with id: "+ id);
 //        }
-        return employeeRepository.findById(id);
+        return employeeRepository.findViewById(id);
     }
 
     @Override
-    public Employee updateEmployee(Employee updatedEmployee) {
-        return employeeRepository.save(updatedEmployee);
+    @Transactional
+    @CachePut(cacheNames = CacheConfig.EMPLOYEES_CACHE, key = "#result.id")
+    public EmployeeView updateEmployee(Employee updatedEmployee) {
+        // only the three writable fields change on the managed employee, the audit columns stay as they are (also in
+        // the second-level cache). the version that was read must still be the current one
+        Employee employee = employeeRepository.findById(updatedEmployee.getId())
+                .filter(current -> current.getVersion() == updatedEmployee.getVersion())
+                .orElseThrow(() -> new ObjectOptimisticLockingFailureException(Employee.class, updatedEmployee.getId()));
+        employee.setFirstName(updatedEmployee.getFirstName());
+        employee.setLastName(updatedEmployee.getLastName());
+        employee.setEmail(updatedEmployee.getEmail());
+        // flushed here so the returned (and cached) employee carries the new version, and so an email that is taken
+        // fails here rather than at commit
+        Employee saved;
+        try {
+            saved = employeeRepository.saveAndFlush(employee);
+        } catch (DataIntegrityViolationException e) {
+            if (isDuplicateEmail(e)) {
+                throw new ResourceNotFoundException("Employee with email "+ updatedEmployee.getEmail() + " already exists", e);
+            }
+            throw e;
+        }
+        invalidationOutbox.record(saved.getId());
+        changeFeed.record(EmployeeChange.Type.UPDATED, saved.getId());
+        return EmployeeView.from(saved);
     }
 
+    // the cached copy is evicted rather than updated, the patch alone does not describe the whole row
     @Override
-    public void deleteById(Long id) {
-        employeeRepository.deleteById(id);
+    @Transactional
+    @CacheEvict(cacheNames = CacheConfig.EMPLOYEES_CACHE, key = "#id")
+    public boolean patchEmployee(long id, EmployeePatch patch) {
+        try {
+            boolean patched = employeeJdbcRepository.patch(id, patch) > 0;
+            if (patched) {
+                searchIndex.patch(id, patch);
+                invalidationOutbox.record(id);
+                changeFeed.record(EmployeeChange.Type.UPDATED, id);
+            }
+            return patched;
+        } catch (DataIntegrityViolationException e) {
+            if (isDuplicateEmail(e)) {
+                throw new ResourceNotFoundException("Employee with email "+ patch.getEmail() + " already exists", e);
+            }
+            throw e;
+        }
     }
 
+    @Override
+    @Transactional
+    @CacheEvict(cacheNames = CacheConfig.EMPLOYEES_CACHE, key = "#id")
+    public boolean deleteEmployee(long id) {
+        boolean deleted = employeeRepository.deleteEmployeeById(id) > 0;
+        if (deleted) {
+            searchIndex.remove(id);
+            invalidationOutbox.record(id);
+            changeFeed.record(EmployeeChange.Type.DELETED, id);
+        }
+        return deleted;
+    }
 
+    @Override
+    @Transactional
+    @CacheEvict(cacheNames = CacheConfig.EMPLOYEES_CACHE, key = "#id")
+    public boolean deleteEmployee(long id, long version) {
+        boolean deleted = employeeRepository.deleteEmployeeByIdAndVersion(id, version) > 0;
+        if (deleted) {
+            searchIndex.remove(id);
+            invalidationOutbox.record(id);
+            changeFeed.record(EmployeeChange.Type.DELETED, id);
+        }
+        return deleted;
+    }
+
+    // one IN-list DELETE per chunk, all chunks in one transaction. chunking keeps the statement within the
+    // bind parameter limits of the drivers. the whole cache is dropped, evicting key by key is not supported by @CacheEvict
+    @Override
+    @Transactional
+    @CacheEvict(cacheNames = CacheConfig.EMPLOYEES_CACHE, allEntries = true)
+    public int deleteEmployees(Collection<Long> ids) {
+        List<Long> distinctIds = List.copyOf(new LinkedHashSet<>(ids));
+        int deleted = 0;
+        for (int from = 0; from < distinctIds.size(); from += DELETE_CHUNK_SIZE) {
+            List<Long> chunk = distinctIds.subList(from, Math.min(from + DELETE_CHUNK_SIZE, distinctIds.size()));
+            deleted += employeeRepository.deleteEmployeesByIds(chunk);
+        }
+        searchIndex.removeAll(distinctIds);
+        if (deleted > 0) {
+            invalidationOutbox.record(distinctIds);
+            // ids that did not exist get a delete as well, applying it changes nothing for a consumer
+            changeFeed.record(EmployeeChange.Type.DELETED, distinctIds);
+        }
+        return deleted;
+    }
+
+    private static boolean isDuplicateEmail(DataIntegrityViolationException e) {
+        String message = NestedExceptionUtils.getMostSpecificCause(e).getMessage();
+        return message != null
+                && message.toLowerCase(Locale.ROOT).contains(Employee.EMAIL_UNIQUE_CONSTRAINT);
+    }
 }
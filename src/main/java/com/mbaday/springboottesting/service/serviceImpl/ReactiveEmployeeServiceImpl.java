@@ -0,0 +1,161 @@
+package com.mbaday.springboottesting.service.serviceImpl;
+
+import com.mbaday.springboottesting.changes.EmployeeChangeFeed;
+import com.mbaday.springboottesting.config.CacheConfig;
+import com.mbaday.springboottesting.exception.ResourceNotFoundException;
+import com.mbaday.springboottesting.invalidation.EmployeeInvalidationOutbox;
+import com.mbaday.springboottesting.model.Employee;
+import com.mbaday.springboottesting.model.EmployeeChange;
+import com.mbaday.springboottesting.repository.ReactiveEmployeeRepository;
+import com.mbaday.springboottesting.search.EmployeeSearchIndex;
+import com.mbaday.springboottesting.service.ReactiveEmployeeService;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import jakarta.persistence.EntityManagerFactory;
+import java.util.Locale;
+
+// every write records the invalidation outbox and change feed rows in its own R2DBC transaction, like
+// EmployeeServiceImpl does in its JPA one. once it committed the employee is dropped from what this instance holds
+// in memory (employee cache, second-level cache, search index) and the relay and the feed's waiters are woken
+@Service
+@Profile("reactive")
+public class ReactiveEmployeeServiceImpl implements ReactiveEmployeeService {
+
+    private ReactiveEmployeeRepository reactiveEmployeeRepository;
+
+    private TransactionalOperator transactionalOperator;
+
+    private EmployeeInvalidationOutbox invalidationOutbox;
+
+    private EmployeeChangeFeed changeFeed;
+
+    private CacheManager cacheManager;
+
+    private EntityManagerFactory entityManagerFactory;
+
+    private ObjectProvider<EmployeeSearchIndex> searchIndex;
+
+    @Autowired
+    public ReactiveEmployeeServiceImpl(ReactiveEmployeeRepository reactiveEmployeeRepository,
+                                       TransactionalOperator transactionalOperator,
+                                       EmployeeInvalidationOutbox invalidationOutbox,
+                                       EmployeeChangeFeed changeFeed,
+                                       CacheManager cacheManager,
+                                       EntityManagerFactory entityManagerFactory,
+                                       ObjectProvider<EmployeeSearchIndex> searchIndex) {
+        this.reactiveEmployeeRepository = reactiveEmployeeRepository;
+        this.transactionalOperator = transactionalOperator;
+        this.invalidationOutbox = invalidationOutbox;
+        this.changeFeed = changeFeed;
+        this.cacheManager = cacheManager;
+        this.entityManagerFactory = entityManagerFactory;
+        this.searchIndex = searchIndex;
+    }
+
+    // same contract as EmployeeServiceImpl.saveEmployee: one insert, duplicates rejected by the unique email index
+    @Override
+    public Mono<Employee> saveEmployee(Employee employee) {
+        return reactiveEmployeeRepository.insert(employee)
+                .flatMap(saved -> recordChange(EmployeeChange.Type.CREATED, saved.getId()).thenReturn(saved))
+                .as(transactionalOperator::transactional)
+                .onErrorMap(DataIntegrityViolationException.class,
+                        e -> isDuplicateEmail(e)
+                                ? new ResourceNotFoundException("Employee with email " + employee.getEmail() + " already exists", e)
+                                : e)
+                .doOnNext(saved -> committed(saved.getId(), saved));
+    }
+
+    @Override
+    public Flux<Employee> getAllEmployees() {
+        return reactiveEmployeeRepository.findAll();
+    }
+
+    @Override
+    public Mono<Employee> getEmployeeById(long id) {
+        return reactiveEmployeeRepository.findById(id);
+    }
+
+    // emits the updated employee (with its new version), or completes empty when the row no longer exists
+    @Override
+    public Mono<Employee> updateEmployee(Employee updatedEmployee) {
+        return updated(reactiveEmployeeRepository.update(updatedEmployee), updatedEmployee.getId());
+    }
+
+    // completes empty as well when the row has a different version by now
+    @Override
+    public Mono<Employee> updateEmployee(Employee updatedEmployee, long expectedVersion) {
+        return updated(reactiveEmployeeRepository.update(updatedEmployee, expectedVersion), updatedEmployee.getId());
+    }
+
+    @Override
+    public Mono<Boolean> deleteById(long id) {
+        return deleted(reactiveEmployeeRepository.deleteById(id), id);
+    }
+
+    @Override
+    public Mono<Boolean> deleteById(long id, long expectedVersion) {
+        return deleted(reactiveEmployeeRepository.deleteById(id, expectedVersion), id);
+    }
+
+    private Mono<Employee> updated(Mono<Long> update, long id) {
+        return update
+                .filter(rowsUpdated -> rowsUpdated > 0)
+                .flatMap(rowsUpdated -> reactiveEmployeeRepository.findById(id))
+                .flatMap(employee -> recordChange(EmployeeChange.Type.UPDATED, id).thenReturn(employee))
+                .as(transactionalOperator::transactional)
+                .doOnNext(employee -> committed(id, employee));
+    }
+
+    private Mono<Boolean> deleted(Mono<Long> delete, long id) {
+        return delete
+                .flatMap(rowsDeleted -> rowsDeleted > 0
+                        ? recordChange(EmployeeChange.Type.DELETED, id).thenReturn(true)
+                        : Mono.just(false))
+                .as(transactionalOperator::transactional)
+                .doOnNext(rowDeleted -> {
+                    if (rowDeleted) {
+                        committed(id, null);
+                    }
+                });
+    }
+
+    private Mono<Void> recordChange(EmployeeChange.Type type, long id) {
+        return reactiveEmployeeRepository.recordChange(type, id, invalidationOutbox.getNodeId());
+    }
+
+    // current is null when the employee was deleted
+    private void committed(long id, Employee current) {
+        Cache employees = cacheManager.getCache(CacheConfig.EMPLOYEES_CACHE);
+        if (employees != null) {
+            employees.evict(id);
+        }
+        org.hibernate.Cache secondLevelCache = entityManagerFactory.getCache().unwrap(org.hibernate.Cache.class);
+        secondLevelCache.evictEntityData(Employee.class, id);
+        secondLevelCache.evictQueryRegion(Employee.QUERY_CACHE_REGION);
+        searchIndex.ifAvailable(index -> {
+            if (current != null) {
+                index.index(current);
+            } else {
+                index.remove(id);
+            }
+        });
+        invalidationOutbox.committed();
+        changeFeed.committed();
+    }
+
+    private static boolean isDuplicateEmail(DataIntegrityViolationException e) {
+        String message = NestedExceptionUtils.getMostSpecificCause(e).getMessage();
+        return message != null
+                && message.toLowerCase(Locale.ROOT).contains(Employee.EMAIL_UNIQUE_CONSTRAINT);
+    }
+}
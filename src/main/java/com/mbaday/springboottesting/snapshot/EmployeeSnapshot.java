@@ -0,0 +1,310 @@
+package com.mbaday.springboottesting.snapshot;
+
+import com.mbaday.springboottesting.config.CacheConfig;
+import com.mbaday.springboottesting.dto.EmployeeDelta;
+import com.mbaday.springboottesting.dto.EmployeeView;
+import com.mbaday.springboottesting.repository.DatabaseIdentityRepository;
+import com.mbaday.springboottesting.service.EmployeeService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// warm start for getEmployeeById. every interval (and at shutdown) the employees held by the employees cache, the
+// working set, are written to a memory-mapped snapshot file. after a restart the cache falls back to that file on a
+// miss (SnapshotBackedCache) instead of sending the whole working set to the database at once. in the background
+// the snapshot is reconciled with the database: the employees changed or deleted since it was taken (the delta of
+// getEmployeesModifiedSince, less employees.delta.overlap) are marked stale, as is every employee written or
+// evicted from the cache since the start, and a stale employee is read from the database again. a snapshot older
+// than max-age or taken from another database (DatabaseIdentity) is not used, and the file is no longer consulted
+// serve-for after the start: by then the cache holds the working set again
+@Slf4j
+@Component
+@Profile("!reactive")
+@ConditionalOnProperty(name = "employees.snapshot.enabled", havingValue = "true")
+public class EmployeeSnapshot {
+
+    public static final String HITS_COUNTER = "employees.snapshot.hits";
+
+    static final int RECONCILE_PAGE_SIZE = 1000;
+
+    private EmployeeService employeeService;
+
+    private CacheManager cacheManager;
+
+    private DatabaseIdentityRepository databaseIdentityRepository;
+
+    private Path path;
+
+    private Duration interval;
+
+    private Duration maxAge;
+
+    private Duration serveFor;
+
+    private Duration overlap;
+
+    private Counter hits;
+
+    // the snapshot loaded at startup, null when there was none or it has been retired
+    private volatile EmployeeSnapshotFile loaded;
+
+    private volatile boolean reconciled;
+
+    // read once, it does not change while the database is up
+    private volatile UUID databaseId;
+
+    private final Set<Long> stale = ConcurrentHashMap.newKeySet();
+
+    private ScheduledExecutorService scheduler;
+
+    @Autowired
+    public EmployeeSnapshot(EmployeeService employeeService, CacheManager cacheManager, MeterRegistry meterRegistry,
+                            DatabaseIdentityRepository databaseIdentityRepository,
+                            @Value("${employees.snapshot.path:data/employees.snapshot}") Path path,
+                            @Value("${employees.snapshot.interval:1m}") Duration interval,
+                            @Value("${employees.snapshot.max-age:1h}") Duration maxAge,
+                            @Value("${employees.snapshot.serve-for:10m}") Duration serveFor,
+                            @Value("${employees.delta.overlap:15s}") Duration overlap) {
+        this.employeeService = employeeService;
+        this.cacheManager = cacheManager;
+        this.databaseIdentityRepository = databaseIdentityRepository;
+        this.path = path;
+        this.interval = interval;
+        this.maxAge = maxAge;
+        this.serveFor = serveFor;
+        this.overlap = overlap;
+        this.hits = Counter.builder(HITS_COUNTER).register(meterRegistry);
+        Gauge.builder("employees.snapshot.size", this,
+                snapshot -> snapshot.loaded == null ? 0 : snapshot.loaded.size()).register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        // read now, the database may be closed already when the last snapshot is written at shutdown
+        try {
+            databaseId();
+        } catch (DataAccessException e) {
+            log.warn("Could not read the database identity: {}", e.getMessage());
+        }
+        loaded = load();
+        reconciled = loaded == null;
+        if (cacheManager.getCache(CacheConfig.EMPLOYEES_CACHE) instanceof SnapshotBackedCache cache) {
+            cache.attach(this);
+        }
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "employee-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (loaded != null) {
+            scheduler.execute(this::reconcileQuietly);
+            scheduler.schedule(this::expire, serveFor.toMillis(), TimeUnit.MILLISECONDS);
+        }
+        scheduler.scheduleWithFixedDelay(this::writeQuietly, interval.toMillis(), interval.toMillis(),
+                TimeUnit.MILLISECONDS);
+    }
+
+    // the freshest snapshot for the next start, a deploy restarts every instance right after this
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        scheduler.shutdownNow();
+        scheduler.awaitTermination(5, TimeUnit.SECONDS);
+        writeQuietly();
+    }
+
+    // the employee as the snapshot has it, empty when it is not in the snapshot or stale
+    public Optional<EmployeeView> find(long id) {
+        EmployeeSnapshotFile snapshot = loaded;
+        if (snapshot == null || stale.contains(id)) {
+            return Optional.empty();
+        }
+        Optional<EmployeeView> employee = snapshot.find(id);
+        if (employee.isPresent()) {
+            hits.increment();
+        }
+        return employee;
+    }
+
+    // the database has a newer version (or no row) for the employee, or the cache has it
+    public void markStale(long id) {
+        if (loaded != null) {
+            stale.add(id);
+        }
+    }
+
+    public boolean isStale(long id) {
+        return stale.contains(id);
+    }
+
+    // the whole cache was dropped, so is the snapshot
+    public void retire() {
+        if (loaded != null) {
+            log.info("Employee snapshot retired");
+        }
+        loaded = null;
+        stale.clear();
+        reconciled = true;
+    }
+
+    public boolean isServing() {
+        return loaded != null;
+    }
+
+    public boolean isReconciled() {
+        return reconciled;
+    }
+
+    // the working set: the cache, and the employees of the loaded snapshot that are not stale. skipped until the loaded
+    // snapshot has been reconciled, its employees (and those the cache took from it) are not known to be current
+    public void write() throws IOException {
+        if (!reconciled) {
+            return;
+        }
+        Instant takenAt = Instant.now();
+        Map<Long, EmployeeView> employees = new HashMap<>();
+        EmployeeSnapshotFile snapshot = loaded;
+        if (snapshot != null) {
+            snapshot.forEach(employee -> {
+                if (!stale.contains(employee.getId())) {
+                    employees.put(employee.getId(), employee);
+                }
+            });
+        }
+        Cache cache = cacheManager.getCache(CacheConfig.EMPLOYEES_CACHE);
+        if (cache != null && cache.getNativeCache() instanceof com.github.benmanes.caffeine.cache.Cache<?, ?> caffeine) {
+            for (Object value : caffeine.asMap().values()) {
+                if (value instanceof EmployeeView employee) {
+                    employees.put(employee.getId(), employee);
+                }
+            }
+        }
+        EmployeeSnapshotFile.write(path, employees.values(), takenAt, databaseId());
+        log.debug("Wrote {} employees to the snapshot {}", employees.size(), path);
+    }
+
+    // the delta since the snapshot, a page at a time. the changed employees are evicted, the cache may have taken
+    // them from the snapshot already
+    void reconcile() {
+        EmployeeSnapshotFile snapshot = loaded;
+        if (snapshot == null || reconciled) {
+            return;
+        }
+        long start = System.nanoTime();
+        Cache cache = cacheManager.getCache(CacheConfig.EMPLOYEES_CACHE);
+        int changed = 0;
+        int deleted = 0;
+        EmployeeDelta delta = employeeService.getEmployeesModifiedSince(snapshot.getTakenAt().minus(overlap), 0,
+                RECONCILE_PAGE_SIZE);
+        while (true) {
+            delta.getChanged().forEach(employee -> evict(cache, employee.getId()));
+            delta.getDeleted().forEach(id -> evict(cache, id));
+            changed += delta.getChanged().size();
+            deleted += delta.getDeleted().size();
+            if (delta.isComplete()) {
+                break;
+            }
+            delta = employeeService.getEmployeesModifiedSince(delta.getNextModifiedSince(), delta.getNextAfterId(),
+                    RECONCILE_PAGE_SIZE);
+        }
+        reconciled = true;
+        log.info("Reconciled the employee snapshot ({} employees) with {} changes and {} deletes in {} ms",
+                snapshot.size(), changed, deleted, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private void evict(Cache cache, long id) {
+        markStale(id);
+        if (cache != null) {
+            cache.evict(id);
+        }
+    }
+
+    private EmployeeSnapshotFile load() {
+        if (!Files.exists(path)) {
+            return null;
+        }
+        try {
+            EmployeeSnapshotFile snapshot = EmployeeSnapshotFile.open(path);
+            if (snapshot.getTakenAt().isBefore(Instant.now().minus(maxAge))) {
+                log.info("Employee snapshot {} was taken at {}, more than {} ago, not used", path,
+                        snapshot.getTakenAt(), maxAge);
+                return null;
+            }
+            if (!snapshot.getDatabaseId().equals(databaseId())) {
+                log.info("Employee snapshot {} was taken from another database, not used", path);
+                return null;
+            }
+            log.info("Serving {} employees from the snapshot {} taken at {}", snapshot.size(), path,
+                    snapshot.getTakenAt());
+            return snapshot;
+        } catch (IOException e) {
+            log.warn("Could not read the employee snapshot {}: {}", path, e.getMessage());
+            return null;
+        } catch (DataAccessException e) {
+            log.warn("Could not check the database of the employee snapshot {}: {}", path, e.getMessage());
+            return null;
+        }
+    }
+
+    private UUID databaseId() {
+        UUID databaseId = this.databaseId;
+        if (databaseId == null) {
+            databaseId = databaseIdentityRepository.getDatabaseId();
+            this.databaseId = databaseId;
+        }
+        return databaseId;
+    }
+
+    // what the cache took from a snapshot that could not be reconciled in time is dropped with it
+    private void expire() {
+        Cache cache = cacheManager.getCache(CacheConfig.EMPLOYEES_CACHE);
+        if (!reconciled && cache != null) {
+            cache.clear();
+        }
+        retire();
+    }
+
+    // a failed reconciliation is tried again with the next write, until the snapshot is retired
+    private void reconcileQuietly() {
+        try {
+            reconcile();
+        } catch (RuntimeException e) {
+            log.warn("Could not reconcile the employee snapshot: {}", e.getMessage());
+        }
+    }
+
+    private void writeQuietly() {
+        reconcileQuietly();
+        try {
+            write();
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not write the employee snapshot {}: {}", path, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package com.mbaday.springboottesting.snapshot;
+
+import com.mbaday.springboottesting.dto.EmployeeView;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+// read-only snapshot of employees, memory-mapped and looked up by id without reading the file into the heap.
+// layout: a header (magic, format version, entry count, time taken, the DatabaseIdentity of the database it was
+// taken from), the index (id and record offset per entry,
+// sorted by id, binary searched) and the records (version, then first name, last name and email as UTF-8 with an
+// unsigned 16 bit length, 0xFFFF for null). a snapshot is written to a temporary file and moved into place, a
+// reader never sees a half written one. mapped in one piece, so at most 2GB
+public final class EmployeeSnapshotFile {
+
+    private static final int MAGIC = 0x454D5053;
+
+    private static final int FORMAT_VERSION = 2;
+
+    private static final int HEADER_BYTES = 4 + 4 + 4 + 8 + 16;
+
+    private static final int INDEX_ENTRY_BYTES = 8 + 4;
+
+    private static final int NULL_LENGTH = 0xFFFF;
+
+    private final ByteBuffer buffer;
+
+    private final int size;
+
+    private final Instant takenAt;
+
+    private final UUID databaseId;
+
+    private final int dataStart;
+
+    private EmployeeSnapshotFile(ByteBuffer buffer, int size, Instant takenAt, UUID databaseId) {
+        this.buffer = buffer;
+        this.size = size;
+        this.takenAt = takenAt;
+        this.databaseId = databaseId;
+        this.dataStart = HEADER_BYTES + size * INDEX_ENTRY_BYTES;
+    }
+
+    // maps the file, the mapping stays valid after the file has been replaced by a newer snapshot
+    public static EmployeeSnapshotFile open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long length = channel.size();
+            if (length < HEADER_BYTES || length > Integer.MAX_VALUE) {
+                throw new IOException(path + " is not an employee snapshot (" + length + " bytes)");
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+            int size = buffer.getInt(8);
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != FORMAT_VERSION || size < 0
+                    || HEADER_BYTES + (long) size * INDEX_ENTRY_BYTES > length) {
+                throw new IOException(path + " is not an employee snapshot of format " + FORMAT_VERSION);
+            }
+            return new EmployeeSnapshotFile(buffer, size, Instant.ofEpochMilli(buffer.getLong(12)),
+                    new UUID(buffer.getLong(20), buffer.getLong(28)));
+        }
+    }
+
+    // employees whose names or email do not fit the 16 bit lengths are left out, they are read from the database
+    public static void write(Path path, Collection<EmployeeView> employees, Instant takenAt, UUID databaseId)
+            throws IOException {
+        List<EmployeeView> sorted = new ArrayList<>(employees.size());
+        for (EmployeeView employee : employees) {
+            if (fits(employee.getFirstName()) && fits(employee.getLastName()) && fits(employee.getEmail())) {
+                sorted.add(employee);
+            }
+        }
+        sorted.sort(Comparator.comparingLong(EmployeeView::getId));
+        int dataStart = HEADER_BYTES + sorted.size() * INDEX_ENTRY_BYTES;
+
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            // the records first, behind the space of the index, which then gets their offsets
+            ByteBuffer index = ByteBuffer.allocate(dataStart);
+            index.putInt(MAGIC).putInt(FORMAT_VERSION).putInt(sorted.size()).putLong(takenAt.toEpochMilli())
+                    .putLong(databaseId.getMostSignificantBits()).putLong(databaseId.getLeastSignificantBits());
+            channel.position(dataStart);
+            DataOutputStream records = new DataOutputStream(
+                    new BufferedOutputStream(Channels.newOutputStream(channel), 64 * 1024));
+            for (EmployeeView employee : sorted) {
+                if (dataStart + (long) records.size() > Integer.MAX_VALUE) {
+                    throw new IOException("Employee snapshot would exceed 2GB");
+                }
+                index.putLong(employee.getId()).putInt(records.size());
+                records.writeLong(employee.getVersion());
+                writeString(records, employee.getFirstName());
+                writeString(records, employee.getLastName());
+                writeString(records, employee.getEmail());
+            }
+            records.flush();
+            index.flip();
+            while (index.hasRemaining()) {
+                channel.write(index, index.position());
+            }
+            channel.force(true);
+        }
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public Optional<EmployeeView> find(long id) {
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            long middleId = buffer.getLong(HEADER_BYTES + middle * INDEX_ENTRY_BYTES);
+            if (middleId < id) {
+                low = middle + 1;
+            } else if (middleId > id) {
+                high = middle - 1;
+            } else {
+                return Optional.of(read(middle));
+            }
+        }
+        return Optional.empty();
+    }
+
+    public void forEach(Consumer<EmployeeView> consumer) {
+        for (int i = 0; i < size; i++) {
+            consumer.accept(read(i));
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public Instant getTakenAt() {
+        return takenAt;
+    }
+
+    public UUID getDatabaseId() {
+        return databaseId;
+    }
+
+    // absolute reads only, the buffer is shared by all request threads
+    private EmployeeView read(int entry) {
+        int indexEntry = HEADER_BYTES + entry * INDEX_ENTRY_BYTES;
+        long id = buffer.getLong(indexEntry);
+        int position = dataStart + buffer.getInt(indexEntry + 8);
+        long version = buffer.getLong(position);
+        position += 8;
+        String firstName = readString(position);
+        position += stringBytes(position);
+        String lastName = readString(position);
+        position += stringBytes(position);
+        String email = readString(position);
+        return new EmployeeView(id, firstName, lastName, email, version);
+    }
+
+    private String readString(int position) {
+        int length = Short.toUnsignedInt(buffer.getShort(position));
+        if (length == NULL_LENGTH) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(position + 2, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private int stringBytes(int position) {
+        int length = Short.toUnsignedInt(buffer.getShort(position));
+        return 2 + (length == NULL_LENGTH ? 0 : length);
+    }
+
+    private static void writeString(DataOutputStream output, String value) throws IOException {
+        if (value == null) {
+            output.writeShort(NULL_LENGTH);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        output.writeShort(bytes.length);
+        output.write(bytes);
+    }
+
+    private static boolean fits(String value) {
+        // a UTF-8 encoding takes at most 3 bytes per char, only long strings need to be encoded to find out
+        return value == null || value.length() * 3 < NULL_LENGTH
+                || value.getBytes(StandardCharsets.UTF_8).length < NULL_LENGTH;
+    }
+}
@@ -0,0 +1,129 @@
+package com.mbaday.springboottesting.snapshot;
+
+import com.mbaday.springboottesting.dto.EmployeeView;
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.SimpleValueWrapper;
+
+import java.util.Optional;
+import java.util.concurrent.Callable;
+
+// the employees cache with the snapshot behind it: a miss is answered from the snapshot, and the employee put into
+// the cache, before it goes on to the database. every put and evict marks the employee stale in the snapshot (the
+// cache has the current version, or the database has a newer one), a clear retires the snapshot
+public class SnapshotBackedCache implements Cache {
+
+    private final Cache delegate;
+
+    // attached by the snapshot once it has been loaded, the cache is created before it. a plain cache until then
+    private volatile EmployeeSnapshot snapshot;
+
+    public SnapshotBackedCache(Cache delegate) {
+        this.delegate = delegate;
+    }
+
+    void attach(EmployeeSnapshot snapshot) {
+        this.snapshot = snapshot;
+    }
+
+    public Cache getDelegate() {
+        return delegate;
+    }
+
+    @Override
+    public String getName() {
+        return delegate.getName();
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return delegate.getNativeCache();
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        ValueWrapper cached = delegate.get(key);
+        EmployeeSnapshot snapshot = this.snapshot;
+        if (cached != null || snapshot == null || !(key instanceof Long id)) {
+            return cached;
+        }
+        Optional<EmployeeView> employee = snapshot.find(id);
+        if (employee.isEmpty()) {
+            return null;
+        }
+        delegate.put(key, employee.get());
+        // an evict that came in after the snapshot was read (a write, the reconciliation) may have missed the put
+        if (snapshot.isStale(id)) {
+            delegate.evict(key);
+            return null;
+        }
+        return new SimpleValueWrapper(employee.get());
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Class<T> type) {
+        ValueWrapper wrapper = get(key);
+        Object value = wrapper == null ? null : wrapper.get();
+        if (value != null && type != null && !type.isInstance(value)) {
+            throw new IllegalStateException("Cached value is not of required type [" + type.getName() + "]: " + value);
+        }
+        return (T) value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        ValueWrapper wrapper = get(key);
+        return wrapper != null ? (T) wrapper.get() : delegate.get(key, valueLoader);
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        markStale(key);
+        delegate.put(key, value);
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+        markStale(key);
+        return delegate.putIfAbsent(key, value);
+    }
+
+    @Override
+    public void evict(Object key) {
+        markStale(key);
+        delegate.evict(key);
+    }
+
+    @Override
+    public boolean evictIfPresent(Object key) {
+        markStale(key);
+        return delegate.evictIfPresent(key);
+    }
+
+    @Override
+    public void clear() {
+        retire();
+        delegate.clear();
+    }
+
+    @Override
+    public boolean invalidate() {
+        retire();
+        return delegate.invalidate();
+    }
+
+    private void markStale(Object key) {
+        EmployeeSnapshot snapshot = this.snapshot;
+        if (snapshot != null && key instanceof Long id) {
+            snapshot.markStale(id);
+        }
+    }
+
+    private void retire() {
+        EmployeeSnapshot snapshot = this.snapshot;
+        if (snapshot != null) {
+            snapshot.retire();
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.mbaday.springboottesting.throttle;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// how many requests may be in flight at once, adjusted to the latency they see (the gradient algorithm of
+// Netflix' concurrency-limits). every sample, the time a request spent in the database, is compared with the
+// long-term average: while requests take no longer than tolerance times the average the limit grows by about its
+// square root, once they do (the database is saturated, connections are waited for) it shrinks in proportion.
+// requests over the limit are rejected right away instead of queueing for the pool
+public final class AdaptiveConcurrencyLimit {
+
+    // samples in the long-term average, and the weight of a new limit against the current one
+    private static final int WINDOW = 600;
+
+    private static final double SMOOTHING = 0.2;
+
+    private final int minLimit;
+
+    private final int maxLimit;
+
+    private final double tolerance;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private final AtomicLong averageNanos = new AtomicLong();
+
+    // written by whichever request finished last, a lost update only delays the adjustment by one sample
+    private volatile double limit;
+
+    public AdaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit, double tolerance) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.tolerance = tolerance;
+        this.limit = initialLimit;
+    }
+
+    public boolean tryAcquire() {
+        if (inFlight.incrementAndGet() > (int) limit) {
+            inFlight.decrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    public void release() {
+        inFlight.decrementAndGet();
+    }
+
+    // latencyNanos spent in the database by a request that held a slot from tryAcquire until now
+    public void release(long latencyNanos) {
+        int active = inFlight.getAndDecrement();
+        long latency = Math.max(latencyNanos, 1);
+        long average = averageNanos.updateAndGet(current ->
+                current == 0 ? latency : current + (latency - current) / WINDOW);
+
+        double current = limit;
+        double gradient = Math.max(0.5, Math.min(1.0, tolerance * average / latency));
+        // far below the limit there is nothing to learn about raising it
+        if (gradient == 1.0 && active < current / 2) {
+            return;
+        }
+        double next = current * gradient + Math.sqrt(current);
+        limit = Math.max(minLimit, Math.min(maxLimit, current * (1 - SMOOTHING) + next * SMOOTHING));
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    // the long-term average the samples are compared with
+    public long getAverageNanos() {
+        return averageNanos.get();
+    }
+}
@@ -0,0 +1,195 @@
+package com.mbaday.springboottesting.throttle;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import com.mbaday.springboottesting.datasource.StatementCounter;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.PathContainer;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import java.io.IOException;
+import java.security.Principal;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// admission control in front of the employee API, before a request gets near the connection pool:
+// 1. a token bucket per client (see client) and endpoint (429 with Retry-After when it is empty). endpoints without a limit of
+//    their own share the default bucket of the client
+// 2. the adaptive concurrency limit over all requests (503 when the database is slow and the limit is reached),
+//    except the exempt paths: long-polls and event streams that spend most of their time waiting, not querying.
+//    the limit learns from the database time of each request (StatementCounter), not from how long the whole
+//    request took: that depends as much on the endpoint and the size of the response as on the database
+// rejections are counted as employees.load-shedding.rejections, by reason
+public class LoadSheddingFilter extends OncePerRequestFilter {
+
+    public static final String REJECTIONS_COUNTER = "employees.load-shedding.rejections";
+
+    // a rate limit for the requests matching method and path (a path pattern such as /api/employees/{id})
+    public record EndpointRateLimit(String method, String path, double perSecond, int burst) {
+    }
+
+    private record BucketKey(String client, int endpoint) {
+    }
+
+    private final List<EndpointRateLimit> endpointLimits;
+
+    private final List<PathPattern> endpointPatterns;
+
+    private final EndpointRateLimit defaultLimit;
+
+    private final List<PathPattern> concurrencyExemptPatterns;
+
+    private final String clientHeader;
+
+    private final AdaptiveConcurrencyLimit concurrencyLimit;
+
+    private final Cache<BucketKey, TokenBucket> buckets;
+
+    private final Counter rateLimited;
+
+    private final Counter shed;
+
+    public LoadSheddingFilter(List<EndpointRateLimit> endpointLimits, EndpointRateLimit defaultLimit,
+                              String clientHeader, AdaptiveConcurrencyLimit concurrencyLimit,
+                              List<String> concurrencyExemptPaths, MeterRegistry meterRegistry) {
+        this.endpointLimits = List.copyOf(endpointLimits);
+        this.endpointPatterns = endpointLimits.stream()
+                .map(limit -> PathPatternParser.defaultInstance.parse(limit.path()))
+                .toList();
+        this.defaultLimit = defaultLimit;
+        this.concurrencyExemptPatterns = concurrencyExemptPaths.stream()
+                .map(PathPatternParser.defaultInstance::parse)
+                .toList();
+        this.clientHeader = clientHeader;
+        this.concurrencyLimit = concurrencyLimit;
+        // an idle client's bucket is full again anyway, forgetting it changes nothing
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(100_000)
+                .expireAfterAccess(Duration.ofMinutes(10))
+                .build();
+        this.rateLimited = Counter.builder(REJECTIONS_COUNTER).tag("reason", "rate-limit").register(meterRegistry);
+        this.shed = Counter.builder(REJECTIONS_COUNTER).tag("reason", "concurrency").register(meterRegistry);
+        Gauge.builder("employees.load-shedding.concurrency.limit", concurrencyLimit,
+                AdaptiveConcurrencyLimit::getLimit).register(meterRegistry);
+        Gauge.builder("employees.load-shedding.concurrency.in-flight", concurrencyLimit,
+                AdaptiveConcurrencyLimit::getInFlight).register(meterRegistry);
+        Gauge.builder("employees.load-shedding.concurrency.database-time", concurrencyLimit,
+                limit -> limit.getAverageNanos() / 1_000_000.0).baseUnit("milliseconds").register(meterRegistry);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        PathContainer path = PathContainer.parsePath(
+                request.getRequestURI().substring(request.getContextPath().length()));
+        int endpoint = endpoint(request.getMethod(), path);
+        EndpointRateLimit limit = endpoint < 0 ? defaultLimit : endpointLimits.get(endpoint);
+        long now = System.nanoTime();
+        TokenBucket bucket = buckets.get(new BucketKey(client(request), endpoint),
+                key -> new TokenBucket(limit.perSecond(), limit.burst(), now));
+        long wait = bucket.tryAcquire(now);
+        if (wait > 0) {
+            rateLimited.increment();
+            response.setHeader(HttpHeaders.RETRY_AFTER,
+                    String.valueOf(Math.max(1, TimeUnit.NANOSECONDS.toSeconds(wait + 999_999_999L))));
+            response.sendError(HttpStatus.TOO_MANY_REQUESTS.value());
+            return;
+        }
+
+        if (concurrencyExemptPatterns.stream().anyMatch(pattern -> pattern.matches(path))) {
+            chain.doFilter(request, response);
+            return;
+        }
+        if (!concurrencyLimit.tryAcquire()) {
+            shed.increment();
+            response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+            response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value());
+            return;
+        }
+        boolean async = false;
+        StatementCounter.Scope database = StatementCounter.open();
+        try {
+            chain.doFilter(request, response);
+            async = request.isAsyncStarted();
+        } finally {
+            database.close();
+            if (async) {
+                releaseOnCompletion(request);
+            } else if (database.getDatabaseNanos() > 0) {
+                concurrencyLimit.release(database.getDatabaseNanos());
+            } else {
+                // served without the database (from a cache), nothing to learn about it
+                concurrencyLimit.release();
+            }
+        }
+    }
+
+    // a streamed response keeps its slot (and its connection) until it is written. its duration says nothing
+    // about the database latency, it is not taken as a sample
+    private void releaseOnCompletion(HttpServletRequest request) {
+        AtomicBoolean released = new AtomicBoolean();
+        request.getAsyncContext().addListener(new AsyncListener() {
+            @Override
+            public void onComplete(AsyncEvent event) {
+                release();
+            }
+
+            @Override
+            public void onTimeout(AsyncEvent event) {
+                release();
+            }
+
+            @Override
+            public void onError(AsyncEvent event) {
+                release();
+            }
+
+            @Override
+            public void onStartAsync(AsyncEvent event) {
+            }
+
+            private void release() {
+                if (released.compareAndSet(false, true)) {
+                    concurrencyLimit.release();
+                }
+            }
+        });
+    }
+
+    private int endpoint(String method, PathContainer path) {
+        for (int i = 0; i < endpointPatterns.size(); i++) {
+            if (endpointLimits.get(i).method().equalsIgnoreCase(method)
+                    && endpointPatterns.get(i).matches(path)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // never a value the client can choose: the authenticated user, else the client header when one is configured
+    // (only a gateway that sets it on every request can be trusted with it), else the address of the request.
+    // behind a load balancer that is the forwarded address with server.forward-headers-strategy set, Tomcat takes
+    // it from internal proxies only
+    private String client(HttpServletRequest request) {
+        Principal principal = request.getUserPrincipal();
+        if (principal != null) {
+            return "user:" + principal.getName();
+        }
+        String client = clientHeader.isEmpty() ? null : request.getHeader(clientHeader);
+        return client != null && !client.isBlank() ? client : request.getRemoteAddr();
+    }
+}
@@ -0,0 +1,36 @@
+package com.mbaday.springboottesting.throttle;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// token bucket kept as a single timestamp (the generic cell rate algorithm): the time at which the bucket would be
+// full again. taking a token moves it one emission interval ahead, a CAS on one AtomicLong, so concurrent
+// requests of the same client never block each other
+public final class TokenBucket {
+
+    private final long emissionIntervalNanos;
+
+    private final long burstToleranceNanos;
+
+    private final AtomicLong fullAt;
+
+    public TokenBucket(double perSecond, int burst, long nowNanos) {
+        this.emissionIntervalNanos = (long) (1_000_000_000L / perSecond);
+        this.burstToleranceNanos = emissionIntervalNanos * (Math.max(burst, 1) - 1);
+        this.fullAt = new AtomicLong(nowNanos);
+    }
+
+    // 0 when a token was taken, otherwise the nanoseconds until the next one is available
+    public long tryAcquire(long nowNanos) {
+        while (true) {
+            long current = fullAt.get();
+            long from = Math.max(current, nowNanos);
+            long wait = from - nowNanos - burstToleranceNanos;
+            if (wait > 0) {
+                return wait;
+            }
+            if (fullAt.compareAndSet(current, from + emissionIntervalNanos)) {
+                return 0;
+            }
+        }
+    }
+}
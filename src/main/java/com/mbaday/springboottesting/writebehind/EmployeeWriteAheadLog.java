@@ -0,0 +1,196 @@
+package com.mbaday.springboottesting.writebehind;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mbaday.springboottesting.model.Employee;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// local write-ahead file of the accepted creates, one JSON line per record: {"ticket","employee"} when a create is
+// accepted, {"ticket"} once it has been written to the database. on startup everything accepted but not written
+// is handed back. accepted records are on disk (fsync) before append returns; concurrent appends share one fsync
+// (group commit). the file is rewritten with the open records only once it grows past compactSize
+@Slf4j
+public class EmployeeWriteAheadLog implements Closeable {
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public record Entry(String ticket, Employee employee) {
+    }
+
+    private final Path path;
+
+    private final ObjectMapper objectMapper;
+
+    private final long compactSize;
+
+    private final Object syncLock = new Object();
+
+    // the lines of the records not written to the database yet, what a compaction keeps
+    private final Map<String, String> open = new LinkedHashMap<>();
+
+    private FileChannel channel;
+
+    // bytes appended since the log was opened, and how many of them are known to be on disk. logical offsets,
+    // they keep counting across compactions
+    private volatile long written;
+
+    private long synced;
+
+    public EmployeeWriteAheadLog(Path path, ObjectMapper objectMapper, long compactSize) {
+        this.path = path;
+        this.objectMapper = objectMapper;
+        this.compactSize = compactSize;
+    }
+
+    // reads the records left by the previous run and opens the log for appending. a torn last line (crash in the
+    // middle of a write) was never acknowledged and is skipped
+    public synchronized List<Entry> recover() throws IOException {
+        List<Entry> pending = new ArrayList<>();
+        if (Files.exists(path)) {
+            try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    Entry entry;
+                    try {
+                        entry = objectMapper.readValue(line, Entry.class);
+                    } catch (JsonProcessingException e) {
+                        log.warn("Skipping unreadable write-ahead record in {}", path);
+                        continue;
+                    }
+                    if (entry.employee() != null) {
+                        open.put(entry.ticket(), line);
+                    } else {
+                        open.remove(entry.ticket());
+                    }
+                }
+            }
+            for (String line : open.values()) {
+                pending.add(objectMapper.readValue(line, Entry.class));
+            }
+        } else if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        rewrite();
+        return pending;
+    }
+
+    // returns once the record is on disk
+    public void appendAccepted(String ticket, Employee employee) {
+        sync(append(ticket, toLine(new Entry(ticket, employee))));
+    }
+
+    // not forced: a record lost here is only written again after a crash, and then reported as a duplicate
+    public synchronized void appendCompleted(Collection<String> tickets) {
+        StringBuilder lines = new StringBuilder();
+        for (String ticket : tickets) {
+            if (open.remove(ticket) != null) {
+                lines.append(toLine(new Entry(ticket, null)));
+            }
+        }
+        write(lines.toString());
+        try {
+            if (channel.size() > compactSize) {
+                rewrite();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public synchronized int openRecords() {
+        return open.size();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        synchronized (syncLock) {
+            channel.close();
+        }
+    }
+
+    private synchronized long append(String ticket, String line) {
+        open.put(ticket, line.stripTrailing());
+        return write(line);
+    }
+
+    private long write(String lines) {
+        if (lines.isEmpty()) {
+            return written;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(lines.getBytes(StandardCharsets.UTF_8));
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        written += buffer.limit();
+        return written;
+    }
+
+    // whoever gets the lock first forces everything appended so far, the appends that queued up behind it
+    // find their bytes synced already
+    private void sync(long position) {
+        synchronized (syncLock) {
+            if (synced >= position) {
+                return;
+            }
+            long end = written;
+            try {
+                channel.force(false);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            synced = end;
+        }
+    }
+
+    // the open records go to a new file that replaces the log in one atomic move
+    private void rewrite() throws IOException {
+        Path compacted = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel target = FileChannel.open(compacted, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            StringBuilder lines = new StringBuilder();
+            open.values().forEach(line -> lines.append(line).append('\n'));
+            ByteBuffer buffer = ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.UTF_8));
+            while (buffer.hasRemaining()) {
+                target.write(buffer);
+            }
+            target.force(true);
+        }
+        synchronized (syncLock) {
+            if (channel != null) {
+                channel.close();
+            }
+            Files.move(compacted, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            channel = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            synced = written;
+        }
+    }
+
+    private String toLine(Entry entry) {
+        try {
+            return objectMapper.writeValueAsString(entry) + "\n";
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package com.mbaday.springboottesting.writebehind;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.mbaday.springboottesting.dto.BulkImportResult;
+import com.mbaday.springboottesting.dto.BulkImportRowResult;
+import com.mbaday.springboottesting.dto.EmployeeCreateStatus;
+import com.mbaday.springboottesting.model.Employee;
+import com.mbaday.springboottesting.service.EmployeeImportService;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.TransactionSystemException;
+import org.springframework.util.unit.DataSize;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+// write-behind for employee creation (opt-in, employees.write-behind.enabled). an accepted create is in the local
+// write-ahead log before the caller gets its ticket; a single writer drains the queue in batches through the bulk
+// import (one duplicate check, JDBC batch and commit per batch, search index and invalidation outbox included).
+// capacity bounds the creates accepted but not yet committed, beyond it accept() refuses and the caller is told
+// to back off. a batch that fails on something that passes (database down, lock timeout) is retried until it goes
+// through. any other failure would come back on every retry: the batch is split until the creates causing it are
+// found, those are completed as INVALID
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "employees.write-behind.enabled", havingValue = "true")
+public class EmployeeWriteBehindQueue {
+
+    public static final String PENDING_GAUGE = "employees.write-behind.pending";
+
+    private EmployeeImportService importService;
+
+    private EmployeeWriteAheadLog writeAheadLog;
+
+    private int capacity;
+
+    private int batchSize;
+
+    private Duration retryInterval;
+
+    private Duration shutdownTimeout;
+
+    private final BlockingQueue<EmployeeWriteAheadLog.Entry> queue = new LinkedBlockingQueue<>();
+
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+
+    // outcome of the creates written by now, kept for a while for the clients polling their ticket
+    private Cache<String, EmployeeCreateStatus> outcomes;
+
+    private Semaphore permits;
+
+    private Thread writer;
+
+    private volatile boolean stopping;
+
+    @Autowired
+    public EmployeeWriteBehindQueue(EmployeeImportService importService, ObjectMapper objectMapper,
+                                    MeterRegistry meterRegistry,
+                                    @Value("${employees.write-behind.wal-path:data/employees-write-behind.wal}") Path walPath,
+                                    @Value("${employees.write-behind.wal-compact-size:16MB}") DataSize walCompactSize,
+                                    @Value("${employees.write-behind.capacity:10000}") int capacity,
+                                    @Value("${employees.write-behind.batch-size:500}") int batchSize,
+                                    @Value("${employees.write-behind.retry-interval:1s}") Duration retryInterval,
+                                    @Value("${employees.write-behind.status-retention:1h}") Duration statusRetention,
+                                    @Value("${employees.write-behind.shutdown-timeout:30s}") Duration shutdownTimeout) {
+        this.importService = importService;
+        this.writeAheadLog = new EmployeeWriteAheadLog(walPath, objectMapper, walCompactSize.toBytes());
+        this.capacity = capacity;
+        this.batchSize = batchSize;
+        this.retryInterval = retryInterval;
+        this.shutdownTimeout = shutdownTimeout;
+        this.outcomes = Caffeine.newBuilder()
+                .maximumSize(Math.max(capacity, 10_000))
+                .expireAfterWrite(statusRetention)
+                .build();
+        Gauge.builder(PENDING_GAUGE, pending, Set::size).register(meterRegistry);
+    }
+
+    // the creates a crash interrupted are queued again before the first new one is accepted. they may take
+    // the queue over capacity, new creates are refused until it has drained below it
+    @PostConstruct
+    public void start() throws IOException {
+        List<EmployeeWriteAheadLog.Entry> recovered = writeAheadLog.recover();
+        if (!recovered.isEmpty()) {
+            log.info("Recovered {} accepted employee create(s) from the write-ahead log", recovered.size());
+        }
+        for (EmployeeWriteAheadLog.Entry entry : recovered) {
+            pending.add(entry.ticket());
+            queue.add(entry);
+        }
+        permits = new Semaphore(capacity - recovered.size());
+
+        writer = new Thread(this::drain, "employee-write-behind");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    // the current batch is finished, whatever is still queued stays in the log for the next start
+    @PreDestroy
+    public void stop() throws IOException, InterruptedException {
+        stopping = true;
+        writer.join(shutdownTimeout.toMillis());
+        writeAheadLog.close();
+    }
+
+    // the ticket of the accepted create, empty when the queue is full. durable once this returns
+    public Optional<String> accept(Employee employee) {
+        if (stopping || !permits.tryAcquire()) {
+            return Optional.empty();
+        }
+        String ticket = UUID.randomUUID().toString();
+        Employee newEmployee = employee.toBuilder().id(0L).version(0L).build();
+        try {
+            writeAheadLog.appendAccepted(ticket, newEmployee);
+        } catch (RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+        pending.add(ticket);
+        queue.add(new EmployeeWriteAheadLog.Entry(ticket, newEmployee));
+        return Optional.of(ticket);
+    }
+
+    public Optional<EmployeeCreateStatus> status(String ticket) {
+        if (pending.contains(ticket)) {
+            return Optional.of(new EmployeeCreateStatus(ticket, EmployeeCreateStatus.Status.PENDING, null, null));
+        }
+        return Optional.ofNullable(outcomes.getIfPresent(ticket));
+    }
+
+    private void drain() {
+        List<EmployeeWriteAheadLog.Entry> batch = new ArrayList<>(batchSize);
+        try {
+            while (!stopping) {
+                EmployeeWriteAheadLog.Entry first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                write(batch);
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // the batch is imported in one transaction, after a failure none of it was written
+    private void write(List<EmployeeWriteAheadLog.Entry> batch) throws InterruptedException {
+        while (true) {
+            try {
+                BulkImportResult result = importService.importBatch(
+                        batch.stream().map(EmployeeWriteAheadLog.Entry::employee).collect(Collectors.toList()));
+                complete(batch, result);
+                return;
+            } catch (RuntimeException e) {
+                if (stopping) {
+                    return;
+                }
+                if (!isTransient(e)) {
+                    writeApart(batch, e);
+                    return;
+                }
+                log.warn("Could not write {} accepted employee create(s), retrying in {}: {}", batch.size(),
+                        retryInterval, e.getMessage());
+                Thread.sleep(retryInterval.toMillis());
+            }
+        }
+    }
+
+    // halves until the creates that fail are on their own, the others are written in the smaller batches
+    private void writeApart(List<EmployeeWriteAheadLog.Entry> batch, RuntimeException failure)
+            throws InterruptedException {
+        if (batch.size() == 1) {
+            EmployeeWriteAheadLog.Entry entry = batch.get(0);
+            log.warn("Accepted employee create {} cannot be written: {}", entry.ticket(), failure.getMessage());
+            complete(List.of(entry.ticket()), List.of(new EmployeeCreateStatus(entry.ticket(),
+                    EmployeeCreateStatus.Status.INVALID, null, "Could not be written: " + failure.getMessage())));
+            return;
+        }
+        int half = batch.size() / 2;
+        write(batch.subList(0, half));
+        write(batch.subList(half, batch.size()));
+    }
+
+    // failures that may not happen again: the database or the connection to it, a lock or query timeout, a deadlock
+    static boolean isTransient(RuntimeException e) {
+        return e instanceof TransientDataAccessException
+                || e instanceof RecoverableDataAccessException
+                || e instanceof DataAccessResourceFailureException
+                || e instanceof CannotCreateTransactionException
+                || e instanceof TransactionSystemException;
+    }
+
+    // a create replayed after a crash that came between its commit and its completion record finds its own row
+    // and is reported as a duplicate
+    private void complete(List<EmployeeWriteAheadLog.Entry> batch, BulkImportResult result) {
+        List<String> tickets = new ArrayList<>(batch.size());
+        List<EmployeeCreateStatus> statuses = new ArrayList<>(batch.size());
+        for (BulkImportRowResult row : result.getRows()) {
+            String ticket = batch.get((int) row.getIndex()).ticket();
+            statuses.add(new EmployeeCreateStatus(ticket,
+                    EmployeeCreateStatus.Status.valueOf(row.getStatus().name()), row.getId(), row.getMessage()));
+            tickets.add(ticket);
+        }
+        complete(tickets, statuses);
+    }
+
+    private void complete(List<String> tickets, List<EmployeeCreateStatus> statuses) {
+        statuses.forEach(status -> outcomes.put(status.getTicket(), status));
+        writeAheadLog.appendCompleted(tickets);
+        tickets.forEach(pending::remove);
+        permits.release(tickets.size());
+    }
+}
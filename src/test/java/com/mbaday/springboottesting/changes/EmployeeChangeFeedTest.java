@@ -0,0 +1,156 @@
+package com.mbaday.springboottesting.changes;
+
+import com.mbaday.springboottesting.dto.EmployeeChangeEvent;
+import com.mbaday.springboottesting.dto.EmployeeChangePage;
+import com.mbaday.springboottesting.model.Employee;
+import com.mbaday.springboottesting.model.EmployeeChange;
+import com.mbaday.springboottesting.repository.EmployeeChangeRepository;
+import com.mbaday.springboottesting.repository.EmployeeRepository;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+// the feed reads committed changes, so the test itself runs without a transaction
+@DataJpaTest(properties = "employees.changes.gap-timeout=2s")
+@Import({EmployeeChangeRepository.class, EmployeeChangeFeed.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class EmployeeChangeFeedTest {
+
+    @Autowired
+    private EmployeeChangeFeed changeFeed;
+
+    @Autowired
+    private EmployeeChangeRepository changeRepository;
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    public void tearDown() {
+        jdbcTemplate.update("delete from employee_changes");
+        employeeRepository.deleteAll();
+    }
+
+    // Junit for reading the changes after a seq (in order, with the current employee, deletes without one)
+
+    @Test
+    public void givenCommittedChanges_whenRead_thenChangesInSeqOrderWithCurrentEmployee() {
+        // given- precondition or setup
+        changeFeed.record(EmployeeChange.Type.DELETED, 403L);
+        long since = changeRepository.findLastSeq();
+        Employee employee = employeeRepository.save(Employee.builder()
+                .firstName("Somtochukwu")
+                .lastName("Mbah")
+                .email("victorsomtochukwu@gmail.com")
+                .build());
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            changeFeed.record(EmployeeChange.Type.CREATED, employee.getId());
+            changeFeed.record(EmployeeChange.Type.DELETED, 404L);
+        });
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            changeFeed.record(EmployeeChange.Type.UPDATED, 405L);
+            status.setRollbackOnly();
+        });
+
+        // when- action or behaviour we are going to test
+        EmployeeChangePage page = changeFeed.read(since, 10);
+
+        // the- verify the output
+        Assertions.assertThat(page.getChanges()).extracting(EmployeeChangeEvent::getType)
+                .containsExactly(EmployeeChange.Type.CREATED, EmployeeChange.Type.DELETED);
+        Assertions.assertThat(page.getChanges().get(0).getEmployee().getEmail())
+                .isEqualTo("victorsomtochukwu@gmail.com");
+        Assertions.assertThat(page.getChanges().get(1).getEmployee()).isNull();
+        Assertions.assertThat(page.getNextSince()).isEqualTo(page.getChanges().get(1).getSeq());
+        Assertions.assertThat(changeFeed.read(page.getNextSince(), 10).getChanges()).isEmpty();
+    }
+
+    // Junit for a gap in the seqs (held back while it may still be filled, passed once it is old)
+
+    @Test
+    public void givenGapInSeqs_whenRead_thenStopInFrontOfGapUntilGapTimeout() {
+        // given- precondition or setup
+        changeFeed.record(EmployeeChange.Type.UPDATED, 1L);
+        long first = changeRepository.findLastSeq();
+        // a seq after one that has not committed yet
+        jdbcTemplate.update("insert into employee_changes (seq, employee_id, change_type, changed_at) "
+                + "values (?, 2, 'UPDATED', ?)", first + 2, Timestamp.from(Instant.now()));
+
+        // when- action or behaviour we are going to test
+        EmployeeChangePage beforeTimeout = changeFeed.read(first - 1, 10);
+        jdbcTemplate.update("update employee_changes set changed_at = ? where seq = ?",
+                Timestamp.from(Instant.now().minusSeconds(10)), first + 2);
+        EmployeeChangePage afterTimeout = changeFeed.read(first - 1, 10);
+
+        // the- verify the output
+        Assertions.assertThat(beforeTimeout.getChanges()).extracting(EmployeeChangeEvent::getSeq)
+                .containsExactly(first);
+        Assertions.assertThat(afterTimeout.getChanges()).extracting(EmployeeChangeEvent::getSeq)
+                .containsExactly(first, first + 2);
+    }
+
+    // Junit for compaction (superseded old changes deleted, the last change of every employee kept)
+
+    @Test
+    public void givenOldSupersededChanges_whenCompact_thenLastChangePerEmployeeKept() {
+        // given- precondition or setup
+        changeFeed.record(EmployeeChange.Type.CREATED, List.of(1L, 2L));
+        changeFeed.record(EmployeeChange.Type.UPDATED, 1L);
+        changeFeed.record(EmployeeChange.Type.DELETED, 1L);
+        jdbcTemplate.update("update employee_changes set changed_at = ?",
+                Timestamp.from(Instant.now().minus(Duration.ofDays(30))));
+        changeFeed.record(EmployeeChange.Type.UPDATED, 2L);
+
+        // when- action or behaviour we are going to test
+        int compacted = changeFeed.compact();
+
+        // the- verify the output
+        Assertions.assertThat(compacted).isEqualTo(3);
+        Assertions.assertThat(changeFeed.read(0, 10).getChanges())
+                .extracting(EmployeeChangeEvent::getEmployeeId, EmployeeChangeEvent::getType)
+                .containsExactly(Assertions.tuple(1L, EmployeeChange.Type.DELETED),
+                        Assertions.tuple(2L, EmployeeChange.Type.UPDATED));
+    }
+
+    // Junit for waiting for the next change (answered when it commits, empty page when none comes)
+
+    @Test
+    public void givenUpToDateConsumer_whenChangeCommits_thenAwaitCompletes() throws Exception {
+        // given- precondition or setup
+        changeFeed.record(EmployeeChange.Type.DELETED, 8L);
+        long since = changeRepository.findLastSeq();
+        EmployeeChangePage idle = changeFeed.await(since, 10, Duration.ofMillis(100)).get(5, TimeUnit.SECONDS);
+        CompletableFuture<EmployeeChangePage> waiting = changeFeed.await(since, 10, Duration.ofSeconds(10));
+
+        // when- action or behaviour we are going to test
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                changeFeed.record(EmployeeChange.Type.UPDATED, 9L));
+
+        // the- verify the output
+        Assertions.assertThat(idle.getChanges()).isEmpty();
+        Assertions.assertThat(idle.getNextSince()).isEqualTo(since);
+        EmployeeChangePage page = waiting.get(5, TimeUnit.SECONDS);
+        Assertions.assertThat(page.getChanges()).extracting(EmployeeChangeEvent::getEmployeeId).containsExactly(9L);
+    }
+}
@@ -0,0 +1,96 @@
+package com.mbaday.springboottesting.changes;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mbaday.springboottesting.controller.EmployeeChangeController;
+import com.mbaday.springboottesting.dto.EmployeeChangeEvent;
+import com.mbaday.springboottesting.dto.EmployeeChangePage;
+import com.mbaday.springboottesting.model.EmployeeChange;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentMatchers;
+import org.mockito.BDDMockito;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+@ExtendWith(MockitoExtension.class)
+public class EmployeeChangeStreamsTest {
+
+    @Mock
+    private EmployeeChangeFeed changeFeed;
+
+    private EmployeeChangeStreams changeStreams;
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    public void setUp() {
+        ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+        // one stream at a time, written by a single sender thread
+        changeStreams = new EmployeeChangeStreams(changeFeed, objectMapper, Duration.ofSeconds(15), 1, 1);
+        mockMvc = MockMvcBuilders.standaloneSetup(new EmployeeChangeController(changeFeed, changeStreams, null,
+                objectMapper, Duration.ofSeconds(30))).build();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        changeStreams.stop();
+    }
+
+    // Junit for a stream that is up to date (events written, then waiting without a thread, over the cap refused)
+
+    @Test
+    public void givenChangesThenNone_whenStreamOpen_thenEventsWrittenAndNextStreamRefused() throws Exception {
+        // given- precondition or setup
+        CompletableFuture<EmployeeChangePage> nothingYet = new CompletableFuture<>();
+        BDDMockito.given(changeFeed.await(ArgumentMatchers.eq(0L), ArgumentMatchers.anyInt(), ArgumentMatchers.any()))
+                .willReturn(CompletableFuture.completedFuture(new EmployeeChangePage(List.of(
+                        new EmployeeChangeEvent(1, EmployeeChange.Type.CREATED, 7, Instant.now(), null),
+                        new EmployeeChangeEvent(2, EmployeeChange.Type.DELETED, 8, Instant.now(), null)), 2)));
+        BDDMockito.given(changeFeed.await(ArgumentMatchers.eq(2L), ArgumentMatchers.anyInt(), ArgumentMatchers.any()))
+                .willReturn(nothingYet);
+
+        // when- action or behaviour we are going to test
+        MvcResult stream = mockMvc.perform(MockMvcRequestBuilders.get("/api/employees/changes")
+                        .accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(MockMvcResultMatchers.request().asyncStarted())
+                .andReturn();
+
+        // the- verify the output
+        awaitContent(stream.getResponse(), "id:2\nevent:DELETED\ndata:");
+        Assertions.assertThat(stream.getResponse().getContentAsString())
+                .contains("id:1\nevent:CREATED\ndata:")
+                .contains("id:2\nevent:DELETED\ndata:");
+        BDDMockito.then(changeFeed).should(Mockito.timeout(5000))
+                .await(ArgumentMatchers.eq(2L), ArgumentMatchers.anyInt(), ArgumentMatchers.any());
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/employees/changes").accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(MockMvcResultMatchers.status().isServiceUnavailable());
+    }
+
+    private static void awaitContent(MockHttpServletResponse response, String expected) throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (System.nanoTime() < deadline) {
+            if (response.getContentAsString().contains(expected)) {
+                return;
+            }
+            Thread.sleep(10);
+        }
+        throw new AssertionError("Stream did not contain " + expected + ": " + response.getContentAsString());
+    }
+}
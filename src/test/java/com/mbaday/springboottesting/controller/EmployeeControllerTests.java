@@ -1,26 +1,48 @@
 package com.mbaday.springboottesting.controller;
 
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.mbaday.springboottesting.changes.EmployeeChangeFeed;
+import com.mbaday.springboottesting.changes.EmployeeChangeStreams;
+import com.mbaday.springboottesting.config.WireFormatConfig;
+import com.mbaday.springboottesting.dto.BulkImportResult;
+import com.mbaday.springboottesting.dto.EmployeeDelta;
+import com.mbaday.springboottesting.dto.EmployeeExportJob;
+import com.mbaday.springboottesting.dto.EmployeePatch;
+import com.mbaday.springboottesting.dto.EmployeeSearchHit;
+import com.mbaday.springboottesting.dto.EmployeeView;
+import com.mbaday.springboottesting.exception.ResourceNotFoundException;
+import com.mbaday.springboottesting.export.EmployeeExportJobs;
 import com.mbaday.springboottesting.model.Employee;
+import com.mbaday.springboottesting.search.EmployeeSearchIndex;
+import com.mbaday.springboottesting.service.EmployeeImportService;
 import com.mbaday.springboottesting.service.EmployeeService;
 import org.hamcrest.CoreMatchers;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentMatchers;
 import org.mockito.BDDMockito;
+import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.ResultActions;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.result.MockMvcResultHandlers;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 @WebMvcTest
 public class EmployeeControllerTests {
@@ -34,6 +56,21 @@ public class EmployeeControllerTests {
     @MockBean
     private EmployeeService employeeService;
 
+    @MockBean
+    private EmployeeImportService employeeImportService;
+
+    @MockBean
+    private EmployeeSearchIndex searchIndex;
+
+    @MockBean
+    private EmployeeChangeFeed changeFeed;
+
+    @MockBean
+    private EmployeeChangeStreams changeStreams;
+
+    @MockBean
+    private EmployeeExportJobs exportJobs;
+
 
     // Junit for create Employee
 
@@ -49,7 +86,7 @@ public class EmployeeControllerTests {
 
             // this will return whatever argument we passed to createEmployee method
             BDDMockito.given(employeeService.saveEmployee(ArgumentMatchers.any(Employee.class))).
-                    willAnswer((invocation)->invocation.getArgument(0));
+                    willAnswer((invocation)->EmployeeView.from(invocation.getArgument(0)));
 
             // when- action or behaviour we are going to test
 
@@ -85,7 +122,8 @@ public class EmployeeControllerTests {
                 listOfEmployees.add(Employee.builder().lastName("Azubuine").firstName("Chukwuemeka")
                         .email("azubuine.emeka@gmail.com").build());
 
-                BDDMockito.given(employeeService.getAllEmployees()).willReturn(listOfEmployees);
+                BDDMockito.given(employeeService.getAllEmployees())
+                        .willReturn(listOfEmployees.stream().map(EmployeeView::from).toList());
 
                 // when- action or behaviour we are going to test
 
@@ -98,6 +136,32 @@ public class EmployeeControllerTests {
                                 CoreMatchers.is(listOfEmployees.size())));
             }
 
+            // Junit test for the delta sync (changed employees, tombstones of deleted ones, next watermark)
+
+            @Test
+            public void givenModifiedSince_whenGetAllEmployees_thenReturnDelta() throws Exception{
+                // given- precondition or setup
+                Instant modifiedSince = Instant.parse("2026-01-01T10:00:00Z");
+                EmployeeView changed = new EmployeeView(1L, "Somtochukwu", "Mbah", "victorsomtochukwu@gmail.com", 2L);
+                BDDMockito.given(employeeService.getEmployeesModifiedSince(modifiedSince, 0L, 1000))
+                        .willReturn(new EmployeeDelta(List.of(changed), List.of(7L),
+                                Instant.parse("2026-01-01T10:05:00Z"), 0L, true));
+
+                // when- action or behaviour we are going to test
+                ResultActions response = mockMvc.perform(MockMvcRequestBuilders.get("/api/employees")
+                        .param("modifiedSince", "2026-01-01T10:00:00Z")
+                        .param("size", "5000"));
+
+                // the- verify the output
+                response.andExpect(MockMvcResultMatchers.status().isOk())
+                        .andExpect(MockMvcResultMatchers.jsonPath("$.changed[0].id", CoreMatchers.is(1)))
+                        .andExpect(MockMvcResultMatchers.jsonPath("$.deleted[0]", CoreMatchers.is(7)))
+                        .andExpect(MockMvcResultMatchers.jsonPath("$.nextModifiedSince",
+                                CoreMatchers.is("2026-01-01T10:05:00Z")))
+                        .andExpect(MockMvcResultMatchers.jsonPath("$.complete", CoreMatchers.is(true)));
+                Mockito.verify(employeeService, Mockito.never()).getAllEmployees();
+            }
+
             // Junit test for get employee by id (Positive scenario i.e when there is an employee with the id)
 
                 @Test
@@ -111,7 +175,7 @@ public class EmployeeControllerTests {
                             .build();
                     long employeeId = 1L;
 
-                    BDDMockito.given(employeeService.getEmployeeById(employeeId)).willReturn(Optional.of(employee));
+                    BDDMockito.given(employeeService.getEmployeeById(employeeId)).willReturn(Optional.of(EmployeeView.from(employee)));
 
 
                     // when- action or behaviour we are going to test
@@ -176,10 +240,10 @@ public class EmployeeControllerTests {
                     .build();
             long employeeId = 1L;
 
-            BDDMockito.given(employeeService.getEmployeeById(employeeId)).willReturn(Optional.of(savedEmployee));
+            BDDMockito.given(employeeService.getEmployeeById(employeeId)).willReturn(Optional.of(EmployeeView.from(savedEmployee)));
 
             BDDMockito.given(employeeService.updateEmployee(ArgumentMatchers.any(Employee.class))).
-                    willAnswer(invocation->invocation.getArgument(0));
+                    willAnswer(invocation->EmployeeView.from(invocation.getArgument(0)));
 
             // when- action or behaviour we are going to test
 
@@ -224,7 +288,7 @@ public class EmployeeControllerTests {
         BDDMockito.given(employeeService.getEmployeeById(employeeId)).willReturn(Optional.empty());
 
         BDDMockito.given(employeeService.updateEmployee(ArgumentMatchers.any(Employee.class))).
-                willAnswer(invocation->invocation.getArgument(0));
+                willAnswer(invocation->EmployeeView.from(invocation.getArgument(0)));
 
         // when- action or behaviour we are going to test
 
@@ -242,12 +306,12 @@ public class EmployeeControllerTests {
     // Junit for delete by id
 
         @Test
-        public void givenEmployeeId_whenDeleteById_thenReturn200() throws Exception{
+        public void givenEmployeeId_whenDeleteById_thenReturn204() throws Exception{
             // given- precondition or setup
 
             long employeeId = 1L;
 
-            BDDMockito.willDoNothing().given(employeeService).deleteById(employeeId);
+            BDDMockito.given(employeeService.deleteEmployee(employeeId)).willReturn(true);
 
             // when- action or behaviour we are going to test
 
@@ -255,7 +319,513 @@ public class EmployeeControllerTests {
                     employeeId));
             // the- verify the output
 
-            response.andExpect(MockMvcResultMatchers.status().isOk())
+            response.andExpect(MockMvcResultMatchers.status().isNoContent())
                     .andDo(MockMvcResultHandlers.print());
         }
+
+    // Junit for delete by id (Negative scenario, no row with the id)
+
+    @Test
+    public void givenUnknownId_whenDeleteById_thenReturn404() throws Exception{
+        // given- precondition or setup
+        BDDMockito.given(employeeService.deleteEmployee(2L)).willReturn(false);
+
+        // when- action or behaviour we are going to test
+        ResultActions response = mockMvc.perform(MockMvcRequestBuilders.delete("/api/employees/{id}", 2L));
+
+        // the- verify the output
+        response.andExpect(MockMvcResultMatchers.status().isNotFound());
+    }
+
+    // Junit for bulk delete
+
+    @Test
+    public void givenListOfIds_whenBulkDelete_thenReturnDeletedCount() throws Exception{
+        // given- precondition or setup
+        List<Long> ids = List.of(1L, 2L, 3L);
+        BDDMockito.given(employeeService.deleteEmployees(ids)).willReturn(2);
+
+        // when- action or behaviour we are going to test
+        ResultActions response = mockMvc.perform(MockMvcRequestBuilders.post("/api/employees/bulk-delete")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(ids)));
+
+        // the- verify the output
+        response.andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.requested", CoreMatchers.is(3)))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.deleted", CoreMatchers.is(2)));
+    }
+
+    // Junit test for keyset pagination (full page returns a cursor for the next one)
+
+    @Test
+    public void givenFullPage_whenGetEmployeePage_thenReturnNextCursor() throws Exception{
+        // given- precondition or setup
+        List<Employee> page = List.of(
+                Employee.builder().id(11L).lastName("Mbah").firstName("Somtochukwu")
+                        .email("victorsomtochukwu@gmail.com").build(),
+                Employee.builder().id(12L).lastName("Azubuine").firstName("Chukwuemeka")
+                        .email("azubuine.emeka@gmail.com").build());
+
+        BDDMockito.given(employeeService.getEmployeesAfter(10L, 2))
+                .willReturn(page.stream().map(EmployeeView::from).toList());
+
+        // when- action or behaviour we are going to test
+
+        ResultActions response = mockMvc.perform(MockMvcRequestBuilders.get("/api/employees/page")
+                .param("after", "10")
+                .param("size", "2"));
+        // the- verify the output
+
+        response.andDo(MockMvcResultHandlers.print())
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.content.size()", CoreMatchers.is(2)))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.nextCursor", CoreMatchers.is(12)));
+    }
+
+    // Junit test for keyset pagination (last page has no next cursor)
+
+    @Test
+    public void givenLastPage_whenGetEmployeePage_thenReturnNullCursor() throws Exception{
+        // given- precondition or setup
+        BDDMockito.given(employeeService.getEmployeesAfter(0L, 100)).willReturn(List.of(
+                EmployeeView.from(Employee.builder().id(1L).lastName("Mbah").firstName("Somtochukwu")
+                        .email("victorsomtochukwu@gmail.com").build())));
+
+        // when- action or behaviour we are going to test
+
+        ResultActions response = mockMvc.perform(MockMvcRequestBuilders.get("/api/employees/page"));
+        // the- verify the output
+
+        response.andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.content.size()", CoreMatchers.is(1)))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.nextCursor").doesNotExist());
+    }
+
+    // Junit test for streaming all employees as one JSON array
+
+    @Test
+    public void givenEmployees_whenStreamAllEmployees_thenReturnJsonArray() throws Exception{
+        // given- precondition or setup
+        BDDMockito.willAnswer(invocation -> {
+            Consumer<Employee> consumer = invocation.getArgument(0);
+            consumer.accept(Employee.builder().id(1L).lastName("Mbah").firstName("Somtochukwu")
+                    .email("victorsomtochukwu@gmail.com").build());
+            consumer.accept(Employee.builder().id(2L).lastName("Azubuine").firstName("Chukwuemeka")
+                    .email("azubuine.emeka@gmail.com").build());
+            return null;
+        }).given(employeeService).streamAllEmployees(ArgumentMatchers.any());
+
+        // when- action or behaviour we are going to test
+
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders.get("/api/employees/stream"))
+                .andExpect(MockMvcResultMatchers.request().asyncStarted())
+                .andReturn();
+        // the- verify the output
+
+        mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(result))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.size()", CoreMatchers.is(2)))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[1].email",
+                        CoreMatchers.is("azubuine.emeka@gmail.com")));
+    }
+
+    // Junit test for the employee list in Smile (content negotiation on Accept)
+
+    @Test
+    public void givenSmileAccept_whenGetAllEmployees_thenReturnSmileBody() throws Exception{
+        // given- precondition or setup
+        BDDMockito.given(employeeService.getAllEmployees()).willReturn(List.of(
+                new EmployeeView(1L, "Somtochukwu", "Mbah", "victorsomtochukwu@gmail.com", 0L),
+                new EmployeeView(2L, "Chukwuemeka", "Azubuine", "azubuine.emeka@gmail.com", 0L)));
+
+        // when- action or behaviour we are going to test
+
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders.get("/api/employees")
+                        .accept(WireFormatConfig.SMILE))
+                .andReturn();
+        // the- verify the output
+
+        org.assertj.core.api.Assertions.assertThat(result.getResponse().getContentType())
+                .isEqualTo(WireFormatConfig.SMILE_VALUE);
+        JsonNode employees = new ObjectMapper(new SmileFactory()).readTree(result.getResponse().getContentAsByteArray());
+        org.assertj.core.api.Assertions.assertThat(employees.size()).isEqualTo(2);
+        org.assertj.core.api.Assertions.assertThat(employees.get(1).get("email").asText())
+                .isEqualTo("azubuine.emeka@gmail.com");
+    }
+
+    // Junit test for streaming all employees as one CBOR array
+
+    @Test
+    public void givenCborAccept_whenStreamAllEmployees_thenReturnCborArray() throws Exception{
+        // given- precondition or setup
+        BDDMockito.willAnswer(invocation -> {
+            Consumer<Employee> consumer = invocation.getArgument(0);
+            consumer.accept(Employee.builder().id(1L).lastName("Mbah").firstName("Somtochukwu")
+                    .email("victorsomtochukwu@gmail.com").build());
+            return null;
+        }).given(employeeService).streamAllEmployees(ArgumentMatchers.any());
+
+        // when- action or behaviour we are going to test
+
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders.get("/api/employees/stream")
+                        .accept(MediaType.APPLICATION_CBOR))
+                .andExpect(MockMvcResultMatchers.request().asyncStarted())
+                .andReturn();
+        // the- verify the output
+
+        MvcResult dispatched = mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(result))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.content().contentType(MediaType.APPLICATION_CBOR))
+                .andReturn();
+        JsonNode employees = new ObjectMapper(new CBORFactory())
+                .readTree(dispatched.getResponse().getContentAsByteArray());
+        org.assertj.core.api.Assertions.assertThat(employees.size()).isEqualTo(1);
+        org.assertj.core.api.Assertions.assertThat(employees.get(0).get("lastName").asText()).isEqualTo("Mbah");
+    }
+
+    // Junit test for bulk import from a CSV body
+
+    @Test
+    public void givenCsvBody_whenImportEmployees_thenEveryRowPassedToService() throws Exception{
+        // given- precondition or setup
+        String csv = "first_name,last_name,email\n"
+                + "Somtochukwu,Mbah,victorsomtochukwu@gmail.com\n"
+                + "\"Chukwu, Emeka\",Azubuine,azubuine.emeka@gmail.com\n";
+        List<Employee> received = new ArrayList<>();
+
+        BDDMockito.given(employeeImportService.importEmployees(ArgumentMatchers.any())).willAnswer(invocation -> {
+            Iterator<Employee> employees = invocation.getArgument(0);
+            employees.forEachRemaining(received::add);
+            return new BulkImportResult(received.size(), received.size(), 0, List.of());
+        });
+
+        // when- action or behaviour we are going to test
+
+        ResultActions response = mockMvc.perform(MockMvcRequestBuilders.post("/api/employees/bulk")
+                .contentType("text/csv")
+                .content(csv));
+        // the- verify the output
+
+        response.andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.created", CoreMatchers.is(2)));
+        org.assertj.core.api.Assertions.assertThat(received).extracting(Employee::getFirstName)
+                .containsExactly("Somtochukwu", "Chukwu, Emeka");
+    }
+
+    // Junit test for bulk import from an NDJSON body
+
+    @Test
+    public void givenNdjsonBody_whenImportEmployees_thenEveryLinePassedToService() throws Exception{
+        // given- precondition or setup
+        String ndjson = objectMapper.writeValueAsString(Employee.builder().lastName("Mbah")
+                .firstName("Somtochukwu").email("victorsomtochukwu@gmail.com").build())
+                + "\n" + "not json" + "\n";
+        List<Employee> received = new ArrayList<>();
+
+        BDDMockito.given(employeeImportService.importEmployees(ArgumentMatchers.any())).willAnswer(invocation -> {
+            Iterator<Employee> employees = invocation.getArgument(0);
+            employees.forEachRemaining(received::add);
+            return new BulkImportResult(received.size(), 1, 1, List.of());
+        });
+
+        // when- action or behaviour we are going to test
+
+        ResultActions response = mockMvc.perform(MockMvcRequestBuilders.post("/api/employees/bulk")
+                .contentType("application/x-ndjson")
+                .content(ndjson));
+        // the- verify the output
+
+        response.andExpect(MockMvcResultMatchers.status().isOk());
+        org.assertj.core.api.Assertions.assertThat(received).hasSize(2);
+        org.assertj.core.api.Assertions.assertThat(received.get(1).getEmail()).isNull();
+    }
+
+    // Junit test for bulk import with a body that is not a JSON array
+
+    @Test
+    public void givenJsonObjectBody_whenImportEmployees_thenReturn400() throws Exception{
+        // when- action or behaviour we are going to test
+
+        ResultActions response = mockMvc.perform(MockMvcRequestBuilders.post("/api/employees/bulk")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{}"));
+        // the- verify the output
+
+        response.andExpect(MockMvcResultMatchers.status().isBadRequest());
+    }
+
+    // Junit for patch employee (Positive scenario)
+
+    @Test
+    public void givenEmployeePatch_whenPatchEmployee_thenReturn204() throws Exception{
+        // given- precondition or setup
+        long employeeId = 1L;
+        BDDMockito.given(employeeService.patchEmployee(ArgumentMatchers.eq(employeeId),
+                ArgumentMatchers.any(EmployeePatch.class))).willReturn(true);
+
+        // when- action or behaviour we are going to test
+
+        ResultActions response = mockMvc.perform(MockMvcRequestBuilders.patch("/api/employees/{id}", employeeId)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"email\":\"sopiaNnadi@gmail.com\"}"));
+        // the- verify the output
+
+        response.andExpect(MockMvcResultMatchers.status().isNoContent());
+        BDDMockito.then(employeeService).should().patchEmployee(ArgumentMatchers.eq(employeeId),
+                ArgumentMatchers.argThat(patch -> "sopiaNnadi@gmail.com".equals(patch.getEmail())
+                        && patch.getFirstName() == null));
+    }
+
+    // Junit for patch employee (Negative scenario i.e no row with the id)
+
+    @Test
+    public void givenUnknownId_whenPatchEmployee_thenReturn404() throws Exception{
+        // given- precondition or setup
+        BDDMockito.given(employeeService.patchEmployee(ArgumentMatchers.anyLong(),
+                ArgumentMatchers.any(EmployeePatch.class))).willReturn(false);
+
+        // when- action or behaviour we are going to test
+
+        ResultActions response = mockMvc.perform(MockMvcRequestBuilders.patch("/api/employees/{id}", 1L)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"firstName\":\"Victor\"}"));
+        // the- verify the output
+
+        response.andExpect(MockMvcResultMatchers.status().isNotFound());
+    }
+
+    // Junit for update and patch employee to an email another employee already has (409, not 500)
+
+    @Test
+    public void givenExistingEmail_whenUpdateOrPatchEmployee_thenReturn409() throws Exception{
+        // given- precondition or setup
+        EmployeeView savedEmployee = new EmployeeView(1L, "Somtochukwu", "Mbah", "victorsomtochukwu@gmail.com", 0L);
+        BDDMockito.given(employeeService.getEmployeeById(1L)).willReturn(Optional.of(savedEmployee));
+        BDDMockito.given(employeeService.updateEmployee(ArgumentMatchers.any(Employee.class)))
+                .willThrow(new ResourceNotFoundException("Employee with email azubuine.emeka@gmail.com already exists"));
+        BDDMockito.given(employeeService.patchEmployee(ArgumentMatchers.eq(1L), ArgumentMatchers.any(EmployeePatch.class)))
+                .willThrow(new ResourceNotFoundException("Employee with email azubuine.emeka@gmail.com already exists"));
+
+        // when- action or behaviour we are going to test
+
+        ResultActions update = mockMvc.perform(MockMvcRequestBuilders.put("/api/employees/{id}", 1L)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"firstName\":\"Somtochukwu\",\"lastName\":\"Mbah\",\"email\":\"azubuine.emeka@gmail.com\"}"));
+        ResultActions patch = mockMvc.perform(MockMvcRequestBuilders.patch("/api/employees/{id}", 1L)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"email\":\"azubuine.emeka@gmail.com\"}"));
+        // the- verify the output
+
+        update.andExpect(MockMvcResultMatchers.status().isConflict())
+                .andExpect(MockMvcResultMatchers.content().string(
+                        "Employee with email azubuine.emeka@gmail.com already exists"));
+        patch.andExpect(MockMvcResultMatchers.status().isConflict());
+    }
+
+    // Junit for patch employee with nothing to change
+
+    @Test
+    public void givenEmptyPatch_whenPatchEmployee_thenReturn400() throws Exception{
+        // when- action or behaviour we are going to test
+
+        ResultActions response = mockMvc.perform(MockMvcRequestBuilders.patch("/api/employees/{id}", 1L)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{}"));
+        // the- verify the output
+
+        response.andExpect(MockMvcResultMatchers.status().isBadRequest());
+        BDDMockito.then(employeeService).shouldHaveNoInteractions();
+    }
+
+    // Junit test for get employee by id (ETag carries the version)
+
+    @Test
+    public void givenEmployeeObject_whenGetEmployeeById_thenReturnVersionETag() throws Exception{
+        // given- precondition or setup
+        Employee employee = Employee.builder()
+                .id(1L)
+                .lastName("Mbah")
+                .firstName("Somtochukwu")
+                .email("victorsomtochukwu@gmail.com")
+                .version(3L)
+                .build();
+
+        BDDMockito.given(employeeService.getEmployeeById(1L)).willReturn(Optional.of(EmployeeView.from(employee)));
+
+        // when- action or behaviour we are going to test
+
+        ResultActions response = mockMvc.perform(MockMvcRequestBuilders.get("/api/employees/{id}", 1L));
+        // the- verify the output
+
+        response.andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.header().string("ETag", "\"3\""))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.version", CoreMatchers.is(3)));
+    }
+
+    // Junit test for get employee by id with a current If-None-Match (no body sent again)
+
+    @Test
+    public void givenMatchingIfNoneMatch_whenGetEmployeeById_thenReturn304() throws Exception{
+        // given- precondition or setup
+        Employee employee = Employee.builder()
+                .id(1L)
+                .lastName("Mbah")
+                .firstName("Somtochukwu")
+                .email("victorsomtochukwu@gmail.com")
+                .version(3L)
+                .build();
+
+        BDDMockito.given(employeeService.getEmployeeById(1L)).willReturn(Optional.of(EmployeeView.from(employee)));
+
+        // when- action or behaviour we are going to test
+
+        ResultActions response = mockMvc.perform(MockMvcRequestBuilders.get("/api/employees/{id}", 1L)
+                .header("If-None-Match", "\"3\""));
+        // the- verify the output
+
+        response.andExpect(MockMvcResultMatchers.status().isNotModified())
+                .andExpect(MockMvcResultMatchers.content().string(""));
+    }
+
+    // Junit test for update employee with a stale If-Match
+
+    @Test
+    public void givenStaleIfMatch_whenUpdateEmployee_thenReturn412() throws Exception{
+        // given- precondition or setup
+        Employee savedEmployee = Employee.builder()
+                .id(1L)
+                .lastName("Mbah")
+                .firstName("Somtochukwu")
+                .email("victorsomtochukwu@gmail.com")
+                .version(4L)
+                .build();
+
+        BDDMockito.given(employeeService.getEmployeeById(1L)).willReturn(Optional.of(EmployeeView.from(savedEmployee)));
+
+        // when- action or behaviour we are going to test
+
+        ResultActions response = mockMvc.perform(MockMvcRequestBuilders.put("/api/employees/{id}", 1L)
+                .header("If-Match", "\"3\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(savedEmployee)));
+        // the- verify the output
+
+        response.andExpect(MockMvcResultMatchers.status().isPreconditionFailed());
+        BDDMockito.then(employeeService).should(Mockito.never()).updateEmployee(ArgumentMatchers.any(Employee.class));
+    }
+
+    // Junit test for update employee racing another writer after the If-Match check
+
+    @Test
+    public void givenConcurrentUpdate_whenUpdateEmployee_thenReturn412() throws Exception{
+        // given- precondition or setup
+        Employee savedEmployee = Employee.builder()
+                .id(1L)
+                .lastName("Mbah")
+                .firstName("Somtochukwu")
+                .email("victorsomtochukwu@gmail.com")
+                .version(3L)
+                .build();
+
+        BDDMockito.given(employeeService.getEmployeeById(1L)).willReturn(Optional.of(EmployeeView.from(savedEmployee)));
+        BDDMockito.given(employeeService.updateEmployee(ArgumentMatchers.any(Employee.class)))
+                .willThrow(new ObjectOptimisticLockingFailureException(Employee.class, 1L));
+
+        // when- action or behaviour we are going to test
+
+        ResultActions response = mockMvc.perform(MockMvcRequestBuilders.put("/api/employees/{id}", 1L)
+                .header("If-Match", "\"3\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(savedEmployee)));
+        // the- verify the output
+
+        response.andExpect(MockMvcResultMatchers.status().isPreconditionFailed());
+    }
+
+    // Junit test for delete employee with a stale If-Match
+
+    @Test
+    public void givenStaleIfMatch_whenDeleteById_thenReturn412() throws Exception{
+        // given- precondition or setup
+        // the stored employee is at version 4, the version check is part of the DELETE
+        BDDMockito.given(employeeService.deleteEmployee(1L, 3L)).willReturn(false);
+
+        // when- action or behaviour we are going to test
+
+        ResultActions response = mockMvc.perform(MockMvcRequestBuilders.delete("/api/employees/{id}", 1L)
+                .header("If-Match", "\"3\""));
+        // the- verify the output
+
+        response.andExpect(MockMvcResultMatchers.status().isPreconditionFailed());
+        BDDMockito.then(employeeService).should(Mockito.never()).deleteEmployee(1L);
+    }
+
+    // Junit test for name search
+
+    @Test
+    public void givenLastAndFirstName_whenGetEmployeesByName_thenReturnPage() throws Exception{
+        // given- precondition or setup
+        Employee employee = Employee.builder()
+                .id(7L)
+                .lastName("Mbah")
+                .firstName("Somtochukwu")
+                .email("victorsomtochukwu@gmail.com")
+                .build();
+        BDDMockito.given(employeeService.findEmployeesByName("Mbah", "Somtochukwu", 0L, 1))
+                .willReturn(List.of(EmployeeView.from(employee)));
+
+        // when- action or behaviour we are going to test
+        ResultActions response = mockMvc.perform(MockMvcRequestBuilders.get("/api/employees/by-name")
+                .param("lastName", "Mbah")
+                .param("firstName", "Somtochukwu")
+                .param("size", "1"));
+
+        // the- verify the output
+        response.andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.content.size()", CoreMatchers.is(1)))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.nextCursor", CoreMatchers.is(7)));
+    }
+
+    // Junit test for type-ahead search
+
+    @Test
+    public void givenQuery_whenSearchEmployees_thenReturnIndexHits() throws Exception{
+        // given- precondition or setup
+        BDDMockito.given(searchIndex.search("somt", 5))
+                .willReturn(List.of(new EmployeeSearchHit(1L, "Somtochukwu", "Mbah", "victorsomtochukwu@gmail.com")));
+
+        // when- action or behaviour we are going to test
+        ResultActions response = mockMvc.perform(MockMvcRequestBuilders.get("/api/employees/search")
+                .param("q", "somt")
+                .param("limit", "5"));
+
+        // the- verify the output
+        response.andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.size()", CoreMatchers.is(1)))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].firstName", CoreMatchers.is("Somtochukwu")));
+    }
+
+    // Junit test for starting a csv export (accepted, status URL in Location)
+
+    @Test
+    public void givenCsvFormat_whenStartExport_thenReturnAcceptedWithStatusLocation() throws Exception{
+        // given- precondition or setup
+        BDDMockito.given(exportJobs.start(EmployeeExportJob.Format.CSV)).willReturn(EmployeeExportJob.builder()
+                .id("nightly")
+                .format(EmployeeExportJob.Format.CSV)
+                .status(EmployeeExportJob.Status.QUEUED)
+                .build());
+
+        // when- action or behaviour we are going to test
+        ResultActions response = mockMvc.perform(MockMvcRequestBuilders.post("/api/employees/exports")
+                .param("format", "csv"));
+
+        // the- verify the output
+        response.andExpect(MockMvcResultMatchers.status().isAccepted())
+                .andExpect(MockMvcResultMatchers.header().string("Location", "/api/employees/exports/nightly"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.status", CoreMatchers.is("QUEUED")));
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/employees/exports").param("format", "xlsx"))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest());
+    }
 }
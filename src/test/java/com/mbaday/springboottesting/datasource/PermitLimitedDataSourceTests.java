@@ -0,0 +1,55 @@
+package com.mbaday.springboottesting.datasource;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.sql.Connection;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+
+public class PermitLimitedDataSourceTests {
+
+    private PermitLimitedDataSource dataSource;
+
+    @BeforeEach
+    public void setUp() {
+        dataSource = new PermitLimitedDataSource(
+                new DriverManagerDataSource("jdbc:h2:mem:permits;DB_CLOSE_DELAY=-1", "sa", ""),
+                1, Duration.ofMillis(50));
+    }
+
+    // Junit for connection checkout when every permit is taken
+
+    @Test
+    public void givenAllPermitsTaken_whenGetConnection_thenTimeOut() throws Exception {
+        // given- precondition or setup
+        try (Connection ignored = dataSource.getConnection()) {
+
+            // when- action or behaviour we are going to test
+            // the- verify the output
+            Assertions.assertThatThrownBy(() -> dataSource.getConnection())
+                    .isInstanceOf(SQLTransientConnectionException.class);
+        }
+    }
+
+    // Junit for closing a connection (permit handed back exactly once)
+
+    @Test
+    public void givenOpenConnection_whenClosedTwice_thenPermitReleasedOnce() throws Exception {
+        // given- precondition or setup
+        Connection connection = dataSource.getConnection();
+        Assertions.assertThat(dataSource.availablePermits()).isEqualTo(0);
+
+        // when- action or behaviour we are going to test
+        connection.close();
+        connection.close();
+
+        // the- verify the output
+        Assertions.assertThat(dataSource.availablePermits()).isEqualTo(1);
+        try (Connection next = dataSource.getConnection()) {
+            Assertions.assertThat(next.isValid(1)).isTrue();
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.mbaday.springboottesting.datasource;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.Map;
+
+public class ReplicaRoutingDataSourceTests {
+
+    private JdbcTemplate primary;
+
+    private JdbcTemplate replica;
+
+    private ReplicaRoutingDataSource routingDataSource;
+
+    private JdbcTemplate jdbcTemplate;
+
+    private TransactionTemplate readTransaction;
+
+    private TransactionTemplate writeTransaction;
+
+    @BeforeEach
+    public void setUp() {
+        DriverManagerDataSource primaryDataSource =
+                new DriverManagerDataSource("jdbc:h2:mem:routing_primary;DB_CLOSE_DELAY=-1", "sa", "");
+        DriverManagerDataSource replicaDataSource =
+                new DriverManagerDataSource("jdbc:h2:mem:routing_replica;DB_CLOSE_DELAY=-1", "sa", "");
+        primary = new JdbcTemplate(primaryDataSource);
+        replica = new JdbcTemplate(replicaDataSource);
+        for (JdbcTemplate node : new JdbcTemplate[]{primary, replica}) {
+            node.execute("create table node (name varchar(20))");
+        }
+        primary.update("insert into node values ('primary')");
+        replica.update("insert into node values ('replica')");
+        replica.execute("create table replica_lag (seconds bigint)");
+        replica.update("insert into replica_lag values (0)");
+
+        routingDataSource = new ReplicaRoutingDataSource(primaryDataSource, Map.of("replica-0", replicaDataSource),
+                "select seconds from replica_lag", Duration.ofSeconds(5));
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(routingDataSource);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        readTransaction = new TransactionTemplate(transactionManager);
+        readTransaction.setReadOnly(true);
+        writeTransaction = new TransactionTemplate(transactionManager);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        primary.execute("drop table node");
+        replica.execute("drop all objects");
+    }
+
+    // Junit for a read-only transaction with a healthy replica
+
+    @Test
+    public void givenHealthyReplica_whenReadOnlyTransaction_thenReadFromReplica() {
+        // given- precondition or setup
+        routingDataSource.checkReplicas();
+
+        // when- action or behaviour we are going to test
+        String node = readTransaction.execute(status -> jdbcTemplate.queryForObject("select name from node", String.class));
+
+        // the- verify the output
+        Assertions.assertThat(node).isEqualTo("replica");
+        Assertions.assertThat(routingDataSource.replicaStatus())
+                .singleElement()
+                .satisfies(replicaStatus -> Assertions.assertThat(replicaStatus.lagSeconds()).isEqualTo(0L));
+    }
+
+    // Junit for a read-write transaction with a healthy replica
+
+    @Test
+    public void givenHealthyReplica_whenReadWriteTransaction_thenUsePrimary() {
+        // given- precondition or setup
+        routingDataSource.checkReplicas();
+
+        // when- action or behaviour we are going to test
+        String node = writeTransaction.execute(status -> {
+            jdbcTemplate.update("insert into node values ('written')");
+            return jdbcTemplate.queryForObject("select name from node where name <> 'written'", String.class);
+        });
+
+        // the- verify the output
+        Assertions.assertThat(node).isEqualTo("primary");
+        Assertions.assertThat(primary.queryForObject("select count(*) from node", Integer.class)).isEqualTo(2);
+        Assertions.assertThat(replica.queryForObject("select count(*) from node", Integer.class)).isEqualTo(1);
+    }
+
+    // Junit for a read-only transaction while the replica lags behind
+
+    @Test
+    public void givenReplicaLagAboveMax_whenReadOnlyTransaction_thenFallBackToPrimary() {
+        // given- precondition or setup
+        replica.update("update replica_lag set seconds = 30");
+        routingDataSource.checkReplicas();
+
+        // when- action or behaviour we are going to test
+        String node = readTransaction.execute(status -> jdbcTemplate.queryForObject("select name from node", String.class));
+
+        // the- verify the output
+        Assertions.assertThat(node).isEqualTo("primary");
+        Assertions.assertThat(routingDataSource.replicaStatus())
+                .singleElement()
+                .satisfies(replicaStatus -> {
+                    Assertions.assertThat(replicaStatus.healthy()).isFalse();
+                    Assertions.assertThat(replicaStatus.lagSeconds()).isEqualTo(30L);
+                });
+    }
+
+    // Junit for a read-only transaction after the replica stopped replicating and then caught up again
+
+    @Test
+    public void givenReplicaRecovered_whenReadOnlyTransaction_thenReadFromReplicaAgain() {
+        // given- precondition or setup
+        replica.update("update replica_lag set seconds = null");
+        routingDataSource.checkReplicas();
+        String whileStopped = readTransaction.execute(status ->
+                jdbcTemplate.queryForObject("select name from node", String.class));
+        replica.update("update replica_lag set seconds = 1");
+
+        // when- action or behaviour we are going to test
+        routingDataSource.checkReplicas();
+        String afterRecovery = readTransaction.execute(status ->
+                jdbcTemplate.queryForObject("select name from node", String.class));
+
+        // the- verify the output
+        Assertions.assertThat(whileStopped).isEqualTo("primary");
+        Assertions.assertThat(afterRecovery).isEqualTo("replica");
+    }
+
+    // Junit for a read-only transaction when the replica cannot be checked
+
+    @Test
+    public void givenFailingLagQuery_whenReadOnlyTransaction_thenFallBackToPrimary() {
+        // given- precondition or setup
+        replica.execute("drop table replica_lag");
+        routingDataSource.checkReplicas();
+
+        // when- action or behaviour we are going to test
+        String node = readTransaction.execute(status -> jdbcTemplate.queryForObject("select name from node", String.class));
+
+        // the- verify the output
+        Assertions.assertThat(node).isEqualTo("primary");
+        Assertions.assertThat(routingDataSource.replicaStatus().get(0).problem()).startsWith("Check failed");
+    }
+
+    // Junit for asking for a connection with explicit credentials
+
+    @Test
+    public void givenHealthyReplica_whenGetConnectionWithCredentials_thenRoutedLikeOtherConnections() throws Exception {
+        // given- precondition or setup
+        routingDataSource.checkReplicas();
+
+        // when- action or behaviour we are going to test
+        String readNode = readTransaction.execute(status -> nodeOf(routingDataSource));
+        String writeNode = writeTransaction.execute(status -> nodeOf(routingDataSource));
+
+        // the- verify the output
+        Assertions.assertThat(readNode).isEqualTo("replica");
+        Assertions.assertThat(writeNode).isEqualTo("primary");
+    }
+
+    private static String nodeOf(ReplicaRoutingDataSource dataSource) {
+        try (Connection connection = dataSource.getConnection("sa", "");
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("select name from node")) {
+            resultSet.next();
+            return resultSet.getString(1);
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.mbaday.springboottesting.datasource;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.extension.AfterEachCallback;
+import org.junit.jupiter.api.extension.BeforeEachCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+
+import java.util.Map;
+
+// counts the statements each test runs on its own thread, MockMvc requests included (the DataSource has to be
+// a StatementCountingDataSource, which StatementBudgetConfig takes care of). register it with
+//   @RegisterExtension
+//   StatementCountExtension statements = new StatementCountExtension();
+// and call statements.reset() after the setup, so only the action under test is counted
+public class StatementCountExtension implements BeforeEachCallback, AfterEachCallback {
+
+    private StatementCounter.Scope scope;
+
+    @Override
+    public void beforeEach(ExtensionContext context) {
+        scope = StatementCounter.open();
+    }
+
+    @Override
+    public void afterEach(ExtensionContext context) {
+        scope.close();
+        scope = null;
+    }
+
+    public void reset() {
+        scope.reset();
+    }
+
+    public int getCount() {
+        return scope.getCount();
+    }
+
+    public void assertStatementCount(int expected) {
+        Assertions.assertThat(scope.getCount())
+                .as("statements run, by statement: %s", scope.getStatements())
+                .isEqualTo(expected);
+    }
+
+    // the same statement more than once is how an N+1 shows up, a select per element of a list
+    public void assertNoRepeatedStatements() {
+        Assertions.assertThat(scope.getStatements())
+                .as("statements run more than once")
+                .allSatisfy((sql, times) -> Assertions.assertThat(times).as(sql).isEqualTo(1));
+    }
+
+    public Map<String, Integer> getStatements() {
+        return scope.getStatements();
+    }
+}
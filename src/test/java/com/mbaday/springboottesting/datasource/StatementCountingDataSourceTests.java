@@ -0,0 +1,72 @@
+package com.mbaday.springboottesting.datasource;
+
+import com.mbaday.springboottesting.exception.StatementBudgetExceededException;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.List;
+
+public class StatementCountingDataSourceTests {
+
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    public void setUp() {
+        jdbcTemplate = new JdbcTemplate(new StatementCountingDataSource(
+                new DriverManagerDataSource("jdbc:h2:mem:statements;DB_CLOSE_DELAY=-1", "sa", "")));
+        jdbcTemplate.execute("create table employees (id bigint primary key, last_name varchar(50))");
+    }
+
+    @AfterEach
+    public void tearDown() {
+        jdbcTemplate.execute("drop table employees");
+    }
+
+    // Junit for nested scopes (a batch counts once, the outer scope sees the inner statements)
+
+    @Test
+    public void givenNestedScopes_whenStatementsRun_thenEveryOpenScopeCountsThem() {
+        // given- precondition or setup
+        try (StatementCounter.Scope outer = StatementCounter.open()) {
+            jdbcTemplate.queryForList("select id from employees", Long.class);
+
+            // when- action or behaviour we are going to test
+            try (StatementCounter.Scope inner = StatementCounter.open()) {
+                jdbcTemplate.batchUpdate("insert into employees (id, last_name) values (?, ?)",
+                        List.of(new Object[]{1L, "Mbah"}, new Object[]{2L, "Okafor"}));
+                jdbcTemplate.queryForObject("select last_name from employees where id = ?", String.class, 1L);
+                jdbcTemplate.queryForObject("select last_name from employees where id = ?", String.class, 2L);
+
+                // the- verify the output
+                Assertions.assertThat(inner.getCount()).isEqualTo(3);
+                Assertions.assertThat(inner.getMostRepeated().getKey())
+                        .isEqualTo("select last_name from employees where id = ?");
+                Assertions.assertThat(inner.getMostRepeated().getValue()).isEqualTo(2);
+            }
+            Assertions.assertThat(outer.getCount()).isEqualTo(4);
+        }
+    }
+
+    // Junit for a scope that fails once its budget is used up
+
+    @Test
+    public void givenFailingScope_whenBudgetExceeded_thenStatementRefused() {
+        // given- precondition or setup
+        try (StatementCounter.Scope scope = StatementCounter.open(1, true)) {
+            jdbcTemplate.update("insert into employees (id, last_name) values (1, 'Mbah')");
+
+            // when- action or behaviour we are going to test
+            // the- verify the output
+            Assertions.assertThatThrownBy(() ->
+                            jdbcTemplate.update("insert into employees (id, last_name) values (2, 'Okafor')"))
+                    .isInstanceOf(StatementBudgetExceededException.class);
+            Assertions.assertThat(scope.getCount()).isEqualTo(1);
+        }
+        Assertions.assertThat(jdbcTemplate.queryForObject("select count(*) from employees", Integer.class))
+                .isEqualTo(1);
+    }
+}
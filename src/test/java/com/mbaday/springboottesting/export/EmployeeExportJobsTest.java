@@ -0,0 +1,179 @@
+package com.mbaday.springboottesting.export;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mbaday.springboottesting.dto.EmployeeExportJob;
+import com.mbaday.springboottesting.format.EmployeeRecordReaders;
+import com.mbaday.springboottesting.model.Employee;
+import com.mbaday.springboottesting.repository.EmployeeJdbcRepository;
+import com.mbaday.springboottesting.repository.EmployeeRepository;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+// the export reads committed rows on its own thread, so the test itself runs without a transaction
+@DataJpaTest(properties = "employees.export.checkpoint-rows=2")
+@Import({EmployeeJdbcRepository.class, EmployeeExportJobs.class})
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class EmployeeExportJobsTest {
+
+    @TempDir
+    static Path exportDirectory;
+
+    @DynamicPropertySource
+    static void exportProperties(DynamicPropertyRegistry registry) {
+        registry.add("employees.export.directory", exportDirectory::toString);
+    }
+
+    @Autowired
+    private EmployeeExportJobs exportJobs;
+
+    @Autowired
+    private EmployeeJdbcRepository employeeJdbcRepository;
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @BeforeEach
+    public void setup() {
+        employeeJdbcRepository.batchInsert(List.of(
+                Employee.builder().firstName("Somtochukwu").lastName("Mbah")
+                        .email("victorsomtochukwu@gmail.com").build(),
+                Employee.builder().firstName("Chukwuemeka").lastName("Azubuine")
+                        .email("azubuine.emeka@gmail.com").build(),
+                Employee.builder().firstName("Ada, \"Nne\"").lastName("Okafor")
+                        .email("ada.okafor@gmail.com").build()));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        employeeRepository.deleteAll();
+    }
+
+    // Junit for a csv export (every row in id order, readable by the bulk import)
+
+    @Test
+    public void givenEmployees_whenCsvExport_thenFileHoldsEveryRowInIdOrder() throws Exception {
+        // given- precondition or setup
+        EmployeeExportJob started = exportJobs.start(EmployeeExportJob.Format.CSV);
+
+        // when- action or behaviour we are going to test
+        EmployeeExportJob job = awaitFinished(exportJobs, started.getId());
+
+        // the- verify the output
+        Assertions.assertThat(job.getStatus()).isEqualTo(EmployeeExportJob.Status.COMPLETED);
+        Assertions.assertThat(job.getRows()).isEqualTo(3);
+        Assertions.assertThat(job.getBytes()).isEqualTo(Files.size(exportJobs.file(job)));
+        List<String> names = new ArrayList<>();
+        Iterator<Employee> rows = EmployeeRecordReaders.csv(Files.newInputStream(exportJobs.file(job)));
+        rows.forEachRemaining(employee -> names.add(employee.getFirstName() + " " + employee.getLastName()));
+        Assertions.assertThat(names)
+                .containsExactly("Somtochukwu Mbah", "Chukwuemeka Azubuine", "Ada, \"Nne\" Okafor");
+    }
+
+    // Junit for resuming an export interrupted after its first checkpoint, in a restarted instance
+
+    @Test
+    public void givenInterruptedExport_whenResumeAfterRestart_thenFileMatchesFullExport() throws Exception {
+        // given- precondition or setup
+        EmployeeExportJob full = awaitFinished(exportJobs, exportJobs.start(EmployeeExportJob.Format.NDJSON).getId());
+        List<String> fullLines = Files.readAllLines(exportJobs.file(full));
+        String firstLine = fullLines.get(0) + "\n";
+        long firstId = objectMapper.readTree(firstLine).get("id").asLong();
+        // the process died while the second row was being written
+        EmployeeExportJob interrupted = full.toBuilder()
+                .status(EmployeeExportJob.Status.RUNNING)
+                .rows(1)
+                .lastId(firstId)
+                .bytes(firstLine.getBytes(StandardCharsets.UTF_8).length)
+                .finishedAt(null)
+                .build();
+        objectMapper.writeValue(exportDirectory.resolve("employees-" + full.getId() + ".job.json").toFile(),
+                interrupted);
+        Files.writeString(exportJobs.file(full), firstLine + "{\"id\":", StandardOpenOption.TRUNCATE_EXISTING);
+        EmployeeExportJobs restarted = new EmployeeExportJobs(employeeJdbcRepository, objectMapper,
+                transactionManager, exportDirectory, DataSize.ofBytes(16), 2, 1, Duration.ofSeconds(1), Duration.ofDays(7));
+        restarted.start();
+
+        // when- action or behaviour we are going to test
+        Assertions.assertThat(restarted.status(full.getId())).get()
+                .extracting(EmployeeExportJob::getStatus).isEqualTo(EmployeeExportJob.Status.FAILED);
+        restarted.resume(full.getId());
+        EmployeeExportJob resumed = awaitFinished(restarted, full.getId());
+        restarted.stop();
+
+        // the- verify the output
+        Assertions.assertThat(resumed.getStatus()).isEqualTo(EmployeeExportJob.Status.COMPLETED);
+        Assertions.assertThat(resumed.getRows()).isEqualTo(3);
+        Assertions.assertThat(Files.readAllLines(restarted.file(resumed))).isEqualTo(fullLines);
+        Assertions.assertThatThrownBy(() -> restarted.resume(full.getId()))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    // Junit for deleting a finished export, and for the exports past their retention at a restart
+
+    @Test
+    public void givenFinishedExports_whenDeletedOrPastRetention_thenJobsAndFilesRemoved() throws Exception {
+        // given- precondition or setup
+        EmployeeExportJob deleted = awaitFinished(exportJobs, exportJobs.start(EmployeeExportJob.Format.NDJSON).getId());
+        EmployeeExportJob expired = awaitFinished(exportJobs, exportJobs.start(EmployeeExportJob.Format.CSV).getId());
+        EmployeeExportJobs restarted = new EmployeeExportJobs(employeeJdbcRepository, objectMapper,
+                transactionManager, exportDirectory, DataSize.ofBytes(16), 2, 1, Duration.ofSeconds(1), Duration.ZERO);
+
+        // when- action or behaviour we are going to test
+        boolean deletedOnce = exportJobs.delete(deleted.getId());
+        boolean deletedTwice = exportJobs.delete(deleted.getId());
+        restarted.start();
+        restarted.stop();
+
+        // the- verify the output
+        Assertions.assertThat(deletedOnce).isTrue();
+        Assertions.assertThat(deletedTwice).isFalse();
+        Assertions.assertThat(exportJobs.file(deleted)).doesNotExist();
+        Assertions.assertThat(restarted.status(deleted.getId())).isEmpty();
+        Assertions.assertThat(restarted.status(expired.getId())).isEmpty();
+        Assertions.assertThat(restarted.file(expired)).doesNotExist();
+        Assertions.assertThat(exportDirectory.resolve("employees-" + expired.getId() + ".job.json")).doesNotExist();
+    }
+
+    private static EmployeeExportJob awaitFinished(EmployeeExportJobs jobs, String id) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (System.nanoTime() < deadline) {
+            EmployeeExportJob job = jobs.status(id).orElseThrow();
+            if (job.getStatus() == EmployeeExportJob.Status.COMPLETED
+                    || job.getStatus() == EmployeeExportJob.Status.FAILED) {
+                return job;
+            }
+            Thread.sleep(20);
+        }
+        throw new AssertionError("Export " + id + " did not finish");
+    }
+}
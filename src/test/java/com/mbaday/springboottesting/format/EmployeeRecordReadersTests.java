@@ -0,0 +1,73 @@
+package com.mbaday.springboottesting.format;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mbaday.springboottesting.model.Employee;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+public class EmployeeRecordReadersTests {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    // Junit for a JSON array with elements that are not employee objects
+
+    @Test
+    public void givenJsonArrayWithNonObjectElements_whenRead_thenEachBecomesEmptyEmployeeAndReadingContinues()
+            throws Exception {
+        // given- precondition or setup
+        String body = "[{\"firstName\":\"Somtochukwu\",\"lastName\":\"Mbah\",\"email\":\"victorsomtochukwu@gmail.com\"},"
+                + "42, \"text\", null, [1, {\"a\": 2}],"
+                + "{\"firstName\":\"Emeka\",\"lastName\":\"Azubuine\",\"email\":\"azubuine.emeka@gmail.com\"}]";
+
+        // when- action or behaviour we are going to test
+        List<Employee> employees = new ArrayList<>();
+        EmployeeRecordReaders.jsonArray(body(body), objectMapper).forEachRemaining(employees::add);
+
+        // the- verify the output
+        Assertions.assertThat(employees).hasSize(6);
+        Assertions.assertThat(employees).extracting(Employee::getEmail).containsExactly(
+                "victorsomtochukwu@gmail.com", null, null, null, null, "azubuine.emeka@gmail.com");
+    }
+
+    // Junit for a JSON array with an employee whose fields have the wrong type
+
+    @Test
+    public void givenJsonArrayWithWronglyTypedField_whenRead_thenEmptyEmployeeAndReadingContinues() throws Exception {
+        // given- precondition or setup
+        String body = "[{\"firstName\":{\"given\":\"Ada\"},\"lastName\":\"Obi\",\"version\":\"first\"},"
+                + "{\"firstName\":\"Emeka\",\"lastName\":\"Azubuine\",\"email\":\"azubuine.emeka@gmail.com\"}]";
+
+        // when- action or behaviour we are going to test
+        List<Employee> employees = new ArrayList<>();
+        EmployeeRecordReaders.jsonArray(body(body), objectMapper).forEachRemaining(employees::add);
+
+        // the- verify the output
+        Assertions.assertThat(employees).extracting(Employee::getLastName).containsExactly(null, "Azubuine");
+    }
+
+    // Junit for a JSON array that is cut off before its closing bracket
+
+    @Test
+    public void givenUnclosedJsonArray_whenRead_thenThrowsIllegalArgumentException() throws Exception {
+        // given- precondition or setup
+        String body = "[{\"firstName\":\"Somtochukwu\",\"lastName\":\"Mbah\",\"email\":\"victorsomtochukwu@gmail.com\"}";
+
+        // when- action or behaviour we are going to test
+        Iterator<Employee> employees = EmployeeRecordReaders.jsonArray(body(body), objectMapper);
+
+        // the- verify the output
+        Assertions.assertThat(employees.hasNext()).isTrue();
+        Assertions.assertThatThrownBy(employees::next).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static InputStream body(String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+}
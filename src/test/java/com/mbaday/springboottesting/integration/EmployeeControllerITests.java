@@ -2,11 +2,13 @@ package com.mbaday.springboottesting.integration;
 
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mbaday.springboottesting.datasource.StatementCountExtension;
 import com.mbaday.springboottesting.model.Employee;
 import com.mbaday.springboottesting.repository.EmployeeRepository;
 import org.hamcrest.CoreMatchers;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
@@ -38,6 +40,10 @@ public class EmployeeControllerITests extends AbstractContainerBaseTest {
     @Autowired
     private ObjectMapper objectMapper;
 
+    // SQL statements per request, a refactoring that adds queries to an endpoint fails here
+    @RegisterExtension
+    StatementCountExtension statements = new StatementCountExtension();
+
     @BeforeEach
     void setup(){
         employeeRepository.deleteAll();
@@ -60,6 +66,7 @@ public class EmployeeControllerITests extends AbstractContainerBaseTest {
 
         // make rest api call
 
+        statements.reset();
         ResultActions response = mockMvc.perform(MockMvcRequestBuilders.post("/api/employees")
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(objectMapper.writeValueAsString(employee)));
@@ -75,6 +82,7 @@ public class EmployeeControllerITests extends AbstractContainerBaseTest {
                         CoreMatchers.is(employee.getLastName())))
                 .andExpect(MockMvcResultMatchers.jsonPath("$.email",
                         CoreMatchers.is(employee.getEmail())));
+        statements.assertStatementCount(3);
     }
 
     // Junit test to get All Employees
@@ -92,6 +100,7 @@ public class EmployeeControllerITests extends AbstractContainerBaseTest {
 
         // when- action or behaviour we are going to test
 
+        statements.reset();
         ResultActions response = mockMvc.perform(MockMvcRequestBuilders.get("/api/employees"));
         // the- verify the output
 
@@ -99,6 +108,8 @@ public class EmployeeControllerITests extends AbstractContainerBaseTest {
                 .andExpect(MockMvcResultMatchers.status().isOk())
                 .andExpect(MockMvcResultMatchers.jsonPath("$.size()",
                         CoreMatchers.is(listOfEmployees.size())));
+        statements.assertStatementCount(1);
+        statements.assertNoRepeatedStatements();
     }
 
     // Junit test for get employee by id (Positive scenario i.e when there is an employee with the id)
@@ -115,6 +126,7 @@ public class EmployeeControllerITests extends AbstractContainerBaseTest {
         employeeRepository.save(employee);
         // when- action or behaviour we are going to test
 
+        statements.reset();
         ResultActions response = mockMvc.perform(MockMvcRequestBuilders.get("/api/employees/{id}",
                 employee.getId()));
         // the- verify the output
@@ -127,6 +139,7 @@ public class EmployeeControllerITests extends AbstractContainerBaseTest {
                 .andExpect(MockMvcResultMatchers.jsonPath("$.email",
                         CoreMatchers.is(employee.getEmail())))
                 .andDo(MockMvcResultHandlers.print());
+        statements.assertStatementCount(1);
 
     }
 
@@ -177,6 +190,7 @@ public class EmployeeControllerITests extends AbstractContainerBaseTest {
 
         // when- action or behaviour we are going to test
 
+        statements.reset();
         ResultActions response = mockMvc.perform(MockMvcRequestBuilders.put("/api/employees/{id}",
                         savedEmployee.getId())
                 .contentType(MediaType.APPLICATION_JSON)
@@ -191,6 +205,7 @@ public class EmployeeControllerITests extends AbstractContainerBaseTest {
                         CoreMatchers.is(updatedEmployee.getLastName())))
                 .andExpect(MockMvcResultMatchers.jsonPath("$.email",
                         CoreMatchers.is(updatedEmployee.getEmail())));
+        statements.assertStatementCount(5);
 
     }
 
@@ -242,12 +257,14 @@ public class EmployeeControllerITests extends AbstractContainerBaseTest {
 
         // when- action or behaviour we are going to test
 
+        statements.reset();
         ResultActions response =  mockMvc.perform(MockMvcRequestBuilders.delete("/api/employees/{id}",
                savedEmployee.getId()));
         // the- verify the output
 
-        response.andExpect(MockMvcResultMatchers.status().isOk())
+        response.andExpect(MockMvcResultMatchers.status().isNoContent())
                 .andDo(MockMvcResultHandlers.print());
+        statements.assertStatementCount(3);
     }
 
 }
@@ -0,0 +1,243 @@
+package com.mbaday.springboottesting.integration;
+
+import com.mbaday.springboottesting.config.CacheConfig;
+import com.mbaday.springboottesting.dto.EmployeeView;
+import com.mbaday.springboottesting.invalidation.EmployeeInvalidationTransport;
+import com.mbaday.springboottesting.model.Employee;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+// the reactive profile end to end on H2: JDBC (for Hibernate's schema) and R2DBC share one in-memory database,
+// so no MySQL server or container is needed
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:reactive;DB_CLOSE_DELAY=-1",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.r2dbc.url=r2dbc:h2:mem:///reactive?options=DB_CLOSE_DELAY=-1",
+        "spring.r2dbc.username=sa",
+        "spring.r2dbc.password="
+})
+@AutoConfigureWebTestClient
+@ActiveProfiles("reactive")
+public class ReactiveEmployeeControllerITests {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private EmployeeInvalidationTransport invalidationTransport;
+
+    private Employee employee;
+
+    @BeforeEach
+    void setup(){
+        jdbcTemplate.update("delete from employees");
+        jdbcTemplate.update("delete from employee_changes");
+        jdbcTemplate.update("delete from employee_outbox");
+        employee = Employee.builder()
+                .lastName("Mbah")
+                .firstName("Somtochukwu")
+                .email("victorsomtochukwu@gmail.com")
+                .build();
+    }
+
+    // Junit for create Employee
+
+    @Test
+    public void givenEmployeeObject_whenCreateEmployee_thenReturnSavedEmployee(){
+        // when- action or behaviour we are going to test
+        // the- verify the output
+        webTestClient.post().uri("/api/employees")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(employee)
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody()
+                .jsonPath("$.id").isNumber()
+                .jsonPath("$.email").isEqualTo(employee.getEmail());
+    }
+
+    // Junit test for create with a version in the body (a new employee starts at version 0)
+
+    @Test
+    public void givenVersionInBody_whenCreateEmployee_thenReturnVersionZero(){
+        // when- action or behaviour we are going to test
+        // the- verify the output
+        webTestClient.post().uri("/api/employees")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(employee.toBuilder().version(7L).build())
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody()
+                .jsonPath("$.version").isEqualTo(0);
+    }
+
+    // Junit test for the side effects of reactive writes (outbox and change feed rows, cached employee evicted)
+
+    @Test
+    public void givenCachedEmployee_whenUpdateAndDelete_thenChangesRecordedAndCacheEvicted() throws Exception{
+        // given- precondition or setup
+        List<Long> invalidated = new CopyOnWriteArrayList<>();
+        invalidationTransport.subscribe(invalidation -> invalidated.addAll(invalidation.getEmployeeIds()));
+        Employee saved = webTestClient.post().uri("/api/employees")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(employee)
+                .exchange()
+                .expectBody(Employee.class)
+                .returnResult()
+                .getResponseBody();
+        Cache employees = cacheManager.getCache(CacheConfig.EMPLOYEES_CACHE);
+        employees.put(saved.getId(), EmployeeView.from(saved));
+
+        // when- action or behaviour we are going to test
+        webTestClient.put().uri("/api/employees/{id}", saved.getId())
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(employee.toBuilder().firstName("Victor").build())
+                .exchange()
+                .expectStatus().isOk();
+        boolean evictedByUpdate = employees.get(saved.getId()) == null;
+        webTestClient.delete().uri("/api/employees/{id}", saved.getId())
+                .exchange()
+                .expectStatus().isNoContent();
+
+        // the- verify the output
+        Assertions.assertThat(evictedByUpdate).isTrue();
+        Assertions.assertThat(jdbcTemplate.queryForList(
+                "select change_type from employee_changes where employee_id = ? order by seq", String.class,
+                saved.getId())).containsExactly("CREATED", "UPDATED", "DELETED");
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!invalidated.contains(saved.getId()) && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        Assertions.assertThat(invalidated).contains(saved.getId());
+    }
+
+    // Junit test to stream all employees as NDJSON
+
+    @Test
+    public void givenListOfEmployees_whenGetAllEmployeesAsNdjson_thenStreamEveryEmployee(){
+        // given- precondition or setup
+        for (int i = 0; i < 3; i++) {
+            jdbcTemplate.update("insert into employees (first_name, last_name, email) values (?, ?, ?)",
+                    "Somtochukwu" + i, "Mbah", "victor" + i + "@gmail.com");
+        }
+
+        // when- action or behaviour we are going to test
+        Flux<Employee> employees = webTestClient.get().uri("/api/employees")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(Employee.class)
+                .getResponseBody();
+
+        // the- verify the output
+        StepVerifier.create(employees)
+                .expectNextMatches(e -> e.getEmail().equals("victor0@gmail.com"))
+                .expectNextCount(2)
+                .verifyComplete();
+    }
+
+    // Junit test for get, update and delete employee by id
+
+    @Test
+    public void givenSavedEmployee_whenGetUpdateDelete_thenFollowEmployeeContract(){
+        // given- precondition or setup
+        Employee saved = webTestClient.post().uri("/api/employees")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(employee)
+                .exchange()
+                .expectBody(Employee.class)
+                .returnResult()
+                .getResponseBody();
+
+        // when- action or behaviour we are going to test
+        // the- verify the output
+        webTestClient.get().uri("/api/employees/{id}", saved.getId())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.firstName").isEqualTo("Somtochukwu");
+
+        webTestClient.put().uri("/api/employees/{id}", saved.getId())
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(employee.toBuilder().firstName("Victor").build())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.firstName").isEqualTo("Victor");
+
+        webTestClient.delete().uri("/api/employees/{id}", saved.getId())
+                .exchange()
+                .expectStatus().isNoContent();
+
+        webTestClient.get().uri("/api/employees/{id}", saved.getId())
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    // Junit test for update and delete with If-Match (stale version rejected, current version applied)
+
+    @Test
+    public void givenStaleETag_whenUpdateOrDeleteWithIfMatch_thenPreconditionFailed(){
+        // given- precondition or setup
+        Employee saved = webTestClient.post().uri("/api/employees")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(employee)
+                .exchange()
+                .expectBody(Employee.class)
+                .returnResult()
+                .getResponseBody();
+        String original = "\"" + saved.getVersion() + "\"";
+
+        // when- action or behaviour we are going to test
+        // the- verify the output
+        String updated = webTestClient.put().uri("/api/employees/{id}", saved.getId())
+                .header(HttpHeaders.IF_MATCH, original)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(employee.toBuilder().firstName("Victor").build())
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(Employee.class)
+                .getResponseHeaders().getETag();
+
+        webTestClient.put().uri("/api/employees/{id}", saved.getId())
+                .header(HttpHeaders.IF_MATCH, original)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(employee.toBuilder().firstName("Chukwuemeka").build())
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.PRECONDITION_FAILED);
+
+        webTestClient.delete().uri("/api/employees/{id}", saved.getId())
+                .header(HttpHeaders.IF_MATCH, original)
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.PRECONDITION_FAILED);
+
+        webTestClient.delete().uri("/api/employees/{id}", saved.getId())
+                .header(HttpHeaders.IF_MATCH, updated)
+                .exchange()
+                .expectStatus().isNoContent();
+    }
+}
@@ -0,0 +1,242 @@
+package com.mbaday.springboottesting.invalidation;
+
+import com.mbaday.springboottesting.config.CacheConfig;
+import com.mbaday.springboottesting.config.InvalidationConfig;
+import com.mbaday.springboottesting.dto.EmployeeInvalidation;
+import com.mbaday.springboottesting.dto.EmployeeSearchHit;
+import com.mbaday.springboottesting.model.Employee;
+import com.mbaday.springboottesting.repository.EmployeeOutboxRepository;
+import com.mbaday.springboottesting.repository.EmployeeRepository;
+import com.mbaday.springboottesting.search.EmployeeSearchIndex;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.cache.CacheType;
+import org.springframework.boot.test.autoconfigure.core.AutoConfigureCache;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+// a subscriber on the loopback transport plays the other instances. the outbox has to see committed
+// transactions, so the test itself runs without one. the JPA slice switches caching off, it is put back here
+@DataJpaTest
+@Import({EmployeeOutboxRepository.class, EmployeeInvalidationOutbox.class, EmployeeInvalidationListener.class,
+        InvalidationConfig.class, EmployeeSearchIndex.class, CacheConfig.class})
+@AutoConfigureCache(cacheProvider = CacheType.CAFFEINE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class EmployeeInvalidationOutboxTest {
+
+    @Autowired
+    private EmployeeInvalidationOutbox invalidationOutbox;
+
+    @Autowired
+    private EmployeeInvalidationListener invalidationListener;
+
+    @Autowired
+    private EmployeeInvalidationTransport transport;
+
+    @Autowired
+    private EmployeeOutboxRepository outboxRepository;
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    @Autowired
+    private EmployeeSearchIndex searchIndex;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final List<EmployeeInvalidation> received = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    public void setUp() {
+        transport.subscribe(received::add);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        jdbcTemplate.update("delete from employee_outbox");
+        employeeRepository.deleteAll();
+    }
+
+    // Junit for recording changes in a committed transaction
+
+    @Test
+    public void givenCommittedChange_whenRelayPending_thenPeersReceiveIdsAndOutboxEmpty() {
+        // given- precondition or setup
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                invalidationOutbox.record(List.of(1L, 2L)));
+
+        // when- action or behaviour we are going to test
+        invalidationOutbox.relayPending();
+
+        // the- verify the output
+        Assertions.assertThat(received).isNotEmpty();
+        Assertions.assertThat(received).allMatch(invalidation ->
+                invalidation.getOrigin().equals(invalidationOutbox.getNodeId()));
+        Assertions.assertThat(received).flatExtracting(EmployeeInvalidation::getEmployeeIds).containsExactly(1L, 2L);
+        Assertions.assertThat(outboxRepository.findPending(invalidationOutbox.getNodeId(), Instant.now(), 0, 10))
+                .isEmpty();
+    }
+
+    // Junit for the events of an instance that stopped before relaying them (sent under its id, applied here too)
+
+    @Test
+    public void givenOrphanedEventOfStoppedPeer_whenRelayPending_thenSentUnderPeerIdAndCacheEvicted() {
+        // given- precondition or setup
+        jdbcTemplate.update("insert into employee_outbox (employee_id, origin, created_at, attempts) "
+                + "values (?, ?, ?, 0)", 9L, "stopped-peer", Timestamp.from(Instant.now().minus(Duration.ofHours(1))));
+        cacheManager.getCache(CacheConfig.EMPLOYEES_CACHE).put(9L, "stale");
+
+        // when- action or behaviour we are going to test
+        int relayed = invalidationOutbox.relayPending();
+
+        // the- verify the output
+        Assertions.assertThat(relayed).isEqualTo(1);
+        Assertions.assertThat(received).extracting(EmployeeInvalidation::getOrigin).containsExactly("stopped-peer");
+        Assertions.assertThat(received).flatExtracting(EmployeeInvalidation::getEmployeeIds).containsExactly(9L);
+        Assertions.assertThat(cacheManager.getCache(CacheConfig.EMPLOYEES_CACHE).get(9L)).isNull();
+        Assertions.assertThat(jdbcTemplate.queryForObject("select count(*) from employee_outbox", Integer.class))
+                .isEqualTo(0);
+    }
+
+    // Junit for a peer that is down (only its deliveries retried, the later batches still relayed)
+
+    @Test
+    public void givenOnePeerDown_whenRelayPending_thenOnlyThatPeerRetried() {
+        // given- precondition or setup
+        for (long employeeId = 1; employeeId <= 3; employeeId++) {
+            jdbcTemplate.update("insert into employee_outbox (employee_id, origin, created_at, attempts) "
+                    + "values (?, 'node-a', ?, 0)", employeeId, Timestamp.from(Instant.now()));
+        }
+        TwoPeerTransport twoPeers = new TwoPeerTransport();
+        EmployeeInvalidationOutbox outbox = new EmployeeInvalidationOutbox(outboxRepository, twoPeers, "node-a",
+                Duration.ofSeconds(1), Duration.ofMinutes(1), 2, 10);
+
+        // when- action or behaviour we are going to test
+        int relayedWhileDown = outbox.relayPending();
+        Map<String, List<Long>> sentWhileDown = new LinkedHashMap<>(twoPeers.sent);
+        twoPeers.sent.clear();
+        twoPeers.peerBDown = false;
+        int relayedAfterwards = outbox.relayPending();
+
+        // the- verify the output
+        Assertions.assertThat(relayedWhileDown).isEqualTo(0);
+        Assertions.assertThat(sentWhileDown).containsOnlyKeys("http://a").flatExtracting("http://a")
+                .containsExactly(1L, 2L, 3L);
+        Assertions.assertThat(relayedAfterwards).isEqualTo(3);
+        Assertions.assertThat(twoPeers.sent).containsOnlyKeys("http://b").flatExtracting("http://b")
+                .containsExactly(1L, 2L, 3L);
+        Assertions.assertThat(jdbcTemplate.queryForObject("select count(*) from employee_outbox", Integer.class))
+                .isEqualTo(0);
+    }
+
+    // peer a always accepts, peer b while it is up. records the employee ids each peer received
+    private static class TwoPeerTransport implements EmployeeInvalidationTransport {
+
+        private final Map<String, List<Long>> sent = new LinkedHashMap<>();
+
+        private boolean peerBDown = true;
+
+        @Override
+        public Map<String, String> publish(EmployeeInvalidation invalidation, Set<String> peers) {
+            Map<String, String> failures = new LinkedHashMap<>();
+            for (String peer : List.of("http://a", "http://b")) {
+                if (peers != null && !peers.contains(peer)) {
+                    continue;
+                }
+                if (peer.equals("http://b") && peerBDown) {
+                    failures.put(peer, "connection refused");
+                } else {
+                    sent.computeIfAbsent(peer, key -> new ArrayList<>()).addAll(invalidation.getEmployeeIds());
+                }
+            }
+            return failures;
+        }
+
+        @Override
+        public void subscribe(Consumer<EmployeeInvalidation> subscriber) {
+        }
+    }
+
+    // Junit for recording changes in a rolled back transaction
+
+    @Test
+    public void givenRolledBackChange_whenRelayPending_thenNothingSent() {
+        // given- precondition or setup
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            invalidationOutbox.record(3L);
+            status.setRollbackOnly();
+        });
+
+        // when- action or behaviour we are going to test
+        int relayed = invalidationOutbox.relayPending();
+
+        // the- verify the output
+        Assertions.assertThat(relayed).isEqualTo(0);
+        Assertions.assertThat(received).isEmpty();
+    }
+
+    // Junit for an invalidation from another instance (cached copy dropped, search index re-read)
+
+    @Test
+    public void givenInvalidationFromPeer_whenInvalidate_thenCacheEvictedAndIndexRefreshed() {
+        // given- precondition or setup
+        Employee employee = employeeRepository.save(Employee.builder()
+                .firstName("Somtochukwu")
+                .lastName("Mbah")
+                .email("victorsomtochukwu@gmail.com")
+                .build());
+        cacheManager.getCache(CacheConfig.EMPLOYEES_CACHE).put(employee.getId(), "stale");
+        // changed by another instance, without this one noticing
+        jdbcTemplate.update("update employees set last_name = 'Okafor' where id = ?", employee.getId());
+
+        // when- action or behaviour we are going to test
+        invalidationListener.invalidate(new EmployeeInvalidation("peer", List.of(employee.getId())));
+
+        // the- verify the output
+        Assertions.assertThat(cacheManager.getCache(CacheConfig.EMPLOYEES_CACHE).get(employee.getId())).isNull();
+        Assertions.assertThat(searchIndex.search("okafor", 10)).extracting(EmployeeSearchHit::getId)
+                .containsExactly(employee.getId());
+        Assertions.assertThat(searchIndex.search("mbah", 10)).isEmpty();
+    }
+
+    // Junit for an invalidation this instance sent itself (ignored, it applied the change already)
+
+    @Test
+    public void givenOwnInvalidation_whenInvalidate_thenCacheKept() {
+        // given- precondition or setup
+        cacheManager.getCache(CacheConfig.EMPLOYEES_CACHE).put(7L, "current");
+
+        // when- action or behaviour we are going to test
+        invalidationListener.invalidate(new EmployeeInvalidation(invalidationOutbox.getNodeId(), List.of(7L)));
+
+        // the- verify the output
+        Assertions.assertThat(cacheManager.getCache(CacheConfig.EMPLOYEES_CACHE).get(7L)).isNotNull();
+    }
+}
@@ -0,0 +1,84 @@
+package com.mbaday.springboottesting.repository;
+
+import com.mbaday.springboottesting.dto.EmployeePatch;
+import com.mbaday.springboottesting.model.Employee;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@Import(EmployeeJdbcRepository.class)
+public class EmployeeJdbcRepositoryTest {
+
+    @Autowired
+    private EmployeeJdbcRepository employeeJdbcRepository;
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    // Junit test for batch insert of employees
+
+    @Test
+    public void givenListOfEmployees_whenBatchInsert_thenGeneratedIdsAssigned(){
+        // given- precondition or setup
+        List<Employee> employees = List.of(
+                Employee.builder().firstName("Somtochukwu").lastName("Mbah")
+                        .email("victorsomtochukwu@gmail.com").build(),
+                Employee.builder().firstName("Chukwuemeka").lastName("Azubuine")
+                        .email("azubuine.emeka@gmail.com").build());
+
+        // when- action or behaviour we are going to test
+        employeeJdbcRepository.batchInsert(employees);
+
+        // the- verify the output
+        assertThat(employees).allMatch(employee -> employee.getId() > 0);
+        assertThat(employeeRepository.findByEmail("azubuine.emeka@gmail.com"))
+                .map(Employee::getId)
+                .contains(employees.get(1).getId());
+    }
+
+    // Junit test for streaming all employees in id order
+
+    @Test
+    public void givenSavedEmployees_whenStreamAll_thenEveryRowVisitedInIdOrder(){
+        // given- precondition or setup
+        employeeJdbcRepository.batchInsert(List.of(
+                Employee.builder().firstName("Somtochukwu").lastName("Mbah")
+                        .email("victorsomtochukwu@gmail.com").build(),
+                Employee.builder().firstName("Chukwuemeka").lastName("Azubuine")
+                        .email("azubuine.emeka@gmail.com").build()));
+
+        // when- action or behaviour we are going to test
+        List<String> emails = new ArrayList<>();
+        employeeJdbcRepository.streamAll(employee -> emails.add(employee.getEmail()));
+
+        // the- verify the output
+        assertThat(emails).containsExactly("victorsomtochukwu@gmail.com", "azubuine.emeka@gmail.com");
+    }
+
+    // Junit test for patching only the given columns
+
+    @Test
+    public void givenSavedEmployee_whenPatchLastName_thenOnlyLastNameChanged(){
+        // given- precondition or setup
+        Employee employee = employeeRepository.save(Employee.builder().firstName("Somtochukwu").lastName("Mbah")
+                .email("victorsomtochukwu@gmail.com").build());
+
+        // when- action or behaviour we are going to test
+        int updated = employeeJdbcRepository.patch(employee.getId(), EmployeePatch.builder().lastName("Mbadady").build());
+        int missing = employeeJdbcRepository.patch(employee.getId() + 1, EmployeePatch.builder().lastName("Mbadady").build());
+
+        // the- verify the output
+        assertThat(updated).isEqualTo(1);
+        assertThat(missing).isEqualTo(0);
+        List<String> names = new ArrayList<>();
+        employeeJdbcRepository.streamAll(e -> names.add(e.getFirstName() + " " + e.getLastName()));
+        assertThat(names).containsExactly("Somtochukwu Mbadady");
+    }
+}
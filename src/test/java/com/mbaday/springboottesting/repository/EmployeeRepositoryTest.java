@@ -1,5 +1,8 @@
 package com.mbaday.springboottesting.repository;
 
+import com.mbaday.springboottesting.config.JpaAuditingConfig;
+import com.mbaday.springboottesting.dto.EmployeeView;
+import com.mbaday.springboottesting.dto.ModifiedEmployeeView;
 import com.mbaday.springboottesting.model.Employee;
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -9,16 +12,27 @@ import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
 
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 @DataJpaTest
+@Import(JpaAuditingConfig.class)
 public class EmployeeRepositoryTest {
 
     @Autowired
     private EmployeeRepository employeeRepository;
 
+    @Autowired
+    private TestEntityManager entityManager;
+
     private Employee employee;
 
 
@@ -306,4 +320,213 @@ public class EmployeeRepositoryTest {
         assertThat(savedEmployee).isNotNull();
 
     }
+
+    // Junit test for keyset pagination by id
+
+    @Test
+    public void givenListOfEmployees_whenFindByIdGreaterThan_thenReturnNextPageInIdOrder(){
+        // given- precondition or setup
+        Employee employee1 = Employee.builder()
+                .firstName("Chukwuemeka")
+                .lastName("Azubuine")
+                .email("azubuine.emeka@gmail.com")
+                .build();
+        Employee employee2 = Employee.builder()
+                .firstName("Sopia")
+                .lastName("Nnadi")
+                .email("sopia.nnadi@gmail.com")
+                .build();
+
+        employeeRepository.save(employee);
+        employeeRepository.save(employee1);
+        employeeRepository.save(employee2);
+
+        // when- action or behaviour we are going to test
+        List<EmployeeView> page = employeeRepository.findViewsAfter(employee.getId(),
+                PageRequest.of(0, 1));
+
+        // the- verify the output
+        assertThat(page).hasSize(1);
+        assertThat(page.get(0).getId()).isEqualTo(employee1.getId());
+    }
+
+    // Junit test for set-based duplicate email check
+
+    @Test
+    public void givenSavedEmployee_whenFindExistingEmails_thenReturnOnlyStoredEmails(){
+        // given- precondition or setup
+        employeeRepository.save(employee);
+
+        // when- action or behaviour we are going to test
+        Set<String> existingEmails = employeeRepository.findExistingEmails(
+                List.of("victorsomtochukwu@gmail.com", "azubuine.emeka@gmail.com"));
+
+        // the- verify the output
+        assertThat(existingEmails).containsExactly("victorsomtochukwu@gmail.com");
+    }
+
+    // Junit test for the unique index on email
+
+    @Test
+    public void givenSavedEmployee_whenSaveSameEmail_thenThrowDataIntegrityViolation(){
+        // given- precondition or setup
+        employeeRepository.save(employee);
+        Employee duplicate = Employee.builder()
+                .firstName("Victor")
+                .lastName("Mbah")
+                .email(employee.getEmail())
+                .build();
+
+        // when- action or behaviour we are going to test
+        // the- verify the output
+        Assertions.assertThatThrownBy(() -> employeeRepository.saveAndFlush(duplicate))
+                .isInstanceOf(DataIntegrityViolationException.class)
+                .hasMessageContaining(Employee.EMAIL_UNIQUE_CONSTRAINT.toUpperCase());
+    }
+
+    // Junit test for the single statement delete by id
+
+    @Test
+    public void givenSavedEmployee_whenDeleteEmployeeById_thenReturnAffectedRows(){
+        // given- precondition or setup
+        employeeRepository.save(employee);
+
+        // when- action or behaviour we are going to test
+        int deleted = employeeRepository.deleteEmployeeById(employee.getId());
+        int deletedAgain = employeeRepository.deleteEmployeeById(employee.getId());
+
+        // the- verify the output
+        assertThat(deleted).isEqualTo(1);
+        assertThat(deletedAgain).isZero();
+        assertThat(employeeRepository.count()).isZero();
+    }
+
+    // Junit test for the versioned and IN-list deletes
+
+    @Test
+    public void givenSavedEmployees_whenDeleteByVersionAndByIds_thenOnlyMatchingRowsDeleted(){
+        // given- precondition or setup
+        employeeRepository.save(employee);
+        Employee other = employeeRepository.save(Employee.builder()
+                .firstName("Emeka")
+                .lastName("Azubuine")
+                .email("azubuine.emeka@gmail.com")
+                .build());
+
+        // when- action or behaviour we are going to test
+        int staleVersionDeleted = employeeRepository.deleteEmployeeByIdAndVersion(employee.getId(), employee.getVersion() + 1);
+        int deleted = employeeRepository.deleteEmployeesByIds(List.of(employee.getId(), other.getId(), 999_999L));
+
+        // the- verify the output
+        assertThat(staleVersionDeleted).isZero();
+        assertThat(deleted).isEqualTo(2);
+    }
+
+    // Junit test for the name search (several matches, keyset paged, backed by the name index)
+
+    @Test
+    public void givenEmployeesWithSameName_whenFindByName_thenReturnPagedMatches(){
+        // given- precondition or setup
+        employeeRepository.save(employee);
+        Employee namesake = employeeRepository.save(Employee.builder()
+                .firstName(employee.getFirstName())
+                .lastName(employee.getLastName())
+                .email("somto.mbah@gmail.com")
+                .build());
+        employeeRepository.save(Employee.builder()
+                .firstName("Emeka")
+                .lastName(employee.getLastName())
+                .email("emeka.mbah@gmail.com")
+                .build());
+
+        // when- action or behaviour we are going to test
+        List<EmployeeView> firstPage = employeeRepository.findViewsByName(
+                "Mbah", "Somtochukwu", 0L, PageRequest.of(0, 1));
+        List<EmployeeView> secondPage = employeeRepository.findViewsByName(
+                "Mbah", "Somtochukwu", firstPage.get(0).getId(), PageRequest.of(0, 1));
+        List<EmployeeView> byLastName = employeeRepository.findViewsByLastName(
+                "Mbah", 0L, PageRequest.of(0, 10));
+        Number nameIndexes = (Number) entityManager.getEntityManager().createNativeQuery(
+                        "select count(*) from information_schema.indexes where lower(index_name) = :name")
+                .setParameter("name", Employee.NAME_INDEX)
+                .getSingleResult();
+
+        // the- verify the output
+        assertThat(firstPage).extracting(EmployeeView::getId).containsExactly(employee.getId());
+        assertThat(secondPage).extracting(EmployeeView::getId).containsExactly(namesake.getId());
+        assertThat(byLastName).hasSize(3);
+        assertThat(nameIndexes.intValue()).isEqualTo(1);
+    }
+
+    // Junit test for the projection by id (a plain value, nothing added to the persistence context)
+
+    @Test
+    public void givenSavedEmployee_whenFindViewById_thenReturnUnmanagedView(){
+        // given- precondition or setup
+        employeeRepository.save(employee);
+        entityManager.flush();
+        entityManager.clear();
+
+        // when- action or behaviour we are going to test
+        Optional<EmployeeView> view = employeeRepository.findViewById(employee.getId());
+
+        // the- verify the output
+        assertThat(view).isPresent();
+        assertThat(view.get().getEmail()).isEqualTo(employee.getEmail());
+        assertThat(view.get().getVersion()).isZero();
+        assertThat(entityManager.getEntityManager().unwrap(org.hibernate.Session.class)
+                .getStatistics().getEntityCount()).isZero();
+    }
+
+    // Junit test for the audit columns and the delta query on them
+
+    @Test
+    public void givenAuditedEmployees_whenFindViewsModifiedSince_thenReturnOnlyLaterWrites(){
+        // given- precondition or setup
+        Employee unchanged = employeeRepository.saveAndFlush(Employee.builder()
+                .firstName("Chukwuemeka")
+                .lastName("Azubuine")
+                .email("azubuine.emeka@gmail.com")
+                .build());
+        employeeRepository.saveAndFlush(employee);
+        Instant watermark = employee.getUpdatedAt();
+        Employee changed = employeeRepository.findById(employee.getId()).get();
+        changed.setLastName("Okafor");
+        employeeRepository.saveAndFlush(changed);
+
+        // when- action or behaviour we are going to test
+        List<ModifiedEmployeeView> modified =
+                employeeRepository.findViewsModifiedSince(watermark, changed.getId(), PageRequest.of(0, 10));
+
+        // the- verify the output
+        assertThat(unchanged.getCreatedAt()).isNotNull();
+        assertThat(changed.getCreatedAt()).isEqualTo(watermark);
+        assertThat(changed.getUpdatedAt()).isAfter(watermark);
+        assertThat(modified).extracting(view -> view.getEmployee().getLastName()).containsExactly("Okafor");
+        assertThat(modified.get(0).getUpdatedAt()).isAfter(watermark);
+    }
+
+    // Junit test for the keyset position of the delta query (rows written at the same time ordered by id)
+
+    @Test
+    public void givenEmployeesWrittenAtSameTime_whenFindViewsModifiedSincePosition_thenReturnOnlyLaterIds(){
+        // given- precondition or setup
+        Employee first = employeeRepository.saveAndFlush(employee);
+        Employee second = employeeRepository.saveAndFlush(Employee.builder()
+                .firstName("Chukwuemeka")
+                .lastName("Azubuine")
+                .email("azubuine.emeka@gmail.com")
+                .build());
+        Instant sameTime = first.getUpdatedAt().truncatedTo(ChronoUnit.MILLIS);
+        entityManager.getEntityManager().createQuery("update Employee e set e.updatedAt = :time")
+                .setParameter("time", sameTime)
+                .executeUpdate();
+
+        // when- action or behaviour we are going to test
+        List<ModifiedEmployeeView> page =
+                employeeRepository.findViewsModifiedSince(sameTime, first.getId(), PageRequest.of(0, 10));
+
+        // the- verify the output
+        assertThat(page).extracting(view -> view.getEmployee().getId()).containsExactly(second.getId());
+    }
 }
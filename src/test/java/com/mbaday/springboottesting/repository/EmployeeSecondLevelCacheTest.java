@@ -0,0 +1,153 @@
+package com.mbaday.springboottesting.repository;
+
+import com.mbaday.springboottesting.config.SecondLevelCacheConfig;
+import com.mbaday.springboottesting.datasource.ReplicaReadJpaDialect;
+import com.mbaday.springboottesting.dto.EmployeePatch;
+import com.mbaday.springboottesting.model.Employee;
+import jakarta.persistence.Cache;
+import jakarta.persistence.EntityManagerFactory;
+import org.assertj.core.api.Assertions;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+// every repository call runs (and commits) in a session of its own, as in production, so a second lookup can
+// only be answered by the second-level cache
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Import({SecondLevelCacheConfig.class, EmployeeJdbcRepository.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class EmployeeSecondLevelCacheTest {
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    @Autowired
+    private EmployeeJdbcRepository employeeJdbcRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    private Employee employee;
+
+    @BeforeEach
+    public void setup() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        employee = employeeRepository.save(Employee.builder()
+                .firstName("Somtochukwu")
+                .lastName("Mbah")
+                .email("victorsomtochukwu@gmail.com")
+                .build());
+        statistics.clear();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        employeeRepository.deleteAll();
+    }
+
+    // Junit for loading an employee by id again
+
+    @Test
+    public void givenCachedEmployee_whenFindById_thenServedFromSecondLevelCache() {
+        // given- precondition or setup
+        employeeRepository.findById(employee.getId());
+
+        // when- action or behaviour we are going to test
+        Employee found = employeeRepository.findById(employee.getId()).orElseThrow();
+
+        // the- verify the output
+        Assertions.assertThat(found.getEmail()).isEqualTo("victorsomtochukwu@gmail.com");
+        Assertions.assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        Assertions.assertThat(statistics.getDomainDataRegionStatistics(Employee.CACHE_REGION).getHitCount())
+                .isEqualTo(1);
+    }
+
+    // Junit for repeating the email lookup
+
+    @Test
+    public void givenCachedQuery_whenFindByEmail_thenServedFromQueryCache() {
+        // given- precondition or setup
+        employeeRepository.findByEmail("victorsomtochukwu@gmail.com");
+
+        // when- action or behaviour we are going to test
+        Employee found = employeeRepository.findByEmail("victorsomtochukwu@gmail.com").orElseThrow();
+
+        // the- verify the output
+        Assertions.assertThat(found.getId()).isEqualTo(employee.getId());
+        Assertions.assertThat(statistics.getQueryExecutionCount()).isEqualTo(1);
+        Assertions.assertThat(statistics.getQueryRegionStatistics(Employee.QUERY_CACHE_REGION).getHitCount())
+                .isEqualTo(1);
+    }
+
+    // Junit for a plain JDBC patch of a cached employee (cached entity and query results evicted)
+
+    @Test
+    public void givenCachedEmployee_whenJdbcPatch_thenFreshRowReturned() {
+        // given- precondition or setup
+        employeeRepository.findById(employee.getId());
+        Assertions.assertThat(employeeRepository.findByJPQL("Somtochukwu", "Mbah")).isNotNull();
+        Assertions.assertThat(employeeRepository.findByNativeSQL("Somtochukwu", "Mbah")).isNotNull();
+        EmployeePatch patch = new EmployeePatch();
+        patch.setLastName("Okafor");
+
+        // when- action or behaviour we are going to test
+        employeeJdbcRepository.patch(employee.getId(), patch);
+
+        // the- verify the output
+        Assertions.assertThat(employeeRepository.findById(employee.getId()).orElseThrow().getLastName())
+                .isEqualTo("Okafor");
+        Assertions.assertThat(employeeRepository.findByJPQL("Somtochukwu", "Mbah")).isNull();
+        Assertions.assertThat(employeeRepository.findByNativeSQL("Somtochukwu", "Mbah")).isNull();
+    }
+
+    // Junit for a JPA update of a cached employee (cached name lookup invalidated)
+
+    @Test
+    public void givenCachedNameLookup_whenUpdateThroughJpa_thenLookupInvalidated() {
+        // given- precondition or setup
+        Assertions.assertThat(employeeRepository.findByNativeSQLNamedParam("Somtochukwu", "Mbah")).isNotNull();
+        employee.setLastName("Okafor");
+
+        // when- action or behaviour we are going to test
+        employeeRepository.save(employee);
+
+        // the- verify the output
+        Assertions.assertThat(employeeRepository.findByNativeSQLNamedParam("Somtochukwu", "Mbah")).isNull();
+        Assertions.assertThat(employeeRepository.findByJPQLNamedParam("Somtochukwu", "Okafor").getId())
+                .isEqualTo(employee.getId());
+    }
+
+    // Junit for loading an employee in a read-only transaction that a read replica may serve
+
+    @Test
+    public void givenReplicaReadDialect_whenFindByIdReadOnly_thenNotPutIntoSecondLevelCache() {
+        // given- precondition or setup
+        JpaTransactionManager transactionManager = new JpaTransactionManager(entityManagerFactory);
+        transactionManager.setJpaDialect(new ReplicaReadJpaDialect());
+        TransactionTemplate readTransaction = new TransactionTemplate(transactionManager);
+        readTransaction.setReadOnly(true);
+        TransactionTemplate writeTransaction = new TransactionTemplate(transactionManager);
+        Cache secondLevelCache = entityManagerFactory.getCache();
+        secondLevelCache.evict(Employee.class, employee.getId());
+
+        // when- action or behaviour we are going to test
+        readTransaction.executeWithoutResult(status -> employeeRepository.findById(employee.getId()));
+        boolean cachedAfterReadOnly = secondLevelCache.contains(Employee.class, employee.getId());
+        writeTransaction.executeWithoutResult(status -> employeeRepository.findById(employee.getId()));
+
+        // the- verify the output
+        Assertions.assertThat(cachedAfterReadOnly).isFalse();
+        Assertions.assertThat(secondLevelCache.contains(Employee.class, employee.getId())).isTrue();
+    }
+}
@@ -0,0 +1,117 @@
+package com.mbaday.springboottesting.search;
+
+import com.mbaday.springboottesting.dto.EmployeePatch;
+import com.mbaday.springboottesting.dto.EmployeeSearchHit;
+import com.mbaday.springboottesting.model.Employee;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+public class EmployeeSearchIndexTests {
+
+    private EmployeeSearchIndex searchIndex;
+
+    @BeforeEach
+    public void setUp() {
+        searchIndex = new EmployeeSearchIndex();
+        searchIndex.rebuild(consumer -> {
+            consumer.accept(employee(1L, "Somtochukwu", "Mbah", "victorsomtochukwu@gmail.com"));
+            consumer.accept(employee(2L, "Emeka", "Azubuine", "azubuine.emeka@gmail.com"));
+            consumer.accept(employee(3L, "Somto", "Nnadi", "somto.nnadi@yahoo.com"));
+        });
+    }
+
+    // Junit for prefix search on a name
+
+    @Test
+    public void givenNamePrefix_whenSearch_thenReturnMatchingEmployees() {
+        // given- precondition or setup
+        // when- action or behaviour we are going to test
+        List<EmployeeSearchHit> hits = searchIndex.search("Somt", 10);
+
+        // the- verify the output
+        Assertions.assertThat(hits).extracting(EmployeeSearchHit::getId).containsExactlyInAnyOrder(1L, 3L);
+    }
+
+    // Junit for search on the parts of an email address
+
+    @Test
+    public void givenEmailParts_whenSearch_thenMatchLocalPartAndDomain() {
+        // given- precondition or setup
+        // when- action or behaviour we are going to test
+        List<EmployeeSearchHit> byLocalPart = searchIndex.search("emeka", 10);
+        List<EmployeeSearchHit> byDomain = searchIndex.search("yahoo", 10);
+        List<EmployeeSearchHit> byAddress = searchIndex.search("victorsomto", 10);
+
+        // the- verify the output
+        Assertions.assertThat(byLocalPart).extracting(EmployeeSearchHit::getId).containsExactly(2L);
+        Assertions.assertThat(byDomain).extracting(EmployeeSearchHit::getId).containsExactly(3L);
+        Assertions.assertThat(byAddress).extracting(EmployeeSearchHit::getId).containsExactly(1L);
+    }
+
+    // Junit for a query of several words (every word has to match)
+
+    @Test
+    public void givenTwoWords_whenSearch_thenReturnEmployeesMatchingBoth() {
+        // given- precondition or setup
+        // when- action or behaviour we are going to test
+        List<EmployeeSearchHit> hits = searchIndex.search("somto nna", 10);
+
+        // the- verify the output
+        Assertions.assertThat(hits).extracting(EmployeeSearchHit::getId).containsExactly(3L);
+    }
+
+    // Junit for a misspelt query (names within the edit distance are returned)
+
+    @Test
+    public void givenMisspeltName_whenSearch_thenReturnCloseNames() {
+        // given- precondition or setup
+        // when- action or behaviour we are going to test
+        List<EmployeeSearchHit> hits = searchIndex.search("azubiune", 10);
+
+        // the- verify the output
+        Assertions.assertThat(hits).extracting(EmployeeSearchHit::getId).containsExactly(2L);
+    }
+
+    // Junit for index updates (changed, patched and removed employees)
+
+    @Test
+    public void givenChangedEmployees_whenSearch_thenIndexReflectsChanges() {
+        // given- precondition or setup
+        searchIndex.index(employee(1L, "Victor", "Mbah", "victorsomtochukwu@gmail.com"));
+        searchIndex.patch(2L, EmployeePatch.builder().lastName("Okafor").build());
+        searchIndex.remove(3L);
+
+        // when- action or behaviour we are going to test
+        // the- verify the output
+        Assertions.assertThat(searchIndex.search("somtochukwu", 10)).isEmpty();
+        Assertions.assertThat(searchIndex.search("victor", 10)).extracting(EmployeeSearchHit::getId).containsExactly(1L);
+        Assertions.assertThat(searchIndex.search("okafor", 10)).extracting(EmployeeSearchHit::getFirstName)
+                .containsExactly("Emeka");
+        Assertions.assertThat(searchIndex.search("nnadi", 10)).isEmpty();
+        Assertions.assertThat(searchIndex.size()).isEqualTo(2);
+    }
+
+    // Junit for the result limit
+
+    @Test
+    public void givenCommonPrefix_whenSearchWithLimit_thenReturnAtMostLimitHits() {
+        // given- precondition or setup
+        // when- action or behaviour we are going to test
+        List<EmployeeSearchHit> hits = searchIndex.search("gmail", 1);
+
+        // the- verify the output
+        Assertions.assertThat(hits).hasSize(1);
+    }
+
+    private static Employee employee(long id, String firstName, String lastName, String email) {
+        return Employee.builder()
+                .id(id)
+                .firstName(firstName)
+                .lastName(lastName)
+                .email(email)
+                .build();
+    }
+}
@@ -0,0 +1,78 @@
+package com.mbaday.springboottesting.search;
+
+import com.mbaday.springboottesting.dto.EmployeeSearchHit;
+import com.mbaday.springboottesting.model.Employee;
+import com.mbaday.springboottesting.repository.EmployeeRepository;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+// the repository calls commit on their own here, the index only changes after a commit
+@DataJpaTest
+@Import(EmployeeSearchIndex.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class EmployeeSearchListenerTest {
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    @Autowired
+    private EmployeeSearchIndex searchIndex;
+
+    @AfterEach
+    public void tearDown() {
+        employeeRepository.deleteAll();
+    }
+
+    // Junit for saving, updating and deleting through JPA (entity listener keeps the index in step)
+
+    @Test
+    public void givenJpaWrites_whenSearch_thenIndexFollowsTheEntity() {
+        // given- precondition or setup
+        Employee employee = employeeRepository.save(Employee.builder()
+                .firstName("Somtochukwu")
+                .lastName("Mbah")
+                .email("victorsomtochukwu@gmail.com")
+                .build());
+
+        // when- action or behaviour we are going to test
+        // the- verify the output
+        Assertions.assertThat(searchIndex.search("somto", 10)).extracting(EmployeeSearchHit::getId)
+                .containsExactly(employee.getId());
+
+        employee.setLastName("Okafor");
+        employeeRepository.save(employee);
+        Assertions.assertThat(searchIndex.search("okafor", 10)).hasSize(1);
+        Assertions.assertThat(searchIndex.search("mbah", 10)).isEmpty();
+
+        employeeRepository.deleteById(employee.getId());
+        Assertions.assertThat(searchIndex.search("somto", 10)).isEmpty();
+    }
+
+    // Junit for a failed insert (nothing indexed for a rolled back write)
+
+    @Test
+    public void givenDuplicateEmail_whenSave_thenNothingIndexed() {
+        // given- precondition or setup
+        employeeRepository.save(Employee.builder()
+                .firstName("Somtochukwu")
+                .lastName("Mbah")
+                .email("victorsomtochukwu@gmail.com")
+                .build());
+
+        // when- action or behaviour we are going to test
+        Assertions.assertThatThrownBy(() -> employeeRepository.save(Employee.builder()
+                .firstName("Emeka")
+                .lastName("Azubuine")
+                .email("victorsomtochukwu@gmail.com")
+                .build()));
+
+        // the- verify the output
+        Assertions.assertThat(searchIndex.search("emeka", 10)).isEmpty();
+    }
+}
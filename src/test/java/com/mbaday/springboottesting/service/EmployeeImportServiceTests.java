@@ -0,0 +1,160 @@
+package com.mbaday.springboottesting.service;
+
+import com.mbaday.springboottesting.changes.EmployeeChangeFeed;
+import com.mbaday.springboottesting.dto.BulkImportResult;
+import com.mbaday.springboottesting.dto.BulkImportRowResult;
+import com.mbaday.springboottesting.invalidation.EmployeeInvalidationOutbox;
+import com.mbaday.springboottesting.model.Employee;
+import com.mbaday.springboottesting.repository.EmployeeJdbcRepository;
+import com.mbaday.springboottesting.repository.EmployeeRepository;
+import com.mbaday.springboottesting.search.EmployeeSearchIndex;
+import com.mbaday.springboottesting.service.serviceImpl.EmployeeImportServiceImpl;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentMatchers;
+import org.mockito.BDDMockito;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+@ExtendWith(MockitoExtension.class)
+public class EmployeeImportServiceTests {
+
+    @Mock
+    private EmployeeRepository employeeRepository;
+
+    @Mock
+    private EmployeeJdbcRepository employeeJdbcRepository;
+
+    @Mock
+    private EmployeeSearchIndex searchIndex;
+
+    @Mock
+    private EmployeeInvalidationOutbox invalidationOutbox;
+
+    @Mock
+    private EmployeeChangeFeed changeFeed;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private EmployeeImportServiceImpl employeeImportService;
+
+    @BeforeEach
+    public void setUp() {
+        // batch size of 2 so the test rows span more than one batch
+        employeeImportService = new EmployeeImportServiceImpl(employeeRepository, employeeJdbcRepository,
+                searchIndex, invalidationOutbox, changeFeed, transactionManager, 2);
+    }
+
+    // Junit for bulk import with new, duplicate and invalid rows
+
+    @Test
+    public void givenMixedRows_whenImportEmployees_thenReportEveryRow() {
+        // given- precondition or setup
+        List<Employee> employees = List.of(
+                Employee.builder().firstName("Somtochukwu").lastName("Mbah")
+                        .email("victorsomtochukwu@gmail.com").build(),
+                Employee.builder().firstName("Chukwuemeka").lastName("Azubuine")
+                        .email("azubuine.emeka@gmail.com").build(),
+                Employee.builder().firstName("Sopia").email("sopia.nnadi@gmail.com").build(),
+                Employee.builder().firstName("Victor").lastName("Mbah")
+                        .email("VictorSomtochukwu@gmail.com").build(),
+                Employee.builder().firstName("Ada").lastName("Obi")
+                        .email("ada.obi@gmail.com").build());
+
+        BDDMockito.given(employeeRepository.findExistingEmails(ArgumentMatchers.anyCollection()))
+                .willReturn(Set.of("azubuine.emeka@gmail.com"))
+                .willReturn(Set.of());
+        BDDMockito.willAnswer(invocation -> {
+            List<Employee> batch = invocation.getArgument(0);
+            batch.forEach(employee -> employee.setId(employee.getEmail().length()));
+            return null;
+        }).given(employeeJdbcRepository).batchInsert(ArgumentMatchers.anyList());
+
+        // when- action or behaviour we are going to test
+        BulkImportResult result = employeeImportService.importEmployees(employees.iterator());
+
+        // the- verify the output
+        Assertions.assertThat(result.getReceived()).isEqualTo(5);
+        Assertions.assertThat(result.getCreated()).isEqualTo(2);
+        Assertions.assertThat(result.getRejected()).isEqualTo(3);
+        Assertions.assertThat(result.getRows()).extracting(BulkImportRowResult::getStatus).containsExactly(
+                BulkImportRowResult.Status.CREATED,
+                BulkImportRowResult.Status.DUPLICATE,
+                BulkImportRowResult.Status.INVALID,
+                BulkImportRowResult.Status.DUPLICATE,
+                BulkImportRowResult.Status.CREATED);
+        Mockito.verify(employeeRepository, Mockito.times(2)).findExistingEmails(ArgumentMatchers.anyCollection());
+    }
+
+    // Junit for importing a batch (one transaction, whatever the batch size) with a name too long for its column
+
+    @Test
+    public void givenBatchLargerThanBatchSize_whenImportBatch_thenOneChunkAndOverlongRowInvalid() {
+        // given- precondition or setup
+        List<Employee> employees = List.of(
+                Employee.builder().firstName("Somtochukwu").lastName("Mbah")
+                        .email("victorsomtochukwu@gmail.com").build(),
+                Employee.builder().firstName("x".repeat(Employee.MAX_LENGTH + 1)).lastName("Azubuine")
+                        .email("azubuine.emeka@gmail.com").build(),
+                Employee.builder().firstName("Ada").lastName("Obi").email("ada.obi@gmail.com").build(),
+                Employee.builder().firstName("Sopia").lastName("Nnadi").email("sopia.nnadi@gmail.com").build());
+        BDDMockito.given(employeeRepository.findExistingEmails(ArgumentMatchers.anyCollection())).willReturn(Set.of());
+
+        // when- action or behaviour we are going to test
+        BulkImportResult result = employeeImportService.importBatch(employees);
+
+        // the- verify the output
+        Assertions.assertThat(result.getRows()).extracting(BulkImportRowResult::getStatus).containsExactly(
+                BulkImportRowResult.Status.CREATED,
+                BulkImportRowResult.Status.INVALID,
+                BulkImportRowResult.Status.CREATED,
+                BulkImportRowResult.Status.CREATED);
+        Mockito.verify(employeeRepository, Mockito.times(1)).findExistingEmails(ArgumentMatchers.anyCollection());
+        Mockito.verify(employeeJdbcRepository, Mockito.times(1)).batchInsert(ArgumentMatchers.anyList());
+    }
+
+    // Junit for a create of the same email committed between the duplicate check and the insert
+
+    @Test
+    public void givenConcurrentCreateOfSameEmail_whenImportEmployees_thenRowReportedDuplicateOthersCreated() {
+        // given- precondition or setup
+        List<Employee> employees = List.of(
+                Employee.builder().firstName("Somtochukwu").lastName("Mbah")
+                        .email("  victorsomtochukwu@gmail.com ").build(),
+                Employee.builder().firstName("Chukwuemeka").lastName("Azubuine")
+                        .email("azubuine.emeka@gmail.com").build());
+        BDDMockito.given(employeeRepository.findExistingEmails(ArgumentMatchers.anyCollection())).willReturn(Set.of());
+        List<String> inserted = new ArrayList<>();
+        BDDMockito.willAnswer(invocation -> {
+            List<Employee> batch = invocation.getArgument(0);
+            if (batch.stream().anyMatch(employee -> employee.getEmail().startsWith("azubuine"))) {
+                throw new DuplicateKeyException("uk_employees_email");
+            }
+            batch.forEach(employee -> {
+                employee.setId(1L);
+                inserted.add(employee.getEmail());
+            });
+            return null;
+        }).given(employeeJdbcRepository).batchInsert(ArgumentMatchers.anyList());
+
+        // when- action or behaviour we are going to test
+        BulkImportResult result = employeeImportService.importEmployees(employees.iterator());
+
+        // the- verify the output
+        Assertions.assertThat(result.getCreated()).isEqualTo(1);
+        Assertions.assertThat(result.getRows()).extracting(BulkImportRowResult::getStatus).containsExactly(
+                BulkImportRowResult.Status.CREATED,
+                BulkImportRowResult.Status.DUPLICATE);
+        Assertions.assertThat(inserted).containsExactly("victorsomtochukwu@gmail.com");
+    }
+}
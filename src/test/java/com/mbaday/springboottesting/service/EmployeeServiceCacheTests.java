@@ -0,0 +1,119 @@
+package com.mbaday.springboottesting.service;
+
+import com.mbaday.springboottesting.changes.EmployeeChangeFeed;
+import com.mbaday.springboottesting.config.CacheConfig;
+import com.mbaday.springboottesting.dto.EmployeeView;
+import com.mbaday.springboottesting.invalidation.EmployeeInvalidationOutbox;
+import com.mbaday.springboottesting.model.Employee;
+import com.mbaday.springboottesting.repository.EmployeeJdbcRepository;
+import com.mbaday.springboottesting.repository.EmployeeRepository;
+import com.mbaday.springboottesting.search.EmployeeSearchIndex;
+import com.mbaday.springboottesting.service.serviceImpl.EmployeeServiceImpl;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.mockito.BDDMockito;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.cache.CacheAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.cache.CacheManager;
+
+import java.util.Optional;
+
+// runs the service behind the real caffeine cache proxy, with the repositories mocked out
+@SpringBootTest(classes = {EmployeeServiceImpl.class, CacheConfig.class})
+@ImportAutoConfiguration(CacheAutoConfiguration.class)
+public class EmployeeServiceCacheTests {
+
+    @Autowired
+    private EmployeeService employeeService;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @MockBean
+    private EmployeeRepository employeeRepository;
+
+    @MockBean
+    private EmployeeJdbcRepository employeeJdbcRepository;
+
+    @MockBean
+    private EmployeeSearchIndex searchIndex;
+
+    @MockBean
+    private EmployeeInvalidationOutbox invalidationOutbox;
+
+    @MockBean
+    private EmployeeChangeFeed changeFeed;
+
+    private Employee employee;
+
+    @BeforeEach
+    public void setUp() {
+        cacheManager.getCache(CacheConfig.EMPLOYEES_CACHE).clear();
+        employee = Employee.builder()
+                .id(1L)
+                .email("victorsomtochukwu@gmail.com")
+                .lastName("Mbah")
+                .firstName("Somtochukwu")
+                .build();
+    }
+
+    // Junit for repeated get employee by id (served from the cache after the first call)
+
+    @Test
+    public void givenCachedEmployee_whenGetEmployeeByIdTwice_thenRepositoryCalledOnce() {
+        // given- precondition or setup
+        BDDMockito.given(employeeRepository.findViewById(1L)).willReturn(Optional.of(EmployeeView.from(employee)));
+
+        // when- action or behaviour we are going to test
+        employeeService.getEmployeeById(1L);
+        Optional<EmployeeView> cachedEmployee = employeeService.getEmployeeById(1L);
+
+        // the- verify the output
+        Assertions.assertThat(cachedEmployee).contains(EmployeeView.from(employee));
+        Mockito.verify(employeeRepository, Mockito.times(1)).findViewById(1L);
+    }
+
+    // Junit for update employee (cache entry replaced with the updated employee)
+
+    @Test
+    public void givenCachedEmployee_whenUpdateEmployee_thenCacheHoldsUpdatedEmployee() {
+        // given- precondition or setup
+        BDDMockito.given(employeeRepository.findViewById(1L)).willReturn(Optional.of(EmployeeView.from(employee)));
+        employeeService.getEmployeeById(1L);
+
+        Employee updatedEmployee = employee.toBuilder().firstName("Emeka").build();
+        BDDMockito.given(employeeRepository.findById(1L)).willReturn(Optional.of(employee.toBuilder().build()));
+        BDDMockito.given(employeeRepository.saveAndFlush(ArgumentMatchers.any(Employee.class)))
+                .willAnswer(invocation -> invocation.getArgument(0));
+
+        // when- action or behaviour we are going to test
+        employeeService.updateEmployee(updatedEmployee);
+
+        // the- verify the output
+        Assertions.assertThat(employeeService.getEmployeeById(1L).get().getFirstName()).isEqualTo("Emeka");
+        Mockito.verify(employeeRepository, Mockito.times(1)).findViewById(1L);
+    }
+
+    // Junit for delete employee (cache entry evicted)
+
+    @Test
+    public void givenCachedEmployee_whenDeleteEmployee_thenNextGetGoesToRepository() {
+        // given- precondition or setup
+        BDDMockito.given(employeeRepository.findViewById(1L)).willReturn(Optional.of(EmployeeView.from(employee)));
+        BDDMockito.given(employeeRepository.deleteEmployeeById(1L)).willReturn(1);
+        employeeService.getEmployeeById(1L);
+
+        // when- action or behaviour we are going to test
+        employeeService.deleteEmployee(1L);
+        employeeService.getEmployeeById(1L);
+
+        // the- verify the output
+        Mockito.verify(employeeRepository, Mockito.times(2)).findViewById(1L);
+    }
+}
@@ -0,0 +1,93 @@
+package com.mbaday.springboottesting.service;
+
+import com.mbaday.springboottesting.changes.EmployeeChangeFeed;
+import com.mbaday.springboottesting.config.MetricsConfig;
+import com.mbaday.springboottesting.dto.EmployeeView;
+import com.mbaday.springboottesting.invalidation.EmployeeInvalidationOutbox;
+import com.mbaday.springboottesting.repository.EmployeeJdbcRepository;
+import com.mbaday.springboottesting.repository.EmployeeRepository;
+import com.mbaday.springboottesting.search.EmployeeSearchIndex;
+import com.mbaday.springboottesting.service.serviceImpl.EmployeeServiceImpl;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.mockito.BDDMockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.aop.AopAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.dao.QueryTimeoutException;
+
+import java.util.List;
+
+// runs the service behind the @Timed aspect, with the repositories mocked out
+@SpringBootTest(classes = {EmployeeServiceImpl.class, MetricsConfig.class, SimpleMeterRegistry.class})
+@ImportAutoConfiguration(AopAutoConfiguration.class)
+public class EmployeeServiceMetricsTests {
+
+    @Autowired
+    private EmployeeService employeeService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @MockBean
+    private EmployeeRepository employeeRepository;
+
+    @MockBean
+    private EmployeeJdbcRepository employeeJdbcRepository;
+
+    @MockBean
+    private EmployeeSearchIndex searchIndex;
+
+    @MockBean
+    private EmployeeInvalidationOutbox invalidationOutbox;
+
+    @MockBean
+    private EmployeeChangeFeed changeFeed;
+
+    // Junit for a service call (timed per method)
+
+    @Test
+    public void givenServiceCall_whenGetEmployeesAfter_thenTimerRecordedForMethod() {
+        // given- precondition or setup
+        BDDMockito.given(employeeRepository.findViewsAfter(ArgumentMatchers.eq(0L), ArgumentMatchers.any()))
+                .willReturn(List.of(new EmployeeView(1L, "Somtochukwu", "Mbah", "victorsomtochukwu@gmail.com", 0L)));
+
+        // when- action or behaviour we are going to test
+        employeeService.getEmployeesAfter(0L, 10);
+        employeeService.getEmployeesAfter(0L, 10);
+
+        // the- verify the output
+        Timer timer = meterRegistry.find(MetricsConfig.SERVICE_TIMER)
+                .tag("class", EmployeeServiceImpl.class.getName())
+                .tag("method", "getEmployeesAfter")
+                .timer();
+        Assertions.assertThat(timer).isNotNull();
+        Assertions.assertThat(timer.count()).isEqualTo(2);
+    }
+
+    // Junit for a failing service call (timed with the exception as tag)
+
+    @Test
+    public void givenFailingRepository_whenDeleteEmployee_thenTimerTaggedWithException() {
+        // given- precondition or setup
+        BDDMockito.given(employeeRepository.deleteEmployeeById(5L)).willThrow(new QueryTimeoutException("timeout"));
+
+        // when- action or behaviour we are going to test
+        Assertions.assertThatThrownBy(() -> employeeService.deleteEmployee(5L))
+                .isInstanceOf(QueryTimeoutException.class);
+
+        // the- verify the output
+        Timer timer = meterRegistry.find(MetricsConfig.SERVICE_TIMER)
+                .tag("method", "deleteEmployee")
+                .tag("exception", QueryTimeoutException.class.getSimpleName())
+                .timer();
+        Assertions.assertThat(timer).isNotNull();
+        Assertions.assertThat(timer.count()).isEqualTo(1);
+    }
+}
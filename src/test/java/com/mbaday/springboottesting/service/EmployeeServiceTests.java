@@ -1,20 +1,38 @@
 package com.mbaday.springboottesting.service;
 
+import com.mbaday.springboottesting.changes.EmployeeChangeFeed;
+import com.mbaday.springboottesting.dto.EmployeeDelta;
+import com.mbaday.springboottesting.dto.EmployeePatch;
+import com.mbaday.springboottesting.dto.EmployeeView;
+import com.mbaday.springboottesting.dto.ModifiedEmployeeView;
 import com.mbaday.springboottesting.exception.ResourceNotFoundException;
+import com.mbaday.springboottesting.invalidation.EmployeeInvalidationOutbox;
 import com.mbaday.springboottesting.model.Employee;
+import com.mbaday.springboottesting.repository.EmployeeJdbcRepository;
 import com.mbaday.springboottesting.repository.EmployeeRepository;
+import com.mbaday.springboottesting.search.EmployeeSearchIndex;
 import com.mbaday.springboottesting.service.serviceImpl.EmployeeServiceImpl;
 import org.assertj.core.api.Assertions;
 import org.junit.jupiter.api.AssertionFailureBuilder;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentMatchers;
 import org.mockito.BDDMockito;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
-
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
@@ -25,6 +43,18 @@ public class EmployeeServiceTests {
     @Mock
     private EmployeeRepository employeeRepository;
 
+    @Mock
+    private EmployeeJdbcRepository employeeJdbcRepository;
+
+    @Mock
+    private EmployeeSearchIndex searchIndex;
+
+    @Mock
+    private EmployeeInvalidationOutbox invalidationOutbox;
+
+    @Mock
+    private EmployeeChangeFeed changeFeed;
+
     @InjectMocks
     private EmployeeServiceImpl employeeService;
 
@@ -54,13 +84,11 @@ public class EmployeeServiceTests {
 //                    .firstName("Somtochukwu")
 //                    .build();
 
-        BDDMockito.given(employeeRepository.findByEmail(employee.getEmail())).willReturn(Optional.empty());
-
-        BDDMockito.given(employeeRepository.save(employee)).willReturn(employee);
+        BDDMockito.given(employeeRepository.saveAndFlush(ArgumentMatchers.any(Employee.class))).willReturn(employee);
 
         // when- action or behaviour we are going to test
 
-        Employee savedEmployee = employeeService.saveEmployee(employee);
+        EmployeeView savedEmployee = employeeService.saveEmployee(employee);
         // the- verify the output
 
         Assertions.assertThat(savedEmployee).isNotNull();
@@ -73,8 +101,10 @@ public class EmployeeServiceTests {
         // given- precondition or setup
 //    stubbing of method after creating the object of Employee
 
-        BDDMockito.given(employeeRepository.findByEmail(employee.getEmail())).
-                willReturn(Optional.of(employee));
+        BDDMockito.given(employeeRepository.saveAndFlush(ArgumentMatchers.any(Employee.class))).
+                willThrow(new DataIntegrityViolationException("could not execute statement",
+                        new SQLIntegrityConstraintViolationException(
+                                "Duplicate entry 'victorsomtochukwu@gmail.com' for key 'employees.uk_employees_email'")));
 
         // when- action or behaviour we are going to test
 
@@ -82,8 +112,8 @@ public class EmployeeServiceTests {
                 employeeService.saveEmployee(employee));
         // the- verify the output
 
-        // this will ensure that the statement exits without returning the saved employee after throwing error
-        Mockito.verify(employeeRepository, Mockito.never()).save(Mockito.any(Employee.class));
+        // the create path relies on the unique index, there is no separate lookup by email any more
+        Mockito.verify(employeeRepository, Mockito.never()).findByEmail(Mockito.anyString());
 
     }
 
@@ -99,9 +129,10 @@ public class EmployeeServiceTests {
                 .build();
 
         // when- action or behaviour we are going to test
-        BDDMockito.given(employeeRepository.findAll()).willReturn(List.of(employee, employee1));
+        BDDMockito.given(employeeRepository.findAllViews())
+                .willReturn(List.of(EmployeeView.from(employee), EmployeeView.from(employee1)));
 
-        List<Employee> employeeList = employeeService.getAllEmployees();
+        List<EmployeeView> employeeList = employeeService.getAllEmployees();
 
         // the- verify the output
 
@@ -122,9 +153,9 @@ public class EmployeeServiceTests {
                 .build();
 
         // when- action or behaviour we are going to test
-        BDDMockito.given(employeeRepository.findAll()).willReturn(Collections.emptyList());
+        BDDMockito.given(employeeRepository.findAllViews()).willReturn(Collections.emptyList());
 
-        List<Employee> employeeList = employeeService.getAllEmployees();
+        List<EmployeeView> employeeList = employeeService.getAllEmployees();
 
         // the- verify the output
 
@@ -138,13 +169,15 @@ public class EmployeeServiceTests {
         public void givenEmployeeObject_whenGetEmployeeById_thenReturnEmployeeObject(){
             // given- precondition or setup
 
-            BDDMockito.given(employeeRepository.findById(1L)).willReturn(Optional.of(employee));
+            BDDMockito.given(employeeRepository.findViewById(1L)).willReturn(Optional.of(EmployeeView.from(employee)));
             // when- action or behaviour we are going to test
 
-            Employee savedEmployee = employeeService.getEmployeeById(employee.getId()).get();
+            EmployeeView savedEmployee = employeeService.getEmployeeById(employee.getId()).get();
             // the- verify the output
 
             Assertions.assertThat(savedEmployee).isNotNull();
+            // read as a projection, never as a managed entity
+            Mockito.verify(employeeRepository, Mockito.never()).findById(Mockito.anyLong());
         }
 
         // Junit for updating Employee information
@@ -152,34 +185,242 @@ public class EmployeeServiceTests {
             @Test
             public void givenEmployeeObject_whenUpdateEmployee_thenReturnEmployeeObject(){
                 // given- precondition or setup
-        BDDMockito.given(employeeRepository.save(employee)).willReturn(employee);
+        BDDMockito.given(employeeRepository.findById(1L)).willReturn(Optional.of(employee.toBuilder().build()));
+        BDDMockito.given(employeeRepository.saveAndFlush(ArgumentMatchers.any(Employee.class)))
+                .willAnswer(invocation -> invocation.getArgument(0));
         employee.setFirstName("Emeka");
         employee.setEmail("azubuine.emeka@gmail.com");
 
                 // when- action or behaviour we are going to test
-        Employee updatedEmployee = employeeService.updateEmployee(employee);
+        EmployeeView updatedEmployee = employeeService.updateEmployee(employee);
                 // the- verify the output
 
-        Assertions.assertThat(employee.getFirstName()).isEqualTo("Emeka");
-        Assertions.assertThat(employee.getEmail()).isEqualTo("azubuine.emeka@gmail.com");
+        Assertions.assertThat(updatedEmployee.getFirstName()).isEqualTo("Emeka");
+        Assertions.assertThat(updatedEmployee.getEmail()).isEqualTo("azubuine.emeka@gmail.com");
             }
 
+    // Junit for update employee (the stored audit columns kept, a changed version rejected)
+
+    @Test
+    public void givenStoredEmployee_whenUpdateEmployee_thenAuditColumnsKeptAndStaleVersionRejected() {
+        // given- precondition or setup
+        Instant createdAt = Instant.parse("2024-01-01T00:00:00Z");
+        Employee stored = employee.toBuilder().createdAt(createdAt).updatedAt(createdAt).build();
+        BDDMockito.given(employeeRepository.findById(1L)).willReturn(Optional.of(stored));
+        BDDMockito.given(employeeRepository.saveAndFlush(stored)).willReturn(stored);
+
+        // when- action or behaviour we are going to test
+        employeeService.updateEmployee(employee.toBuilder().firstName("Emeka").build());
+
+        // the- verify the output
+        Assertions.assertThat(stored.getFirstName()).isEqualTo("Emeka");
+        Assertions.assertThat(stored.getCreatedAt()).isEqualTo(createdAt);
+        Assertions.assertThatThrownBy(() -> employeeService.updateEmployee(employee.toBuilder().version(7L).build()))
+                .isInstanceOf(ObjectOptimisticLockingFailureException.class);
+    }
+
+    // Junit for update employee to an email another employee already has
+
+    @Test
+    public void givenExistingEmail_whenUpdateEmployee_thenReturnException() {
+        // given- precondition or setup
+        BDDMockito.given(employeeRepository.findById(1L)).willReturn(Optional.of(employee.toBuilder().build()));
+        BDDMockito.given(employeeRepository.saveAndFlush(ArgumentMatchers.any(Employee.class))).
+                willThrow(new DataIntegrityViolationException("could not execute statement",
+                        new SQLIntegrityConstraintViolationException(
+                                "Duplicate entry 'azubuine.emeka@gmail.com' for key 'employees.uk_employees_email'")));
+
+        // when- action or behaviour we are going to test
+        Assertions.assertThatThrownBy(() -> employeeService.updateEmployee(
+                        employee.toBuilder().email("azubuine.emeka@gmail.com").build()))
+        // the- verify the output
+                .isInstanceOf(ResourceNotFoundException.class)
+                .hasMessageContaining("azubuine.emeka@gmail.com");
+        Mockito.verifyNoInteractions(invalidationOutbox, changeFeed);
+    }
+
             // Junit for delete employee by id
 
             @Test
             public void givenEmployeeId_whenDeleteId_thenNothing(){
             // given- precondition or setup
 
-                BDDMockito.willDoNothing().given(employeeRepository).deleteById(1L);
+                BDDMockito.given(employeeRepository.deleteEmployeeById(1L)).willReturn(1);
 
             // when- action or behaviour we are going to test
 
-                employeeService.deleteById(1L);
+                employeeService.deleteEmployee(1L);
 
             // the- verify the output
 
-                Mockito.verify(employeeRepository, Mockito.times(1)).deleteById(1L);
+                Mockito.verify(employeeRepository, Mockito.times(1)).deleteEmployeeById(1L);
 
                 }
-}
 
+    // Junit for keyset page of employees
+
+    @Test
+    public void givenCursor_whenGetEmployeesAfter_thenQueryFirstPageAfterCursor(){
+        // given- precondition or setup
+        BDDMockito.given(employeeRepository.findViewsAfter(1L, PageRequest.of(0, 50)))
+                .willReturn(List.of(EmployeeView.from(employee)));
+
+        // when- action or behaviour we are going to test
+        List<EmployeeView> employeeList = employeeService.getEmployeesAfter(1L, 50);
+
+        // the- verify the output
+        Assertions.assertThat(employeeList).containsExactly(EmployeeView.from(employee));
+    }
+
+    // Junit for savedEmployee method when a constraint other than the email index fails
+
+    @Test
+    public void givenOtherConstraintViolation_whenSaveEmployee_thenRethrowOriginalException() {
+        // given- precondition or setup
+        BDDMockito.given(employeeRepository.saveAndFlush(ArgumentMatchers.any(Employee.class))).
+                willThrow(new DataIntegrityViolationException("could not execute statement",
+                        new SQLIntegrityConstraintViolationException("Column 'first_name' cannot be null")));
+
+        // when- action or behaviour we are going to test
+
+        org.junit.jupiter.api.Assertions.assertThrows(DataIntegrityViolationException.class, () ->
+                employeeService.saveEmployee(employee));
+    }
+
+    // Junit for patch employee (row found and updated)
+
+    @Test
+    public void givenEmployeePatch_whenPatchEmployee_thenReturnTrue() {
+        // given- precondition or setup
+        EmployeePatch patch = EmployeePatch.builder().firstName("Emeka").build();
+        BDDMockito.given(employeeJdbcRepository.patch(1L, patch)).willReturn(1);
+
+        // when- action or behaviour we are going to test
+        boolean patched = employeeService.patchEmployee(1L, patch);
+
+        // the- verify the output
+        Assertions.assertThat(patched).isTrue();
+        Mockito.verify(employeeRepository, Mockito.never()).findById(Mockito.anyLong());
+    }
+
+    // Junit for patch employee (no row with the id)
+
+    @Test
+    public void givenUnknownId_whenPatchEmployee_thenReturnFalse() {
+        // given- precondition or setup
+        EmployeePatch patch = EmployeePatch.builder().firstName("Emeka").build();
+        BDDMockito.given(employeeJdbcRepository.patch(2L, patch)).willReturn(0);
+
+        // when- action or behaviour we are going to test
+        // the- verify the output
+        Assertions.assertThat(employeeService.patchEmployee(2L, patch)).isFalse();
+    }
+
+    // Junit for delete employee (one DELETE, result taken from the affected rows)
+
+    @Test
+    public void givenEmployeeId_whenDeleteEmployee_thenSingleDeleteStatement() {
+        // given- precondition or setup
+        BDDMockito.given(employeeRepository.deleteEmployeeById(1L)).willReturn(1);
+        BDDMockito.given(employeeRepository.deleteEmployeeById(2L)).willReturn(0);
+
+        // when- action or behaviour we are going to test
+        boolean deleted = employeeService.deleteEmployee(1L);
+        boolean missingDeleted = employeeService.deleteEmployee(2L);
+
+        // the- verify the output
+        Assertions.assertThat(deleted).isTrue();
+        Assertions.assertThat(missingDeleted).isFalse();
+        Mockito.verify(employeeRepository, Mockito.never()).findById(Mockito.anyLong());
+    }
+
+    // Junit for bulk delete (duplicates removed, IN-list split into chunks)
+
+    @Test
+    public void givenManyIds_whenDeleteEmployees_thenDeleteInChunks() {
+        // given- precondition or setup
+        List<Long> ids = new ArrayList<>();
+        for (long id = 1; id <= 2500; id++) {
+            ids.add(id);
+        }
+        ids.add(1L);
+        BDDMockito.given(employeeRepository.deleteEmployeesByIds(ArgumentMatchers.anyCollection()))
+                .willAnswer(invocation -> ((Collection<?>) invocation.getArgument(0)).size());
+
+        // when- action or behaviour we are going to test
+        int deleted = employeeService.deleteEmployees(ids);
+
+        // the- verify the output
+        Assertions.assertThat(deleted).isEqualTo(2500);
+        Mockito.verify(employeeRepository, Mockito.times(3)).deleteEmployeesByIds(ArgumentMatchers.anyCollection());
+    }
+
+    // Junit for name search (last name only uses the last name query)
+
+    @Test
+    public void givenOnlyLastName_whenFindEmployeesByName_thenQueryByLastName() {
+        // given- precondition or setup
+        BDDMockito.given(employeeRepository.findViewsByLastName("Mbah", 0L, PageRequest.of(0, 20)))
+                .willReturn(List.of(EmployeeView.from(employee)));
+
+        // when- action or behaviour we are going to test
+        List<EmployeeView> employees = employeeService.findEmployeesByName("Mbah", " ", 0L, 20);
+
+        // the- verify the output
+        Assertions.assertThat(employees).containsExactly(EmployeeView.from(employee));
+        Mockito.verify(employeeRepository, Mockito.never()).findViewsByName(
+                ArgumentMatchers.anyString(), ArgumentMatchers.anyString(), ArgumentMatchers.anyLong(), ArgumentMatchers.any());
+    }
+
+    // Junit for a delta larger than a page (the watermark moves to the last row, deletes up to it go with it)
+
+    @Test
+    public void givenMoreChangesThanLimit_whenGetEmployeesModifiedSince_thenPageEndsAtLastRow() {
+        // given- precondition or setup
+        ReflectionTestUtils.setField(employeeService, "deltaOverlap", Duration.ofSeconds(15));
+        Instant since = Instant.parse("2026-01-01T10:00:00Z");
+        Instant lastWrite = Instant.parse("2026-01-01T10:01:00Z");
+        BDDMockito.given(employeeRepository.findViewsModifiedSince(since, 0L, PageRequest.of(0, 2)))
+                .willReturn(List.of(
+                        new ModifiedEmployeeView(1L, "Somtochukwu", "Mbah", "victorsomtochukwu@gmail.com", 1L,
+                                since.plusSeconds(1)),
+                        new ModifiedEmployeeView(5L, "Chukwuemeka", "Azubuine", "azubuine.emeka@gmail.com", 0L,
+                                lastWrite)));
+        BDDMockito.given(changeFeed.findDeletedBetween(since, lastWrite)).willReturn(List.of(3L));
+
+        // when- action or behaviour we are going to test
+        EmployeeDelta delta = employeeService.getEmployeesModifiedSince(since, 0L, 2);
+
+        // the- verify the output
+        Assertions.assertThat(delta.getChanged()).extracting(EmployeeView::getId).containsExactly(1L, 5L);
+        Assertions.assertThat(delta.getDeleted()).containsExactly(3L);
+        Assertions.assertThat(delta.getNextModifiedSince()).isEqualTo(lastWrite);
+        Assertions.assertThat(delta.getNextAfterId()).isEqualTo(5L);
+        Assertions.assertThat(delta.isComplete()).isFalse();
+    }
+
+    // Junit for the first, full sync (rows without audit columns first, then the audited ones, in one page)
+
+    @Test
+    public void givenEpoch_whenGetEmployeesModifiedSince_thenNeverModifiedRowsThenAuditedRowsWithoutDeletes() {
+        // given- precondition or setup
+        ReflectionTestUtils.setField(employeeService, "deltaOverlap", Duration.ofSeconds(15));
+        BDDMockito.given(employeeRepository.findViewsNeverModified(0L, PageRequest.of(0, 3)))
+                .willReturn(List.of(EmployeeView.from(employee)));
+        BDDMockito.given(employeeRepository.findViewsModifiedSince(Instant.EPOCH, 0L, PageRequest.of(0, 2)))
+                .willReturn(List.of(new ModifiedEmployeeView(2L, "Chukwuemeka", "Azubuine",
+                        "azubuine.emeka@gmail.com", 0L, Instant.parse("2026-01-01T10:00:00Z"))));
+        Instant before = Instant.now().minusSeconds(15);
+
+        // when- action or behaviour we are going to test
+        EmployeeDelta delta = employeeService.getEmployeesModifiedSince(Instant.EPOCH, 0L, 3);
+
+        // the- verify the output
+        Assertions.assertThat(delta.getChanged()).extracting(EmployeeView::getId).containsExactly(1L, 2L);
+        Assertions.assertThat(delta.getDeleted()).isEmpty();
+        Assertions.assertThat(delta.isComplete()).isTrue();
+        Assertions.assertThat(delta.getNextModifiedSince()).isAfterOrEqualTo(before);
+        Assertions.assertThat(delta.getNextAfterId()).isZero();
+        Mockito.verifyNoInteractions(changeFeed);
+    }
+}
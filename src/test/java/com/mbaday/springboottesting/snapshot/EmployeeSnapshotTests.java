@@ -0,0 +1,193 @@
+package com.mbaday.springboottesting.snapshot;
+
+import com.mbaday.springboottesting.changes.EmployeeChangeFeed;
+import com.mbaday.springboottesting.config.CacheConfig;
+import com.mbaday.springboottesting.config.SnapshotCacheConfig;
+import com.mbaday.springboottesting.dto.EmployeeView;
+import com.mbaday.springboottesting.dto.ModifiedEmployeeView;
+import com.mbaday.springboottesting.invalidation.EmployeeInvalidationOutbox;
+import com.mbaday.springboottesting.repository.DatabaseIdentityRepository;
+import com.mbaday.springboottesting.repository.EmployeeJdbcRepository;
+import com.mbaday.springboottesting.repository.EmployeeRepository;
+import com.mbaday.springboottesting.search.EmployeeSearchIndex;
+import com.mbaday.springboottesting.service.EmployeeService;
+import com.mbaday.springboottesting.service.serviceImpl.EmployeeServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentMatchers;
+import org.mockito.BDDMockito;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.cache.CacheAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+// runs the service behind the real caffeine cache with a snapshot left by a previous run, repositories mocked out
+@SpringBootTest(classes = {EmployeeServiceImpl.class, CacheConfig.class, SnapshotCacheConfig.class,
+        EmployeeSnapshot.class, SimpleMeterRegistry.class, EmployeeSnapshotTests.ChangedSinceSnapshot.class},
+        properties = "employees.snapshot.enabled=true")
+@ImportAutoConfiguration(CacheAutoConfiguration.class)
+public class EmployeeSnapshotTests {
+
+    @TempDir
+    static Path snapshotDirectory;
+
+    @DynamicPropertySource
+    static void snapshotProperties(DynamicPropertyRegistry registry) {
+        registry.add("employees.snapshot.path", () -> snapshotDirectory.resolve("employees.snapshot").toString());
+    }
+
+    private static final UUID DATABASE_ID = UUID.randomUUID();
+
+    private static final EmployeeView CHANGED =
+            new EmployeeView(2L, "Chukwuemeka", "Azubuine", "emeka@azubuine.com", 1L);
+
+    // the repository as the reconciliation at startup finds it: employee 2 changed since the snapshot was taken
+    @TestConfiguration
+    static class ChangedSinceSnapshot {
+
+        @Bean
+        public EmployeeRepository employeeRepository() {
+            EmployeeRepository employeeRepository = Mockito.mock(EmployeeRepository.class);
+            BDDMockito.given(employeeRepository.findViewsModifiedSince(ArgumentMatchers.any(), ArgumentMatchers.anyLong(),
+                            ArgumentMatchers.any()))
+                    .willReturn(List.of(new ModifiedEmployeeView(CHANGED.getId(), CHANGED.getFirstName(),
+                            CHANGED.getLastName(), CHANGED.getEmail(), CHANGED.getVersion(), Instant.now())));
+            BDDMockito.given(employeeRepository.findViewById(2L)).willReturn(Optional.of(CHANGED));
+            BDDMockito.given(employeeRepository.deleteEmployeeById(1L)).willReturn(1);
+            return employeeRepository;
+        }
+
+        @Bean
+        public DatabaseIdentityRepository databaseIdentityRepository() {
+            DatabaseIdentityRepository databaseIdentityRepository = Mockito.mock(DatabaseIdentityRepository.class);
+            BDDMockito.given(databaseIdentityRepository.getDatabaseId()).willReturn(DATABASE_ID);
+            return databaseIdentityRepository;
+        }
+    }
+
+    @BeforeAll
+    public static void writeSnapshot() throws Exception {
+        EmployeeSnapshotFile.write(snapshotDirectory.resolve("employees.snapshot"), List.of(
+                new EmployeeView(1L, "Somtochukwu", "Mbah", "victorsomtochukwu@gmail.com", 0L),
+                new EmployeeView(2L, "Chukwuemeka", "Azubuine", "azubuine.emeka@gmail.com", 0L)),
+                Instant.now().minus(Duration.ofMinutes(1)), DATABASE_ID);
+    }
+
+    @Autowired
+    private EmployeeService employeeService;
+
+    @Autowired
+    private EmployeeSnapshot snapshot;
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    @MockBean
+    private EmployeeJdbcRepository employeeJdbcRepository;
+
+    @MockBean
+    private EmployeeSearchIndex searchIndex;
+
+    @MockBean
+    private EmployeeInvalidationOutbox invalidationOutbox;
+
+    @MockBean
+    private EmployeeChangeFeed changeFeed;
+
+    // Junit for the snapshot file (lookup by id through the mapped index)
+
+    @Test
+    public void givenWrittenSnapshot_whenOpen_thenEmployeesFoundById(@TempDir Path directory) throws Exception {
+        // given- precondition or setup
+        Instant takenAt = Instant.ofEpochMilli(1_700_000_000_000L);
+        EmployeeSnapshotFile.write(directory.resolve("snapshot"), List.of(
+                new EmployeeView(42L, "Chidiebube", "Ọkafọr", "chidi@example.com", 3L),
+                new EmployeeView(7L, "Somtochukwu", "Mbah", "victorsomtochukwu@gmail.com", 1L)), takenAt, DATABASE_ID);
+
+        // when- action or behaviour we are going to test
+        EmployeeSnapshotFile file = EmployeeSnapshotFile.open(directory.resolve("snapshot"));
+
+        // the- verify the output
+        Assertions.assertThat(file.size()).isEqualTo(2);
+        Assertions.assertThat(file.getTakenAt()).isEqualTo(takenAt);
+        Assertions.assertThat(file.getDatabaseId()).isEqualTo(DATABASE_ID);
+        Assertions.assertThat(file.find(42L))
+                .contains(new EmployeeView(42L, "Chidiebube", "Ọkafọr", "chidi@example.com", 3L));
+        Assertions.assertThat(file.find(7L).map(EmployeeView::getEmail)).contains("victorsomtochukwu@gmail.com");
+        Assertions.assertThat(file.find(8L)).isEmpty();
+    }
+
+    // Junit for a snapshot taken from another database (not served)
+
+    @Test
+    public void givenSnapshotOfAnotherDatabase_whenStart_thenNotServed(@TempDir Path directory) throws Exception {
+        // given- precondition or setup
+        EmployeeSnapshotFile.write(directory.resolve("snapshot"), List.of(
+                new EmployeeView(1L, "Somtochukwu", "Mbah", "victorsomtochukwu@gmail.com", 0L)),
+                Instant.now(), UUID.randomUUID());
+        DatabaseIdentityRepository databaseIdentityRepository = Mockito.mock(DatabaseIdentityRepository.class);
+        BDDMockito.given(databaseIdentityRepository.getDatabaseId()).willReturn(DATABASE_ID);
+        EmployeeSnapshot otherSnapshot = new EmployeeSnapshot(employeeService, new ConcurrentMapCacheManager(),
+                new SimpleMeterRegistry(), databaseIdentityRepository, directory.resolve("snapshot"),
+                Duration.ofHours(1), Duration.ofHours(1), Duration.ofMinutes(10), Duration.ofSeconds(15));
+
+        // when- action or behaviour we are going to test
+        otherSnapshot.start();
+
+        // the- verify the output
+        try {
+            Assertions.assertThat(otherSnapshot.isServing()).isFalse();
+            Assertions.assertThat(otherSnapshot.find(1L)).isEmpty();
+        } finally {
+            otherSnapshot.stop();
+        }
+    }
+
+    // Junit for a warm start (misses served from the snapshot, changed and written employees from the database)
+
+    @Test
+    public void givenSnapshotFromLastRun_whenGetEmployeeById_thenOnlyChangedEmployeesReadFromDatabase()
+            throws Exception {
+        // given- precondition or setup
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (!snapshot.isReconciled() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+
+        // when- action or behaviour we are going to test
+        Optional<EmployeeView> warm = employeeService.getEmployeeById(1L);
+        Optional<EmployeeView> reconciled = employeeService.getEmployeeById(2L);
+        employeeService.deleteEmployee(1L);
+        Optional<EmployeeView> deleted = employeeService.getEmployeeById(1L);
+
+        // the- verify the output
+        Assertions.assertThat(snapshot.isReconciled()).isTrue();
+        Assertions.assertThat(warm.map(EmployeeView::getFirstName)).contains("Somtochukwu");
+        Assertions.assertThat(reconciled).contains(CHANGED);
+        Assertions.assertThat(deleted).isEmpty();
+        Mockito.verify(employeeRepository, Mockito.times(1)).findViewById(1L);
+        Mockito.verify(employeeRepository, Mockito.times(1)).findViewById(2L);
+
+        snapshot.write();
+        EmployeeSnapshotFile written = EmployeeSnapshotFile.open(snapshotDirectory.resolve("employees.snapshot"));
+        Assertions.assertThat(written.find(1L)).isEmpty();
+        Assertions.assertThat(written.find(2L)).contains(CHANGED);
+    }
+}
@@ -0,0 +1,181 @@
+package com.mbaday.springboottesting.throttle;
+
+import com.mbaday.springboottesting.datasource.StatementCountingDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Test;
+import org.mockito.BDDMockito;
+import org.mockito.Mockito;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+public class LoadSheddingFilterTests {
+
+    private MeterRegistry meterRegistry;
+
+    private AdaptiveConcurrencyLimit concurrencyLimit;
+
+    private LoadSheddingFilter filter;
+
+    @BeforeEach
+    public void setup() {
+        meterRegistry = new SimpleMeterRegistry();
+        concurrencyLimit = new AdaptiveConcurrencyLimit(1, 1, 10, 2.0);
+        filter = new LoadSheddingFilter(
+                List.of(new LoadSheddingFilter.EndpointRateLimit("GET", "/api/employees", 0.1, 2)),
+                new LoadSheddingFilter.EndpointRateLimit(null, null, 100, 100),
+                "X-Client-Id", concurrencyLimit, List.of(), meterRegistry);
+    }
+
+    // Junit for a client over the rate limit of an endpoint (the other client and the other endpoints unaffected)
+
+    @Test
+    public void givenEndpointBucketEmpty_whenRequest_thenTooManyRequests() throws Exception {
+        // given- precondition or setup
+        perform("GET", "/api/employees", "greedy");
+        perform("GET", "/api/employees", "greedy");
+
+        // when- action or behaviour we are going to test
+        MockHttpServletResponse response = perform("GET", "/api/employees", "greedy");
+
+        // the- verify the output
+        Assertions.assertThat(response.getStatus()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS.value());
+        Assertions.assertThat(response.getHeader(HttpHeaders.RETRY_AFTER)).isEqualTo("10");
+        Assertions.assertThat(perform("GET", "/api/employees", "polite").getStatus()).isEqualTo(200);
+        Assertions.assertThat(perform("GET", "/api/employees/1", "greedy").getStatus()).isEqualTo(200);
+        Assertions.assertThat(meterRegistry.get(LoadSheddingFilter.REJECTIONS_COUNTER).tag("reason", "rate-limit")
+                .counter().count()).isEqualTo(1);
+    }
+
+    // Junit for a client sending a new client id every time (no client header configured, one bucket per address)
+
+    @Test
+    public void givenClientHeaderNotConfigured_whenClientIdChanges_thenSameBucket() throws Exception {
+        // given- precondition or setup
+        filter = new LoadSheddingFilter(
+                List.of(new LoadSheddingFilter.EndpointRateLimit("GET", "/api/employees", 0.1, 2)),
+                new LoadSheddingFilter.EndpointRateLimit(null, null, 100, 100),
+                "", concurrencyLimit, List.of(), meterRegistry);
+        perform("GET", "/api/employees", "first");
+        perform("GET", "/api/employees", "second");
+
+        // when- action or behaviour we are going to test
+        MockHttpServletResponse response = perform("GET", "/api/employees", "third");
+
+        // the- verify the output
+        Assertions.assertThat(response.getStatus()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS.value());
+    }
+
+    // Junit for a request over the concurrency limit
+
+    @Test
+    public void givenConcurrencyLimitReached_whenRequest_thenServiceUnavailable() throws Exception {
+        // given- precondition or setup
+        Assertions.assertThat(concurrencyLimit.tryAcquire()).isTrue();
+
+        // when- action or behaviour we are going to test
+        MockHttpServletResponse response = perform("GET", "/api/employees/1", "client");
+
+        // the- verify the output
+        Assertions.assertThat(response.getStatus()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE.value());
+        Assertions.assertThat(meterRegistry.get(LoadSheddingFilter.REJECTIONS_COUNTER).tag("reason", "concurrency")
+                .counter().count()).isEqualTo(1);
+        concurrencyLimit.release();
+        Assertions.assertThat(perform("GET", "/api/employees/1", "client").getStatus()).isEqualTo(200);
+    }
+
+    // Junit for the adaptive limit (grows while latency is steady, shrinks when it rises)
+
+    @Test
+    public void givenLatencyRises_whenRequestsComplete_thenLimitShrinks() {
+        // given- precondition or setup
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(20, 5, 200, 2.0);
+        for (int i = 0; i < 50; i++) {
+            fillAndRelease(limit, TimeUnit.MILLISECONDS.toNanos(10));
+        }
+        int steadyLimit = limit.getLimit();
+
+        // when- action or behaviour we are going to test
+        for (int i = 0; i < 5; i++) {
+            fillAndRelease(limit, TimeUnit.MILLISECONDS.toNanos(200));
+        }
+
+        // the- verify the output
+        Assertions.assertThat(steadyLimit).isGreaterThan(20);
+        Assertions.assertThat(limit.getLimit()).isLessThan(steadyLimit);
+        Assertions.assertThat(limit.getInFlight()).isEqualTo(0);
+    }
+
+    // Junit for the sample of the adaptive limit (the database time of a request, none when it skips the database)
+
+    @Test
+    public void givenRequestsWithAndWithoutDatabase_whenComplete_thenOnlyDatabaseTimeSampled() throws Exception {
+        // given- precondition or setup
+        DataSource pool = Mockito.mock(DataSource.class);
+        BDDMockito.given(pool.getConnection()).willAnswer(invocation -> {
+            Thread.sleep(20);
+            return Mockito.mock(Connection.class);
+        });
+        DataSource dataSource = new StatementCountingDataSource(pool);
+        MockHttpServletRequest cached = new MockHttpServletRequest("GET", "/api/employees/1");
+        MockHttpServletRequest queried = new MockHttpServletRequest("GET", "/api/employees/2");
+
+        // when- action or behaviour we are going to test
+        filter.doFilter(cached, new MockHttpServletResponse(), new MockFilterChain(new HttpServlet() {
+            @Override
+            protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+                response.getWriter().write("{}");
+            }
+        }));
+        long afterCached = concurrencyLimit.getAverageNanos();
+        filter.doFilter(queried, new MockHttpServletResponse(), new MockFilterChain(new HttpServlet() {
+            @Override
+            protected void doGet(HttpServletRequest request, HttpServletResponse response) {
+                try (Connection connection = dataSource.getConnection()) {
+                    Assertions.assertThat(connection).isNotNull();
+                } catch (SQLException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        }));
+
+        // the- verify the output
+        Assertions.assertThat(afterCached).isZero();
+        Assertions.assertThat(concurrencyLimit.getAverageNanos()).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(20));
+        Assertions.assertThat(concurrencyLimit.getInFlight()).isZero();
+    }
+
+    private MockHttpServletResponse perform(String method, String uri, String client) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, uri);
+        request.addHeader("X-Client-Id", client);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+
+    // as many requests as the limit allows, all finishing with the same latency
+    private static void fillAndRelease(AdaptiveConcurrencyLimit limit, long latencyNanos) {
+        int acquired = 0;
+        while (limit.tryAcquire()) {
+            acquired++;
+        }
+        for (int i = 0; i < acquired; i++) {
+            limit.release(latencyNanos);
+        }
+    }
+}
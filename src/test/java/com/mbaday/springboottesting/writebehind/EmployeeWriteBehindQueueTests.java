@@ -0,0 +1,233 @@
+package com.mbaday.springboottesting.writebehind;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mbaday.springboottesting.dto.BulkImportResult;
+import com.mbaday.springboottesting.dto.BulkImportRowResult;
+import com.mbaday.springboottesting.dto.EmployeeCreateStatus;
+import com.mbaday.springboottesting.model.Employee;
+import com.mbaday.springboottesting.service.EmployeeImportService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentMatchers;
+import org.mockito.BDDMockito;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+@ExtendWith(MockitoExtension.class)
+public class EmployeeWriteBehindQueueTests {
+
+    @Mock
+    private EmployeeImportService importService;
+
+    @TempDir
+    private Path directory;
+
+    private final List<EmployeeWriteBehindQueue> queues = new ArrayList<>();
+
+    // what the import service was handed, batch by batch
+    private final List<List<Employee>> batches = new CopyOnWriteArrayList<>();
+
+    private Employee employee;
+
+    @BeforeEach
+    public void setup() {
+        employee = Employee.builder()
+                .firstName("Somtochukwu")
+                .lastName("Mbah")
+                .email("victorsomtochukwu@gmail.com")
+                .build();
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        for (EmployeeWriteBehindQueue queue : queues) {
+            queue.stop();
+        }
+    }
+
+    // Junit for an accepted create (written by the writer, outcome under its ticket)
+
+    @Test
+    public void givenAcceptedCreate_whenWriterDrains_thenStatusCreatedWithId() throws Exception {
+        // given- precondition or setup
+        importCreatesAll();
+        EmployeeWriteBehindQueue queue = start(newQueue(10));
+
+        // when- action or behaviour we are going to test
+        String ticket = queue.accept(employee).orElseThrow();
+
+        // the- verify the output
+        EmployeeCreateStatus status = awaitOutcome(queue, ticket);
+        Assertions.assertThat(status.getStatus()).isEqualTo(EmployeeCreateStatus.Status.CREATED);
+        Assertions.assertThat(status.getId()).isEqualTo(1L);
+        Assertions.assertThat(batches).hasSize(1);
+        Assertions.assertThat(batches.get(0).get(0).getEmail()).isEqualTo(employee.getEmail());
+    }
+
+    // Junit for a full queue (backpressure)
+
+    @Test
+    public void givenFullQueue_whenAccept_thenRefused() throws Exception {
+        // given- precondition or setup
+        CountDownLatch release = new CountDownLatch(1);
+        BDDMockito.given(importService.importBatch(ArgumentMatchers.any())).willAnswer(invocation -> {
+            release.await();
+            return created(invocation.getArgument(0));
+        });
+        EmployeeWriteBehindQueue queue = start(newQueue(2));
+
+        // when- action or behaviour we are going to test
+        Optional<String> first = queue.accept(employee);
+        Optional<String> second = queue.accept(employee.toBuilder().email("azubuine.emeka@gmail.com").build());
+        Optional<String> third = queue.accept(employee.toBuilder().email("sopiaNnadi@gmail.com").build());
+
+        // the- verify the output
+        Assertions.assertThat(first).isPresent();
+        Assertions.assertThat(second).isPresent();
+        Assertions.assertThat(third).isEmpty();
+        release.countDown();
+        awaitOutcome(queue, second.get());
+        Assertions.assertThat(queue.accept(employee.toBuilder().email("sopiaNnadi@gmail.com").build())).isPresent();
+    }
+
+    // Junit for a restart after a crash (accepted creates written from the log, a torn record skipped)
+
+    @Test
+    public void givenCreatesAcceptedBeforeCrash_whenRestarted_thenWrittenFromLog() throws Exception {
+        // given- precondition or setup
+        // what the previous run left behind: one create written, one still open, one cut off mid-record
+        EmployeeWriteAheadLog log = new EmployeeWriteAheadLog(directory.resolve("employees.wal"), new ObjectMapper(),
+                Long.MAX_VALUE);
+        log.recover();
+        log.appendAccepted("before-crash-1", employee);
+        log.appendAccepted("before-crash-2", employee.toBuilder().email("azubuine.emeka@gmail.com").build());
+        log.appendCompleted(List.of("before-crash-1"));
+        log.close();
+        Files.writeString(directory.resolve("employees.wal"), "{\"ticket\":\"torn\",\"empl",
+                StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+        importCreatesAll();
+
+        // when- action or behaviour we are going to test
+        EmployeeWriteBehindQueue restarted = start(newQueue(10));
+
+        // the- verify the output
+        EmployeeCreateStatus status = awaitOutcome(restarted, "before-crash-2");
+        Assertions.assertThat(status.getStatus()).isEqualTo(EmployeeCreateStatus.Status.CREATED);
+        Assertions.assertThat(batches).flatExtracting(batch -> batch).extracting(Employee::getEmail)
+                .containsExactly("azubuine.emeka@gmail.com");
+        Assertions.assertThat(restarted.status("before-crash-1")).isEmpty();
+    }
+
+    // Junit for a batch with a create that fails on every attempt (a value the column cannot hold)
+
+    @Test
+    public void givenBatchWithCreateThatAlwaysFails_whenWriterDrains_thenOnlyThatCreateInvalid() throws Exception {
+        // given- precondition or setup
+        CountDownLatch release = new CountDownLatch(1);
+        BDDMockito.given(importService.importBatch(ArgumentMatchers.any())).willAnswer(invocation -> {
+            release.await();
+            List<Employee> batch = invocation.getArgument(0);
+            if (batch.stream().anyMatch(employee -> employee.getEmail().startsWith("broken"))) {
+                throw new DataIntegrityViolationException("Value too long for column");
+            }
+            return created(batch);
+        });
+        EmployeeWriteBehindQueue queue = start(newQueue(10));
+        List<String> tickets = new ArrayList<>();
+        for (String email : List.of("a@gmail.com", "b@gmail.com", "broken@gmail.com", "c@gmail.com")) {
+            tickets.add(queue.accept(employee.toBuilder().email(email).build()).orElseThrow());
+        }
+
+        // when- action or behaviour we are going to test
+        release.countDown();
+
+        // the- verify the output
+        List<EmployeeCreateStatus.Status> statuses = new ArrayList<>();
+        for (String ticket : tickets) {
+            statuses.add(awaitOutcome(queue, ticket).getStatus());
+        }
+        Assertions.assertThat(statuses).containsExactly(EmployeeCreateStatus.Status.CREATED,
+                EmployeeCreateStatus.Status.CREATED, EmployeeCreateStatus.Status.INVALID,
+                EmployeeCreateStatus.Status.CREATED);
+        Assertions.assertThat(queue.accept(employee.toBuilder().email("d@gmail.com").build())).isPresent();
+    }
+
+    // Junit for a batch that fails while the database cannot be reached
+
+    @Test
+    public void givenDatabaseDownOnce_whenWriterDrains_thenBatchRetriedAndCreated() throws Exception {
+        // given- precondition or setup
+        BDDMockito.given(importService.importBatch(ArgumentMatchers.any()))
+                .willThrow(new CannotCreateTransactionException("Connection refused"))
+                .willAnswer(invocation -> created(invocation.getArgument(0)));
+        EmployeeWriteBehindQueue queue = start(newQueue(10));
+
+        // when- action or behaviour we are going to test
+        String ticket = queue.accept(employee).orElseThrow();
+
+        // the- verify the output
+        Assertions.assertThat(awaitOutcome(queue, ticket).getStatus()).isEqualTo(EmployeeCreateStatus.Status.CREATED);
+        Assertions.assertThat(batches).hasSize(1);
+    }
+
+    private EmployeeWriteBehindQueue newQueue(int capacity) {
+        return new EmployeeWriteBehindQueue(importService, new ObjectMapper(), new SimpleMeterRegistry(),
+                directory.resolve("employees.wal"), DataSize.ofMegabytes(1), capacity, 100, Duration.ofMillis(10),
+                Duration.ofMinutes(1), Duration.ofSeconds(5));
+    }
+
+    private EmployeeWriteBehindQueue start(EmployeeWriteBehindQueue queue) throws Exception {
+        queue.start();
+        queues.add(queue);
+        return queue;
+    }
+
+    private void importCreatesAll() {
+        BDDMockito.given(importService.importBatch(ArgumentMatchers.any()))
+                .willAnswer(invocation -> created(invocation.getArgument(0)));
+    }
+
+    private BulkImportResult created(List<Employee> employees) {
+        List<Employee> batch = new ArrayList<>(employees);
+        batches.add(batch);
+        List<BulkImportRowResult> rows = new ArrayList<>();
+        for (int i = 0; i < batch.size(); i++) {
+            rows.add(new BulkImportRowResult(i, batch.get(i).getEmail(), BulkImportRowResult.Status.CREATED,
+                    i + 1L, null));
+        }
+        return new BulkImportResult(batch.size(), batch.size(), 0, rows);
+    }
+
+    private static EmployeeCreateStatus awaitOutcome(EmployeeWriteBehindQueue queue, String ticket)
+            throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (System.nanoTime() < deadline) {
+            Optional<EmployeeCreateStatus> status = queue.status(ticket);
+            if (status.isPresent() && status.get().getStatus() != EmployeeCreateStatus.Status.PENDING) {
+                return status.get();
+            }
+            Thread.sleep(10);
+        }
+        throw new AssertionError("No outcome for " + ticket);
+    }
+}